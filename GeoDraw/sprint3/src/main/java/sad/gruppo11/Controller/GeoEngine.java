@@ -14,6 +14,7 @@ import sad.gruppo11.Infrastructure.Clipboard;
 import sad.gruppo11.Infrastructure.Command;
 import sad.gruppo11.Infrastructure.AddShapeCommand;
 import sad.gruppo11.Infrastructure.DeleteShapeCommand;
+import sad.gruppo11.Infrastructure.DeleteShapesCommand;
 import sad.gruppo11.Infrastructure.MoveShapeCommand;
 import sad.gruppo11.Infrastructure.ResizeShapeCommand;
 import sad.gruppo11.Infrastructure.ChangeStrokeColorCommand;
@@ -31,8 +32,11 @@ import sad.gruppo11.Infrastructure.ReflectHorizontalCommand;
 import sad.gruppo11.Infrastructure.ReflectVerticalCommand;
 import sad.gruppo11.Infrastructure.GroupShapesCommand;
 import sad.gruppo11.Infrastructure.UngroupShapeCommand;
+import sad.gruppo11.Infrastructure.CompositeCommand;
 
 import sad.gruppo11.Persistence.PersistenceController;
+import sad.gruppo11.Persistence.AsyncDrawingLoader;
+import sad.gruppo11.Persistence.AsyncDrawingSaver;
 // Rimosso IReusableShapeLibrarySerializer e ReusableShapeLibrarySerializer da qui,
 // verranno gestiti da PersistenceController
 import sad.gruppo11.Factory.ShapeFactory;
@@ -50,6 +54,7 @@ import java.util.ArrayList;
 import java.util.Collection; // Per getReusableShapeDefinitions
 import java.util.Collections; // Per Collections.emptyList()
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 import javafx.scene.Group; 
 import java.util.stream.Collectors; 
@@ -64,8 +69,7 @@ public class GeoEngine implements Observable {
     private final ShapeFactory shapeFactory;
     private DrawingView view; 
     
-    // Modificato per selezione multipla
-    private List<Shape> selectedShapes = new ArrayList<>();
+    private final SelectionModel selection = new SelectionModel();
 
     private ColorData currentStrokeColorForNewShapes = ColorData.BLACK;
     private ColorData currentFillColorForNewShapes = ColorData.TRANSPARENT;
@@ -85,6 +89,9 @@ public class GeoEngine implements Observable {
 
     // Nuovi campi per Sprint 3 (Forme Riutilizzabili)
     private final ReusableShapeLibrary reusableShapeLibrary;
+    private volatile AsyncDrawingSaver.SaveTask currentSave; // Ultimo salvataggio in background
+    private volatile AsyncDrawingLoader.LoadTask currentLoad; // Ultimo caricamento progressivo
+    private Executor uiExecutor = Runnable::run;
 
 
     public GeoEngine(Drawing drawing, CommandManager cmdMgr, 
@@ -130,6 +137,7 @@ public class GeoEngine implements Observable {
                 this.currentState.deactivate(this);
             }
             clearSelection(); // Deseleziona tutto quando si cambia tool (tranne forse da Select a Select)
+            cmdMgr.breakMerge(); // Le modifiche fatte con il nuovo strumento aprono una nuova voce di undo
             this.currentState = newState;
             this.currentState.activate(this);
             notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.SELECTION)); // Notifica cambio selezione (a vuoto)
@@ -152,46 +160,46 @@ public class GeoEngine implements Observable {
     }
 
     // --- Gestione Selezione (Modificata per Lista) ---
-    public List<Shape> getSelectedShapes() {
-        return Collections.unmodifiableList(new ArrayList<>(selectedShapes));
+    public List<Shape> getSelectedShapes() { // Vista in sola lettura, senza copia
+        return selection.getShapes();
+    }
+
+    public SelectionModel getSelectionModel() {
+        return selection;
+    }
+
+    public boolean isSelected(Shape shape) {
+        return selection.contains(shape);
     }
 
     public Shape getSelectedShape() { // Restituisce la prima forma selezionata, o null
-        return selectedShapes.isEmpty() ? null : selectedShapes.get(0);
+        return selection.getPrimary();
     }
     
     public void setSelectedShapes(List<Shape> shapes) {
-        this.selectedShapes.clear();
-        if (shapes != null) {
-            this.selectedShapes.addAll(shapes);
-        }
+        selection.set(shapes);
         notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.SELECTION));
-        if (view != null) view.render();
+        if (view != null) view.requestRender();
     }
 
     public void clearSelection() {
-        if (!selectedShapes.isEmpty()) {
-            selectedShapes.clear();
+        if (selection.clear()) {
             notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.SELECTION));
-            if (view != null) view.render();
+            if (view != null) view.requestRender();
         }
     }
 
     public void addShapeToSelection(Shape shape) {
         Objects.requireNonNull(shape);
-        if (!selectedShapes.contains(shape)) {
-            selectedShapes.add(shape);
+        if (selection.add(shape)) {
             notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.SELECTION));
-            if (view != null) view.render();
+            if (view != null) view.requestRender();
         }
     }
      public void setSingleSelectedShape(Shape shape) { // Helper per quando si vuole selezionare una singola forma
-        this.selectedShapes.clear();
-        if (shape != null) {
-            this.selectedShapes.add(shape);
-        }
+        selection.set(shape != null ? Collections.singletonList(shape) : null);
         notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.SELECTION));
-        if (view != null) view.render();
+        if (view != null) view.requestRender();
     }
 
 
@@ -204,18 +212,11 @@ public class GeoEngine implements Observable {
     }
 
     public void removeSelectedShapesFromDrawing() {
-        if (!this.selectedShapes.isEmpty()) {
-            // Per l'undo/redo, è meglio un comando per ogni forma o un comando composito?
-            // Per ora, un comando per forma se sono molte, o un comando batch se fattibile.
-            // Semplificazione: creiamo un comando di cancellazione per ogni forma selezionata.
-            // Bisogna fare attenzione se un comando di cancellazione cambia gli indici degli altri.
-            // Soluzione migliore: un comando che prende una lista di forme da cancellare.
-            // Per ora, lo facciamo iterando (potrebbe essere migliorato con un BatchDeleteCommand).
-            List<Shape> shapesToRemove = new ArrayList<>(this.selectedShapes); // Copia per evitare ConcurrentModificationException
+        if (!selection.isEmpty()) {
+            // Cancellazione di massa in un solo passaggio; l'undo ripristina gli indici Z originali
+            List<Shape> shapesToRemove = new ArrayList<>(selection.getShapes());
             clearSelection(); // Deseleziona prima di rimuovere
-            for(Shape shape : shapesToRemove) {
-                cmdMgr.executeCommand(new DeleteShapeCommand(this.getDrawing(), shape));
-            }
+            cmdMgr.executeCommand(new DeleteShapesCommand(this.getDrawing(), shapesToRemove));
         }
     }
     
@@ -229,13 +230,14 @@ public class GeoEngine implements Observable {
 
 
     public void moveSelectedShapes(Vector2D delta) {
-        if (!this.selectedShapes.isEmpty() && delta != null) {
-            // Applica un MoveShapeCommand a ogni forma selezionata.
-            // Se sono raggruppate logicamente in un GroupShape e GroupShape è selezionato,
-            // il MoveShapeCommand su GroupShape sposterà tutti i suoi figli.
-            for (Shape shape : this.selectedShapes) {
-                cmdMgr.executeCommand(new MoveShapeCommand(this.getDrawing(), shape, delta));
+        if (!selection.isEmpty() && delta != null) {
+            // Un MoveShapeCommand per ogni forma selezionata.
+            // Se un GroupShape è selezionato, il MoveShapeCommand su di esso sposterà tutti i suoi figli.
+            List<Command> moves = new ArrayList<>();
+            for (Shape shape : selection.getShapes()) {
+                moves.add(new MoveShapeCommand(this.getDrawing(), shape, delta));
             }
+            executeOnSelection(moves);
         }
     }
 
@@ -249,9 +251,20 @@ public class GeoEngine implements Observable {
         return isShiftKeyPressed;
     }
     
-    // Resize, Rotate, ColorChange di solito si applicano a una singola forma selezionata (la "primaria")
-    // o richiedono UI più complessa per selezioni multiple.
-    // Per ora, operano sulla prima forma selezionata.
+    /**
+     * Esegue i comandi di un'operazione sulla selezione come un'unica voce di undo.
+     * Un solo comando viene eseguito così com'è, in modo che resti unibile con i successivi (mergeWith).
+     */
+    private void executeOnSelection(List<Command> commands) {
+        if (commands.size() == 1) {
+            cmdMgr.executeCommand(commands.get(0));
+        } else if (!commands.isEmpty()) {
+            cmdMgr.executeCommand(new CompositeCommand(this.getDrawing(), commands));
+        }
+    }
+
+    // Resize e le modifiche al testo si applicano alla forma selezionata "primaria";
+    // colori e rotazione si applicano a tutta la selezione.
     public void resizeSelectedShape(Rect newBounds) {
         if (getSelectedShape() != null && newBounds != null) {
             cmdMgr.executeCommand(new ResizeShapeCommand(this.getDrawing(), getSelectedShape(), newBounds));
@@ -259,14 +272,22 @@ public class GeoEngine implements Observable {
     }
 
     public void changeSelectedShapeStrokeColor(ColorData color) {
-        if (getSelectedShape() != null && color != null) {
-            cmdMgr.executeCommand(new ChangeStrokeColorCommand(this.getDrawing(), getSelectedShape(), color));
+        if (!selection.isEmpty() && color != null) {
+            List<Command> changes = new ArrayList<>();
+            for (Shape shape : selection.getShapes()) {
+                changes.add(new ChangeStrokeColorCommand(this.getDrawing(), shape, color));
+            }
+            executeOnSelection(changes);
         }
     }
 
     public void changeSelectedShapeFillColor(ColorData color) {
-        if (getSelectedShape() != null && color != null) {
-            cmdMgr.executeCommand(new ChangeFillColorCommand(this.getDrawing(), getSelectedShape(), color));
+        if (!selection.isEmpty() && color != null) {
+            List<Command> changes = new ArrayList<>();
+            for (Shape shape : selection.getShapes()) {
+                changes.add(new ChangeFillColorCommand(this.getDrawing(), shape, color));
+            }
+            executeOnSelection(changes);
         }
     }
     
@@ -275,7 +296,7 @@ public class GeoEngine implements Observable {
             Shape shapeToCut = getSelectedShape();
             cmdMgr.executeCommand(new CutShapeCommand(this.getDrawing(), shapeToCut, this.clipboard));
             // Rimuovi la forma tagliata dalla selezione
-            selectedShapes.remove(shapeToCut); 
+            selection.remove(shapeToCut);
             notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.SELECTION));
         }
     }
@@ -314,8 +335,12 @@ public class GeoEngine implements Observable {
 
     
     public void rotateSelectedShape(double angleDegrees) { 
-        if (getSelectedShape() != null) {
-            cmdMgr.executeCommand(new RotateShapeCommand(this.getDrawing(), getSelectedShape(), angleDegrees));
+        if (!selection.isEmpty()) {
+            List<Command> rotations = new ArrayList<>();
+            for (Shape shape : selection.getShapes()) {
+                rotations.add(new RotateShapeCommand(this.getDrawing(), shape, angleDegrees));
+            }
+            executeOnSelection(rotations);
         }
     }
     public void changeSelectedTextSize(double newSize) {
@@ -334,27 +359,30 @@ public class GeoEngine implements Observable {
     
     // --- Nuovi metodi per Sprint 3 ---
     public void reflectSelectedShapesHorizontal() {
-        if (!selectedShapes.isEmpty()) {
-            for (Shape shape : selectedShapes) {
-                // Passa drawing per permettere al comando di notificare il modello
-                cmdMgr.executeCommand(new ReflectHorizontalCommand(this.getDrawing(), shape));
+        if (!selection.isEmpty()) {
+            List<Command> reflections = new ArrayList<>();
+            for (Shape shape : selection.getShapes()) {
+                reflections.add(new ReflectHorizontalCommand(this.getDrawing(), shape));
             }
+            executeOnSelection(reflections);
         }
     }
     
     public void reflectSelectedShapesVertical() {
-        if (!selectedShapes.isEmpty()) {
-            for (Shape shape : selectedShapes) {
-                cmdMgr.executeCommand(new ReflectVerticalCommand(this.getDrawing(), shape));
+        if (!selection.isEmpty()) {
+            List<Command> reflections = new ArrayList<>();
+            for (Shape shape : selection.getShapes()) {
+                reflections.add(new ReflectVerticalCommand(this.getDrawing(), shape));
             }
+            executeOnSelection(reflections);
         }
     }
     
     public void groupSelectedShapes() {
-        if (selectedShapes.size() >= 2) {
+        if (selection.size() >= 2) {
             // Il comando si aspetta i riferimenti alle forme nel drawing
             List<Shape> shapesToActuallyGroup = new ArrayList<>();
-            for(Shape s : selectedShapes) {
+            for(Shape s : selection.getShapes()) {
                 // Assicurati che la forma sia ancora nel disegno
                 if (drawing.getShapeIndex(s) != -1) {
                     shapesToActuallyGroup.add(s);
@@ -475,15 +503,8 @@ public class GeoEngine implements Observable {
 
     public void checkIfAnySelectedShapeWasDeleted()
     {
-        List<Shape> newSelectedShapes = new ArrayList<>();
-        for(Shape selectedShape : selectedShapes)
-        {
-            if(drawing.getModifiableShapesList().contains(selectedShape))
-            {
-                newSelectedShapes.add(selectedShape);
-            }
-        }
-        selectedShapes = newSelectedShapes;
+        // O(dimensione della selezione): containsShape è una ricerca in tabella hash
+        selection.retainIf(drawing::containsShape);
     }
     
     // --- Undo/Redo ---
@@ -504,22 +525,154 @@ public class GeoEngine implements Observable {
     public boolean canRedo() { return cmdMgr.canRedo(); }
 
     // --- Persistence ---
-    public void saveDrawing(String path) throws Exception { /* ... come prima ... */ }
+    /**
+     * Salva il disegno in background: la copia viene presa subito sul thread chiamante,
+     * quindi le modifiche successive non finiscono nel file e l'editor resta utilizzabile.
+     * Avanzamento, completamento, errori e annullamento arrivano agli observer come SaveProgressEvent.
+     * Un salvataggio ancora in corso viene annullato, perché superato da quello nuovo.
+     */
+    public AsyncDrawingSaver.SaveTask saveDrawing(String path) {
+        Objects.requireNonNull(path, "File path cannot be null for saving drawing.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for saving drawing.");
+        cancelSave();
+        Drawing snapshot = this.getDrawing().snapshot();
+        notifyGeoEngineObservers(new SaveProgressEvent(SaveProgressEvent.Status.STARTED, path, 0.0, null));
+        AsyncDrawingSaver.SaveTask task = persistenceController.saveDrawingAsync(snapshot, path, new AsyncDrawingSaver.Listener() {
+            @Override
+            public void onProgress(String p, double fraction) {
+                uiExecutor.execute(() -> notifyGeoEngineObservers(new SaveProgressEvent(SaveProgressEvent.Status.PROGRESS, p, fraction, null)));
+            }
+            @Override
+            public void onCompleted(String p) {
+                uiExecutor.execute(() -> notifyGeoEngineObservers(new SaveProgressEvent(SaveProgressEvent.Status.COMPLETED, p, 1.0, null)));
+            }
+            @Override
+            public void onCancelled(String p) {
+                uiExecutor.execute(() -> notifyGeoEngineObservers(new SaveProgressEvent(SaveProgressEvent.Status.CANCELLED, p, 0.0, null)));
+            }
+            @Override
+            public void onFailed(String p, Exception error) {
+                uiExecutor.execute(() -> notifyGeoEngineObservers(new SaveProgressEvent(SaveProgressEvent.Status.FAILED, p, 0.0, error)));
+            }
+        });
+        this.currentSave = task;
+        return task;
+    }
+    /** Annulla il salvataggio in corso, se presente. */
+    public void cancelSave() {
+        AsyncDrawingSaver.SaveTask task = this.currentSave;
+        if (task != null && !task.isDone()) task.cancel();
+    }
+    public boolean isSaving() {
+        AsyncDrawingSaver.SaveTask task = this.currentSave;
+        return task != null && !task.isDone();
+    }
     public void loadDrawing(String path) throws Exception {
+        cancelLoad(); // Un caricamento progressivo in corso non deve aggiungere forme al disegno caricato qui
         Drawing loadedDrawing = persistenceController.loadDrawing(path);
         if (loadedDrawing != null) {
-            this.getDrawing().clear(); 
-            for(Shape s : loadedDrawing.getShapesInZOrder()){
-                this.getDrawing().addShape(s.cloneWithNewId()); 
-            }
+            // Le forme deserializzate vengono adottate così come sono (nuovi ID solo in caso di conflitto)
+            // e gli observer del disegno ricevono un solo evento LOAD
             cmdMgr.clearStacks();
             clearSelection(); // Deseleziona tutto dopo il caricamento
-            this.getDrawing().notifyObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.LOAD));
+            this.getDrawing().replaceAll(loadedDrawing.getShapesInZOrder());
              // Notifica anche GeoEngine observers per resettare UI (es. stato tool)
             notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.LOAD));
         }
     }
+    /**
+     * Carica il disegno in background. Le forme lette vengono aggiunte a blocchi tramite l'executor
+     * della UI (vedi setUiExecutor), così la vista si riempie man mano e resta navigabile.
+     * Disegno, annulla/ripeti e selezione vengono sostituiti solo all'arrivo del primo blocco
+     * (o alla fine, per un file valido ma vuoto): se il file non si apre il disegno corrente resta com'è.
+     * Gli observer ricevono LoadProgressEvent e, alla fine, un evento LOAD come con loadDrawing().
+     * Un caricamento ancora in corso viene annullato.
+     */
+    public AsyncDrawingLoader.LoadTask loadDrawingAsync(String path) {
+        Objects.requireNonNull(path, "File path cannot be null for loading drawing.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for loading drawing.");
+        cancelLoad();
+        notifyGeoEngineObservers(new LoadProgressEvent(LoadProgressEvent.Status.STARTED, path, 0.0, 0, null));
+
+        ProgressiveLoad listener = new ProgressiveLoad();
+        AsyncDrawingLoader.LoadTask task = persistenceController.loadDrawingAsync(path, listener);
+        listener.task = task;
+        this.currentLoad = task;
+        return task;
+    }
+    /** Annulla il caricamento progressivo in corso: le forme già aggiunte restano nel disegno. */
+    public void cancelLoad() {
+        AsyncDrawingLoader.LoadTask task = this.currentLoad;
+        if (task != null && !task.isDone()) task.cancel();
+    }
+    public boolean isLoading() {
+        AsyncDrawingLoader.LoadTask task = this.currentLoad;
+        return task != null && !task.isDone();
+    }
+    /**
+     * Executor con cui le notifiche di salvataggi e caricamenti in background vengono riportate sul thread
+     * della UI (es. Platform::runLater). Di default esegue direttamente sul thread chiamante.
+     */
+    public void setUiExecutor(Executor uiExecutor) {
+        this.uiExecutor = Objects.requireNonNull(uiExecutor, "UI executor cannot be null.");
+    }
+
+    // Riceve i blocchi dal thread di caricamento e li applica al disegno tramite l'executor della UI
+    private class ProgressiveLoad implements AsyncDrawingLoader.Listener {
+        private volatile AsyncDrawingLoader.LoadTask task; // Assegnato subito dopo l'avvio
+        private int loadedShapes = 0;
+        private boolean replaced = false; // Letto e scritto solo sul thread della UI
+
+        private boolean isStale() {
+            AsyncDrawingLoader.LoadTask t = task;
+            return t != null && t.isCancelled();
+        }
+        // Il file si è aperto (intestazione valida): solo ora il disegno precedente viene scartato
+        private void replaceDrawing(List<Shape> firstBatch) {
+            cmdMgr.clearStacks();
+            clearSelection();
+            getDrawing().replaceAll(firstBatch);
+            replaced = true;
+        }
+        @Override
+        public void onShapes(String path, List<Shape> batch, double fraction) {
+            uiExecutor.execute(() -> {
+                if (isStale()) return; // Blocco arrivato dopo l'annullamento
+                if (replaced) {
+                    getDrawing().addShapes(batch);
+                } else {
+                    replaceDrawing(batch);
+                }
+                loadedShapes += batch.size();
+                notifyGeoEngineObservers(new LoadProgressEvent(LoadProgressEvent.Status.PROGRESS, path, fraction, loadedShapes, null));
+            });
+        }
+        @Override
+        public void onCompleted(String path, int shapeCount) {
+            uiExecutor.execute(() -> {
+                if (isStale()) { // Annullato dopo l'ultimo blocco: il disegno corrente non va toccato
+                    notifyGeoEngineObservers(new LoadProgressEvent(LoadProgressEvent.Status.CANCELLED, path, 0.0, loadedShapes, null));
+                    return;
+                }
+                if (!replaced) replaceDrawing(Collections.emptyList()); // File valido senza forme
+                notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.LOAD));
+                notifyGeoEngineObservers(new LoadProgressEvent(LoadProgressEvent.Status.COMPLETED, path, 1.0, loadedShapes, null));
+            });
+        }
+        @Override
+        public void onCancelled(String path) {
+            uiExecutor.execute(() ->
+                notifyGeoEngineObservers(new LoadProgressEvent(LoadProgressEvent.Status.CANCELLED, path, 0.0, loadedShapes, null)));
+        }
+        @Override
+        public void onFailed(String path, Exception error) {
+            uiExecutor.execute(() ->
+                notifyGeoEngineObservers(new LoadProgressEvent(LoadProgressEvent.Status.FAILED, path, 0.0, loadedShapes, error)));
+        }
+    }
+
     public void createNewDrawing() { /* ... come prima, assicurati che clearSelection() sia chiamato ... */ 
+        cancelLoad(); // Altrimenti i blocchi ancora in arrivo finirebbero nel nuovo disegno
         this.getDrawing().clear(); 
         cmdMgr.clearStacks();
         clearSelection();
@@ -615,7 +768,7 @@ public class GeoEngine implements Observable {
     public void notifyViewToRefresh(){ 
         if(view != null) {
             notifyGeoEngineObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.TRANSFORM)); // Per aggiornare zoom/pan
-            view.render();
+            view.requestRender();
         }
     }
     
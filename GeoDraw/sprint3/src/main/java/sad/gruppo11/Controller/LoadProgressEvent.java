@@ -0,0 +1,34 @@
+package sad.gruppo11.Controller;
+
+import java.util.Objects;
+
+/**
+ * Stato di un caricamento progressivo avviato con GeoEngine.loadDrawingAsync().
+ * Viene notificato agli observer di GeoEngine tramite l'executor della UI.
+ */
+public final class LoadProgressEvent {
+    public enum Status { STARTED, PROGRESS, COMPLETED, CANCELLED, FAILED }
+
+    public final Status status;
+    public final String path;
+    public final double progress;   // Frazione del file caricata, tra 0 e 1
+    public final int loadedShapes;  // Forme di primo livello aggiunte finora
+    public final Exception error;   // Solo per FAILED
+
+    public LoadProgressEvent(Status status, String path, double progress, int loadedShapes, Exception error) {
+        this.status = Objects.requireNonNull(status, "Load status cannot be null.");
+        this.path = Objects.requireNonNull(path, "Load path cannot be null.");
+        this.progress = progress;
+        this.loadedShapes = loadedShapes;
+        this.error = error;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.CANCELLED || status == Status.FAILED;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadProgressEvent{" + status + ", " + path + ", " + loadedShapes + " shapes, " + Math.round(progress * 100) + "%}";
+    }
+}
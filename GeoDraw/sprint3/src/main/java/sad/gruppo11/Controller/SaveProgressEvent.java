@@ -0,0 +1,32 @@
+package sad.gruppo11.Controller;
+
+import java.util.Objects;
+
+/**
+ * Stato di un salvataggio in background avviato con GeoEngine.saveDrawing().
+ * Viene notificato agli observer di GeoEngine tramite l'executor della UI.
+ */
+public final class SaveProgressEvent {
+    public enum Status { STARTED, PROGRESS, COMPLETED, CANCELLED, FAILED }
+
+    public final Status status;
+    public final String path;
+    public final double progress; // Tra 0 e 1
+    public final Exception error; // Solo per FAILED
+
+    public SaveProgressEvent(Status status, String path, double progress, Exception error) {
+        this.status = Objects.requireNonNull(status, "Save status cannot be null.");
+        this.path = Objects.requireNonNull(path, "Save path cannot be null.");
+        this.progress = progress;
+        this.error = error;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.CANCELLED || status == Status.FAILED;
+    }
+
+    @Override
+    public String toString() {
+        return "SaveProgressEvent{" + status + ", " + path + ", " + Math.round(progress * 100) + "%}";
+    }
+}
@@ -67,6 +67,7 @@ public class SelectState implements ToolState {
         resetState();
         DrawingView view = engine.getView();
         if (view != null) {
+            view.clearDragPreview(); // Drag interrotto: il modello non è stato modificato
             view.clearTemporaryVisuals(); // Rimuovi rettangolo di selezione area
             view.clearUserMessage();
         }
@@ -155,12 +156,13 @@ public class SelectState implements ToolState {
 
         switch (currentMode) {
             case DRAG_SELECTION:
-                if (shapesBeingDragged != null && !shapesBeingDragged.isEmpty()) {
-                    for (Shape shape : shapesBeingDragged) {
-                        // Applica il delta di drag per il feedback visivo immediato
-                        drawing.moveShape(shape, dragDelta); 
-                    }
-                    // engine.notifyViewToRefresh(); // Aggiorna la vista durante il drag
+                if (shapesBeingDragged != null && !shapesBeingDragged.isEmpty() && engine.getView() != null) {
+                    // Anteprima solo nella vista: il modello viene modificato una volta, al rilascio
+                    Vector2D totalDragVector = new Vector2D(
+                        worldPoint.getX() - pressPosWorld.getX(),
+                        worldPoint.getY() - pressPosWorld.getY()
+                    );
+                    engine.getView().setDragPreview(shapesBeingDragged, totalDragVector);
                 }
                 break;
             case SELECT_AREA:
@@ -200,18 +202,13 @@ public class SelectState implements ToolState {
                         worldPoint.getY() - pressPosWorld.getY()
                     );
 
-                    // Se c'è stato un movimento significativo, crea i comandi
-                    if (totalDragVector.length() > 1e-3) { 
-                        
-                        if (shapesBeingDragged != null && !shapesBeingDragged.isEmpty()) {
-                            for (Shape shape : shapesBeingDragged) {
-                                // Applica il delta di drag per il feedback visivo immediato
-                                drawing.moveShape(shape, totalDragVector.inverse()); 
-                            }
-                            // engine.notifyViewToRefresh(); // Aggiorna la vista durante il drag
-                        }
+                    if (engine.getView() != null) engine.getView().clearDragPreview();
 
+                    // Se c'è stato un movimento significativo, un solo comando sposta tutte le forme
+                    if (totalDragVector.length() > 1e-3) { 
                         engine.moveSelectedShapes(totalDragVector);
+                        // Due trascinamenti ravvicinati restano due voci di undo distinte
+                        engine.getCommandManager().breakMerge();
                     } else { // Solo un click senza drag significativo, la selezione è già stata gestita in onPressed
                         engine.notifyViewToRefresh(); // Assicura che la vista sia aggiornata
                     }
@@ -243,15 +240,9 @@ public class SelectState implements ToolState {
     }
 
     private Shape pickTopMostShapeOrGroup(Drawing drawing, Point2D p) {
-        List<Shape> shapes = drawing.getShapesInZOrder(); // Dal basso verso l'alto
-        Shape picked = null;
-        for (int i = shapes.size() - 1; i >= 0; i--) { // Itera dall'alto verso il basso
-            Shape currentShape = shapes.get(i);
-            if (currentShape.contains(p)) {
-                picked = currentShape;
-                break; 
-            }
-        }
+        // L'indice spaziale del Drawing restituisce solo le forme colpite, dal basso verso l'alto
+        List<Shape> hits = drawing.shapesAt(p);
+        Shape picked = hits.isEmpty() ? null : hits.get(hits.size() - 1);
         if (picked != null) {
             return getTopLevelParentGroup(drawing, picked);
         }
@@ -263,43 +254,12 @@ public class SelectState implements ToolState {
      * Altrimenti, restituisce la shape stessa.
      */
     private Shape getTopLevelParentGroup(Drawing drawing, Shape shape) {
-        for (Shape topLevelShape : drawing.getShapesInZOrder()) {
-            if (topLevelShape == shape) return shape; // È una forma di primo livello
-            if (topLevelShape.isComposite()) {
-                if (isDescendant(topLevelShape, shape)) {
-                    return topLevelShape; // Restituisce il gruppo di primo livello che contiene la forma
-                }
-            }
-        }
-        return shape; // Non trovata come figlia, restituisci la forma originale
-    }
-
-    private boolean isDescendant(Shape ancestor, Shape potentialDescendant) {
-        if (!ancestor.isComposite()) return false;
-        for (Shape child : ancestor.getChildren()) {
-            if (child == potentialDescendant) return true;
-            if (isDescendant(child, potentialDescendant)) return true;
-        }
-        return false;
+        return drawing.getTopLevelShape(shape); // Risale i collegamenti figlio -> padre del Drawing
     }
 
     private List<Shape> findShapesInRect(Drawing drawing, Rect area) {
-        List<Shape> found = new ArrayList<>();
-        for (Shape shape : drawing.getShapesInZOrder()) {
-            // Controlla se il bounding box della forma (ruotato) interseca l'area di selezione.
-            // Questo è un controllo approssimativo, per precisione si dovrebbe controllare ogni punto/segmento.
-            // Per ora, usiamo l'intersezione dei bounding box non ruotati come approssimazione.
-            if (rectsIntersect(shape.getBounds(), area)) { // TODO: Intersezione di AABB di forma ruotata
-                found.add(shape);
-            }
-        }
-        return found;
-    }
-    
-    private boolean rectsIntersect(Rect r1, Rect r2) {
-        return r1.getX() < r2.getX() + r2.getWidth() &&
-               r1.getX() + r1.getWidth() > r2.getX() &&
-               r1.getY() < r2.getY() + r2.getHeight() &&
-               r1.getY() + r1.getHeight() > r2.getY();
+        // Per ora si usa l'intersezione dei bounding box non ruotati come approssimazione.
+        // TODO: Intersezione di AABB di forma ruotata
+        return drawing.shapesIntersecting(area);
     }
 }
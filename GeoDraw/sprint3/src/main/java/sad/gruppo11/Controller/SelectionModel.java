@@ -0,0 +1,246 @@
+package sad.gruppo11.Controller;
+
+import sad.gruppo11.Model.Shape;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Insieme delle forme selezionate, nell'ordine in cui sono state selezionate.
+ * È un LinkedHashSet: appartenenza, aggiunta e rimozione costano O(1).
+ * getShapes() restituisce una vista in sola lettura senza copie; l'accesso per indice
+ * usa un array ricostruito solo dopo una modifica.
+ * Ogni modifica effettiva viene notificata ai listener con le sole forme aggiunte e rimosse.
+ */
+public class SelectionModel {
+
+    /** Notifica di una modifica della selezione. Le liste non sono mai entrambe vuote. */
+    public interface Listener {
+        void selectionChanged(SelectionModel source, List<Shape> added, List<Shape> removed);
+    }
+
+    private final LinkedHashSet<Shape> selected = new LinkedHashSet<>();
+    private final List<Shape> listView = new ListView();
+    private final Set<Shape> setView = Collections.unmodifiableSet(selected);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private Shape[] orderCache; // Null dopo ogni modifica, ricostruito al primo accesso per indice
+
+    /**
+     * @return Vista in sola lettura della selezione, nell'ordine di selezione.
+     *         Riflette le modifiche successive; contains() costa O(1).
+     */
+    public List<Shape> getShapes() {
+        return listView;
+    }
+
+    /**
+     * @return Vista in sola lettura come insieme.
+     */
+    public Set<Shape> asSet() {
+        return setView;
+    }
+
+    /**
+     * @return La prima forma selezionata, o null se la selezione è vuota.
+     */
+    public Shape getPrimary() {
+        return selected.isEmpty() ? null : selected.iterator().next();
+    }
+
+    public boolean contains(Shape shape) {
+        return shape != null && selected.contains(shape);
+    }
+
+    public int size() {
+        return selected.size();
+    }
+
+    public boolean isEmpty() {
+        return selected.isEmpty();
+    }
+
+    /**
+     * @return true se la forma non era già selezionata.
+     */
+    public boolean add(Shape shape) {
+        Objects.requireNonNull(shape, "Shape to select cannot be null.");
+        if (!selected.add(shape)) {
+            return false;
+        }
+        changed(Collections.singletonList(shape), Collections.emptyList());
+        return true;
+    }
+
+    /**
+     * @return true se la forma era selezionata.
+     */
+    public boolean remove(Shape shape) {
+        if (shape == null || !selected.remove(shape)) {
+            return false;
+        }
+        changed(Collections.emptyList(), Collections.singletonList(shape));
+        return true;
+    }
+
+    /**
+     * Deseleziona le forme indicate con una sola notifica. Costa O(forme indicate).
+     * @return true se almeno una forma era selezionata.
+     */
+    public boolean removeAll(Collection<? extends Shape> shapes) {
+        Objects.requireNonNull(shapes, "Shapes to deselect cannot be null.");
+        List<Shape> removed = new ArrayList<>();
+        for (Shape s : shapes) {
+            if (s != null && selected.remove(s)) {
+                removed.add(s);
+            }
+        }
+        if (removed.isEmpty()) {
+            return false;
+        }
+        changed(Collections.emptyList(), removed);
+        return true;
+    }
+
+    /**
+     * Sostituisce la selezione, nell'ordine indicato;
+     * i listener ricevono solo la differenza. Null equivale a una lista vuota; i duplicati sono ignorati.
+     * Un cambio del solo ordine non viene notificato ai listener.
+     * @return true se la selezione (o il suo ordine) è cambiata.
+     */
+    public boolean set(Collection<? extends Shape> shapes) {
+        LinkedHashSet<Shape> next = new LinkedHashSet<>();
+        if (shapes != null) {
+            for (Shape s : shapes) {
+                next.add(Objects.requireNonNull(s, "Selection cannot contain null shapes."));
+            }
+        }
+        List<Shape> removed = new ArrayList<>();
+        for (Iterator<Shape> it = selected.iterator(); it.hasNext(); ) {
+            Shape s = it.next();
+            if (!next.contains(s)) {
+                it.remove();
+                removed.add(s);
+            }
+        }
+        List<Shape> added = new ArrayList<>();
+        for (Shape s : next) {
+            if (selected.add(s)) {
+                added.add(s);
+            }
+        }
+        boolean reordered = !sameOrder(next);
+        if (reordered) { // L'ordine richiesto prevale: la prima forma è la selezione primaria
+            selected.clear();
+            selected.addAll(next);
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            if (reordered) {
+                orderCache = null;
+            }
+            return reordered;
+        }
+        changed(added, removed);
+        return true;
+    }
+
+    /**
+     * @return true se la selezione non era vuota.
+     */
+    public boolean clear() {
+        if (selected.isEmpty()) {
+            return false;
+        }
+        List<Shape> removed = new ArrayList<>(selected);
+        selected.clear();
+        changed(Collections.emptyList(), removed);
+        return true;
+    }
+
+    /**
+     * Deseleziona le forme per cui isPresent restituisce false, con una sola notifica.
+     * Costa O(dimensione della selezione) se il predicato è O(1), indipendentemente dalla dimensione del disegno.
+     * @return true se almeno una forma è stata deselezionata.
+     */
+    public boolean retainIf(Predicate<? super Shape> isPresent) {
+        Objects.requireNonNull(isPresent, "Predicate cannot be null.");
+        List<Shape> removed = new ArrayList<>();
+        for (Iterator<Shape> it = selected.iterator(); it.hasNext(); ) {
+            Shape s = it.next();
+            if (!isPresent.test(s)) {
+                it.remove();
+                removed.add(s);
+            }
+        }
+        if (removed.isEmpty()) {
+            return false;
+        }
+        changed(Collections.emptyList(), removed);
+        return true;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(Objects.requireNonNull(listener, "Listener cannot be null."));
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Chiamato quando selected e next contengono le stesse forme
+    private boolean sameOrder(Collection<Shape> next) {
+        Iterator<Shape> expected = next.iterator();
+        for (Shape s : selected) {
+            if (expected.next() != s) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void changed(List<Shape> added, List<Shape> removed) {
+        orderCache = null;
+        List<Shape> addedView = Collections.unmodifiableList(added);
+        List<Shape> removedView = Collections.unmodifiableList(removed);
+        for (Listener listener : listeners) {
+            listener.selectionChanged(this, addedView, removedView);
+        }
+    }
+
+    private Shape[] order() {
+        if (orderCache == null) {
+            orderCache = selected.toArray(new Shape[0]);
+        }
+        return orderCache;
+    }
+
+    // Vista List della selezione: size/contains/iterator vanno direttamente all'insieme
+    private final class ListView extends AbstractList<Shape> {
+        @Override
+        public Shape get(int index) {
+            return order()[index];
+        }
+
+        @Override
+        public int size() {
+            return selected.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return selected.contains(o);
+        }
+
+        @Override
+        public Iterator<Shape> iterator() {
+            return setView.iterator();
+        }
+    }
+}
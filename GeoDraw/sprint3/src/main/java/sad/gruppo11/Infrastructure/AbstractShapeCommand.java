@@ -18,6 +18,13 @@ public abstract class AbstractShapeCommand implements Command {
         this.drawing = drawing; 
     }
 
+    /**
+     * Helper per mergeWith(): due comandi sono unibili solo se agiscono sulla stessa forma dello stesso disegno.
+     */
+    protected boolean targetsSameShape(AbstractShapeCommand other) {
+        return other.receiverShape == this.receiverShape && other.drawing == this.drawing;
+    }
+
     // Metodo helper che le sottoclassi potrebbero usare prima di execute()
     // protected void storeInitialState() {
     //     if (this.receiverShape != null) {
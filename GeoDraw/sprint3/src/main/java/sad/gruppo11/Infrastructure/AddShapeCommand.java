@@ -30,6 +30,12 @@ public class AddShapeCommand extends AbstractDrawingCommand {
         receiverDrawing.removeShape(shapeToAdd);
     }
 
+    // Dopo un undo la forma sopravvive solo nello stack di redo.
+    @Override
+    public long estimateSizeBytes() {
+        return BASE_SIZE_BYTES + Command.estimateShapeBytes(shapeToAdd);
+    }
+
     @Override
     public String toString() {
         return "AddShapeCommand{shapeId=" + (shapeToAdd != null ? shapeToAdd.getId().toString() : "null") + "}";
@@ -6,7 +6,7 @@ import sad.gruppo11.Model.geometry.ColorData;
 import java.util.Objects;
 
 public class ChangeFillColorCommand extends AbstractShapeCommand {
-    private final ColorData newColor;
+    private ColorData newColor;
     private ColorData oldColor;
 
     public ChangeFillColorCommand(Drawing drawing, Shape shape, ColorData newColor) {
@@ -29,6 +29,20 @@ public class ChangeFillColorCommand extends AbstractShapeCommand {
         this.drawing.setShapeFillColor(receiverShape, oldColor);
     }
     
+    @Override
+    public boolean canMergeWith(Command next) {
+        return next instanceof ChangeFillColorCommand && targetsSameShape((ChangeFillColorCommand) next);
+    }
+
+    @Override
+    public boolean mergeWith(Command next) {
+        if (!canMergeWith(next)) {
+            return false;
+        }
+        this.newColor = ((ChangeFillColorCommand) next).newColor;
+        return true;
+    }
+
     @Override
     public String toString() {
         return "ChangeFillColorCommand{shapeId=" + receiverShape.getId().toString() + 
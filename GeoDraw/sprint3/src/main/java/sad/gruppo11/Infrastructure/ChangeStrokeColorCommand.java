@@ -6,7 +6,7 @@ import sad.gruppo11.Model.geometry.ColorData;
 import java.util.Objects;
 
 public class ChangeStrokeColorCommand extends AbstractShapeCommand {
-    private final ColorData newColor;
+    private ColorData newColor;
     private ColorData oldColor;
 
     public ChangeStrokeColorCommand(Drawing drawing, Shape shape, ColorData newColor) {
@@ -30,6 +30,20 @@ public class ChangeStrokeColorCommand extends AbstractShapeCommand {
         }
     }
     
+    @Override
+    public boolean canMergeWith(Command next) {
+        return next instanceof ChangeStrokeColorCommand && targetsSameShape((ChangeStrokeColorCommand) next);
+    }
+
+    @Override
+    public boolean mergeWith(Command next) {
+        if (!canMergeWith(next)) {
+            return false;
+        }
+        this.newColor = ((ChangeStrokeColorCommand) next).newColor;
+        return true;
+    }
+
     @Override
     public String toString() {
         return "ChangeStrokeColorCommand{shapeId=" + receiverShape.getId().toString() + 
@@ -7,7 +7,7 @@ import sad.gruppo11.Model.Shape;
 import sad.gruppo11.Model.TextShape;
 
 public class ChangeTextContentCommand extends AbstractShapeCommand {
-    private final String newContent;
+    private String newContent;
     private String oldContent;
 
     public ChangeTextContentCommand(Drawing drawing, Shape textShape, String newContent) {
@@ -33,6 +33,20 @@ public class ChangeTextContentCommand extends AbstractShapeCommand {
         ts.setText(oldContent);
     }
 
+    @Override
+    public boolean canMergeWith(Command next) {
+        return next instanceof ChangeTextContentCommand && targetsSameShape((ChangeTextContentCommand) next);
+    }
+
+    @Override
+    public boolean mergeWith(Command next) {
+        if (!canMergeWith(next)) {
+            return false;
+        }
+        this.newContent = ((ChangeTextContentCommand) next).newContent;
+        return true;
+    }
+
     @Override
     public String toString() {
         return "ChangeTextContentCommand{shapeId=" + receiverShape.getId().toString() + ", newContent='" + newContent + "'}";
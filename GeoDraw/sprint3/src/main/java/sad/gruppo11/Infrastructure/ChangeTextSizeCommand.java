@@ -6,7 +6,7 @@ import sad.gruppo11.Model.TextShape;
 import java.util.Objects;
 
 public class ChangeTextSizeCommand extends AbstractShapeCommand {
-    private final double newSize;
+    private double newSize;
     private Double oldSize = null;
 
     public ChangeTextSizeCommand(Drawing drawing, Shape textShape, double newSize) {
@@ -33,6 +33,21 @@ public class ChangeTextSizeCommand extends AbstractShapeCommand {
         TextShape ts = (TextShape) receiverShape;
         drawing.setShapeFontSize(ts, oldSize);
     }
+
+    @Override
+    public boolean canMergeWith(Command next) {
+        return next instanceof ChangeTextSizeCommand && targetsSameShape((ChangeTextSizeCommand) next);
+    }
+
+    @Override
+    public boolean mergeWith(Command next) {
+        if (!canMergeWith(next)) {
+            return false;
+        }
+        this.newSize = ((ChangeTextSizeCommand) next).newSize;
+        return true;
+    }
+
     @Override
     public String toString() {
         return "ChangeTextSizeCommand{shapeId=" + receiverShape.getId().toString() + ", newSize=" + newSize + "}";
@@ -1,9 +1,81 @@
-
 package sad.gruppo11.Infrastructure;
 
+import sad.gruppo11.Model.PolygonShape;
+import sad.gruppo11.Model.Shape;
+
 import java.io.Serializable;
+import java.util.List;
 
 public interface Command extends Serializable {
+    /** Stima dell'occupazione di un comando che non trattiene forme. */
+    long BASE_SIZE_BYTES = 64;
+    /** Stima per forma foglia: oggetto, UUID, colori e geometria. */
+    long SHAPE_SIZE_BYTES = 200;
+
     void execute();
     void undo();
+
+    /**
+     * Tenta di assorbire il comando successivo, già eseguito, in questo comando.
+     * Se restituisce true, questo comando rappresenta l'effetto di entrambi: il suo undo()
+     * deve ripristinare lo stato precedente a sé stesso e il suo execute() produrre
+     * lo stato successivo a next. Il CommandManager scarta allora next dalla history.
+     * @param next Il comando appena eseguito.
+     * @return true se i comandi sono stati uniti.
+     */
+    default boolean mergeWith(Command next) {
+        return false;
+    }
+
+    /**
+     * Dice se mergeWith(next) riuscirebbe, senza modificare nessuno dei due comandi.
+     * Serve a chi deve unire più coppie di comandi tutte o nessuna (CompositeCommand).
+     */
+    default boolean canMergeWith(Command next) {
+        return false;
+    }
+
+    /**
+     * Stima approssimativa della memoria trattenuta dal comando nella history.
+     * I comandi che tengono in vita forme rimosse dal disegno devono includerle,
+     * perché il CommandManager usa questo valore per rispettare il proprio budget.
+     * @return Byte stimati, sempre positivi.
+     */
+    default long estimateSizeBytes() {
+        return BASE_SIZE_BYTES;
+    }
+
+    /**
+     * Stima la memoria di una forma, inclusi figli, vertici e testo.
+     * @param shape La forma da stimare (null vale 0).
+     * @return Byte stimati.
+     */
+    static long estimateShapeBytes(Shape shape) {
+        if (shape == null) {
+            return 0;
+        }
+        long size = SHAPE_SIZE_BYTES;
+        List<Shape> children = shape.getChildren();
+        for (Shape child : children) {
+            size += estimateShapeBytes(child);
+        }
+        if (shape instanceof PolygonShape) {
+            size += 40L * ((PolygonShape) shape).getVertices().size();
+        }
+        String text = shape.getText();
+        if (text != null) {
+            size += 40 + 2L * text.length();
+        }
+        return size;
+    }
+
+    static long estimateShapesBytes(List<? extends Shape> shapes) {
+        long size = 0;
+        if (shapes != null) {
+            for (Shape shape : shapes) {
+                size += estimateShapeBytes(shape);
+            }
+        }
+        return size;
+    }
 }
@@ -1,21 +1,62 @@
-
 package sad.gruppo11.Infrastructure;
 
 import sad.gruppo11.Model.Drawing;
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Objects;
+import java.util.function.LongSupplier;
 
+/**
+ * Gestisce la history di undo/redo con limiti sul numero di voci e sulla memoria stimata.
+ * Gli stack sono ArrayDeque (buffer circolari non sincronizzati): la cima è in testa,
+ * la voce più vecchia in coda, così l'eliminazione delle voci più vecchie costa O(1).
+ * Comandi compatibili eseguiti in rapida successione vengono uniti in una sola voce (vedi Command.mergeWith).
+ */
 public class CommandManager {
-    private final Stack<Command> undoStack;
-    private final Stack<Command> redoStack;
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    public static final long DEFAULT_MERGE_WINDOW_MILLIS = 1000;
+
+    // Comando con la sua stima in byte, calcolata quando entra in uno stack
+    private static final class Entry {
+        final Command command;
+        final long bytes;
+        long lastMergeTime; // Istante dell'ultimo comando eseguito confluito in questa voce
+
+        Entry(Command command) {
+            this.command = command;
+            this.bytes = Math.max(0, command.estimateSizeBytes());
+        }
+    }
+
+    private final Deque<Entry> undoStack;
+    private final Deque<Entry> redoStack;
+    private int maxEntries;
+    private long maxBytes;
+    private long historyBytes;
+    private long mergeWindowMillis = DEFAULT_MERGE_WINDOW_MILLIS;
+    private boolean mergeAllowed; // Falso dopo undo/redo o breakMerge(): la voce in cima non accetta altri comandi
+    private LongSupplier clock = System::currentTimeMillis;
     private Drawing drawingModel; // Per notificare dopo l'esecuzione del comando, se necessario
 
+    public CommandManager(Drawing drawingModel, int maxEntries, long maxBytes) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("History must allow at least one entry.");
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("History byte budget must be positive.");
+        }
+        this.undoStack = new ArrayDeque<>();
+        this.redoStack = new ArrayDeque<>();
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.drawingModel = drawingModel;
+    }
+
     public CommandManager(Drawing drawingModel) {
-        this.undoStack = new Stack<>();
-        this.redoStack = new Stack<>();
-        this.drawingModel = drawingModel; 
+        this(drawingModel, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
     }
-    
+
     public CommandManager() { // Costruttore di default se il modello viene impostato dopo
         this(null);
     }
@@ -23,39 +64,39 @@ public class CommandManager {
     public void executeCommand(Command cmd) {
         Objects.requireNonNull(cmd, "Command to execute cannot be null.");
         cmd.execute();
-        undoStack.push(cmd);
-        redoStack.clear(); // Qualsiasi nuova azione invalida lo stack di redo
-        
-        // La notifica agli observer dovrebbe idealmente avvenire attraverso il modello stesso
-        // quando la sua state cambia a causa dell'esecuzione del comando.
-        // Se i comandi modificano direttamente il Drawing e il Drawing notifica i suoi observer,
-        // una notifica esplicita qui potrebbe essere ridondante.
-        // Tuttavia, se si vuole una notifica generale "un comando è stato eseguito":
-        if (drawingModel != null) {
-           // Invece di un evento generico, è meglio che il Drawing.notifyObservers
-           // sia chiamato internamente dai metodi del Drawing modificati dai comandi.
-           // Es. drawing.addShape() chiama notifyObservers.
-           // Se un comando non modifica direttamente il Drawing ma qualcos'altro (es. selezione),
-           // allora quel "qualcos'altro" dovrebbe essere Observable.
-           // Per i comandi che modificano il Drawing, il Drawing stesso si occupa delle notifiche.
+        clearRedo(); // Qualsiasi nuova azione invalida lo stack di redo
+        long now = clock.getAsLong();
+        Entry top = undoStack.peekFirst();
+        if (mergeAllowed && mergeWindowMillis > 0 && top != null && now - top.lastMergeTime <= mergeWindowMillis && top.command.mergeWith(cmd)) {
+            top.lastMergeTime = now; // La finestra scorre: una sequenza continua resta una sola voce
+            return;
         }
+        push(undoStack, cmd); // Stima dopo execute(): alcuni comandi creano lì le forme che trattengono
+        undoStack.peekFirst().lastMergeTime = now;
+        mergeAllowed = true;
+        trimHistory();
+
+        // Le notifiche agli observer avvengono tramite il Drawing stesso:
+        // i suoi metodi modificati dai comandi chiamano notifyObservers.
     }
 
     public void undo() {
         if (canUndo()) {
-            Command cmdToUndo = undoStack.pop();
+            mergeAllowed = false;
+            Command cmdToUndo = pop(undoStack);
             cmdToUndo.undo();
-            redoStack.push(cmdToUndo);
-            // Anche qui, il modello dovrebbe notificare i cambiamenti.
+            push(redoStack, cmdToUndo);
+            trimHistory(); // La stima può cambiare dopo l'undo
         }
     }
 
     public void redo() {
         if (canRedo()) {
-            Command cmdToRedo = redoStack.pop();
+            mergeAllowed = false;
+            Command cmdToRedo = pop(redoStack);
             cmdToRedo.execute(); // Riesegue il comando
-            undoStack.push(cmdToRedo);
-            // Il modello notifica.
+            push(undoStack, cmdToRedo);
+            trimHistory();
         }
     }
 
@@ -70,16 +111,117 @@ public class CommandManager {
     public void clearStacks() {
         undoStack.clear();
         redoStack.clear();
-        // Potrebbe essere utile notificare che la history è stata resettata,
-        // se la UI ha pulsanti undo/redo da disabilitare.
-        // Questo di solito avviene quando si carica un nuovo disegno.
-        if (drawingModel != null) {
-            // Non c'è un evento specifico per "stacks cleared", ma un'azione come LOAD
-            // potrebbe implicare questo e causare un refresh UI.
+        historyBytes = 0;
+        mergeAllowed = false;
+        // Di solito avviene quando si carica un nuovo disegno: il LOAD causa già il refresh della UI.
+    }
+
+    /**
+     * @return Numero di comandi nella history (undo + redo).
+     */
+    public int getHistorySize() {
+        return undoStack.size() + redoStack.size();
+    }
+
+    /**
+     * @return Memoria stimata in byte trattenuta dalla history (undo + redo).
+     */
+    public long getHistoryBytes() {
+        return historyBytes;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Imposta il numero massimo di comandi conservati, eliminando subito i più vecchi in eccesso.
+     * @param maxEntries Limite, almeno 1.
+     */
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("History must allow at least one entry.");
+        }
+        this.maxEntries = maxEntries;
+        trimHistory();
+    }
+
+    /**
+     * Imposta il budget di memoria stimata, eliminando subito i comandi più vecchi in eccesso.
+     * @param maxBytes Budget in byte, positivo.
+     */
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("History byte budget must be positive.");
+        }
+        this.maxBytes = maxBytes;
+        trimHistory();
+    }
+
+    /**
+     * Chiude la voce in cima alla history: il prossimo comando ne aprirà una nuova
+     * anche se compatibile. Lo chiamano GeoEngine.setState() al cambio di strumento e SelectState
+     * al rilascio del mouse dopo un trascinamento.
+     */
+    public void breakMerge() {
+        mergeAllowed = false;
+    }
+
+    public long getMergeWindowMillis() {
+        return mergeWindowMillis;
+    }
+
+    /**
+     * @param mergeWindowMillis Intervallo massimo tra due comandi per unirli; 0 disattiva l'unione.
+     */
+    public void setMergeWindowMillis(long mergeWindowMillis) {
+        if (mergeWindowMillis < 0) {
+            throw new IllegalArgumentException("Merge window cannot be negative.");
         }
+        this.mergeWindowMillis = mergeWindowMillis;
     }
-    
+
+    // Per i test: sorgente del tempo in millisecondi
+    void setClock(LongSupplier clock) {
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null.");
+    }
+
     public void setDrawingModel(Drawing model){
         this.drawingModel = model;
     }
+
+    private void push(Deque<Entry> stack, Command cmd) {
+        Entry entry = new Entry(cmd);
+        stack.addFirst(entry);
+        historyBytes += entry.bytes;
+    }
+
+    private Command pop(Deque<Entry> stack) {
+        Entry entry = stack.removeFirst();
+        historyBytes -= entry.bytes;
+        return entry.command;
+    }
+
+    private void clearRedo() {
+        for (Entry entry : redoStack) {
+            historyBytes -= entry.bytes;
+        }
+        redoStack.clear();
+    }
+
+    /**
+     * Elimina le voci più vecchie finché la history rientra nei limiti: prima il fondo
+     * dello stack di undo, poi il redo più lontano. Il comando più recente resta sempre,
+     * anche se da solo supera il budget, così l'ultima azione è annullabile.
+     */
+    private void trimHistory() {
+        while (getHistorySize() > 1 && (getHistorySize() > maxEntries || historyBytes > maxBytes)) {
+            Deque<Entry> source = undoStack.size() > 1 || redoStack.isEmpty() ? undoStack : redoStack;
+            historyBytes -= source.removeLast().bytes;
+        }
+    }
 }
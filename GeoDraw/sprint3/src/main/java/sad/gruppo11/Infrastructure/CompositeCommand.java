@@ -0,0 +1,110 @@
+package sad.gruppo11.Infrastructure;
+
+import sad.gruppo11.Model.Drawing;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Macro comando (Composite): esegue una lista di comandi in un'unica transazione del Drawing,
+ * così l'operazione produce una sola voce di undo e una sola notifica agli observer.
+ * L'undo annulla i comandi in ordine inverso. Se un comando fallisce durante execute(),
+ * quelli già eseguiti vengono annullati prima di propagare l'eccezione.
+ */
+public class CompositeCommand extends AbstractDrawingCommand {
+    private final List<Command> commands;
+
+    public CompositeCommand(Drawing drawing, List<? extends Command> commands) {
+        super(drawing);
+        Objects.requireNonNull(commands, "Command list cannot be null for CompositeCommand.");
+        this.commands = new ArrayList<>(commands.size());
+        for (Command cmd : commands) {
+            this.commands.add(Objects.requireNonNull(cmd, "CompositeCommand cannot contain null commands."));
+        }
+    }
+
+    @Override
+    public void execute() {
+        receiverDrawing.beginBatch();
+        int executed = 0;
+        try {
+            for (Command cmd : commands) {
+                cmd.execute();
+                executed++;
+            }
+        } catch (RuntimeException e) {
+            for (int i = executed - 1; i >= 0; i--) { // Rollback di quanto già eseguito
+                commands.get(i).undo();
+            }
+            throw e;
+        } finally {
+            receiverDrawing.commitBatch();
+        }
+    }
+
+    @Override
+    public void undo() {
+        receiverDrawing.beginBatch();
+        try {
+            for (int i = commands.size() - 1; i >= 0; i--) {
+                commands.get(i).undo();
+            }
+        } finally {
+            receiverDrawing.commitBatch();
+        }
+    }
+
+    /**
+     * Unibile con un altro CompositeCommand sullo stesso disegno con lo stesso numero di comandi,
+     * se ogni comando è unibile con quello nella stessa posizione (es. spostamento con le frecce
+     * di più forme selezionate).
+     */
+    @Override
+    public boolean canMergeWith(Command next) {
+        if (!(next instanceof CompositeCommand)) {
+            return false;
+        }
+        CompositeCommand other = (CompositeCommand) next;
+        if (other.receiverDrawing != this.receiverDrawing || other.commands.size() != this.commands.size()) {
+            return false;
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            if (!commands.get(i).canMergeWith(other.commands.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Le coppie vengono verificate tutte prima di unirne una, così un rifiuto non lascia unioni parziali
+    @Override
+    public boolean mergeWith(Command next) {
+        if (!canMergeWith(next)) {
+            return false;
+        }
+        List<Command> others = ((CompositeCommand) next).commands;
+        for (int i = 0; i < commands.size(); i++) {
+            commands.get(i).mergeWith(others.get(i));
+        }
+        return true;
+    }
+
+    public List<Command> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    @Override
+    public long estimateSizeBytes() {
+        long size = BASE_SIZE_BYTES;
+        for (Command cmd : commands) {
+            size += cmd.estimateSizeBytes();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "CompositeCommand{commandCount=" + commands.size() + "}";
+    }
+}
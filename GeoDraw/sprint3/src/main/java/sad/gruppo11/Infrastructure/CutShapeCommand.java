@@ -33,6 +33,12 @@ public class CutShapeCommand extends AbstractShapeCommand {
         }
     }
 
+    // La forma tagliata non è più nel disegno ma resta referenziata dal comando.
+    @Override
+    public long estimateSizeBytes() {
+        return BASE_SIZE_BYTES + Command.estimateShapeBytes(receiverShape);
+    }
+
     @Override
     public String toString() {
         return "CutShapeCommand{shapeId=" + receiverShape.getId().toString() + "}";
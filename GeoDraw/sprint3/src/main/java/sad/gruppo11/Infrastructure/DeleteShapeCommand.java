@@ -29,6 +29,12 @@ public class DeleteShapeCommand extends AbstractDrawingCommand {
         }
     }
 
+    // La forma rimossa resta in vita solo tramite la history.
+    @Override
+    public long estimateSizeBytes() {
+        return BASE_SIZE_BYTES + Command.estimateShapeBytes(shapeToRemove);
+    }
+
     @Override
     public String toString() {
         return "DeleteShapeCommand{shapeId=" + (shapeToRemove != null ? shapeToRemove.getId().toString() : "null") + "}";
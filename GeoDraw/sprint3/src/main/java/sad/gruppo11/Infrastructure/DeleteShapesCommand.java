@@ -0,0 +1,44 @@
+package sad.gruppo11.Infrastructure;
+
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.Shape;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Cancella più forme con un'unica operazione di massa del Drawing (removeShapes) e,
+ * all'undo, le reinserisce ai loro indici Z originali (restoreShapes).
+ */
+public class DeleteShapesCommand extends AbstractDrawingCommand {
+    private final List<Shape> shapesToRemove;
+    private int[] originalIndices;
+
+    public DeleteShapesCommand(Drawing drawing, List<Shape> shapes) {
+        super(drawing);
+        Objects.requireNonNull(shapes, "Shapes to remove cannot be null for DeleteShapesCommand.");
+        this.shapesToRemove = new ArrayList<>(shapes);
+    }
+
+    @Override
+    public void execute() {
+        this.originalIndices = receiverDrawing.removeShapes(shapesToRemove);
+    }
+
+    @Override
+    public void undo() {
+        if (this.originalIndices != null) {
+            receiverDrawing.restoreShapes(shapesToRemove, originalIndices);
+        }
+    }
+
+    @Override
+    public long estimateSizeBytes() {
+        return BASE_SIZE_BYTES + Command.estimateShapesBytes(shapesToRemove);
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteShapesCommand{shapeCount=" + shapesToRemove.size() + "}";
+    }
+}
@@ -6,7 +6,7 @@ import sad.gruppo11.Model.geometry.Vector2D;
 import java.util.Objects;
 
 public class MoveShapeCommand extends AbstractShapeCommand {
-    private final Vector2D moveVector;
+    private Vector2D moveVector;
 
     public MoveShapeCommand(Drawing drawing, Shape shape, Vector2D vector) {
         super(drawing, shape);
@@ -24,6 +24,24 @@ public class MoveShapeCommand extends AbstractShapeCommand {
         this.drawing.moveShape(receiverShape, moveVector.inverse());
     }
 
+    /**
+     * Unisce spostamenti consecutivi della stessa forma (trascinamenti, frecce): l'undo li annulla insieme.
+     */
+    @Override
+    public boolean canMergeWith(Command next) {
+        return next instanceof MoveShapeCommand && targetsSameShape((MoveShapeCommand) next);
+    }
+
+    @Override
+    public boolean mergeWith(Command next) {
+        if (!canMergeWith(next)) {
+            return false;
+        }
+        Vector2D other = ((MoveShapeCommand) next).moveVector;
+        this.moveVector = new Vector2D(moveVector.getDx() + other.getDx(), moveVector.getDy() + other.getDy());
+        return true;
+    }
+
     @Override
     public String toString() {
         return "MoveShapeCommand{shapeId=" + receiverShape.getId().toString() + 
@@ -37,6 +37,11 @@ public class PasteShapeCommand extends AbstractDrawingCommand {
         }
     }
 
+    @Override
+    public long estimateSizeBytes() {
+        return BASE_SIZE_BYTES + Command.estimateShapeBytes(pastedShapeInstance);
+    }
+
     @Override
     public String toString() {
         String idStr = (pastedShapeInstance != null) ? pastedShapeInstance.getId().toString() : "none_pasted";
@@ -6,7 +6,7 @@ import sad.gruppo11.Model.geometry.Rect;
 import java.util.Objects;
 
 public class ResizeShapeCommand extends AbstractShapeCommand {
-    private final Rect newBounds;
+    private Rect newBounds;
     private Rect oldBounds;
 
     public ResizeShapeCommand(Drawing drawing, Shape shape, Rect newBounds) {
@@ -30,6 +30,20 @@ public class ResizeShapeCommand extends AbstractShapeCommand {
         }
     }
 
+    @Override
+    public boolean canMergeWith(Command next) {
+        return next instanceof ResizeShapeCommand && targetsSameShape((ResizeShapeCommand) next);
+    }
+
+    @Override
+    public boolean mergeWith(Command next) {
+        if (!canMergeWith(next)) {
+            return false;
+        }
+        this.newBounds = ((ResizeShapeCommand) next).newBounds;
+        return true;
+    }
+
     @Override
     public String toString() {
         return "ResizeShapeCommand{shapeId=" + receiverShape.getId().toString() + 
@@ -5,7 +5,7 @@ import sad.gruppo11.Model.Shape;
 import java.util.Objects;
 
 public class RotateShapeCommand extends AbstractShapeCommand {
-    private final double targetAngle; // Store absolute target angle
+    private double targetAngle; // Store absolute target angle
     private double oldAngle;
 
     public RotateShapeCommand(Drawing drawing, Shape shape, double targetAngle) {
@@ -23,6 +23,21 @@ public class RotateShapeCommand extends AbstractShapeCommand {
     public void undo() {
         this.drawing.setShapeRotation(receiverShape, this.oldAngle);
     }
+
+    @Override
+    public boolean canMergeWith(Command next) {
+        return next instanceof RotateShapeCommand && targetsSameShape((RotateShapeCommand) next);
+    }
+
+    @Override
+    public boolean mergeWith(Command next) {
+        if (!canMergeWith(next)) {
+            return false;
+        }
+        this.targetAngle = ((RotateShapeCommand) next).targetAngle; // oldAngle resta quello del primo comando
+        return true;
+    }
+
     @Override
     public String toString() {
         return "RotateShapeCommand{shapeId=" + receiverShape.getId().toString() + ", targetAngle=" + targetAngle + "}";
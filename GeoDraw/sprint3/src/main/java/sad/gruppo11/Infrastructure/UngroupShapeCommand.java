@@ -22,39 +22,52 @@ public class UngroupShapeCommand extends AbstractDrawingCommand {
 
     @Override
     public void execute() {
-        // Memorizza i figli e l'indice del gruppo prima di rimuoverlo
-        this.originalChildren = new ArrayList<>(groupToUngroup.getChildren()); // Copia difensiva dei riferimenti ai figli
-        this.originalGroupIndex = receiverDrawing.getShapeIndex(groupToUngroup);
-
-        if (receiverDrawing.removeShape(groupToUngroup)) { // Notifica (REMOVE)
-            // Aggiungi i figli individualmente al disegno
-            // Potrebbero essere aggiunti nella posizione del gruppo o alla fine.
-            // Per ora, li aggiungiamo alla fine.
-            for (Shape child : this.originalChildren) {
-                receiverDrawing.addShape(child); // Notifica (ADD)
+        receiverDrawing.beginBatch();
+        try {
+            // Memorizza i figli e l'indice del gruppo prima di rimuoverlo
+            this.originalChildren = new ArrayList<>(groupToUngroup.getChildren()); // Copia difensiva dei riferimenti ai figli
+            this.originalGroupIndex = receiverDrawing.getShapeIndex(groupToUngroup);
+
+            if (receiverDrawing.removeShape(groupToUngroup) && this.originalGroupIndex != -1) {
+                // I figli prendono il posto del gruppo nell'ordine Z, nel loro ordine interno
+                int[] childIndices = new int[originalChildren.size()];
+                for (int i = 0; i < childIndices.length; i++) {
+                    childIndices[i] = originalGroupIndex + i;
+                }
+                receiverDrawing.restoreShapes(originalChildren, childIndices);
             }
+        } finally {
+            receiverDrawing.commitBatch();
         }
     }
 
     @Override
     public void undo() {
-        if (this.originalChildren != null && !this.originalChildren.isEmpty()) {
-            // Rimuovi i figli individuali (che ora sono nel drawing)
-            for (Shape child : this.originalChildren) {
-                receiverDrawing.removeShape(child); // Notifica (REMOVE)
-            }
-            // Riaggiungi il gruppo originale. Se originalGroupIndex è valido, usalo.
-            if (this.originalGroupIndex != -1 && this.originalGroupIndex <= receiverDrawing.getModifiableShapesList().size()) {
-                 receiverDrawing.addShapeAtIndex(groupToUngroup, this.originalGroupIndex); // Notifica (ADD)
-            } else {
-                 receiverDrawing.addShape(groupToUngroup); // Notifica (ADD)
+        receiverDrawing.beginBatch();
+        try {
+            if (this.originalChildren != null && !this.originalChildren.isEmpty()) {
+                // Rimuovi i figli individuali (che ora sono nel drawing) con un solo passaggio
+                receiverDrawing.removeShapes(originalChildren);
+                // Riaggiungi il gruppo originale. Se originalGroupIndex è valido, usalo.
+                if (this.originalGroupIndex != -1 && this.originalGroupIndex <= receiverDrawing.getModifiableShapesList().size()) {
+                     receiverDrawing.addShapeAtIndex(groupToUngroup, this.originalGroupIndex); // Notifica (ADD)
+                } else {
+                     receiverDrawing.addShape(groupToUngroup); // Notifica (ADD)
+                }
             }
+            this.originalChildren = null; // Resetta per una possibile riesecuzione
+        } finally {
+            receiverDrawing.commitBatch();
         }
-        this.originalChildren = null; // Resetta per una possibile riesecuzione
     }
     
     @Override
     public String toString() {
         return "UngroupShapeCommand{groupId=" + groupToUngroup.getId().toString() + "}";
     }
+
+    @Override
+    public long estimateSizeBytes() {
+        return BASE_SIZE_BYTES + Command.estimateShapeBytes(groupToUngroup);
+    }
 }
@@ -3,6 +3,8 @@ package sad.gruppo11;
 
 import sad.gruppo11.Controller.GeoEngine;
 import sad.gruppo11.Controller.ReusableShapeDefinition; // Per la ListView
+import sad.gruppo11.Controller.LoadProgressEvent;
+import sad.gruppo11.Controller.SaveProgressEvent;
 import sad.gruppo11.Factory.ShapeFactory;
 import sad.gruppo11.Infrastructure.Clipboard;
 import sad.gruppo11.Infrastructure.CommandManager;
@@ -14,7 +16,7 @@ import sad.gruppo11.Model.LineSegment;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
-import sad.gruppo11.Persistence.DrawingSerializer;
+import sad.gruppo11.Persistence.BinaryDrawingSerializer;
 import sad.gruppo11.Persistence.IDrawingSerializer;
 import sad.gruppo11.Persistence.IReusableShapeLibrarySerializer; 
 import sad.gruppo11.Persistence.PersistenceController;
@@ -131,12 +133,13 @@ public class MainApp extends Application implements Observer {
         Clipboard clipboard = Clipboard.getInstance();
         ShapeFactory shapeFactory = new ShapeFactory();
         
-        IDrawingSerializer drawingSerializer = new DrawingSerializer();
+        IDrawingSerializer drawingSerializer = new BinaryDrawingSerializer(); // Legge anche i vecchi file .ser
         IReusableShapeLibrarySerializer librarySerializer = new ReusableShapeLibrarySerializer(); 
         PersistenceController persistenceController = new PersistenceController(drawingSerializer, librarySerializer); 
 
         geoEngine = new GeoEngine(drawingModel, commandManager, persistenceController, clipboard, shapeFactory);
         
+        geoEngine.setUiExecutor(Platform::runLater); // Salvataggi e caricamenti in background notificano sul thread JavaFX
         geoEngine.attach(this); 
         drawingModel.attach(this); 
 
@@ -294,6 +297,17 @@ public class MainApp extends Application implements Observer {
 
     @Override
     public void update(Observable source, Object arg) {
+        if (arg instanceof SaveProgressEvent) {
+            // Arriva già sul thread JavaFX (executor della UI); l'avanzamento non cambia lo stato della UI
+            SaveProgressEvent event = (SaveProgressEvent) arg;
+            if (event.isFinished()) handleSaveFinished(event);
+            return;
+        }
+        if (arg instanceof LoadProgressEvent) {
+            LoadProgressEvent event = (LoadProgressEvent) arg;
+            if (event.isFinished()) handleLoadFinished(event);
+            return;
+        }
         Platform.runLater(() -> {
             if (source == geoEngine) {
                 if ("ReusableLibraryChanged".equals(arg) || 
@@ -445,30 +459,56 @@ public class MainApp extends Application implements Observer {
     }
     
     private void handleSaveAction() {
-        String path = drawingView.getUserInputForPath(true, "Save Drawing As", "drawing.ser");
+        String path = drawingView.getUserInputForPath(true, "Save Drawing As", "drawing.gdraw");
         if (path != null) {
             try {
-                geoEngine.saveDrawing(path);
-                primaryStage.setTitle("GeoDraw - " + new File(path).getName());
+                geoEngine.saveDrawing(path); // Il titolo viene aggiornato a salvataggio completato
             } catch (Exception e) {
                 drawingView.showError("Failed to save drawing: " + e.getMessage());
                 e.printStackTrace();
             }
         }
     }
+    private void handleSaveFinished(SaveProgressEvent event) {
+        switch (event.status) {
+            case COMPLETED:
+                primaryStage.setTitle("GeoDraw - " + new File(event.path).getName());
+                drawingView.showUserMessage("Drawing saved to " + event.path);
+                break;
+            case FAILED:
+                drawingView.showError("Failed to save drawing: " + event.error.getMessage());
+                event.error.printStackTrace();
+                break;
+            default:
+                drawingView.showUserMessage("Save cancelled: " + event.path);
+        }
+    }
     private void handleOpenAction() {
         String path = drawingView.getUserInputForPath(false, "Open Drawing", null);
         if (path != null) {
             try {
-                geoEngine.loadDrawing(path);
-                 primaryStage.setTitle("GeoDraw - " + new File(path).getName());
-                 // La notifica da geoEngine e drawingModel dovrebbe causare refreshUIState
+                // Le forme compaiono man mano che vengono lette; il titolo cambia a caricamento completato
+                geoEngine.loadDrawingAsync(path);
             } catch (Exception e) {
                 drawingView.showError("Failed to load drawing: " + e.getMessage());
                 e.printStackTrace();
             }
         }
     }
+    private void handleLoadFinished(LoadProgressEvent event) {
+        switch (event.status) {
+            case COMPLETED:
+                primaryStage.setTitle("GeoDraw - " + new File(event.path).getName());
+                break;
+            case FAILED:
+                drawingView.showError("Failed to load drawing: " + event.error.getMessage());
+                event.error.printStackTrace();
+                break;
+            default:
+                drawingView.showUserMessage("Load cancelled after " + event.loadedShapes + " shapes: " + event.path);
+        }
+        refreshUIState();
+    }
     
     private void setupPropertyPanelListeners() {
         //Stroke Color
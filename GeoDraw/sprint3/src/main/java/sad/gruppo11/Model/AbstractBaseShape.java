@@ -1,6 +1,10 @@
 
 package sad.gruppo11.Model;
 
+import sad.gruppo11.Model.geometry.Affine2D;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+
 import java.util.Collections;
 import java.util.List;
 
@@ -9,8 +13,109 @@ import java.util.List;
  * Fornisce implementazioni di default per i metodi del pattern Composite.
  */
 public abstract class AbstractBaseShape implements Shape {
+    private static final long serialVersionUID = 5878822918242165353L;
+
+    // Gruppi che contengono questa forma (non serializzato: i GroupShape lo ricostruiscono)
+    private transient ParentGroups parentGroups;
+
+    ParentGroups parentGroups() {
+        if (parentGroups == null) {
+            parentGroups = new ParentGroups();
+        }
+        return parentGroups;
+    }
+
+    // Rotazione attorno al centro dei bounds non ruotati (locale -> mondo) e sua inversa.
+    // Calcolate al primo uso e scartate da geometryChanged().
+    private transient Affine2D transform;
+    private transient Affine2D inverseTransform;
+
+    /**
+     * Da chiamare nei metodi che cambiano la geometria della forma (move, resize, rotazione, riflessione):
+     * scarta le trasformazioni in cache e fa sì che i gruppi che la contengono ricalcolino i loro bounds.
+     */
+    protected void geometryChanged() {
+        transform = null;
+        inverseTransform = null;
+        if (parentGroups != null) {
+            parentGroups.invalidateAll();
+        }
+    }
+
+    @Override
+    public Affine2D getTransform() {
+        if (transform == null) {
+            Point2D pivot = getBounds().getCenter();
+            transform = Affine2D.rotation(getRotation(), pivot.getX(), pivot.getY());
+        }
+        return transform;
+    }
+
+    /**
+     * @return L'inversa di getTransform(), per portare un punto del mondo nello spazio non ruotato della forma.
+     */
+    protected final Affine2D getInverseTransform() {
+        if (inverseTransform == null) {
+            inverseTransform = getTransform().createInverse();
+        }
+        return inverseTransform;
+    }
+
+    /**
+     * Contenimento del punto (x, y) nel rettangolo r ruotato con getTransform(), senza allocazioni.
+     * Usato da RectangleShape e TextShape.
+     */
+    protected final boolean rotatedRectContains(Rect r, double x, double y) {
+        Affine2D inverse = getInverseTransform();
+        double localX = inverse.transformX(x, y);
+        double localY = inverse.transformY(x, y);
+        return localX >= r.getX() && localX <= r.getRight() && localY >= r.getY() && localY <= r.getBottom();
+    }
+
+    /**
+     * Intersezione tra il bounding box del rettangolo r ruotato (lo stesso di getRotatedBounds)
+     * e il box [minX, maxX] x [minY, maxY], senza allocazioni. r deve essere centrato sul pivot.
+     */
+    protected final boolean rotatedRectIntersects(Rect r, double minX, double minY, double maxX, double maxY) {
+        Affine2D t = getTransform();
+        double halfWidth = r.getWidth() / 2.0;
+        double halfHeight = r.getHeight() / 2.0;
+        double cx = r.getX() + halfWidth;
+        double cy = r.getY() + halfHeight;
+        double extentX = halfWidth * Math.abs(t.getMxx()) + halfHeight * Math.abs(t.getMxy());
+        double extentY = halfWidth * Math.abs(t.getMyx()) + halfHeight * Math.abs(t.getMyy());
+        return boxesOverlap(cx - extentX, cy - extentY, cx + extentX, cy + extentY, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * AABB dei quattro vertici del rettangolo r trasformati con getTransform(). Usato da getRotatedBounds.
+     */
+    protected final Rect rotatedRectBounds(Rect r) {
+        Affine2D t = getTransform();
+        if (t.isIdentity()) {
+            return new Rect(r);
+        }
+        double[] xs = {r.getX(), r.getRight(), r.getX(), r.getRight()};
+        double[] ys = {r.getY(), r.getY(), r.getBottom(), r.getBottom()};
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 4; i++) {
+            double x = t.transformX(xs[i], ys[i]);
+            double y = t.transformY(xs[i], ys[i]);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        return new Rect(new Point2D(minX, minY), maxX - minX, maxY - minY);
+    }
+
+    // Bordi compresi, come ShapeSpatialIndex
+    static boolean boxesOverlap(double aMinX, double aMinY, double aMaxX, double aMaxY,
+                                double bMinX, double bMinY, double bMaxX, double bMaxY) {
+        return aMinX <= bMaxX && aMaxX >= bMinX && aMinY <= bMaxY && aMaxY >= bMinY;
+    }
 
-    
     // Implementazioni di default per i metodi del Composite Pattern
     // Le forme foglia non supportano queste operazioni.
     
@@ -42,7 +147,9 @@ public abstract class AbstractBaseShape implements Shape {
     @Override
     public Shape clone() {
         try {
-            return (AbstractBaseShape) super.clone();
+            AbstractBaseShape copy = (AbstractBaseShape) super.clone();
+            copy.parentGroups = null; // La copia non appartiene ancora a nessun gruppo
+            return copy;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError(); // Should never happen since we are Cloneable
         }
@@ -2,42 +2,90 @@
 package sad.gruppo11.Model;
 
 import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
 import sad.gruppo11.Model.geometry.Vector2D;
 import sad.gruppo11.View.Observer;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList; // Per gestione concorrente degli observer
 
 public class Drawing implements Observable, Serializable {
     private static final long serialVersionUID = 20240115L; // Mantieni o aggiorna se cambi campi serializzati
 
-    private List<Shape> shapes;
+    // Forma serializzata invariata (campo 'shapes' di tipo List) per compatibilità con i file già salvati
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("shapes", List.class)
+    };
+
+    private transient ShapeZOrderList shapes; // Ordine Z con accesso/inserimento/rimozione in O(log n)
     // protected per i test
     protected transient List<Observer> observers; // Marcato transient per non serializzarlo
+    // Indice spaziale sulle forme di primo livello, ricostruito dopo la deserializzazione.
+    // null finché non serve (copie create da snapshot()): vedi spatialIndex()
+    private transient ShapeSpatialIndex spatialIndex;
+    // Indice per ID di tutte le forme (anche i figli dei gruppi) e collegamenti figlio -> gruppo padre
+    private transient Map<UUID, Shape> shapesById;
+    private transient Map<UUID, Shape> parentsById;
+    // Transazioni: durante un batch gli eventi vengono accodati e poi notificati come uno solo
+    private transient int batchDepth;
+    private transient List<DrawingChangeEvent> pendingEvents;
 
     public Drawing() {
-        this.shapes = new ArrayList<>(); // Inizializza sempre la lista delle forme
+        this.shapes = new ShapeZOrderList(); // Inizializza sempre la lista delle forme
         this.observers = new CopyOnWriteArrayList<>(); // Usa una lista thread-safe per gli observer
+        this.spatialIndex = new ShapeSpatialIndex();
+        this.shapesById = new HashMap<>();
+        this.parentsById = new HashMap<>();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("shapes", new ArrayList<>(this.shapes)); // Scritta come ArrayList, come in precedenza
+        out.writeFields();
     }
 
     // Metodo custom per la deserializzazione per reinizializzare la lista observers
+    @SuppressWarnings("unchecked")
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        in.defaultReadObject(); // Deserializza i campi non transient (come 'shapes')
+        ObjectInputStream.GetField fields = in.readFields();
+        List<Shape> savedShapes = (List<Shape>) fields.get("shapes", null);
+        this.shapes = new ShapeZOrderList();
+        if (savedShapes != null) {
+            this.shapes.addAll(savedShapes);
+        }
         this.observers = new CopyOnWriteArrayList<>(); // Reinizializza la lista transient
+        this.spatialIndex = new ShapeSpatialIndex();
+        this.shapesById = new HashMap<>();
+        this.parentsById = new HashMap<>();
+        for (Shape s : this.shapes) {
+            spatialIndex().insert(s);
+            registerShape(s, null);
+        }
     }
 
     public void addShape(Shape s) {
         Objects.requireNonNull(s, "Shape to add cannot be null.");
         this.shapes.add(s);
-        notifyObservers(new DrawingChangeEvent(s, DrawingChangeEvent.ChangeType.ADD));
+        spatialIndex().insert(s);
+        registerShape(s, null);
+        notifyShapeChanged(s, DrawingChangeEvent.ChangeType.ADD, null);
     }
 
     public void addShapeAtIndex(Shape shape, int index) {
@@ -46,97 +94,428 @@ public class Drawing implements Observable, Serializable {
             throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for shapes list size " + shapes.size());
         }
         this.shapes.add(index, shape);
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.ADD));
+        spatialIndex().insert(shape);
+        registerShape(shape, null);
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.ADD, null);
     }
 
     public boolean removeShape(Shape s) {
         Objects.requireNonNull(s, "Shape to remove cannot be null.");
+        Rect oldBounds = spatialIndex().boundsOf(s);
         boolean removed = this.shapes.remove(s);
         if (removed) {
-            notifyObservers(new DrawingChangeEvent(s, DrawingChangeEvent.ChangeType.REMOVE));
+            if (!this.shapes.contains(s)) { // La stessa forma potrebbe essere presente più volte
+                spatialIndex().remove(s);
+            }
+            unregisterShape(s);
+            notifyObservers(new DrawingChangeEvent(s, DrawingChangeEvent.ChangeType.REMOVE, oldBounds, null));
         }
         return removed;
     }
     
     public Shape removeShapeById(UUID shapeId) {
         Objects.requireNonNull(shapeId, "Shape ID cannot be null for removal.");
-        Shape removedShape = null;
-        for (int i = 0; i < shapes.size(); i++) {
-            if (shapes.get(i).getId().equals(shapeId)) {
-                removedShape = shapes.remove(i);
-                break;
-            }
+        Shape removedShape = this.shapesById.get(shapeId);
+        if (removedShape == null || this.parentsById.containsKey(shapeId)) {
+            return null; // Rimuove solo forme di primo livello, non i figli dei gruppi
         }
-        if (removedShape != null) {
-            notifyObservers(new DrawingChangeEvent(removedShape, DrawingChangeEvent.ChangeType.REMOVE));
+        Rect oldBounds = spatialIndex().boundsOf(removedShape);
+        this.shapes.remove(removedShape);
+        if (!this.shapes.contains(removedShape)) {
+            spatialIndex().remove(removedShape);
         }
+        unregisterShape(removedShape);
+        notifyObservers(new DrawingChangeEvent(removedShape, DrawingChangeEvent.ChangeType.REMOVE, oldBounds, null));
         return removedShape;
     }
 
+    /**
+     * Rimuove in un solo passaggio le forme di primo livello date, con un solo evento agli observer.
+     * @param toRemove Forme da rimuovere; quelle assenti (o ripetute) vengono ignorate.
+     * @return Per ogni forma della lista, l'indice Z che occupava prima della rimozione, o -1;
+     *         da passare a restoreShapes() per ripristinare esattamente l'ordine Z.
+     */
+    public int[] removeShapes(List<Shape> toRemove) {
+        Objects.requireNonNull(toRemove, "Shapes list cannot be null for removeShapes.");
+        int[] indices = new int[toRemove.size()];
+        Set<Integer> taken = new HashSet<>();
+        int count = 0;
+        for (int i = 0; i < indices.length; i++) {
+            Shape s = Objects.requireNonNull(toRemove.get(i), "Shapes list cannot contain null shapes.");
+            int index = this.shapes.indexOf(s);
+            indices[i] = (index != -1 && taken.add(index)) ? index : -1;
+            if (indices[i] != -1) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return indices;
+        }
+        int[] sorted = new int[count];
+        Rect[] oldBounds = new Rect[indices.length];
+        for (int i = 0, j = 0; i < indices.length; i++) {
+            if (indices[i] != -1) {
+                sorted[j++] = indices[i];
+                oldBounds[i] = spatialIndex().boundsOf(toRemove.get(i));
+            }
+        }
+        Arrays.sort(sorted);
+        this.shapes.removeAt(sorted);
+
+        beginBatch();
+        try {
+            for (int i = 0; i < indices.length; i++) {
+                if (indices[i] == -1) {
+                    continue;
+                }
+                Shape s = toRemove.get(i);
+                if (!this.shapes.contains(s)) {
+                    spatialIndex().remove(s);
+                }
+                unregisterShape(s);
+                notifyObservers(new DrawingChangeEvent(s, DrawingChangeEvent.ChangeType.REMOVE, oldBounds[i], null));
+            }
+        } finally {
+            commitBatch();
+        }
+        return indices;
+    }
+
+    /**
+     * Reinserisce le forme rimosse con removeShapes() ai loro indici Z originali, in un solo
+     * passaggio e con un solo evento. Ogni indice è la posizione finale della forma.
+     * @param toRestore Forme da reinserire.
+     * @param indices Indici allineati alle forme; le coppie con -1 vengono ignorate.
+     */
+    public void restoreShapes(List<Shape> toRestore, int[] indices) {
+        Objects.requireNonNull(toRestore, "Shapes list cannot be null for restoreShapes.");
+        Objects.requireNonNull(indices, "Indices cannot be null for restoreShapes.");
+        if (toRestore.size() != indices.length) {
+            throw new IllegalArgumentException("Shapes and indices must have the same length.");
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] != -1) {
+                Objects.requireNonNull(toRestore.get(i), "Shapes list cannot contain null shapes.");
+                order.add(i);
+            }
+        }
+        if (order.isEmpty()) {
+            return;
+        }
+        order.sort(Comparator.comparingInt(i -> indices[i]));
+        int[] sorted = new int[order.size()];
+        List<Shape> sortedShapes = new ArrayList<>(order.size());
+        for (int j = 0; j < sorted.length; j++) {
+            sorted[j] = indices[order.get(j)];
+            sortedShapes.add(toRestore.get(order.get(j)));
+        }
+        try {
+            this.shapes.insertAt(sorted, sortedShapes);
+        } catch (IllegalArgumentException e) {
+            throw new IndexOutOfBoundsException("Cannot restore shapes: " + e.getMessage());
+        }
+
+        beginBatch();
+        try {
+            for (Shape s : sortedShapes) {
+                spatialIndex().insert(s);
+                registerShape(s, null);
+                notifyShapeChanged(s, DrawingChangeEvent.ChangeType.ADD, null);
+            }
+        } finally {
+            commitBatch();
+        }
+    }
+
     public void clear() {
         if (!this.shapes.isEmpty()) {
-            // Crea una copia delle forme prima di pulire per l'evento CLEAR, se necessario
-            List<Shape> oldShapes = new ArrayList<>(this.shapes); 
+            // Vista immutabile delle forme prima della pulizia, per l'evento CLEAR
+            List<Shape> oldShapes = this.shapes.snapshot();
             this.shapes.clear();
+            spatialIndex().clear();
+            this.shapesById.clear();
+            this.parentsById.clear();
             notifyObservers(new DrawingChangeEvent(oldShapes, DrawingChangeEvent.ChangeType.CLEAR));
         } else {
             // Notifica anche se era già vuoto, così la UI può aggiornarsi (es. deselezionare)
             notifyObservers(new DrawingChangeEvent(Collections.emptyList(), DrawingChangeEvent.ChangeType.CLEAR));
         }
     }
+
+    /**
+     * Sostituisce tutte le forme del disegno con quelle date (es. appena deserializzate),
+     * adottandole senza copiarle, e notifica un solo evento LOAD.
+     * Una forma viene copiata con nuovi ID (cloneWithNewId) solo se uno dei suoi ID, o di quelli
+     * dei suoi figli, è già usato da una forma precedente della lista, come quando lo stesso
+     * oggetto compare più volte.
+     * @return le forme effettivamente inserite, nell'ordine Z.
+     */
+    public List<Shape> replaceAll(List<Shape> newShapes) {
+        Objects.requireNonNull(newShapes, "Shapes list cannot be null for replaceAll.");
+        List<Shape> adopted = new ArrayList<>(newShapes.size());
+        Set<UUID> usedIds = new HashSet<>();
+        for (Shape s : newShapes) {
+            Objects.requireNonNull(s, "Shapes list cannot contain null shapes.");
+            adopted.add(withUniqueIds(s, usedIds, false));
+        }
+
+        this.shapes.clear();
+        spatialIndex().clear();
+        this.shapesById.clear();
+        this.parentsById.clear();
+        for (Shape s : adopted) {
+            this.shapes.add(s);
+            spatialIndex().insert(s);
+            registerShape(s, null);
+        }
+        notifyObservers(new DrawingChangeEvent(Collections.unmodifiableList(new ArrayList<>(adopted)), DrawingChangeEvent.ChangeType.LOAD));
+        return adopted;
+    }
+
+    /**
+     * Aggiunge in cima all'ordine Z le forme date, adottandole come replaceAll(): nuovi ID solo
+     * in caso di conflitto con le forme già presenti o con le precedenti della lista.
+     * Gli observer ricevono un solo evento con le aree delle forme aggiunte.
+     * @return le forme effettivamente inserite.
+     */
+    public List<Shape> addShapes(List<Shape> newShapes) {
+        Objects.requireNonNull(newShapes, "Shapes list cannot be null for addShapes.");
+        List<Shape> adopted = new ArrayList<>(newShapes.size());
+        Set<UUID> usedIds = new HashSet<>();
+        beginBatch();
+        try {
+            for (Shape s : newShapes) {
+                Objects.requireNonNull(s, "Shapes list cannot contain null shapes.");
+                Shape shape = withUniqueIds(s, usedIds, true);
+                addShape(shape);
+                adopted.add(shape);
+            }
+        } finally {
+            commitBatch();
+        }
+        return adopted;
+    }
+
+    // Restituisce la forma stessa, o una sua copia con nuovi ID se qualcuno dei suoi ID è già in uso
+    private Shape withUniqueIds(Shape shape, Set<UUID> usedIds, boolean checkRegistered) {
+        List<UUID> ids = new ArrayList<>();
+        collectIds(shape, ids);
+        boolean conflict = ids.size() > 1 && new HashSet<>(ids).size() != ids.size();
+        for (int i = 0; i < ids.size() && !conflict; i++) {
+            UUID id = ids.get(i);
+            conflict = usedIds.contains(id) || (checkRegistered && this.shapesById.containsKey(id));
+        }
+        if (conflict) {
+            shape = shape.cloneWithNewId();
+            ids.clear();
+            collectIds(shape, ids);
+        }
+        usedIds.addAll(ids);
+        return shape;
+    }
+
+    private static void collectIds(Shape shape, List<UUID> out) {
+        out.add(shape.getId());
+        if (shape.isComposite()) {
+            for (Shape child : shape.getChildren()) {
+                collectIds(child, out);
+            }
+        }
+    }
     
     /**
-     * Restituisce una lista non modificabile delle forme nell'ordine Z corretto (dal basso verso l'alto).
+     * Restituisce le forme di primo livello in ordine Z come vista immutabile.
+     * La stessa istanza viene riutilizzata finché il disegno non cambia, quindi la chiamata
+     * è O(1) per render e pick ripetuti; una modifica successiva non altera la vista già restituita.
      */
     public List<Shape> getShapesInZOrder() {
-        return Collections.unmodifiableList(new ArrayList<>(this.shapes));
+        return this.shapes.snapshot();
     }
     
     /**
-     * Restituisce una riferimento alla lista interna modificabile delle forme.
-     * Usare con cautela, preferibilmente solo da comandi o logica interna che
-     * sa come gestire le notifiche agli observer.
+     * Vista in sola lettura della lista interna delle forme, senza copia. Il nome è rimasto
+     * per compatibilità: le modifiche passano dai metodi del Drawing, che aggiornano anche
+     * indice spaziale e mappe per ID.
      */
     public List<Shape> getModifiableShapesList() {
-        return this.shapes;
+        return Collections.unmodifiableList(this.shapes);
     }
 
     public Shape findShapeById(UUID id) {
         Objects.requireNonNull(id, "ID cannot be null for findShapeById.");
-        for (Shape shape : this.shapes) {
-            if (id.equals(shape.getId())) {
-                return shape;
-            }
-            // Se le forme possono essere GroupShape, potresti voler cercare ricorsivamente
-            if (shape.isComposite()) {
-                Shape foundInChild = findShapeInGroup(shape, id);
-                if (foundInChild != null) return foundInChild;
+        return this.shapesById.get(id); // Include anche i figli (a qualunque profondità) dei gruppi
+    }
+
+    /**
+     * Restituisce il gruppo che contiene direttamente la forma, o null se la forma
+     * è di primo livello o non appartiene al disegno.
+     */
+    public Shape getParentGroup(Shape shape) {
+        Objects.requireNonNull(shape, "Shape cannot be null for getParentGroup.");
+        return this.parentsById.get(shape.getId());
+    }
+
+    /**
+     * Se la forma è figlia (anche indiretta) di un gruppo del disegno, restituisce il gruppo
+     * di primo livello che la contiene; altrimenti restituisce la forma stessa.
+     */
+    public Shape getTopLevelShape(Shape shape) {
+        Objects.requireNonNull(shape, "Shape cannot be null for getTopLevelShape.");
+        Shape current = shape;
+        Shape parent = this.parentsById.get(current.getId());
+        while (parent != null) {
+            current = parent;
+            parent = this.parentsById.get(current.getId());
+        }
+        return current;
+    }
+
+    private void registerShape(Shape shape, Shape parent) {
+        this.shapesById.put(shape.getId(), shape);
+        if (parent != null) {
+            this.parentsById.put(shape.getId(), parent);
+        } else {
+            this.parentsById.remove(shape.getId());
+        }
+        if (shape.isComposite()) {
+            for (Shape child : shape.getChildren()) {
+                registerShape(child, shape);
             }
         }
-        return null;
     }
-    
-    private Shape findShapeInGroup(Shape group, UUID id) {
-        for (Shape child : group.getChildren()) {
-            if (id.equals(child.getId())) {
-                return child;
+
+    private void unregisterShape(Shape shape) {
+        int remaining = this.shapes.indexOf(shape);
+        if (remaining != -1) { // Un'altra forma con lo stesso ID è ancora presente: resta registrata
+            registerShape(this.shapes.get(remaining), null);
+            return;
+        }
+        unregisterTree(shape, null);
+    }
+
+    private void unregisterTree(Shape shape, Shape parent) {
+        // Rimuove la voce solo se è ancora quella registrata per questo padre: un figlio
+        // già riaggiunto al primo livello (es. durante un ungroup) non va toccato.
+        if (this.shapesById.get(shape.getId()) == shape && this.parentsById.get(shape.getId()) == parent) {
+            this.shapesById.remove(shape.getId());
+            this.parentsById.remove(shape.getId());
+        }
+        if (shape.isComposite()) {
+            for (Shape child : shape.getChildren()) {
+                unregisterTree(child, shape);
             }
-            if (child.isComposite()) {
-                Shape foundInGrandChild = findShapeInGroup(child, id);
-                if (foundInGrandChild != null) return foundInGrandChild;
+        }
+    }
+
+
+    /** Numero di forme di primo livello. */
+    public int getShapeCount() {
+        return this.shapes.size();
+    }
+
+    /**
+     * Crea una copia indipendente del disegno con le forme clonate (stessi ID e stesso ordine Z),
+     * senza observer. Le modifiche successive al disegno non si riflettono sulla copia, che può
+     * quindi essere letta da un altro thread (es. salvataggio in background).
+     */
+    public Drawing snapshot() {
+        List<Shape> clones = new ArrayList<>(this.shapes.size());
+        for (Shape s : this.shapes) {
+            clones.add(s.clone());
+        }
+        // Ordine Z costruito in blocco e niente indice spaziale: chi salva legge solo la lista.
+        // L'indice viene costruito alla prima query spaziale sulla copia
+        Drawing copy = new Drawing();
+        copy.spatialIndex = null;
+        copy.shapes.addAll(clones);
+        for (Shape s : clones) {
+            copy.registerShape(s, null);
+        }
+        return copy;
+    }
+
+    private ShapeSpatialIndex spatialIndex() {
+        if (this.spatialIndex == null) {
+            this.spatialIndex = new ShapeSpatialIndex();
+            for (Shape s : this.shapes) {
+                this.spatialIndex.insert(s);
             }
         }
-        return null;
+        return this.spatialIndex;
     }
 
+    /**
+     * @return true se la forma è nel disegno come forma di primo livello. Costa O(1).
+     */
+    public boolean containsShape(Shape shape) {
+        return shape != null && this.shapes.contains(shape);
+    }
 
     public int getShapeIndex(Shape shape) {
         Objects.requireNonNull(shape, "Shape cannot be null for getShapeIndex.");
         return this.shapes.indexOf(shape);
     }
 
+    // ----------------------- Spatial Queries --------------------------------
+
+    /**
+     * Restituisce le forme di primo livello che contengono il punto (secondo Shape.contains),
+     * nell'ordine Z (dal basso verso l'alto). Usa l'indice spaziale per scartare
+     * le forme lontane senza eseguire il test di contenimento su tutto il disegno.
+     */
+    public List<Shape> shapesAt(Point2D point) {
+        Objects.requireNonNull(point, "Point cannot be null for shapesAt.");
+        List<Shape> hits = new ArrayList<>();
+        for (Shape candidate : spatialIndex().candidatesAt(point)) {
+            if (candidate.contains(point)) {
+                hits.add(candidate);
+            }
+        }
+        return sortByZOrder(hits);
+    }
+
+    /**
+     * Restituisce le forme di primo livello i cui bounds (non ruotati) intersecano
+     * strettamente l'area indicata, nell'ordine Z (dal basso verso l'alto).
+     */
+    public List<Shape> shapesIntersecting(Rect area) {
+        Objects.requireNonNull(area, "Area cannot be null for shapesIntersecting.");
+        List<Shape> hits = new ArrayList<>();
+        for (Shape candidate : spatialIndex().candidatesIntersecting(area)) {
+            Rect b = candidate.getBounds();
+            if (b != null && area.getX() < b.getRight() && area.getRight() > b.getX() &&
+                area.getY() < b.getBottom() && area.getBottom() > b.getY()) {
+                hits.add(candidate);
+            }
+        }
+        return sortByZOrder(hits);
+    }
+
+    /**
+     * Restituisce le forme di primo livello che possono comparire nell'area (es. la viewport),
+     * nell'ordine Z. Il test è conservativo: usa il rettangolo indicizzato, che copre i bounds
+     * ruotati, la rotazione dei gruppi e la tolleranza delle linee.
+     */
+    public List<Shape> shapesInArea(Rect area) {
+        Objects.requireNonNull(area, "Area cannot be null for shapesInArea.");
+        return sortByZOrder(spatialIndex().candidatesIntersecting(area));
+    }
+
+    private List<Shape> sortByZOrder(List<Shape> hits) {
+        if (hits.size() > 1) {
+            hits.sort(Comparator.comparingInt(this.shapes::indexOf)); // indexOf è O(log n)
+        }
+        return hits;
+    }
+
     // ----------------------- Shapes Modifiers --------------------------------
 
+    /** Notifica la modifica di una forma con l'area occupata prima e quella attuale (dall'indice spaziale). */
+    private void notifyShapeChanged(Shape shape, DrawingChangeEvent.ChangeType type, Rect oldBounds) {
+        notifyObservers(new DrawingChangeEvent(shape, type, oldBounds, spatialIndex().boundsOf(shape)));
+    }
+
     public void setShapeFillColor(Shape shape, ColorData color) {
         Objects.requireNonNull(shape, "Shape cannot be null for setShapeFillColor.");
         Objects.requireNonNull(color, "Color cannot be null for setShapeFillColor.");
@@ -144,7 +523,7 @@ public class Drawing implements Observable, Serializable {
             throw new IllegalArgumentException("Shape not found in the drawing.");
         }
         shape.setFillColor(color);
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, spatialIndex().boundsOf(shape));
     }
 
     public void setShapeRotation(Shape shape, double angle) {
@@ -152,8 +531,10 @@ public class Drawing implements Observable, Serializable {
         if( !this.shapes.contains(shape)) {
             throw new IllegalArgumentException("Shape not found in the drawing.");
         }
+        Rect oldBounds = spatialIndex().boundsOf(shape);
         shape.setRotation(angle);
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        spatialIndex().update(shape);
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, oldBounds);
     }
 
     public void setShapeText(Shape shape, String text) {
@@ -166,7 +547,7 @@ public class Drawing implements Observable, Serializable {
             throw new IllegalArgumentException("Shape is not a TextShape.");
         }
         ((TextShape) shape).setText(text);
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, spatialIndex().boundsOf(shape));
     }
 
     public void setShapeFontSize(Shape shape, double size) {
@@ -177,8 +558,10 @@ public class Drawing implements Observable, Serializable {
         if (!(shape instanceof TextShape)) {
             throw new IllegalArgumentException("Shape is not a TextShape.");
         }
+        Rect oldBounds = spatialIndex().boundsOf(shape);
         ((TextShape) shape).setFontSize(size);
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        spatialIndex().update(shape);
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, oldBounds);
     }
 
     public void setShapeStrokeColor(Shape shape, ColorData color) {
@@ -188,7 +571,7 @@ public class Drawing implements Observable, Serializable {
             throw new IllegalArgumentException("Shape not found in the drawing.");
         }
         shape.setStrokeColor(color);
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, spatialIndex().boundsOf(shape));
     }
 
     public void moveShape(Shape shape, Vector2D v) {
@@ -197,8 +580,10 @@ public class Drawing implements Observable, Serializable {
         if( !this.shapes.contains(shape)) {
             throw new IllegalArgumentException("Shape not found in the drawing.");
         }
+        Rect oldBounds = spatialIndex().boundsOf(shape);
         shape.move(v);
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        spatialIndex().update(shape);
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, oldBounds);
     }
 
     public void resizeShape(Shape shape, Rect bounds) {
@@ -207,8 +592,10 @@ public class Drawing implements Observable, Serializable {
         if( !this.shapes.contains(shape)) {
             throw new IllegalArgumentException("Shape not found in the drawing.");
         }
+        Rect oldBounds = spatialIndex().boundsOf(shape);
         shape.resize(bounds);
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        spatialIndex().update(shape);
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, oldBounds);
     }
 
     public void reflectShapeHorizontal(Shape shape) {
@@ -216,8 +603,10 @@ public class Drawing implements Observable, Serializable {
         if( !this.shapes.contains(shape)) {
             throw new IllegalArgumentException("Shape not found in the drawing.");
         }
+        Rect oldBounds = spatialIndex().boundsOf(shape);
         shape.reflectHorizontal();
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        spatialIndex().update(shape);
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, oldBounds);
     }
 
     public void reflectShapeVertical(Shape shape) {
@@ -225,15 +614,17 @@ public class Drawing implements Observable, Serializable {
         if( !this.shapes.contains(shape)) {
             throw new IllegalArgumentException("Shape not found in the drawing.");
         }
+        Rect oldBounds = spatialIndex().boundsOf(shape);
         shape.reflectVertical();
-        notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.MODIFY));
+        spatialIndex().update(shape);
+        notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.MODIFY, oldBounds);
     }
 
     public void bringToFront(Shape shape) {
         Objects.requireNonNull(shape, "Shape cannot be null for bringToFront.");
         if (this.shapes.remove(shape)) { // Rimuove e restituisce true se presente
             this.shapes.add(shape); // Aggiunge alla fine (in cima)
-            notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.Z_ORDER));
+            notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.Z_ORDER, spatialIndex().boundsOf(shape));
         }
     }
 
@@ -241,7 +632,7 @@ public class Drawing implements Observable, Serializable {
         Objects.requireNonNull(shape, "Shape cannot be null for sendToBack.");
         if (this.shapes.remove(shape)) {
             this.shapes.add(0, shape); // Aggiunge all'inizio (in fondo)
-            notifyObservers(new DrawingChangeEvent(shape, DrawingChangeEvent.ChangeType.Z_ORDER));
+            notifyShapeChanged(shape, DrawingChangeEvent.ChangeType.Z_ORDER, spatialIndex().boundsOf(shape));
         }
     }
 
@@ -266,8 +657,85 @@ public class Drawing implements Observable, Serializable {
         }
     }
 
+    // ----------------------- Batch --------------------------------
+
+    /**
+     * Apre una transazione: fino al commitBatch() corrispondente gli eventi di modifica
+     * non vengono inviati agli observer ma accodati. Le transazioni possono essere annidate;
+     * solo la chiusura di quella più esterna notifica.
+     */
+    public void beginBatch() {
+        if (this.batchDepth == 0) {
+            this.pendingEvents = new ArrayList<>();
+        }
+        this.batchDepth++;
+    }
+
+    /**
+     * Chiude una transazione aperta con beginBatch(). Alla chiusura di quella più esterna
+     * viene inviato un solo evento: quello originale se la transazione ne ha prodotto uno,
+     * altrimenti un evento BATCH con l'elenco delle forme coinvolte.
+     */
+    public void commitBatch() {
+        if (this.batchDepth == 0) {
+            throw new IllegalStateException("commitBatch() called without a matching beginBatch().");
+        }
+        this.batchDepth--;
+        if (this.batchDepth > 0) {
+            return;
+        }
+        List<DrawingChangeEvent> events = this.pendingEvents;
+        this.pendingEvents = null;
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        if (events.size() == 1) {
+            notifyObservers(events.get(0));
+            return;
+        }
+        LinkedHashSet<Shape> affected = new LinkedHashSet<>();
+        List<Rect> dirtyRegions = new ArrayList<>();
+        for (DrawingChangeEvent event : events) {
+            if (event.changedShape != null) {
+                affected.add(event.changedShape);
+            }
+            if (event.allShapes != null) {
+                affected.addAll(event.allShapes);
+            }
+            List<Rect> eventRegions = event.getDirtyRegions();
+            if (eventRegions == null) {
+                dirtyRegions = null; // Basta un evento senza area nota per richiedere un ridisegno completo
+            } else if (dirtyRegions != null) {
+                dirtyRegions.addAll(eventRegions);
+            }
+        }
+        notifyObservers(new DrawingChangeEvent(new ArrayList<>(affected), DrawingChangeEvent.ChangeType.BATCH, dirtyRegions));
+    }
+
+    /**
+     * Esegue work in una transazione (beginBatch/commitBatch), notificando gli observer
+     * una sola volta anche se work lancia un'eccezione.
+     */
+    public void batch(Runnable work) {
+        Objects.requireNonNull(work, "Batch work cannot be null.");
+        beginBatch();
+        try {
+            work.run();
+        } finally {
+            commitBatch();
+        }
+    }
+
+    public boolean isInBatch() {
+        return this.batchDepth > 0;
+    }
+
     @Override
     public void notifyObservers(Object arg) {
+        if (this.batchDepth > 0 && arg instanceof DrawingChangeEvent) {
+            this.pendingEvents.add((DrawingChangeEvent) arg);
+            return;
+        }
         if (this.observers == null) {
             return; // Non ci sono observer da notificare
         }
@@ -284,28 +752,64 @@ public class Drawing implements Observable, Serializable {
         public enum ChangeType { 
             ADD, REMOVE, MODIFY, 
             Z_ORDER, CLEAR, LOAD, 
-            TRANSFORM, GRID, SELECTION 
+            TRANSFORM, GRID, SELECTION,
+            BATCH // Più modifiche raccolte in una transazione; allShapes elenca le forme coinvolte
         }
         public final ChangeType type;
         public final Shape changedShape;       // Per ADD, REMOVE, MODIFY, Z_ORDER, SELECTION (può essere null)
-        public final List<Shape> allShapes;    // Per CLEAR (lista delle forme rimosse), LOAD (tutte le nuove forme)
+        public final List<Shape> allShapes;    // Per CLEAR (lista delle forme rimosse), LOAD (tutte le nuove forme), BATCH (forme coinvolte)
+        public final Rect oldBounds;           // Area occupata da changedShape prima della modifica (null per ADD o se ignota)
+        public final Rect newBounds;           // Area occupata da changedShape dopo la modifica (null per REMOVE o se ignota)
+        private final List<Rect> batchRegions; // Per BATCH: aree di tutti gli eventi raccolti (null se qualcuna è ignota)
         
         public DrawingChangeEvent(Shape shape, ChangeType type) {
+            this(shape, type, null, null);
+        }
+        public DrawingChangeEvent(Shape shape, ChangeType type, Rect oldBounds, Rect newBounds) {
             this.changedShape = shape; 
             this.allShapes = null; 
             this.type = type;
+            this.oldBounds = (oldBounds != null) ? new Rect(oldBounds) : null;
+            this.newBounds = (newBounds != null) ? new Rect(newBounds) : null;
+            this.batchRegions = null;
         }
         public DrawingChangeEvent(List<Shape> shapes, ChangeType type) {
+            this(shapes, type, null);
+        }
+        public DrawingChangeEvent(List<Shape> shapes, ChangeType type, List<Rect> dirtyRegions) {
             this.changedShape = null; 
             this.allShapes = shapes; 
             this.type = type;
+            this.oldBounds = null;
+            this.newBounds = null;
+            this.batchRegions = (dirtyRegions != null) ? Collections.unmodifiableList(new ArrayList<>(dirtyRegions)) : null;
         }
         // Costruttore per eventi generici senza una forma specifica o una lista di forme
         // (es. TRANSFORM, GRID, o un MODIFY generico del disegno)
         public DrawingChangeEvent(ChangeType type) { 
-            this.changedShape = null; 
-            this.allShapes = null; 
-            this.type = type;
+            this((Shape) null, type);
+        }
+
+        /**
+         * Aree del disegno (coordinate mondo) da ridisegnare in seguito all'evento,
+         * oppure null se l'evento richiede un ridisegno completo (CLEAR, LOAD, TRANSFORM, GRID, ...).
+         */
+        public List<Rect> getDirtyRegions() {
+            if (type == ChangeType.BATCH) {
+                return batchRegions;
+            }
+            if (changedShape == null || (oldBounds == null && newBounds == null)) {
+                return null;
+            }
+            switch (type) {
+                case ADD: case REMOVE: case MODIFY: case Z_ORDER:
+                    List<Rect> regions = new ArrayList<>(2);
+                    if (oldBounds != null) regions.add(new Rect(oldBounds));
+                    if (newBounds != null && !newBounds.equals(oldBounds)) regions.add(new Rect(newBounds));
+                    return regions;
+                default:
+                    return null;
+            }
         }
     }
 
@@ -1,6 +1,7 @@
 
 package sad.gruppo11.Model;
 
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
@@ -12,6 +13,7 @@ import java.util.Objects;
 import java.util.UUID;
 
 public class EllipseShape extends AbstractBaseShape implements Serializable {
+    private static final long serialVersionUID = 2452981677811919121L;
     private final UUID id;
     private Rect bounds; // Il rettangolo di delimitazione in cui l'ellisse è inscritta (non ruotato)
     private ColorData strokeColor;
@@ -19,7 +21,7 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
     private double rotationAngle; // In gradi
 
     public EllipseShape(Rect bounds, ColorData stroke, ColorData fill) {
-        this.id = UUID.randomUUID();
+        this.id = ShapeIdGenerator.newId();
         Objects.requireNonNull(bounds, "Bounds cannot be null for EllipseShape.");
         Objects.requireNonNull(stroke, "Stroke color cannot be null for EllipseShape.");
         Objects.requireNonNull(fill, "Fill color cannot be null for EllipseShape.");
@@ -37,6 +39,15 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
         this.rotationAngle = rotationAngle;
     }
 
+    /** Ricrea un'ellisse salvata mantenendone l'ID (usato dai formati di persistenza). */
+    public static EllipseShape restore(UUID id, Rect bounds, ColorData stroke, ColorData fill, double rotationAngle) {
+        Objects.requireNonNull(id, "ID cannot be null for EllipseShape.");
+        Objects.requireNonNull(bounds, "Bounds cannot be null for EllipseShape.");
+        Objects.requireNonNull(stroke, "Stroke color cannot be null for EllipseShape.");
+        Objects.requireNonNull(fill, "Fill color cannot be null for EllipseShape.");
+        return new EllipseShape(id, bounds, stroke, fill, rotationAngle);
+    }
+
     @Override
     public UUID getId() {
         return id;
@@ -44,12 +55,14 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void move(Vector2D v) {
+        geometryChanged();
         Objects.requireNonNull(v, "Movement vector cannot be null.");
         this.bounds.translate(v);
     }
 
     @Override
     public void resize(Rect newBounds) {
+        geometryChanged();
         Objects.requireNonNull(newBounds, "New bounds cannot be null for resize.");
         this.bounds = new Rect(newBounds);
     }
@@ -79,26 +92,24 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
     @Override
     public boolean contains(Point2D p) {
         Objects.requireNonNull(p, "Point p cannot be null for contains check.");
+        return contains(p.getX(), p.getY());
+    }
+
+    @Override
+    public boolean contains(double x, double y) {
         // Algoritmo per punto in ellisse ruotata:
         // (x*cos(a) + y*sin(a))^2 / rx^2 + (x*sin(a) - y*cos(a))^2 / ry^2 <= 1
         // Dove (x,y) sono le coordinate del punto rispetto al centro dell'ellisse,
         // a è l'angolo di rotazione, rx e ry sono i semiassi.
-        Point2D center = bounds.getCenter();
-        double dx = p.getX() - center.getX(); // x rispetto al centro
-        double dy = p.getY() - center.getY(); // y rispetto al centro
-
-        double rad = Math.toRadians(-rotationAngle); // Angolo di rotazione inverso
-        double cosRad = Math.cos(rad);
-        double sinRad = Math.sin(rad);
-
-        double rotatedX = dx * cosRad - dy * sinRad;
-        double rotatedY = dx * sinRad + dy * cosRad;
-
         double rx = bounds.getWidth() / 2.0;
         double ry = bounds.getHeight() / 2.0;
-
         if (rx <= 0 || ry <= 0) return false; // Ellisse degenere non contiene punti
 
+        // Punto riportato nello spazio non ruotato (trasformazione inversa in cache), poi rispetto al centro
+        Affine2D inverse = getInverseTransform();
+        double rotatedX = inverse.transformX(x, y) - (bounds.getX() + rx);
+        double rotatedY = inverse.transformY(x, y) - (bounds.getY() + ry);
+
         double term1 = (rotatedX * rotatedX) / (rx * rx);
         double term2 = (rotatedY * rotatedY) / (ry * ry);
         
@@ -107,6 +118,27 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
         return (term1 + term2) <= 1.0 + epsilon;
     }
 
+    @Override
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        double rx = bounds.getWidth() / 2.0;
+        double ry = bounds.getHeight() / 2.0;
+        double cx = bounds.getX() + rx;
+        double cy = bounds.getY() + ry;
+        double extentX = rx;
+        double extentY = ry;
+        Affine2D t = getTransform();
+        if (!t.isIdentity()) {
+            if (rx <= 0 || ry <= 0) { // Ellisse degenere: getRotatedBounds la riduce al centro
+                extentX = 0;
+                extentY = 0;
+            } else { // Semiassi dell'AABB dell'ellisse ruotata
+                extentX = Math.sqrt(rx * rx * t.getMxx() * t.getMxx() + ry * ry * t.getMxy() * t.getMxy());
+                extentY = Math.sqrt(rx * rx * t.getMyx() * t.getMyx() + ry * ry * t.getMyy() * t.getMyy());
+            }
+        }
+        return boxesOverlap(cx - extentX, cy - extentY, cx + extentX, cy + extentY, minX, minY, maxX, maxY);
+    }
+
     @Override
     public void accept(ShapeVisitor v) {
         Objects.requireNonNull(v, "ShapeVisitor cannot be null.");
@@ -132,6 +164,7 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void setRotation(double angle) {
+        geometryChanged();
         this.rotationAngle = angle % 360.0;
         if (this.rotationAngle < 0) this.rotationAngle += 360.0;
         this.rotationAngle = this.rotationAngle == -0.0 ? 0.0 : this.rotationAngle;
@@ -154,6 +187,7 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
     // --- Metodi per Riflessione (US 27) ---
     @Override
     public void reflectHorizontal() {
+        geometryChanged();
         // L'ellisse è simmetrica. Per riflettere l'orientamento orizzontale
         // della forma visiva ruotata (come se l'asse Y del mondo fosse uno specchio):
         // Angolo alfa -> Angolo (180 - alfa)
@@ -163,6 +197,7 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void reflectVertical() {
+        geometryChanged();
         // Per riflettere l'orientamento verticale della forma visiva ruotata
         // (come se l'asse X del mondo fosse uno specchio):
         // Angolo alfa -> Angolo (-alfa)
@@ -192,10 +227,10 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
     @Override
     public Rect getRotatedBounds() {
         Rect unrotatedBounds = getBounds(); // this.bounds
-        double angleDegrees = getRotation();
+        Affine2D t = getTransform();
 
-        if (angleDegrees == 0.0) {
-            return new Rect(unrotatedBounds); // Copia difensiva
+        if (t.isIdentity()) {
+            return unrotatedBounds; // getBounds restituisce già una copia
         }
 
         Point2D center = unrotatedBounds.getCenter();
@@ -206,13 +241,10 @@ public class EllipseShape extends AbstractBaseShape implements Serializable {
             return new Rect(center, 0, 0);
         }
 
-        double angleRad = Math.toRadians(angleDegrees);
-        double cosA = Math.cos(angleRad);
-        double sinA = Math.sin(angleRad);
-
         // Calcola la larghezza e l'altezza dell'AABB dell'ellisse ruotata
-        double aabbWidth = 2 * Math.sqrt(rx*rx * cosA*cosA + ry*ry * sinA*sinA);
-        double aabbHeight = 2 * Math.sqrt(rx*rx * sinA*sinA + ry*ry * cosA*cosA);
+        // (mxx = myy = cos, myx = -mxy = sin della rotazione)
+        double aabbWidth = 2 * Math.sqrt(rx*rx * t.getMxx()*t.getMxx() + ry*ry * t.getMxy()*t.getMxy());
+        double aabbHeight = 2 * Math.sqrt(rx*rx * t.getMyx()*t.getMyx() + ry*ry * t.getMyy()*t.getMyy());
         
         // L'AABB è centrato nello stesso punto dell'ellisse
         double minX = center.getX() - aabbWidth / 2.0;
@@ -1,12 +1,15 @@
 
 package sad.gruppo11.Model;
 
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
 import sad.gruppo11.Model.geometry.Vector2D;
 import sad.gruppo11.View.ShapeVisitor;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -16,13 +19,22 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 public class GroupShape implements Shape, Serializable {
+    private static final long serialVersionUID = -2322225877570926716L;
     private final UUID id;
     private List<Shape> children;
     private double rotationAngle; // Rotazione del gruppo stesso, applicata ai figli
-    // Nota: i bounds di GroupShape sono calcolati dinamicamente dai figli
+    // Nota: i bounds di GroupShape sono calcolati dai figli e tenuti in cache finché
+    // un figlio (a qualunque profondità) o il gruppo stesso non cambia geometria.
+    private transient Rect cachedBounds;
+    private transient Rect cachedRotatedBounds;
+    // Rotazione del gruppo attorno al centro dei bounds in cache e sua inversa; dipendono dai bounds,
+    // quindi vengono scartate insieme a loro
+    private transient Affine2D cachedTransform;
+    private transient Affine2D cachedInverseTransform;
+    private transient ParentGroups parentGroups; // Gruppi che contengono questo gruppo
 
     public GroupShape(List<Shape> initialChildren) {
-        this.id = UUID.randomUUID();
+        this.id = ShapeIdGenerator.newId();
         Objects.requireNonNull(initialChildren, "Initial children list cannot be null for GroupShape.");
         // Clona i figli per evitare modifiche esterne alla lista interna e per assicurarsi
         // che il gruppo possieda le sue istanze (o copie con nuovi ID se necessario per la logica dell'app)
@@ -34,6 +46,7 @@ public class GroupShape implements Shape, Serializable {
                 // Se si vuole che i figli siano copie "fresche", usare child.cloneWithNewId()
                 // ma questo di solito avviene al paste, non al group.
                 this.children.add(child); // Aggiunge il riferimento diretto, o child.clone() se si preferisce
+                linkChild(child);
             }
         }
         this.rotationAngle = 0.0;
@@ -44,6 +57,82 @@ public class GroupShape implements Shape, Serializable {
         this.id = id;
         this.children = clonedChildren; // Assume che clonedChildren siano già cloni appropriati
         this.rotationAngle = rotationAngle;
+        for (Shape child : this.children) {
+            linkChild(child);
+        }
+    }
+
+    /** Ricrea un gruppo salvato mantenendone l'ID; i figli non vengono clonati (usato dai formati di persistenza). */
+    public static GroupShape restore(UUID id, List<Shape> children, double rotationAngle) {
+        Objects.requireNonNull(id, "ID cannot be null for GroupShape.");
+        Objects.requireNonNull(children, "Children list cannot be null for GroupShape.");
+        List<Shape> ownChildren = new ArrayList<>();
+        for (Shape child : children) {
+            if (child != null) ownChildren.add(child);
+        }
+        return new GroupShape(id, ownChildren, rotationAngle);
+    }
+
+    // I collegamenti figlio -> gruppo e le cache non sono serializzati: si ricostruiscono qui
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        for (Shape child : this.children) {
+            linkChild(child);
+        }
+    }
+
+    // ----------------------- Cache dei bounds --------------------------------
+
+    ParentGroups parentGroups() {
+        if (parentGroups == null) {
+            parentGroups = new ParentGroups();
+        }
+        return parentGroups;
+    }
+
+    /**
+     * Scarta i bounds in cache di questo gruppo e dei gruppi che lo contengono.
+     * Se la cache è già vuota lo è anche quella degli antenati (un antenato calcola i suoi
+     * bounds solo dopo aver riempito quelli dei figli), quindi la risalita si ferma.
+     * Le trasformazioni in cache sono calcolate dai bounds e vengono scartate con loro.
+     */
+    void invalidateBounds() {
+        // A 0 gradi le trasformazioni vengono messe in cache senza calcolare i bounds:
+        // vanno azzerate anche quando l'uscita anticipata qui sotto salta il resto
+        cachedTransform = null;
+        cachedInverseTransform = null;
+        if (cachedBounds == null && cachedRotatedBounds == null) {
+            return;
+        }
+        cachedBounds = null;
+        cachedRotatedBounds = null;
+        if (parentGroups != null) {
+            parentGroups.invalidateAll();
+        }
+    }
+
+    private void linkChild(Shape child) {
+        ParentGroups links = parentGroupsOf(child);
+        if (links != null) {
+            links.add(this);
+        }
+    }
+
+    private void unlinkChild(Shape child) {
+        ParentGroups links = parentGroupsOf(child);
+        if (links != null) {
+            links.remove(this);
+        }
+    }
+
+    private static ParentGroups parentGroupsOf(Shape shape) {
+        if (shape instanceof AbstractBaseShape) {
+            return ((AbstractBaseShape) shape).parentGroups();
+        }
+        if (shape instanceof GroupShape) {
+            return ((GroupShape) shape).parentGroups();
+        }
+        return null; // Implementazioni esterne di Shape: nessuna notifica, il gruppo si invalida da solo
     }
 
     @Override
@@ -57,6 +146,7 @@ public class GroupShape implements Shape, Serializable {
         for (Shape child : children) {
             child.move(v);
         }
+        invalidateBounds();
         // La rotazione del gruppo è relativa al suo (nuovo) centro,
         // quindi muovere i figli muove implicitamente il pivot di rotazione del gruppo.
     }
@@ -126,6 +216,7 @@ public class GroupShape implements Shape, Serializable {
                  child.move(correctionMove);
             }
         }
+        invalidateBounds();
     }
 
 
@@ -165,34 +256,35 @@ public class GroupShape implements Shape, Serializable {
     @Override
     public boolean contains(Point2D p) {
         Objects.requireNonNull(p, "Point p cannot be null for contains check.");
-        // Il gruppo contiene p se uno qualsiasi dei suoi figli contiene p.
-        // Bisogna considerare la rotazione del gruppo.
-        // Trasforma p nello spazio non ruotato del gruppo.
-        Point2D groupCenter = getBounds().getCenter(); 
-        double angleRadInverse = Math.toRadians(-this.rotationAngle);
-        double cosA = Math.cos(angleRadInverse);
-        double sinA = Math.sin(angleRadInverse);
-
-        double translatedPx = p.getX() - groupCenter.getX();
-        double translatedPy = p.getY() - groupCenter.getY();
-        
-        double localPx = translatedPx * cosA - translatedPy * sinA + groupCenter.getX();
-        double localPy = translatedPx * sinA + translatedPy * cosA + groupCenter.getY();
-        Point2D pointInGroupLocalSpace = new Point2D(localPx, localPy);
+        return contains(p.getX(), p.getY());
+    }
 
-        for (Shape child : children) {
-            // Il metodo contains del figlio opera già con la sua rotazione individuale
-            // e i suoi bounds/vertici non ruotati.
-            // Il punto passato al figlio deve essere nello stesso sistema di coordinate
-            // dei dati del figlio (cioè, mondo, non ruotato dal gruppo).
-            // Quindi, passiamo pointInGroupLocalSpace.
-            if (child.contains(pointInGroupLocalSpace)) {
+    @Override
+    public boolean contains(double x, double y) {
+        // Il gruppo contiene (x, y) se uno qualsiasi dei suoi figli lo contiene.
+        // Bisogna considerare la rotazione del gruppo.
+        // Trasforma il punto nello spazio non ruotato del gruppo.
+        Affine2D inverse = getInverseTransform();
+        double localPx = inverse.transformX(x, y);
+        double localPy = inverse.transformY(x, y);
+
+        for (int i = 0; i < children.size(); i++) {
+            // Il contains del figlio opera già con la sua rotazione individuale
+            // e i suoi bounds/vertici non ruotati: gli si passa il punto nello spazio locale del gruppo.
+            if (children.get(i).contains(localPx, localPy)) {
                 return true;
             }
         }
         return false;
     }
 
+    @Override
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        Rect r = rotatedBounds();
+        return AbstractBaseShape.boxesOverlap(r.getX(), r.getY(), r.getRight(), r.getBottom(),
+                                              minX, minY, maxX, maxY);
+    }
+
     @Override
     public void accept(ShapeVisitor v) {
         Objects.requireNonNull(v, "ShapeVisitor cannot be null.");
@@ -215,11 +307,22 @@ public class GroupShape implements Shape, Serializable {
             clonedChildrenWithNewIds.add(child.cloneWithNewId()); // Clona con nuovo ID
         }
         // Crea il nuovo gruppo con un nuovo ID e i figli clonati (che hanno già nuovi ID)
-        return new GroupShape(UUID.randomUUID(), clonedChildrenWithNewIds, this.rotationAngle);
+        return new GroupShape(ShapeIdGenerator.newId(), clonedChildrenWithNewIds, this.rotationAngle);
     }
 
     @Override
     public Rect getBounds() {
+        return new Rect(bounds()); // Copia difensiva: Rect è mutabile
+    }
+
+    private Rect bounds() {
+        if (cachedBounds == null) {
+            cachedBounds = computeBounds();
+        }
+        return cachedBounds;
+    }
+
+    private Rect computeBounds() {
         if (children.isEmpty()) {
             return new Rect(0, 0, 0, 0); // Gruppo vuoto
         }
@@ -254,6 +357,7 @@ public class GroupShape implements Shape, Serializable {
         this.rotationAngle = angle % 360.0;
         if (this.rotationAngle < 0) this.rotationAngle += 360.0;
         this.rotationAngle = this.rotationAngle == -0.0 ? 0.0 : this.rotationAngle;
+        invalidateBounds();
     }
 
     @Override
@@ -288,6 +392,7 @@ public class GroupShape implements Shape, Serializable {
             // 4. Rifletti il figlio stesso intrinsecamente
             child.reflectHorizontal();
         }
+        invalidateBounds();
         // Inverti la rotazione del gruppo.
         setRotation(-getRotation()); 
     }
@@ -302,6 +407,7 @@ public class GroupShape implements Shape, Serializable {
             child.move(moveVector);
             child.reflectVertical();
         }
+        invalidateBounds();
         // Inverti la rotazione del gruppo.
         setRotation(-getRotation());
     }
@@ -312,13 +418,18 @@ public class GroupShape implements Shape, Serializable {
         Objects.requireNonNull(s, "Cannot add a null shape to the group.");
         if (!this.children.contains(s)) {
             this.children.add(s);
+            linkChild(s);
+            invalidateBounds();
         }
     }
 
     @Override
     public void remove(Shape s) {
         Objects.requireNonNull(s, "Cannot remove a null shape from the group.");
-        this.children.remove(s);
+        if (this.children.remove(s)) {
+            unlinkChild(s);
+            invalidateBounds();
+        }
     }
 
     @Override
@@ -336,7 +447,8 @@ public class GroupShape implements Shape, Serializable {
     }
     
     public List<Shape> getModifiableChildren() {
-        // Usato internamente o da comandi che sanno cosa stanno facendo
+        // Usato internamente o da comandi che sanno cosa stanno facendo.
+        // Le modifiche dirette alla lista non aggiornano la cache dei bounds: preferire add/remove.
         return this.children;
     }
 
@@ -364,26 +476,45 @@ public class GroupShape implements Shape, Serializable {
                 id, children.size(), rotationAngle);
     }
 
-    private Point2D rotatePoint(Point2D point, Point2D pivot, double angleDegrees) { // Copia helper
-        double angleRad = Math.toRadians(angleDegrees);
-        double cosA = Math.cos(angleRad);
-        double sinA = Math.sin(angleRad);
-        double dx = point.getX() - pivot.getX();
-        double dy = point.getY() - pivot.getY();
-        double newX = pivot.getX() + (dx * cosA - dy * sinA);
-        double newY = pivot.getY() + (dx * sinA + dy * cosA);
-        return new Point2D(newX, newY);
+    @Override
+    public Affine2D getTransform() {
+        if (rotationAngle == 0.0) {
+            return Affine2D.IDENTITY; // Senza rotazione il pivot non serve: i bounds non vengono calcolati
+        }
+        if (cachedTransform == null) {
+            Rect bounds = bounds();
+            cachedTransform = Affine2D.rotation(rotationAngle,
+                    bounds.getX() + bounds.getWidth() / 2.0, bounds.getY() + bounds.getHeight() / 2.0);
+        }
+        return cachedTransform;
+    }
+
+    private Affine2D getInverseTransform() {
+        if (cachedInverseTransform == null) {
+            cachedInverseTransform = getTransform().createInverse();
+        }
+        return cachedInverseTransform;
     }
 
     @Override
     public Rect getRotatedBounds() {
+        return new Rect(rotatedBounds());
+    }
+
+    private Rect rotatedBounds() {
+        if (cachedRotatedBounds == null) {
+            cachedRotatedBounds = computeRotatedBounds();
+        }
+        return cachedRotatedBounds;
+    }
+
+    private Rect computeRotatedBounds() {
         if (children.isEmpty()) {
             return new Rect(0, 0, 0, 0);
         }
         
-        double groupAngle = getRotation();
-        // Il pivot per la rotazione del gruppo è il centro del suo AABB *non* ruotato
-        Point2D groupPivot = getBounds().getCenter(); 
+        // Rotazione del gruppo attorno al centro del suo AABB *non* ruotato
+        Affine2D groupTransform = getTransform();
 
         double minX = Double.POSITIVE_INFINITY;
         double minY = Double.POSITIVE_INFINITY;
@@ -397,28 +528,24 @@ public class GroupShape implements Shape, Serializable {
             // Ora, considera i 4 vertici di questo AABB del figlio.
             // Questi vertici sono nello spazio del mondo, ma devono essere
             // ulteriormente ruotati dalla rotazione del gruppo.
-            Point2D c_topLeft = childRotatedAABB.getTopLeft();
-            Point2D c_topRight = new Point2D(childRotatedAABB.getRight(), childRotatedAABB.getY());
-            Point2D c_bottomLeft = new Point2D(childRotatedAABB.getX(), childRotatedAABB.getBottom());
-            Point2D c_bottomRight = childRotatedAABB.getBottomRight();
-
-            Point2D[] childVertices = {c_topLeft, c_topRight, c_bottomRight, c_bottomLeft};
-
-            for (Point2D vertex : childVertices) {
-                Point2D transformedVertex = vertex;
-                // Applica la rotazione del gruppo a ciascun vertice dell'AABB ruotato del figlio
-                if (groupAngle != 0.0) {
-                    transformedVertex = rotatePoint(vertex, groupPivot, groupAngle);
+            double[] xs = {childRotatedAABB.getX(), childRotatedAABB.getRight()};
+            double[] ys = {childRotatedAABB.getY(), childRotatedAABB.getBottom()};
+
+            for (double vx : xs) {
+                for (double vy : ys) {
+                    // Applica la rotazione del gruppo a ciascun vertice dell'AABB ruotato del figlio
+                    double tx = groupTransform.transformX(vx, vy);
+                    double ty = groupTransform.transformY(vx, vy);
+                    minX = Math.min(minX, tx);
+                    minY = Math.min(minY, ty);
+                    maxX = Math.max(maxX, tx);
+                    maxY = Math.max(maxY, ty);
                 }
-                minX = Math.min(minX, transformedVertex.getX());
-                minY = Math.min(minY, transformedVertex.getY());
-                maxX = Math.max(maxX, transformedVertex.getX());
-                maxY = Math.max(maxY, transformedVertex.getY());
             }
         }
         
         if (minX > maxX) { // Se non ci sono figli validi o tutti degeneri
-             return new Rect(groupPivot,0,0); // O un altro default sensato
+             return new Rect(getBounds().getCenter(),0,0); // O un altro default sensato
         }
 
         return new Rect(new Point2D(minX, minY), maxX - minX, maxY - minY);
@@ -1,6 +1,7 @@
 
 package sad.gruppo11.Model;
 
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
@@ -12,6 +13,10 @@ import java.util.Objects;
 import java.util.UUID;
 
 public class LineSegment extends AbstractBaseShape implements Serializable { // Estende AbstractBaseShape
+    private static final long serialVersionUID = -3340911909283067627L;
+    // Tolleranza (in coordinate mondo) usata da contains(); letta anche da ShapeSpatialIndex
+    static final double HIT_TOLERANCE = 3.0;
+
     private final UUID id;
     private Point2D startPoint;
     private Point2D endPoint;
@@ -19,7 +24,7 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
     private double rotationAngle;
 
     public LineSegment(Point2D p1, Point2D p2, ColorData stroke) {
-        this.id = UUID.randomUUID();
+        this.id = ShapeIdGenerator.newId();
         Objects.requireNonNull(p1, "Start point (p1) cannot be null for LineSegment.");
         Objects.requireNonNull(p2, "End point (p2) cannot be null for LineSegment.");
         Objects.requireNonNull(stroke, "Stroke color cannot be null for LineSegment.");
@@ -37,6 +42,15 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
         this.rotationAngle = rotationAngle;
     }
 
+    /** Ricrea un segmento salvato mantenendone l'ID (usato dai formati di persistenza). */
+    public static LineSegment restore(UUID id, Point2D start, Point2D end, ColorData stroke, double rotationAngle) {
+        Objects.requireNonNull(id, "ID cannot be null for LineSegment.");
+        Objects.requireNonNull(start, "Start point cannot be null for LineSegment.");
+        Objects.requireNonNull(end, "End point cannot be null for LineSegment.");
+        Objects.requireNonNull(stroke, "Stroke color cannot be null for LineSegment.");
+        return new LineSegment(id, start, end, stroke, rotationAngle);
+    }
+
     @Override
     public UUID getId() {
         return id;
@@ -44,6 +58,7 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
 
     @Override
     public void move(Vector2D v) {
+        geometryChanged();
         Objects.requireNonNull(v, "Movement vector cannot be null.");
         // Se la linea è ruotata, il move semplice dei suoi estremi originali è corretto
         // perché la rotazione è applicata al momento del rendering attorno al centro attuale.
@@ -53,6 +68,7 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
 
     @Override
     public void resize(Rect newBounds) {
+        geometryChanged();
         Objects.requireNonNull(newBounds, "New bounds cannot be null for resize.");
         // Per una linea, il resize basato su un Rect implica che la linea diventi
         // la diagonale di quel rettangolo (o si adatti ai suoi estremi).
@@ -95,36 +111,60 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
     @Override
     public boolean contains(Point2D p) {
         Objects.requireNonNull(p, "Point p cannot be null for contains check.");
+        return contains(p.getX(), p.getY());
+    }
 
-        // Trasforma il punto p nello spazio locale (non ruotato) della linea
-        Point2D center = getBounds().getCenter(); // Pivot di rotazione
-        double angleRadInverse = Math.toRadians(-this.rotationAngle);
-        double cosA = Math.cos(angleRadInverse);
-        double sinA = Math.sin(angleRadInverse);
-
-        double translatedPx = p.getX() - center.getX();
-        double translatedPy = p.getY() - center.getY();
-
-        double localPx = translatedPx * cosA - translatedPy * sinA + center.getX();
-        double localPy = translatedPx * sinA + translatedPy * cosA + center.getY();
-        Point2D localPoint = new Point2D(localPx, localPy);
+    @Override
+    public boolean contains(double x, double y) {
+        double sx = startPoint.getX(), sy = startPoint.getY();
+        double ex = endPoint.getX(), ey = endPoint.getY();
+
+        // Trasforma il punto nello spazio locale (non ruotato) della linea,
+        // con l'inversa della rotazione attorno al centro del bounding box non ruotato.
+        Affine2D inverse = getInverseTransform();
+        double localPx = inverse.transformX(x, y);
+        double localPy = inverse.transformY(x, y);
         
         // Ora esegui il test di contenimento sulla linea originale (startPoint, endPoint)
-        // con il punto trasformato localPoint.
-        double distToStart = startPoint.distance(localPoint);
-        double distToEnd = endPoint.distance(localPoint);
-        double segmentLength = startPoint.distance(endPoint);
+        // con il punto trasformato.
+        double distToStart = distance(sx, sy, localPx, localPy);
+        double distToEnd = distance(ex, ey, localPx, localPy);
+        double segmentLength = distance(sx, sy, ex, ey);
         
-        double epsilon = 3.0; // Tolleranza per il click (in coordinate mondo, più generosa)
+        double epsilon = HIT_TOLERANCE; // Tolleranza per il click (in coordinate mondo, più generosa)
                               // Questa tolleranza dovrebbe essere idealmente scalata con lo zoom per la UI.
         
         if (segmentLength < 1e-3) { // Praticamente un punto
-            return startPoint.distance(localPoint) < epsilon;
+            return distToStart < epsilon;
         }
         // Verifica se la somma delle distanze da p agli estremi è vicina alla lunghezza del segmento
         return Math.abs((distToStart + distToEnd) - segmentLength) < epsilon;
-    }  
-      
+    }
+
+    // Come Point2D.distance, sui valori primitivi
+    private static double distance(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        double sx = startPoint.getX(), sy = startPoint.getY();
+        double ex = endPoint.getX(), ey = endPoint.getY();
+        Affine2D t = getTransform();
+        if (!t.isIdentity()) { // Estremi ruotati attorno al centro, come in getRotatedBounds
+            double rsx = t.transformX(sx, sy), rsy = t.transformY(sx, sy);
+            double rex = t.transformX(ex, ey), rey = t.transformY(ex, ey);
+            sx = rsx;
+            sy = rsy;
+            ex = rex;
+            ey = rey;
+        }
+        return boxesOverlap(Math.min(sx, ex), Math.min(sy, ey), Math.max(sx, ex), Math.max(sy, ey),
+                            minX, minY, maxX, maxY);
+    }
+
     @Override
     public void accept(ShapeVisitor v) {
         Objects.requireNonNull(v, "ShapeVisitor cannot be null.");
@@ -163,6 +203,7 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
     
     @Override
     public void setRotation(double angle) {
+        geometryChanged();
         this.rotationAngle = angle % 360.0;
         if (this.rotationAngle < 0) this.rotationAngle += 360.0;
         this.rotationAngle = this.rotationAngle == -0.0 ? 0.0 : this.rotationAngle;
@@ -185,6 +226,7 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
     // --- Metodi per Riflessione (US 27) ---
     @Override
     public void reflectHorizontal() {
+        geometryChanged();
         Point2D center = getBounds().getCenter(); // Centro del bounding box NON ruotato
         
         // Rifletti i punti start e end rispetto all'asse verticale passante per center.getX()
@@ -202,6 +244,7 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
 
     @Override
     public void reflectVertical() {
+        geometryChanged();
         Point2D center = getBounds().getCenter(); // Centro del bounding box NON ruotato
         
         // Rifletti i punti start e end rispetto all'asse orizzontale passante per center.getY()
@@ -239,19 +282,15 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
 
     @Override
     public Rect getRotatedBounds() {
-        Point2D p1 = getStartPoint();
-        Point2D p2 = getEndPoint();
-        double angle = getRotation();
+        Affine2D t = getTransform();
 
-        if (angle == 0.0) {
+        if (t.isIdentity()) {
             return getBounds(); // Nessuna rotazione, l'AABB è il bounds non ruotato
         }
 
-        Point2D center = getBounds().getCenter(); // Pivot di rotazione
-
         // Ruota i punti di inizio e fine attorno al centro
-        Point2D rotatedP1 = rotatePoint(p1, center, angle);
-        Point2D rotatedP2 = rotatePoint(p2, center, angle);
+        Point2D rotatedP1 = t.transform(startPoint);
+        Point2D rotatedP2 = t.transform(endPoint);
 
         // Calcola il nuovo AABB dai punti ruotati
         double minX = Math.min(rotatedP1.getX(), rotatedP2.getX());
@@ -261,24 +300,4 @@ public class LineSegment extends AbstractBaseShape implements Serializable { //
 
         return new Rect(new Point2D(minX, minY), maxX - minX, maxY - minY);
     }
-
-    /**
-     * Metodo helper per ruotare un punto attorno a un pivot.
-     * @param point Il punto da ruotare.
-     * @param pivot Il punto attorno al quale ruotare.
-     * @param angleDegrees L'angolo di rotazione in gradi.
-     * @return Il nuovo punto ruotato.
-     */
-    private Point2D rotatePoint(Point2D point, Point2D pivot, double angleDegrees) {
-        double angleRad = Math.toRadians(angleDegrees);
-        double cosA = Math.cos(angleRad);
-        double sinA = Math.sin(angleRad);
-
-        double dx = point.getX() - pivot.getX();
-        double dy = point.getY() - pivot.getY();
-
-        double newX = pivot.getX() + (dx * cosA - dy * sinA);
-        double newY = pivot.getY() + (dx * sinA + dy * cosA);
-        return new Point2D(newX, newY);
-    }
 }
@@ -0,0 +1,36 @@
+package sad.gruppo11.Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Insieme dei GroupShape che contengono una forma, usato per invalidare i bounds
+ * in cache dei gruppi quando la forma cambia geometria.
+ * I riferimenti sono deboli: i gruppi temporanei (es. quello creato dalla vista per
+ * disegnare la selezione) non restano in memoria a causa dei loro figli.
+ */
+final class ParentGroups {
+    private final Set<GroupShape> groups = Collections.newSetFromMap(new WeakHashMap<>());
+
+    void add(GroupShape group) {
+        groups.add(group);
+    }
+
+    void remove(GroupShape group) {
+        groups.remove(group);
+    }
+
+    void invalidateAll() {
+        if (groups.isEmpty()) {
+            return;
+        }
+        // Copia: l'invalidazione può risalire la catena e toccare altri insiemi
+        for (GroupShape group : new ArrayList<>(groups)) {
+            if (group != null) {
+                group.invalidateBounds();
+            }
+        }
+    }
+}
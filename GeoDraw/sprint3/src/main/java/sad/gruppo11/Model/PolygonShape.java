@@ -1,6 +1,7 @@
 
 package sad.gruppo11.Model;
 
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
@@ -15,6 +16,7 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 public class PolygonShape extends AbstractBaseShape implements Serializable {
+    private static final long serialVersionUID = 7544241528692471502L;
     private final UUID id;
     private List<Point2D> vertices; // Vertici nello spazio del modello (non ruotati)
     private ColorData strokeColor;
@@ -22,7 +24,7 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
     private double rotationAngle;
 
     public PolygonShape(List<Point2D> vertices, ColorData stroke, ColorData fill) {
-        this.id = UUID.randomUUID();
+        this.id = ShapeIdGenerator.newId();
         Objects.requireNonNull(vertices, "Vertices list cannot be null for PolygonShape.");
         if (vertices.size() < 3) {
             throw new IllegalArgumentException("PolygonShape must have at least 3 vertices.");
@@ -44,6 +46,18 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
         this.rotationAngle = rotationAngle;
     }
 
+    /** Ricrea un poligono salvato mantenendone l'ID (usato dai formati di persistenza). */
+    public static PolygonShape restore(UUID id, List<Point2D> vertices, ColorData stroke, ColorData fill, double rotationAngle) {
+        Objects.requireNonNull(id, "ID cannot be null for PolygonShape.");
+        Objects.requireNonNull(vertices, "Vertices list cannot be null for PolygonShape.");
+        if (vertices.size() < 3) {
+            throw new IllegalArgumentException("PolygonShape must have at least 3 vertices.");
+        }
+        Objects.requireNonNull(stroke, "Stroke color cannot be null for PolygonShape.");
+        Objects.requireNonNull(fill, "Fill color cannot be null for PolygonShape.");
+        return new PolygonShape(id, vertices, stroke, fill, rotationAngle);
+    }
+
     public List<Point2D> getVertices() {
         // Restituisce una copia difensiva per evitare modifiche esterne
         return this.vertices.stream().map(Point2D::new).collect(Collectors.toList());
@@ -56,6 +70,7 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void move(Vector2D v) {
+        geometryChanged();
         Objects.requireNonNull(v, "Movement vector cannot be null.");
         for (Point2D vertex : this.vertices) {
             vertex.translate(v);
@@ -64,6 +79,7 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void resize(Rect newBounds) {
+        geometryChanged();
         Objects.requireNonNull(newBounds, "New bounds cannot be null for resize.");
         Rect oldBounds = getBounds(); // Bounds dei vertici attuali (non ruotati)
 
@@ -126,41 +142,59 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
     @Override
     public boolean contains(Point2D p) {
         Objects.requireNonNull(p, "Point cannot be null for contains check.");
+        return contains(p.getX(), p.getY());
+    }
 
-        // Trasforma il punto p nello spazio locale (non ruotato) del poligono
-        Point2D center = getBounds().getCenter(); // Pivot di rotazione (centro del AABB non ruotato)
-        double angleRadInverse = Math.toRadians(-this.rotationAngle);
-        double cosA = Math.cos(angleRadInverse);
-        double sinA = Math.sin(angleRadInverse);
-
-        double translatedPx = p.getX() - center.getX();
-        double translatedPy = p.getY() - center.getY();
-        
-        // Applica rotazione inversa al punto traslato per portarlo nello spazio non ruotato del poligono
-        // ma mantenendo il centro del AABB come origine temporanea.
-        double localRelativePx = translatedPx * cosA - translatedPy * sinA;
-        double localRelativePy = translatedPx * sinA + translatedPy * cosA;
+    @Override
+    public boolean contains(double x, double y) {
+        int n = vertices.size();
+        if (n == 0) {
+            return false;
+        }
 
-        // Ritrasla sommando le coordinate del centro per avere il punto nello stesso sistema dei vertici.
-        Point2D localPoint = new Point2D(localRelativePx + center.getX(), localRelativePy + center.getY());
+        // Trasforma il punto nello spazio locale (non ruotato) del poligono, nello stesso sistema dei vertici.
+        // L'inversa in cache contiene già il pivot (centro del AABB non ruotato): i vertici non vanno riletti.
+        Affine2D inverse = getInverseTransform();
+        double localX = inverse.transformX(x, y);
+        double localY = inverse.transformY(x, y);
 
         // Algoritmo Ray Casting (even-odd rule) sui vertici originali (non ruotati)
         int crossings = 0;
-        int n = vertices.size();
         for (int i = 0; i < n; i++) {
             Point2D v1 = vertices.get(i);
             Point2D v2 = vertices.get((i + 1) % n);
 
             // Controlla se il raggio orizzontale dal punto interseca il lato (v1, v2)
-            if (((v1.getY() <= localPoint.getY() && v2.getY() > localPoint.getY()) ||
-                 (v1.getY() > localPoint.getY() && v2.getY() <= localPoint.getY())) &&
-                (localPoint.getX() < (v2.getX() - v1.getX()) * (localPoint.getY() - v1.getY()) / (v2.getY() - v1.getY()) + v1.getX())) {
+            if (((v1.getY() <= localY && v2.getY() > localY) ||
+                 (v1.getY() > localY && v2.getY() <= localY)) &&
+                (localX < (v2.getX() - v1.getX()) * (localY - v1.getY()) / (v2.getY() - v1.getY()) + v1.getX())) {
                 crossings++;
             }
         }
         return (crossings % 2) == 1; // Se il numero di incroci è dispari, il punto è dentro
     }
 
+    @Override
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        int n = vertices.size();
+        if (n == 0) {
+            return boxesOverlap(0, 0, 0, 0, minX, minY, maxX, maxY);
+        }
+        // AABB dei vertici ruotati attorno al centro, come in getRotatedBounds
+        Affine2D t = getTransform();
+        double vMinX = Double.POSITIVE_INFINITY, vMinY = Double.POSITIVE_INFINITY;
+        double vMaxX = Double.NEGATIVE_INFINITY, vMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            Point2D v = vertices.get(i);
+            double rx = t.transformX(v.getX(), v.getY());
+            double ry = t.transformY(v.getX(), v.getY());
+            vMinX = Math.min(vMinX, rx);
+            vMinY = Math.min(vMinY, ry);
+            vMaxX = Math.max(vMaxX, rx);
+            vMaxY = Math.max(vMaxY, ry);
+        }
+        return boxesOverlap(vMinX, vMinY, vMaxX, vMaxY, minX, minY, maxX, maxY);
+    }
 
     @Override
     public void accept(ShapeVisitor v) {
@@ -198,6 +232,7 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void setRotation(double angle) {
+        geometryChanged();
         this.rotationAngle = angle % 360.0;
         if (this.rotationAngle < 0) this.rotationAngle += 360.0;
         this.rotationAngle = this.rotationAngle == -0.0 ? 0.0 : this.rotationAngle;
@@ -220,6 +255,7 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
     // --- Metodi per Riflessione (US 27) ---
     @Override
     public void reflectHorizontal() {
+        geometryChanged();
         Point2D center = getBounds().getCenter(); // Centro del bounding box NON ruotato
         double cX = center.getX();
         
@@ -242,6 +278,7 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void reflectVertical() {
+        geometryChanged();
         Point2D center = getBounds().getCenter(); // Centro del bounding box NON ruotato
         double cY = center.getY();
 
@@ -272,46 +309,29 @@ public class PolygonShape extends AbstractBaseShape implements Serializable {
                 id, vertices.size(), strokeColor, fillColor, rotationAngle);
     }
 
-    private Point2D rotatePoint(Point2D point, Point2D pivot, double angleDegrees) { // Copia helper
-        double angleRad = Math.toRadians(angleDegrees);
-        double cosA = Math.cos(angleRad);
-        double sinA = Math.sin(angleRad);
-        double dx = point.getX() - pivot.getX();
-        double dy = point.getY() - pivot.getY();
-        double newX = pivot.getX() + (dx * cosA - dy * sinA);
-        double newY = pivot.getY() + (dx * sinA + dy * cosA);
-        return new Point2D(newX, newY);
-    }
-
     @Override
     public Rect getRotatedBounds() {
-        List<Point2D> currentVertices = getVertices(); // Ottiene una copia dei vertici
-        double angle = getRotation();
-
-        if (currentVertices.isEmpty()) {
+        if (vertices.isEmpty()) {
             return new Rect(0,0,0,0);
         }
-        if (angle == 0.0) {
+        Affine2D t = getTransform();
+        if (t.isIdentity()) {
             return getBounds(); // Usa il calcolo AABB esistente per vertici non ruotati
         }
 
-        Point2D center = getBounds().getCenter(); // Pivot di rotazione (centro dell'AABB non ruotato)
-        
+        // La trasformazione in cache ruota attorno al centro dell'AABB non ruotato
         double minX = Double.POSITIVE_INFINITY;
         double minY = Double.POSITIVE_INFINITY;
         double maxX = Double.NEGATIVE_INFINITY;
         double maxY = Double.NEGATIVE_INFINITY;
 
-        for (Point2D vertex : currentVertices) {
-            Point2D rotatedVertex = rotatePoint(vertex, center, angle);
-            minX = Math.min(minX, rotatedVertex.getX());
-            minY = Math.min(minY, rotatedVertex.getY());
-            maxX = Math.max(maxX, rotatedVertex.getX());
-            maxY = Math.max(maxY, rotatedVertex.getY());
-        }
-        
-        if (minX > maxX) { // Caso degenere, nessun punto o punti collineari
-            return new Rect(new Point2D(0,0),0,0); // O il centro con dimensioni 0
+        for (Point2D vertex : vertices) {
+            double rotatedX = t.transformX(vertex.getX(), vertex.getY());
+            double rotatedY = t.transformY(vertex.getX(), vertex.getY());
+            minX = Math.min(minX, rotatedX);
+            minY = Math.min(minY, rotatedY);
+            maxX = Math.max(maxX, rotatedX);
+            maxY = Math.max(maxY, rotatedY);
         }
 
         return new Rect(new Point2D(minX, minY), maxX - minX, maxY - minY);
@@ -12,6 +12,7 @@ import java.util.Objects;
 import java.util.UUID;
 
 public class RectangleShape extends AbstractBaseShape implements Serializable {
+    private static final long serialVersionUID = -5819015063645570948L;
     private final UUID id;
     private Rect bounds; // Rappresenta il rettangolo non ruotato
     private ColorData strokeColor;
@@ -19,7 +20,7 @@ public class RectangleShape extends AbstractBaseShape implements Serializable {
     private double rotationAngle; // In gradi
 
     public RectangleShape(Rect bounds, ColorData stroke, ColorData fill) {
-        this.id = UUID.randomUUID();
+        this.id = ShapeIdGenerator.newId();
         Objects.requireNonNull(bounds, "Bounds cannot be null for RectangleShape.");
         Objects.requireNonNull(stroke, "Stroke color cannot be null for RectangleShape.");
         Objects.requireNonNull(fill, "Fill color cannot be null for RectangleShape.");
@@ -37,6 +38,15 @@ public class RectangleShape extends AbstractBaseShape implements Serializable {
         this.rotationAngle = rotationAngle;
     }
 
+    /** Ricrea un rettangolo salvato mantenendone l'ID (usato dai formati di persistenza). */
+    public static RectangleShape restore(UUID id, Rect bounds, ColorData stroke, ColorData fill, double rotationAngle) {
+        Objects.requireNonNull(id, "ID cannot be null for RectangleShape.");
+        Objects.requireNonNull(bounds, "Bounds cannot be null for RectangleShape.");
+        Objects.requireNonNull(stroke, "Stroke color cannot be null for RectangleShape.");
+        Objects.requireNonNull(fill, "Fill color cannot be null for RectangleShape.");
+        return new RectangleShape(id, bounds, stroke, fill, rotationAngle);
+    }
+
     @Override
     public UUID getId() {
         return id;
@@ -44,12 +54,14 @@ public class RectangleShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void move(Vector2D v) {
+        geometryChanged();
         Objects.requireNonNull(v, "Movement vector cannot be null.");
         this.bounds.translate(v); // Muove il rettangolo non ruotato
     }
 
     @Override
     public void resize(Rect newBounds) {
+        geometryChanged();
         Objects.requireNonNull(newBounds, "New bounds cannot be null for resize.");
         // Il resize cambia le dimensioni del rettangolo non ruotato.
         // La rotazione rimane la stessa e verrà applicata ai nuovi bounds.
@@ -81,27 +93,19 @@ public class RectangleShape extends AbstractBaseShape implements Serializable {
     @Override
     public boolean contains(Point2D p) {
         Objects.requireNonNull(p, "Point p cannot be null for contains check.");
-        // Per verificare il contenimento di un punto in un rettangolo ruotato:
-        // 1. Trasla il punto in modo che il centro del rettangolo sia all'origine.
-        // 2. Applica la rotazione inversa al punto traslato.
-        // 3. Verifica se il punto ruotato e traslato cade all'interno del rettangolo non ruotato (ora centrato all'origine).
-        Point2D center = bounds.getCenter();
-        double dx = p.getX() - center.getX();
-        double dy = p.getY() - center.getY();
-
-        double rad = Math.toRadians(-rotationAngle); // Angolo di rotazione inverso
-        double cosRad = Math.cos(rad);
-        double sinRad = Math.sin(rad);
-
-        double rotatedX = dx * cosRad - dy * sinRad;
-        double rotatedY = dx * sinRad + dy * cosRad;
+        return contains(p.getX(), p.getY());
+    }
 
-        // Ora controlla se (rotatedX, rotatedY) è dentro un rettangolo di dimensioni bounds.getWidth(), bounds.getHeight()
-        // centrato in (0,0)
-        double halfWidth = bounds.getWidth() / 2.0;
-        double halfHeight = bounds.getHeight() / 2.0;
+    @Override
+    public boolean contains(double x, double y) {
+        // Il punto viene riportato, con la rotazione inversa attorno al centro,
+        // nel sistema del rettangolo non ruotato e confrontato con le sue semidimensioni.
+        return rotatedRectContains(bounds, x, y);
+    }
 
-        return Math.abs(rotatedX) <= halfWidth && Math.abs(rotatedY) <= halfHeight;
+    @Override
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        return rotatedRectIntersects(bounds, minX, minY, maxX, maxY);
     }
 
     @Override
@@ -133,6 +137,7 @@ public class RectangleShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void setRotation(double angle) {
+        geometryChanged();
         this.rotationAngle = angle % 360.0;
         if (this.rotationAngle < 0) this.rotationAngle += 360.0;
         this.rotationAngle = this.rotationAngle == -0.0 ? 0.0 : this.rotationAngle;
@@ -156,6 +161,7 @@ public class RectangleShape extends AbstractBaseShape implements Serializable {
     // --- Metodi per Riflessione (US 27) ---
     @Override
     public void reflectHorizontal() {
+        geometryChanged();
         // Per un rettangolo, che è simmetrico, riflettere i suoi 'bounds' non ruotati
         // rispetto al suo asse Y locale non cambia i 'bounds'.
         // Per riflettere la forma *visiva* se è ruotata, invertiamo l'angolo di rotazione.
@@ -186,6 +192,7 @@ public class RectangleShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void reflectVertical() {
+        geometryChanged();
         // Simile a reflectHorizontal. Per un flip visivo verticale:
         // Angolo alfa -> Angolo (-alfa)
         double currentRotation = getRotation();
@@ -212,46 +219,9 @@ public class RectangleShape extends AbstractBaseShape implements Serializable {
                 id, bounds, strokeColor, fillColor, rotationAngle);
     }
 
-    private Point2D rotatePoint(Point2D point, Point2D pivot, double angleDegrees) { // Copia helper
-        double angleRad = Math.toRadians(angleDegrees);
-        double cosA = Math.cos(angleRad);
-        double sinA = Math.sin(angleRad);
-        double dx = point.getX() - pivot.getX();
-        double dy = point.getY() - pivot.getY();
-        double newX = pivot.getX() + (dx * cosA - dy * sinA);
-        double newY = pivot.getY() + (dx * sinA + dy * cosA);
-        return new Point2D(newX, newY);
-    }
-
     @Override
     public Rect getRotatedBounds() {
-        Rect unrotatedBounds = getBounds(); // Questo è this.bounds
-        double angle = getRotation();
-
-        if (angle == 0.0) {
-            return new Rect(unrotatedBounds); // Copia difensiva
-        }
-
-        Point2D center = unrotatedBounds.getCenter();
-
-        // Ottieni i 4 vertici del rettangolo non ruotato
-        Point2D topLeft = unrotatedBounds.getTopLeft();
-        Point2D topRight = new Point2D(unrotatedBounds.getRight(), unrotatedBounds.getY());
-        Point2D bottomLeft = new Point2D(unrotatedBounds.getX(), unrotatedBounds.getBottom());
-        Point2D bottomRight = unrotatedBounds.getBottomRight();
-
-        // Ruota ogni vertice
-        Point2D rTL = rotatePoint(topLeft, center, angle);
-        Point2D rTR = rotatePoint(topRight, center, angle);
-        Point2D rBL = rotatePoint(bottomLeft, center, angle);
-        Point2D rBR = rotatePoint(bottomRight, center, angle);
-
-        // Trova min/max X e Y tra i vertici ruotati
-        double minX = Math.min(Math.min(rTL.getX(), rTR.getX()), Math.min(rBL.getX(), rBR.getX()));
-        double minY = Math.min(Math.min(rTL.getY(), rTR.getY()), Math.min(rBL.getY(), rBR.getY()));
-        double maxX = Math.max(Math.max(rTL.getX(), rTR.getX()), Math.max(rBL.getX(), rBR.getX()));
-        double maxY = Math.max(Math.max(rTL.getY(), rTR.getY()), Math.max(rBL.getY(), rBR.getY()));
-
-        return new Rect(new Point2D(minX, minY), maxX - minX, maxY - minY);
+        // AABB dei quattro vertici ruotati con la trasformazione in cache
+        return rotatedRectBounds(bounds);
     }
 }
@@ -0,0 +1,37 @@
+package sad.gruppo11.Model;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generatore di ID senza contesa: un prefisso casuale scelto una volta per sessione
+ * (i 64 bit alti) e un contatore atomico (i 64 bit bassi). Il SecureRandom viene usato
+ * solo alla creazione; ogni ID successivo costa un incremento atomico.
+ * Gli ID restano UUID validi (versione 4, variante IETF), quindi compatibili con i file
+ * salvati e con il confronto per ID delle forme; l'unicità tra sessioni diverse
+ * dipende dai 60 bit casuali del prefisso.
+ */
+public final class SessionShapeIdGenerator implements ShapeIdGenerator {
+    private static final long VERSION_MASK = 0xF000L;
+    private static final long VERSION_4 = 0x4000L;
+    private static final long VARIANT_MASK = 0xC000_0000_0000_0000L;
+    private static final long VARIANT_IETF = 0x8000_0000_0000_0000L;
+
+    private final long sessionPrefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    public SessionShapeIdGenerator() {
+        this(new SecureRandom().nextLong());
+    }
+
+    public SessionShapeIdGenerator(long sessionPrefix) {
+        this.sessionPrefix = (sessionPrefix & ~VERSION_MASK) | VERSION_4;
+    }
+
+    @Override
+    public UUID nextId() {
+        long sequence = counter.incrementAndGet();
+        return new UUID(sessionPrefix, (sequence & ~VARIANT_MASK) | VARIANT_IETF);
+    }
+}
@@ -1,6 +1,7 @@
 
 package sad.gruppo11.Model;
 
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
@@ -23,6 +24,17 @@ public interface Shape extends Serializable {
     ColorData getFillColor();
     
     boolean contains(Point2D p); // Punto in coordinate del mondo
+
+    /**
+     * Come contains(Point2D), ma senza allocare oggetti: da preferire negli hit test ripetuti.
+     */
+    boolean contains(double x, double y);
+
+    /**
+     * Verifica, senza allocare oggetti, se il bounding box della forma ruotata (getRotatedBounds)
+     * interseca il rettangolo [minX, maxX] x [minY, maxY], bordi compresi.
+     */
+    boolean intersects(double minX, double minY, double maxX, double maxY);
     void accept(ShapeVisitor v);
     Shape clone(); // Crea una copia esatta (stesso ID)
     Rect getBounds(); // Restituisce il bounding box NON ruotato della forma
@@ -30,6 +42,13 @@ public interface Shape extends Serializable {
     void setRotation(double angle); // Angolo in gradi
     double getRotation(); // Angolo in gradi
 
+    /**
+     * Trasformazione dalle coordinate non ruotate della forma a quelle del mondo:
+     * la rotazione attorno al centro di getBounds(). È tenuta in cache dalla forma
+     * e ricalcolata solo dopo un cambio di geometria.
+     */
+    Affine2D getTransform();
+
     void setText(String text); // Per TextShape
     String getText(); // Per TextShape
 
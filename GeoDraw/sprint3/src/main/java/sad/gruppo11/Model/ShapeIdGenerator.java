@@ -0,0 +1,41 @@
+package sad.gruppo11.Model;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Strategia per generare gli ID delle forme (costruttori e cloneWithNewId()).
+ * Il generatore predefinito è SessionShapeIdGenerator, che evita UUID.randomUUID()
+ * e il SecureRandom condiviso su cui si serializzano tutti i thread.
+ * Si può sostituire con setGenerator(), ad esempio con UUID::randomUUID.
+ */
+@FunctionalInterface
+public interface ShapeIdGenerator {
+
+    /**
+     * @return Un nuovo ID, diverso da tutti quelli generati in precedenza.
+     */
+    UUID nextId();
+
+    /**
+     * @return Un nuovo ID prodotto dal generatore attualmente in uso.
+     */
+    static UUID newId() {
+        return ShapeIdGeneratorHolder.current.nextId();
+    }
+
+    static ShapeIdGenerator getGenerator() {
+        return ShapeIdGeneratorHolder.current;
+    }
+
+    static void setGenerator(ShapeIdGenerator generator) {
+        ShapeIdGeneratorHolder.current = Objects.requireNonNull(generator, "Shape ID generator cannot be null.");
+    }
+}
+
+// Stato condiviso: le interfacce non possono avere campi modificabili
+final class ShapeIdGeneratorHolder {
+    static volatile ShapeIdGenerator current = new SessionShapeIdGenerator();
+
+    private ShapeIdGeneratorHolder() {}
+}
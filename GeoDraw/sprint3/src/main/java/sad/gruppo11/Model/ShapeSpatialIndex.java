@@ -0,0 +1,399 @@
+package sad.gruppo11.Model;
+
+import sad.gruppo11.Model.geometry.Affine2D;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Indice spaziale (R-tree con split quadratico) sulle forme di primo livello di un Drawing.
+ * Ogni forma è indicizzata con un rettangolo conservativo che racchiude sia i suoi bounds
+ * non ruotati sia l'area in cui contains() può restituire true: le query restituiscono
+ * quindi dei candidati, che il Drawing filtra con il test esatto.
+ * Non è thread-safe e non è serializzabile: il Drawing lo ricostruisce dopo la deserializzazione.
+ */
+final class ShapeSpatialIndex {
+    private static final int MAX_ENTRIES = 16;
+    private static final int MIN_ENTRIES = 6;
+
+    private Node root = new Node(true);
+    private final Map<Shape, Entry> entries = new HashMap<>();
+
+    /** Nodo o foglia dell'albero: entrambi hanno un rettangolo [minX, maxX] x [minY, maxY]. */
+    private abstract static class Bounded {
+        double minX, minY, maxX, maxY;
+        Node parent;
+
+        double area() {
+            return (maxX - minX) * (maxY - minY);
+        }
+
+        double enlargedArea(Bounded b) {
+            return (Math.max(maxX, b.maxX) - Math.min(minX, b.minX)) *
+                   (Math.max(maxY, b.maxY) - Math.min(minY, b.minY));
+        }
+
+        boolean intersects(double qMinX, double qMinY, double qMaxX, double qMaxY) {
+            return minX <= qMaxX && maxX >= qMinX && minY <= qMaxY && maxY >= qMinY;
+        }
+    }
+
+    private static final class Entry extends Bounded {
+        final Shape shape;
+
+        Entry(Shape shape, double[] box) {
+            this.shape = shape;
+            this.minX = box[0];
+            this.minY = box[1];
+            this.maxX = box[2];
+            this.maxY = box[3];
+        }
+    }
+
+    private static final class Node extends Bounded {
+        final boolean leaf;
+        final List<Bounded> children = new ArrayList<>(MAX_ENTRIES + 1);
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        void add(Bounded b) {
+            children.add(b);
+            b.parent = this;
+        }
+
+        void recomputeBounds() {
+            minX = Double.POSITIVE_INFINITY;
+            minY = Double.POSITIVE_INFINITY;
+            maxX = Double.NEGATIVE_INFINITY;
+            maxY = Double.NEGATIVE_INFINITY;
+            for (Bounded b : children) {
+                minX = Math.min(minX, b.minX);
+                minY = Math.min(minY, b.minY);
+                maxX = Math.max(maxX, b.maxX);
+                maxY = Math.max(maxY, b.maxY);
+            }
+        }
+    }
+
+    // ----------------------- Aggiornamento --------------------------------
+
+    void insert(Shape shape) {
+        Objects.requireNonNull(shape, "Shape to index cannot be null.");
+        remove(shape); // Evita doppioni se la forma è già indicizzata
+        Entry entry = new Entry(shape, indexBounds(shape));
+        entries.put(shape, entry);
+        insertEntry(entry);
+    }
+
+    void remove(Shape shape) {
+        Entry entry = entries.remove(shape);
+        if (entry == null) {
+            return;
+        }
+        Node leaf = entry.parent;
+        leaf.children.remove(entry);
+        entry.parent = null;
+        condenseTree(leaf);
+    }
+
+    /** Rettangolo con cui la forma è attualmente indicizzata, o null se non è nell'indice. */
+    Rect boundsOf(Shape shape) {
+        Entry entry = entries.get(shape);
+        if (entry == null) {
+            return null;
+        }
+        return new Rect(entry.minX, entry.minY, entry.maxX - entry.minX, entry.maxY - entry.minY);
+    }
+
+    /** Da chiamare dopo ogni modifica geometrica della forma (move, resize, rotazione, riflessione). */
+    void update(Shape shape) {
+        if (entries.containsKey(shape)) {
+            insert(shape);
+        }
+    }
+
+    void clear() {
+        root = new Node(true);
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // ----------------------- Query --------------------------------
+
+    /** Forme il cui rettangolo indicizzato contiene il punto (candidati, ordine non specificato). */
+    List<Shape> candidatesAt(Point2D p) {
+        List<Shape> result = new ArrayList<>();
+        if (!entries.isEmpty()) {
+            search(root, p.getX(), p.getY(), p.getX(), p.getY(), result);
+        }
+        return result;
+    }
+
+    /** Forme il cui rettangolo indicizzato interseca l'area (candidati, ordine non specificato). */
+    List<Shape> candidatesIntersecting(Rect area) {
+        List<Shape> result = new ArrayList<>();
+        if (!entries.isEmpty()) {
+            search(root, area.getX(), area.getY(), area.getRight(), area.getBottom(), result);
+        }
+        return result;
+    }
+
+    private void search(Node node, double qMinX, double qMinY, double qMaxX, double qMaxY, List<Shape> out) {
+        for (Bounded b : node.children) {
+            if (!b.intersects(qMinX, qMinY, qMaxX, qMaxY)) continue;
+            if (node.leaf) {
+                out.add(((Entry) b).shape);
+            } else {
+                search((Node) b, qMinX, qMinY, qMaxX, qMaxY, out);
+            }
+        }
+    }
+
+    // ----------------------- Algoritmi R-tree --------------------------------
+
+    private void insertEntry(Entry entry) {
+        Node leaf = chooseLeaf(entry);
+        leaf.add(entry);
+        adjustTree(leaf);
+    }
+
+    private Node chooseLeaf(Bounded b) {
+        Node node = root;
+        while (!node.leaf) {
+            Node best = null;
+            double bestEnlargement = Double.POSITIVE_INFINITY;
+            double bestArea = Double.POSITIVE_INFINITY;
+            for (Bounded child : node.children) {
+                double area = child.area();
+                double enlargement = child.enlargedArea(b) - area;
+                if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                    best = (Node) child;
+                    bestEnlargement = enlargement;
+                    bestArea = area;
+                }
+            }
+            node = best;
+        }
+        return node;
+    }
+
+    /** Risale dal nodo modificato aggiornando i rettangoli e propagando gli split verso la radice. */
+    private void adjustTree(Node node) {
+        while (node != null) {
+            Node sibling = (node.children.size() > MAX_ENTRIES) ? split(node) : null;
+            node.recomputeBounds();
+            if (sibling != null) {
+                sibling.recomputeBounds();
+                if (node.parent == null) { // Split della radice: l'albero cresce di un livello
+                    Node newRoot = new Node(false);
+                    newRoot.add(node);
+                    newRoot.add(sibling);
+                    root = newRoot;
+                } else {
+                    node.parent.add(sibling);
+                }
+            }
+            node = node.parent;
+        }
+        root.recomputeBounds();
+    }
+
+    /** Split quadratico di Guttman: il nodo tiene il primo gruppo, il secondo va in un nuovo nodo. */
+    private Node split(Node node) {
+        List<Bounded> remaining = new ArrayList<>(node.children);
+        node.children.clear();
+        Node sibling = new Node(node.leaf);
+
+        // 1. Scelta dei semi: la coppia che spreca più area se messa insieme
+        int seedA = 0, seedB = 1;
+        double worstWaste = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < remaining.size(); i++) {
+            for (int j = i + 1; j < remaining.size(); j++) {
+                Bounded a = remaining.get(i), b = remaining.get(j);
+                double waste = a.enlargedArea(b) - a.area() - b.area();
+                if (waste > worstWaste) {
+                    worstWaste = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+        Bounded a = remaining.get(seedA), b = remaining.get(seedB);
+        remaining.remove(seedB); // seedB > seedA: rimuovere prima l'indice più alto
+        remaining.remove(seedA);
+        node.add(a);
+        sibling.add(b);
+        node.recomputeBounds();
+        sibling.recomputeBounds();
+
+        // 2. Distribuzione delle voci rimanenti
+        while (!remaining.isEmpty()) {
+            if (node.children.size() + remaining.size() == MIN_ENTRIES) {
+                for (Bounded r : remaining) node.add(r);
+                break;
+            }
+            if (sibling.children.size() + remaining.size() == MIN_ENTRIES) {
+                for (Bounded r : remaining) sibling.add(r);
+                break;
+            }
+            int nextIndex = 0;
+            double maxDiff = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < remaining.size(); i++) {
+                Bounded r = remaining.get(i);
+                double diff = Math.abs((node.enlargedArea(r) - node.area()) - (sibling.enlargedArea(r) - sibling.area()));
+                if (diff > maxDiff) {
+                    maxDiff = diff;
+                    nextIndex = i;
+                }
+            }
+            Bounded next = remaining.remove(nextIndex);
+            double growNode = node.enlargedArea(next) - node.area();
+            double growSibling = sibling.enlargedArea(next) - sibling.area();
+            Node target;
+            if (growNode != growSibling) {
+                target = growNode < growSibling ? node : sibling;
+            } else if (node.area() != sibling.area()) {
+                target = node.area() < sibling.area() ? node : sibling;
+            } else {
+                target = node.children.size() <= sibling.children.size() ? node : sibling;
+            }
+            target.add(next);
+            target.recomputeBounds();
+        }
+        return sibling;
+    }
+
+    /** Dopo una rimozione elimina i nodi sotto il minimo e reinserisce le loro voci. */
+    private void condenseTree(Node node) {
+        List<Entry> orphans = new ArrayList<>();
+        while (node.parent != null) {
+            Node parent = node.parent;
+            if (node.children.size() < MIN_ENTRIES) {
+                parent.children.remove(node);
+                node.parent = null;
+                collectEntries(node, orphans);
+            } else {
+                node.recomputeBounds();
+            }
+            node = parent;
+        }
+        // Se la radice interna è rimasta con un solo figlio, l'albero si accorcia
+        while (!root.leaf && root.children.size() == 1) {
+            root = (Node) root.children.get(0);
+            root.parent = null;
+        }
+        if (!root.leaf && root.children.isEmpty()) {
+            root = new Node(true);
+        }
+        root.recomputeBounds();
+        for (Entry orphan : orphans) {
+            insertEntry(orphan);
+        }
+    }
+
+    private void collectEntries(Node node, List<Entry> out) {
+        for (Bounded b : node.children) {
+            if (node.leaf) {
+                out.add((Entry) b);
+            } else {
+                collectEntries((Node) b, out);
+            }
+        }
+    }
+
+    // ----------------------- Bounds conservativi --------------------------------
+
+    /**
+     * Rettangolo indicizzato per una forma: unione dei bounds non ruotati (usati dalla
+     * selezione ad area) e dell'area di hit-test (usata da contains), con un piccolo margine
+     * per gli errori di arrotondamento.
+     * @return {minX, minY, maxX, maxY}
+     */
+    static double[] indexBounds(Shape shape) {
+        double[] box = toBox(shape.getBounds());
+        double[] hit = hitBounds(shape);
+        if (hit != null) {
+            union(box, hit);
+        }
+        double pad = 1e-6 * (1.0 + Math.max(Math.max(Math.abs(box[0]), Math.abs(box[2])),
+                                             Math.max(Math.abs(box[1]), Math.abs(box[3]))));
+        box[0] -= pad;
+        box[1] -= pad;
+        box[2] += pad;
+        box[3] += pad;
+        return box;
+    }
+
+    /**
+     * Rettangolo che contiene tutti i punti per cui shape.contains() restituisce true,
+     * o null se la forma non può contenere alcun punto (es. gruppo vuoto).
+     */
+    private static double[] hitBounds(Shape shape) {
+        if (shape.isComposite()) {
+            double[] box = null;
+            for (Shape child : shape.getChildren()) {
+                double[] childBox = hitBounds(child);
+                if (childBox == null) continue;
+                if (box == null) box = childBox;
+                else union(box, childBox);
+            }
+            if (box == null || shape.getRotation() == 0.0) {
+                return box;
+            }
+            // GroupShape.contains ruota il punto con la trasformazione del gruppo (attorno al centro dei suoi bounds)
+            return rotatedBox(box, shape.getTransform());
+        }
+        double[] box = toBox(shape.getRotatedBounds());
+        if (shape instanceof LineSegment) {
+            // LineSegment.contains accetta i punti con |d1 + d2 - L| < tolleranza: la regione
+            // è un'ellisse con fuochi negli estremi, contenuta in una capsula di raggio
+            // max(tolleranza, semiasse minore) attorno al segmento.
+            Rect b = shape.getBounds();
+            double length = Math.hypot(b.getWidth(), b.getHeight());
+            double tol = LineSegment.HIT_TOLERANCE;
+            double semiMinor = Math.sqrt(tol * length / 2.0 + tol * tol / 4.0);
+            double pad = Math.max(tol, semiMinor);
+            box[0] -= pad;
+            box[1] -= pad;
+            box[2] += pad;
+            box[3] += pad;
+        }
+        return box;
+    }
+
+    private static double[] rotatedBox(double[] box, Affine2D t) {
+        double[] xs = {box[0], box[2], box[2], box[0]};
+        double[] ys = {box[1], box[1], box[3], box[3]};
+        double[] out = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < 4; i++) {
+            double x = t.transformX(xs[i], ys[i]);
+            double y = t.transformY(xs[i], ys[i]);
+            out[0] = Math.min(out[0], x);
+            out[1] = Math.min(out[1], y);
+            out[2] = Math.max(out[2], x);
+            out[3] = Math.max(out[3], y);
+        }
+        return out;
+    }
+
+    private static double[] toBox(Rect r) {
+        return new double[] {r.getX(), r.getY(), r.getRight(), r.getBottom()};
+    }
+
+    private static void union(double[] target, double[] other) {
+        target[0] = Math.min(target[0], other[0]);
+        target[1] = Math.min(target[1], other[1]);
+        target[2] = Math.max(target[2], other[2]);
+        target[3] = Math.max(target[3], other[3]);
+    }
+}
@@ -0,0 +1,445 @@
+package sad.gruppo11.Model;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lista delle forme in ordine Z (dal basso verso l'alto) basata su un treap implicito:
+ * accesso per posizione, inserimento posizionale e rimozione costano O(log n) attesi.
+ * Una mappa forma -> nodo rende contains() O(1) e indexOf()/remove(Object) O(log n),
+ * risalendo i collegamenti al padre per calcolare la posizione del nodo.
+ * Come ArrayList ammette elementi duplicati (uguali per ID): indexOf restituisce il primo.
+ * Le operazioni di massa removeAt/insertAt scelgono tra k operazioni O(log n) e una
+ * ricostruzione dell'albero in O(n + k), a seconda di quale costa meno.
+ * Non è thread-safe e non è serializzabile: il Drawing la serializza come ArrayList.
+ */
+final class ShapeZOrderList extends AbstractList<Shape> {
+
+    private static final class Node {
+        final Shape value;
+        final int priority;
+        int size = 1;
+        Node left, right, parent;
+        Node nextSame; // Catena dei duplicati (stesso equals) presenti nella lista
+
+        Node(Shape value) {
+            this.value = value;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private Node root;
+    private final Map<Shape, Node> nodesByShape = new HashMap<>();
+    // Copia immutabile riutilizzata finché la lista non cambia (modCount invariato)
+    private List<Shape> snapshot;
+    private int snapshotModCount;
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Shape get(int index) {
+        checkIndex(index, size());
+        return nodeAt(index).value;
+    }
+
+    @Override
+    public boolean add(Shape shape) {
+        add(size(), shape);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Shape shape) {
+        Objects.requireNonNull(shape, "Shape cannot be null in ShapeZOrderList.");
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for shapes list size " + size());
+        }
+        Node node = new Node(shape);
+        node.nextSame = nodesByShape.put(shape, node);
+        Node[] parts = split(root, index);
+        root = merge(merge(parts[0], node), parts[1]);
+        root.parent = null;
+        modCount++;
+    }
+
+    /** Accoda le forme in fondo; con molte forme ricostruisce l'albero in O(n + k) (vedi insertAt). */
+    @Override
+    public boolean addAll(Collection<? extends Shape> shapes) {
+        List<Shape> added = new ArrayList<>(shapes);
+        int n = size();
+        int[] indices = new int[added.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = n + i;
+        }
+        insertAt(indices, added);
+        return !added.isEmpty();
+    }
+
+    @Override
+    public Shape remove(int index) {
+        checkIndex(index, size());
+        Node node = nodeAt(index);
+        unlink(node, index);
+        return node.value;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Node node = firstNodeOf(o);
+        if (node == null) {
+            return false;
+        }
+        unlink(node, rankOf(node));
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && nodesByShape.containsKey(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        Node node = firstNodeOf(o);
+        return node == null ? -1 : rankOf(node);
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        nodesByShape.clear();
+        modCount++;
+    }
+
+    /**
+     * Vista immutabile dell'ordine Z corrente. Viene copiata (O(n)) solo alla prima richiesta
+     * dopo una modifica; fino alla modifica successiva si restituisce sempre la stessa istanza (O(1)).
+     * Chi la tiene conserva una fotografia coerente anche se la lista cambia in seguito.
+     */
+    List<Shape> snapshot() {
+        if (snapshot == null || snapshotModCount != modCount) {
+            snapshot = Collections.unmodifiableList(Arrays.asList(toArray(new Shape[0])));
+            snapshotModCount = modCount;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rimuove gli elementi alle posizioni date.
+     * @param sortedIndices Posizioni distinte, in ordine crescente.
+     */
+    void removeAt(int[] sortedIndices) {
+        int n = size();
+        checkSortedIndices(sortedIndices, n);
+        if (sortedIndices.length == 0) {
+            return;
+        }
+        if (!isBulkCheaper(sortedIndices.length, n)) {
+            for (int i = sortedIndices.length - 1; i >= 0; i--) { // Dall'alto: gli indici restanti non cambiano
+                remove(sortedIndices[i]);
+            }
+            return;
+        }
+        Node[] kept = new Node[n - sortedIndices.length];
+        Node[] removed = new Node[sortedIndices.length];
+        int next = 0;
+        int keptCount = 0;
+        Node node = leftmost(root);
+        for (int position = 0; position < n; position++) {
+            if (next < sortedIndices.length && sortedIndices[next] == position) {
+                removed[next++] = node;
+            } else {
+                kept[keptCount++] = node;
+            }
+            node = successor(node);
+        }
+        // Scollega i nodi rimossi solo a visita conclusa: successor() risale i collegamenti al padre
+        for (Node r : removed) {
+            removeFromChain(r);
+            r.left = r.right = r.parent = r.nextSame = null;
+        }
+        rebuild(kept);
+    }
+
+    /**
+     * Inserisce le forme in modo che ciascuna occupi, a inserimento concluso, la posizione indicata.
+     * @param sortedIndices Posizioni finali distinte, in ordine crescente, minori di size() + k.
+     * @param shapes Forme da inserire, allineate alle posizioni.
+     */
+    void insertAt(int[] sortedIndices, List<Shape> shapes) {
+        if (sortedIndices.length != shapes.size()) {
+            throw new IllegalArgumentException("Indices and shapes must have the same length.");
+        }
+        int n = size();
+        checkSortedIndices(sortedIndices, n + sortedIndices.length);
+        for (Shape shape : shapes) {
+            Objects.requireNonNull(shape, "Shape cannot be null in ShapeZOrderList.");
+        }
+        if (sortedIndices.length == 0) {
+            return;
+        }
+        if (!isBulkCheaper(sortedIndices.length, n)) {
+            for (int i = 0; i < sortedIndices.length; i++) {
+                add(sortedIndices[i], shapes.get(i));
+            }
+            return;
+        }
+        Node[] merged = new Node[n + sortedIndices.length];
+        Node existing = leftmost(root);
+        int next = 0;
+        for (int position = 0; position < merged.length; position++) {
+            if (next < sortedIndices.length && sortedIndices[next] == position) {
+                Node node = new Node(shapes.get(next++));
+                node.nextSame = nodesByShape.put(node.value, node);
+                merged[position] = node;
+            } else {
+                merged[position] = existing;
+                existing = successor(existing);
+            }
+        }
+        rebuild(merged);
+    }
+
+    // k operazioni da O(log n) contro una visita più ricostruzione in O(n + k)
+    private static boolean isBulkCheaper(int k, int n) {
+        int log = 32 - Integer.numberOfLeadingZeros(n + k);
+        return (long) k * log > n;
+    }
+
+    private static void checkSortedIndices(int[] sortedIndices, int bound) {
+        Objects.requireNonNull(sortedIndices, "Indices cannot be null.");
+        for (int i = 0; i < sortedIndices.length; i++) {
+            int index = sortedIndices[i];
+            if (index < 0 || index >= bound || (i > 0 && index <= sortedIndices[i - 1])) {
+                throw new IllegalArgumentException("Indices must be distinct, ascending and within [0, " + bound + "): " + index);
+            }
+        }
+    }
+
+    /**
+     * Ricostruisce il treap dalla sequenza in O(n) (albero cartesiano con una pila),
+     * mantenendo le priorità dei nodi esistenti. La dimensione di un nodo è definitiva
+     * quando esce dalla pila, perché da quel momento il suo sottoalbero destro non cambia più.
+     */
+    private void rebuild(Node[] sequence) {
+        Deque<Node> stack = new ArrayDeque<>();
+        for (Node node : sequence) {
+            node.left = node.right = node.parent = null;
+            Node last = null;
+            while (!stack.isEmpty() && stack.peek().priority < node.priority) {
+                last = stack.pop();
+                updateSize(last);
+            }
+            node.left = last;
+            if (last != null) {
+                last.parent = node;
+            }
+            if (!stack.isEmpty()) {
+                stack.peek().right = node;
+                node.parent = stack.peek();
+            }
+            stack.push(node);
+        }
+        Node top = null;
+        while (!stack.isEmpty()) {
+            top = stack.pop();
+            updateSize(top);
+        }
+        root = top;
+        modCount++;
+    }
+
+    /** Visita in ordine (O(n) complessivo) seguendo i collegamenti al padre. */
+    @Override
+    public Iterator<Shape> iterator() {
+        return new Iterator<Shape>() {
+            private Node next = leftmost(root);
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Shape next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Node current = next;
+                next = successor(current);
+                return current.value;
+            }
+        };
+    }
+
+    // ----------------------- Treap implicito --------------------------------
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static void updateSize(Node n) {
+        n.size = 1 + size(n.left) + size(n.right);
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for shapes list size " + size);
+        }
+    }
+
+    private Node nodeAt(int index) {
+        Node n = root;
+        while (true) {
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index == leftSize) {
+                return n;
+            } else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    /** Posizione del nodo nella lista: somma delle dimensioni dei sottoalberi alla sua sinistra. */
+    private static int rankOf(Node n) {
+        int rank = size(n.left);
+        while (n.parent != null) {
+            if (n.parent.right == n) {
+                rank += size(n.parent.left) + 1;
+            }
+            n = n.parent;
+        }
+        return rank;
+    }
+
+    private Node firstNodeOf(Object o) {
+        if (o == null) {
+            return null;
+        }
+        Node node = nodesByShape.get(o);
+        if (node == null || node.nextSame == null) {
+            return node;
+        }
+        // Duplicati: come ArrayList, conta la prima occorrenza
+        Node first = node;
+        int firstRank = rankOf(node);
+        for (Node dup = node.nextSame; dup != null; dup = dup.nextSame) {
+            int rank = rankOf(dup);
+            if (rank < firstRank) {
+                first = dup;
+                firstRank = rank;
+            }
+        }
+        return first;
+    }
+
+    private void unlink(Node node, int index) {
+        Node[] left = split(root, index);
+        Node[] right = split(left[1], 1); // right[0] è il nodo da rimuovere
+        root = merge(left[0], right[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+        removeFromChain(node);
+        node.left = node.right = node.parent = node.nextSame = null;
+        modCount++;
+    }
+
+    private void removeFromChain(Node node) {
+        Node head = nodesByShape.get(node.value);
+        if (head == node) {
+            if (node.nextSame == null) {
+                nodesByShape.remove(node.value);
+            } else {
+                nodesByShape.put(node.nextSame.value, node.nextSame);
+            }
+            return;
+        }
+        for (Node prev = head; prev != null; prev = prev.nextSame) {
+            if (prev.nextSame == node) {
+                prev.nextSame = node.nextSame;
+                return;
+            }
+        }
+    }
+
+    /** Divide l'albero: i primi k elementi a sinistra, gli altri a destra. */
+    private static Node[] split(Node t, int k) {
+        if (t == null) {
+            return new Node[] {null, null};
+        }
+        if (size(t.left) >= k) {
+            Node[] parts = split(t.left, k);
+            t.left = parts[1];
+            if (t.left != null) t.left.parent = t;
+            updateSize(t);
+            if (parts[0] != null) parts[0].parent = null;
+            t.parent = null;
+            return new Node[] {parts[0], t};
+        } else {
+            Node[] parts = split(t.right, k - size(t.left) - 1);
+            t.right = parts[0];
+            if (t.right != null) t.right.parent = t;
+            updateSize(t);
+            if (parts[1] != null) parts[1].parent = null;
+            t.parent = null;
+            return new Node[] {t, parts[1]};
+        }
+    }
+
+    /** Concatena due alberi (tutti gli elementi di a precedono quelli di b). */
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            a.right.parent = a;
+            updateSize(a);
+            return a;
+        } else {
+            b.left = merge(a, b.left);
+            b.left.parent = b;
+            updateSize(b);
+            return b;
+        }
+    }
+
+    private static Node leftmost(Node n) {
+        if (n == null) return null;
+        while (n.left != null) n = n.left;
+        return n;
+    }
+
+    private static Node successor(Node n) {
+        if (n.right != null) {
+            return leftmost(n.right);
+        }
+        while (n.parent != null && n.parent.right == n) {
+            n = n.parent;
+        }
+        return n.parent;
+    }
+}
@@ -25,7 +25,7 @@ public class TextShape extends AbstractBaseShape implements Serializable {
     private boolean verticallyFlipped = false; // Indica se il testo è stato riflesso verticalmente
 
     public TextShape(String text, Point2D initialPosition, double initialFontSize, String fontName, ColorData color) {
-        this.id = UUID.randomUUID();
+        this.id = ShapeIdGenerator.newId();
         Objects.requireNonNull(text, "Text cannot be null for TextShape.");
         Objects.requireNonNull(initialPosition, "Initial position cannot be null for TextShape.");
         if (initialFontSize <= 0) throw new IllegalArgumentException("Initial font size must be positive.");
@@ -57,6 +57,17 @@ public class TextShape extends AbstractBaseShape implements Serializable {
         this.verticallyFlipped = verticallyFlipped;
     }
 
+    /** Ricrea un testo salvato mantenendone l'ID (usato dai formati di persistenza). */
+    public static TextShape restore(UUID id, String text, Rect drawingBounds, double baseFontSize, String fontName,
+                                    ColorData textColor, double rotationAngle, boolean horizontallyFlipped, boolean verticallyFlipped) {
+        Objects.requireNonNull(id, "ID cannot be null for TextShape.");
+        Objects.requireNonNull(text, "Text cannot be null for TextShape.");
+        Objects.requireNonNull(drawingBounds, "Drawing bounds cannot be null for TextShape.");
+        Objects.requireNonNull(fontName, "Font name cannot be null.");
+        Objects.requireNonNull(textColor, "Text color cannot be null.");
+        return new TextShape(id, text, drawingBounds, baseFontSize, fontName, textColor, rotationAngle, horizontallyFlipped, verticallyFlipped);
+    }
+
     @Override
     public UUID getId() {
         return id;
@@ -64,12 +75,14 @@ public class TextShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void move(Vector2D v) {
+        geometryChanged();
         Objects.requireNonNull(v, "Movement vector cannot be null.");
         this.drawingBounds.translate(v);
     }
 
     @Override
     public void resize(Rect newBounds) {
+        geometryChanged();
         Objects.requireNonNull(newBounds, "New bounds cannot be null for resize.");
          if (newBounds.getWidth() < 0 || newBounds.getHeight() < 0) {
              System.err.println("TextShape resize: new bounds have non-positive width or height. Ignoring.");
@@ -109,23 +122,18 @@ public class TextShape extends AbstractBaseShape implements Serializable {
     @Override
     public boolean contains(Point2D p) {
         Objects.requireNonNull(p, "Point p cannot be null for contains check.");
-        // Il contenimento si basa sui drawingBounds (che definiscono il rettangolo visibile) e sulla rotazione.
-        // Questo è identico al contains di RectangleShape, usando this.drawingBounds.
-        Point2D center = drawingBounds.getCenter();
-        double dx = p.getX() - center.getX();
-        double dy = p.getY() - center.getY();
-
-        double rad = Math.toRadians(-rotationAngle);
-        double cosRad = Math.cos(rad);
-        double sinRad = Math.sin(rad);
-
-        double rotatedX = dx * cosRad - dy * sinRad;
-        double rotatedY = dx * sinRad + dy * cosRad;
+        return contains(p.getX(), p.getY());
+    }
 
-        double halfWidth = drawingBounds.getWidth() / 2.0;
-        double halfHeight = drawingBounds.getHeight() / 2.0;
+    @Override
+    public boolean contains(double x, double y) {
+        // Il contenimento si basa sui drawingBounds (il rettangolo visibile) e sulla rotazione, come per RectangleShape.
+        return rotatedRectContains(drawingBounds, x, y);
+    }
 
-        return Math.abs(rotatedX) <= halfWidth && Math.abs(rotatedY) <= halfHeight;
+    @Override
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        return rotatedRectIntersects(drawingBounds, minX, minY, maxX, maxY);
     }
 
     @Override
@@ -142,7 +150,7 @@ public class TextShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public Shape cloneWithNewId() { 
-        TextShape newShape = new TextShape(UUID.randomUUID(), this.text, this.drawingBounds, this.baseFontSize, this.fontName, this.textColor, this.rotationAngle, 
+        TextShape newShape = new TextShape(ShapeIdGenerator.newId(), this.text, this.drawingBounds, this.baseFontSize, this.fontName, this.textColor, this.rotationAngle, 
                                             this.horizontallyFlipped, this.verticallyFlipped);
         // Il costruttore privato copia i valori, incluso drawingBounds.
         return newShape;
@@ -171,6 +179,7 @@ public class TextShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void setRotation(double angle) {
+        geometryChanged();
         this.rotationAngle = angle % 360.0;
         if (this.rotationAngle < 0) this.rotationAngle += 360.0;
         this.rotationAngle = this.rotationAngle == -0.0 ? 0.0 : this.rotationAngle;
@@ -197,6 +206,7 @@ public class TextShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void setFontSize(double size) {
+        geometryChanged();
         // Questo ora imposta il baseFontSize. I drawingBounds potrebbero necessitare
         // di un aggiornamento se si vuole che il testo cambi dimensione visiva
         // mantenendo un aspect ratio "naturale" del font.
@@ -228,11 +238,13 @@ public class TextShape extends AbstractBaseShape implements Serializable {
 
     @Override
     public void reflectHorizontal() {
+        geometryChanged();
         this.horizontallyFlipped = !this.horizontallyFlipped;
     }
 
     @Override
     public void reflectVertical() {
+        geometryChanged();
         this.verticallyFlipped = !this.verticallyFlipped;
     }
 
@@ -255,44 +267,9 @@ public class TextShape extends AbstractBaseShape implements Serializable {
                 id, text, drawingBounds, baseFontSize, fontName, textColor, rotationAngle);
     }
 
-    private Point2D rotatePoint(Point2D point, Point2D pivot, double angleDegrees) { // Copia helper
-        double angleRad = Math.toRadians(angleDegrees);
-        double cosA = Math.cos(angleRad);
-        double sinA = Math.sin(angleRad);
-        double dx = point.getX() - pivot.getX();
-        double dy = point.getY() - pivot.getY();
-        double newX = pivot.getX() + (dx * cosA - dy * sinA);
-        double newY = pivot.getY() + (dx * sinA + dy * cosA);
-        return new Point2D(newX, newY);
-    }
-
     @Override
     public Rect getRotatedBounds() {
-        // getBounds() per TextShape restituisce i drawingBounds non ruotati
-        Rect unrotatedDrawingBounds = getDrawingBounds(); 
-        double angle = getRotation();
-
-        if (angle == 0.0) {
-            return new Rect(unrotatedDrawingBounds); // Copia difensiva
-        }
-
-        Point2D center = unrotatedDrawingBounds.getCenter();
-
-        Point2D topLeft = unrotatedDrawingBounds.getTopLeft();
-        Point2D topRight = new Point2D(unrotatedDrawingBounds.getRight(), unrotatedDrawingBounds.getY());
-        Point2D bottomLeft = new Point2D(unrotatedDrawingBounds.getX(), unrotatedDrawingBounds.getBottom());
-        Point2D bottomRight = unrotatedDrawingBounds.getBottomRight();
-
-        Point2D rTL = rotatePoint(topLeft, center, angle);
-        Point2D rTR = rotatePoint(topRight, center, angle);
-        Point2D rBL = rotatePoint(bottomLeft, center, angle);
-        Point2D rBR = rotatePoint(bottomRight, center, angle);
-
-        double minX = Math.min(Math.min(rTL.getX(), rTR.getX()), Math.min(rBL.getX(), rBR.getX()));
-        double minY = Math.min(Math.min(rTL.getY(), rTR.getY()), Math.min(rBL.getY(), rBR.getY()));
-        double maxX = Math.max(Math.max(rTL.getX(), rTR.getX()), Math.max(rBL.getX(), rBR.getX()));
-        double maxY = Math.max(Math.max(rTL.getY(), rTR.getY()), Math.max(rBL.getY(), rBR.getY()));
-
-        return new Rect(new Point2D(minX, minY), maxX - minX, maxY - minY);
+        // Come RectangleShape, ma sui drawingBounds
+        return rotatedRectBounds(drawingBounds);
     }
 }
@@ -0,0 +1,144 @@
+package sad.gruppo11.Model.geometry;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Trasformazione affine 2D immutabile:
+ * x' = mxx * x + mxy * y + tx
+ * y' = myx * x + myy * y + ty
+ * I coefficienti hanno gli stessi nomi di javafx.scene.transform.Affine,
+ * così il renderer li passa direttamente a GraphicsContext.transform.
+ */
+public final class Affine2D implements Serializable {
+    private static final long serialVersionUID = 3817420385216650287L;
+
+    public static final Affine2D IDENTITY = new Affine2D(1, 0, 0, 0, 1, 0);
+
+    private final double mxx;
+    private final double mxy;
+    private final double tx;
+    private final double myx;
+    private final double myy;
+    private final double ty;
+
+    public Affine2D(double mxx, double mxy, double tx, double myx, double myy, double ty) {
+        this.mxx = mxx;
+        this.mxy = mxy;
+        this.tx = tx;
+        this.myx = myx;
+        this.myy = myy;
+        this.ty = ty;
+    }
+
+    /**
+     * Rotazione attorno al pivot (pivotX, pivotY), con la stessa convenzione di
+     * javafx.scene.transform.Rotate (angolo positivo in senso orario sullo schermo).
+     * @param angleDegrees Angolo in gradi; 0 restituisce IDENTITY.
+     */
+    public static Affine2D rotation(double angleDegrees, double pivotX, double pivotY) {
+        if (angleDegrees == 0.0) {
+            return IDENTITY;
+        }
+        double angleRad = Math.toRadians(angleDegrees);
+        double cosA = Math.cos(angleRad);
+        double sinA = Math.sin(angleRad);
+        // Quarti di giro esatti, come java.awt.geom.AffineTransform: senza questo cos(90°) vale 6e-17
+        // e i vertici ruotati di 90 gradi non cadono più esattamente sulle coordinate attese
+        if (sinA == 1.0 || sinA == -1.0) {
+            cosA = 0.0;
+        } else if (cosA == 1.0 || cosA == -1.0) {
+            sinA = 0.0;
+        }
+        return new Affine2D(cosA, -sinA, pivotX - pivotX * cosA + pivotY * sinA,
+                            sinA, cosA, pivotY - pivotX * sinA - pivotY * cosA);
+    }
+
+    public double getMxx() {
+        return mxx;
+    }
+
+    public double getMxy() {
+        return mxy;
+    }
+
+    public double getTx() {
+        return tx;
+    }
+
+    public double getMyx() {
+        return myx;
+    }
+
+    public double getMyy() {
+        return myy;
+    }
+
+    public double getTy() {
+        return ty;
+    }
+
+    public boolean isIdentity() {
+        return this == IDENTITY || (mxx == 1 && mxy == 0 && tx == 0 && myx == 0 && myy == 1 && ty == 0);
+    }
+
+    // Le due coordinate sono separate per non allocare Point2D negli hit test
+
+    public double transformX(double x, double y) {
+        return mxx * x + mxy * y + tx;
+    }
+
+    public double transformY(double x, double y) {
+        return myx * x + myy * y + ty;
+    }
+
+    public Point2D transform(Point2D p) {
+        Objects.requireNonNull(p, "Point cannot be null for transform.");
+        return new Point2D(transformX(p.getX(), p.getY()), transformY(p.getX(), p.getY()));
+    }
+
+    /**
+     * @throws IllegalStateException se la trasformazione non è invertibile (determinante nullo).
+     */
+    public Affine2D createInverse() {
+        if (isIdentity()) {
+            return IDENTITY;
+        }
+        double det = mxx * myy - mxy * myx;
+        if (det == 0.0 || !Double.isFinite(det)) {
+            throw new IllegalStateException("Affine2D is not invertible: " + this);
+        }
+        return new Affine2D(myy / det, -mxy / det, (mxy * ty - myy * tx) / det,
+                            -myx / det, mxx / det, (myx * tx - mxx * ty) / det);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Affine2D affine = (Affine2D) o;
+        return Double.compare(affine.mxx, mxx) == 0 &&
+               Double.compare(affine.mxy, mxy) == 0 &&
+               Double.compare(affine.tx, tx) == 0 &&
+               Double.compare(affine.myx, myx) == 0 &&
+               Double.compare(affine.myy, myy) == 0 &&
+               Double.compare(affine.ty, ty) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mxx, mxy, tx, myx, myy, ty);
+    }
+
+    @Override
+    public String toString() {
+        return "Affine2D{" +
+               "mxx=" + mxx +
+               ", mxy=" + mxy +
+               ", tx=" + tx +
+               ", myx=" + myx +
+               ", myy=" + myy +
+               ", ty=" + ty +
+               '}';
+    }
+}
@@ -5,6 +5,7 @@ import java.io.Serializable;
 import java.util.Objects;
 
 public final class ColorData implements Serializable {
+    private static final long serialVersionUID = -407804122042994721L;
     private int r;
     private int g;
     private int b;
@@ -5,6 +5,7 @@ import java.io.Serializable;
 import java.util.Objects;
 
 public class Point2D implements Serializable {
+    private static final long serialVersionUID = -5901187719814098901L;
     private double x;
     private double y;
 
@@ -5,6 +5,7 @@ import java.io.Serializable;
 import java.util.Objects;
 
 public class Rect implements Serializable {
+    private static final long serialVersionUID = 6768617183179401507L;
     private Point2D topLeft;
     private double width;
     private double height;
@@ -5,6 +5,7 @@ import java.io.Serializable;
 import java.util.Objects;
 
 public class Vector2D implements Serializable {
+    private static final long serialVersionUID = -7776062378218594153L;
     private double dx;
     private double dy;
 
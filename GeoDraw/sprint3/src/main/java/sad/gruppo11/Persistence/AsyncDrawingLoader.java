@@ -0,0 +1,126 @@
+package sad.gruppo11.Persistence;
+
+import sad.gruppo11.Model.Shape;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Carica i disegni su un thread in background, consegnando le forme a blocchi man mano che
+ * vengono decodificate. I file nel formato binario vengono letti record per record; i file .ser
+ * della serializzazione Java vanno letti per intero e vengono poi consegnati a blocchi.
+ */
+public class AsyncDrawingLoader {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /** Notifiche di un caricamento, chiamate dal thread di caricamento. */
+    public interface Listener {
+        /**
+         * @param batch    forme di primo livello lette, nell'ordine Z.
+         * @param fraction frazione del file caricata (tra 0 e 1).
+         */
+        void onShapes(String path, List<Shape> batch, double fraction);
+        void onCompleted(String path, int shapeCount);
+        void onCancelled(String path);
+        void onFailed(String path, Exception error);
+    }
+
+    private final IDrawingSerializer serializer;
+    private final BinaryDrawingSerializer binarySerializer;
+    private final ExecutorService executor;
+    private final int batchSize;
+
+    public AsyncDrawingLoader(IDrawingSerializer serializer) {
+        this(serializer, Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "GeoDraw-load");
+            t.setDaemon(true);
+            return t;
+        }), DEFAULT_BATCH_SIZE);
+    }
+
+    public AsyncDrawingLoader(IDrawingSerializer serializer, ExecutorService executor, int batchSize) {
+        this.serializer = Objects.requireNonNull(serializer, "Serializer cannot be null for AsyncDrawingLoader.");
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null for AsyncDrawingLoader.");
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        this.batchSize = batchSize;
+        this.binarySerializer = (serializer instanceof BinaryDrawingSerializer)
+            ? (BinaryDrawingSerializer) serializer : new BinaryDrawingSerializer();
+    }
+
+    /** Avvia il caricamento del file. */
+    public LoadTask load(String path, Listener listener) {
+        Objects.requireNonNull(path, "File path cannot be null for loading drawing.");
+        Objects.requireNonNull(listener, "Load listener cannot be null.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for loading drawing.");
+
+        LoadTask task = new LoadTask(path, listener);
+        task.setFuture(executor.submit(task::run));
+        return task;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /** Un caricamento in corso o in attesa. Dopo l'annullamento non vengono consegnati altri blocchi. */
+    public final class LoadTask extends PersistenceTask {
+        private final Listener listener;
+
+        private LoadTask(String path, Listener listener) {
+            super(path);
+            this.listener = listener;
+        }
+
+        private void run() {
+            try {
+                int loaded = BinaryDrawingSerializer.isBinaryDrawing(getPath()) ? streamRecords() : deliverLoadedDrawing();
+                markDone();
+                listener.onCompleted(getPath(), loaded);
+            } catch (CancellationException e) {
+                markDone();
+                listener.onCancelled(getPath());
+            } catch (Exception e) {
+                markDone();
+                listener.onFailed(getPath(), e);
+            }
+        }
+
+        private int streamRecords() throws Exception {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(getPath()))) {
+                BinaryDrawingSerializer.RecordReader reader = binarySerializer.openReader(in);
+                int total = reader.getShapeCount();
+                List<Shape> batch = new ArrayList<>(Math.min(batchSize, total));
+                while (reader.hasNext()) {
+                    batch.add(reader.next());
+                    if (batch.size() == batchSize || !reader.hasNext()) {
+                        deliver(batch, (double) reader.getPosition() / total);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                return total;
+            }
+        }
+
+        // Il formato .ser non permette di leggere le forme una alla volta
+        private int deliverLoadedDrawing() throws Exception {
+            List<Shape> shapes = serializer.load(getPath()).getShapesInZOrder();
+            for (int from = 0; from < shapes.size(); from += batchSize) {
+                int to = Math.min(from + batchSize, shapes.size());
+                deliver(new ArrayList<>(shapes.subList(from, to)), (double) to / shapes.size());
+            }
+            return shapes.size();
+        }
+
+        private void deliver(List<Shape> batch, double fraction) {
+            if (isCancelled()) throw new CancellationException("Load cancelled.");
+            listener.onShapes(getPath(), batch, fraction);
+        }
+    }
+}
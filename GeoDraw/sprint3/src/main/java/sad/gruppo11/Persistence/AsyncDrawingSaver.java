@@ -0,0 +1,120 @@
+package sad.gruppo11.Persistence;
+
+import sad.gruppo11.Model.Drawing;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Salva i disegni su un thread in background. Il disegno passato deve essere una copia
+ * (vedi Drawing.snapshot()) che nessun altro modifica durante la scrittura.
+ *
+ * Il file viene scritto in un file temporaneo nella stessa cartella della destinazione e poi
+ * rinominato al suo posto: in caso di errore o annullamento il file esistente resta intatto.
+ * I salvataggi vengono eseguiti uno alla volta, nell'ordine di richiesta.
+ */
+public class AsyncDrawingSaver {
+
+    /** Notifiche di un salvataggio, chiamate dal thread di salvataggio. */
+    public interface Listener {
+        void onProgress(String path, double fraction);
+        void onCompleted(String path);
+        void onCancelled(String path);
+        void onFailed(String path, Exception error);
+    }
+
+    private final IDrawingSerializer serializer;
+    private final ExecutorService executor;
+
+    public AsyncDrawingSaver(IDrawingSerializer serializer) {
+        this(serializer, Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "GeoDraw-save");
+            t.setDaemon(true); // Non impedisce la chiusura dell'applicazione
+            return t;
+        }));
+    }
+
+    public AsyncDrawingSaver(IDrawingSerializer serializer, ExecutorService executor) {
+        this.serializer = Objects.requireNonNull(serializer, "Serializer cannot be null for AsyncDrawingSaver.");
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null for AsyncDrawingSaver.");
+    }
+
+    /**
+     * Accoda il salvataggio della copia del disegno.
+     * @return il task, che permette di annullare o attendere il salvataggio.
+     */
+    public SaveTask save(Drawing snapshot, String path, Listener listener) {
+        Objects.requireNonNull(snapshot, "Drawing to save cannot be null.");
+        Objects.requireNonNull(path, "File path cannot be null for saving drawing.");
+        Objects.requireNonNull(listener, "Save listener cannot be null.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for saving drawing.");
+
+        SaveTask task = new SaveTask(path, listener);
+        task.setFuture(executor.submit(() -> task.run(snapshot)));
+        return task;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /** Un salvataggio in corso o in attesa. Se annullato, la destinazione non cambia. */
+    public final class SaveTask extends PersistenceTask implements ProgressMonitor {
+        private final Listener listener;
+
+        private SaveTask(String path, Listener listener) {
+            super(path);
+            this.listener = listener;
+        }
+
+        @Override
+        public void progress(long written, long total) {
+            listener.onProgress(getPath(), total == 0 ? 1.0 : (double) written / total);
+        }
+
+        private void run(Drawing snapshot) {
+            Path target = Paths.get(getPath()).toAbsolutePath();
+            Path tmp = null;
+            try {
+                if (isCancelled()) throw new CancellationException("Save cancelled.");
+                tmp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+                serializer.save(snapshot, tmp.toString(), this);
+                if (isCancelled()) throw new CancellationException("Save cancelled.");
+                moveIntoPlace(tmp, target);
+                tmp = null;
+                markDone();
+                listener.onCompleted(getPath());
+            } catch (CancellationException e) {
+                markDone();
+                listener.onCancelled(getPath());
+            } catch (Exception e) {
+                markDone();
+                listener.onFailed(getPath(), e);
+            } finally {
+                if (tmp != null) {
+                    try {
+                        Files.deleteIfExists(tmp);
+                    } catch (IOException e) {
+                        System.err.println("Could not delete temporary file " + tmp + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package sad.gruppo11.Persistence;
+
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.EllipseShape;
+import sad.gruppo11.Model.GroupShape;
+import sad.gruppo11.Model.LineSegment;
+import sad.gruppo11.Model.PolygonShape;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.TextShape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Salva il disegno in un formato binario compatto e versionato, che non dipende dalla
+ * struttura delle classi Java come la serializzazione usata da DrawingSerializer.
+ *
+ * Struttura del file:
+ * <pre>
+ *   "GDRW" | versione (varint)
+ *   palette colori:   n (varint), n x [r, g, b (byte), alpha (numero)]
+ *   tabella stringhe: n (varint), n x stringa   (nomi dei font)
+ *   forme:            n (varint), n x record    (in ordine Z)
+ * </pre>
+ * Ogni record inizia con un tag che indica il tipo di forma, seguito dall'ID (16 byte) e dai dati
+ * della forma; i colori sono indici nella palette. I numeri sono varint zigzag in centesimi quando
+ * il valore è rappresentabile così senza perdita, altrimenti il double completo. Una forma già
+ * scritta (stesso oggetto) viene salvata come riferimento al suo indice.
+ * I file .ser della serializzazione Java vengono riconosciuti e caricati con il serializer precedente.
+ */
+public class BinaryDrawingSerializer implements IDrawingSerializer {
+    public static final int FORMAT_VERSION = 1;
+    static final byte[] MAGIC = {'G', 'D', 'R', 'W'};
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED; // STREAM_MAGIC di ObjectOutputStream
+
+    // Tag dei record
+    static final int TAG_RECTANGLE = 1;
+    static final int TAG_ELLIPSE = 2;
+    static final int TAG_LINE = 3;
+    static final int TAG_POLYGON = 4;
+    static final int TAG_TEXT = 5;
+    static final int TAG_GROUP = 6;
+    static final int TAG_REFERENCE = 7;
+
+    static final double DECIMAL_SCALE = 100.0; // Centesimi di unità
+    static final int FLAG_H_FLIP = 1;
+    static final int FLAG_V_FLIP = 2;
+    private static final int PROGRESS_STEP = 256; // Forme scritte tra due notifiche di avanzamento
+
+    private final IDrawingSerializer legacySerializer;
+
+    public BinaryDrawingSerializer() {
+        this(new DrawingSerializer());
+    }
+
+    public BinaryDrawingSerializer(IDrawingSerializer legacySerializer) {
+        this.legacySerializer = Objects.requireNonNull(legacySerializer, "Legacy serializer cannot be null for BinaryDrawingSerializer.");
+    }
+
+    @Override
+    public void save(Drawing d, String path) throws IOException {
+        save(d, path, ProgressMonitor.NONE);
+    }
+
+    @Override
+    public void save(Drawing d, String path, ProgressMonitor monitor) throws IOException {
+        Objects.requireNonNull(d, "Drawing to save cannot be null.");
+        Objects.requireNonNull(path, "File path cannot be null.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for save.");
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path))) {
+            write(d, out, monitor);
+        }
+    }
+
+    @Override
+    public Drawing load(String path) throws IOException, ClassNotFoundException {
+        Objects.requireNonNull(path, "File path cannot be null.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for load.");
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+            in.mark(2);
+            int header = (in.read() << 8) | in.read();
+            if (header == JAVA_SERIALIZATION_MAGIC) {
+                in.close();
+                return legacySerializer.load(path); // File salvato con la serializzazione Java
+            }
+            in.reset();
+            return read(in);
+        }
+    }
+
+    // ----------------------- Scrittura --------------------------------
+
+    /** Scrive il disegno sullo stream (che non viene chiuso). */
+    public void write(Drawing d, OutputStream stream) throws IOException {
+        write(d, stream, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Come {@link #write(Drawing, OutputStream)}, riportando al monitor le forme di primo livello scritte.
+     * @throws CancellationException se il monitor chiede l'annullamento durante la scrittura.
+     */
+    public void write(Drawing d, OutputStream stream, ProgressMonitor monitor) throws IOException {
+        Objects.requireNonNull(d, "Drawing to write cannot be null.");
+        Objects.requireNonNull(stream, "Output stream cannot be null.");
+        Objects.requireNonNull(monitor, "Progress monitor cannot be null.");
+        List<Shape> shapes = d.getShapesInZOrder();
+
+        Map<ColorData, Integer> palette = new LinkedHashMap<>();
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Shape s : shapes) {
+            collectTables(s, palette, strings);
+        }
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.write(MAGIC);
+        writeVarLong(out, FORMAT_VERSION);
+
+        writeVarLong(out, palette.size());
+        for (ColorData c : palette.keySet()) {
+            out.writeByte(c.getR());
+            out.writeByte(c.getG());
+            out.writeByte(c.getB());
+            writeDecimal(out, c.getA());
+        }
+        writeVarLong(out, strings.size());
+        for (String str : strings.keySet()) {
+            writeString(out, str);
+        }
+
+        writeVarLong(out, shapes.size());
+        Map<Shape, Integer> written = new IdentityHashMap<>();
+        int total = shapes.size();
+        for (int i = 0; i < total; i++) {
+            if (i % PROGRESS_STEP == 0) {
+                if (monitor.isCancelled()) throw new CancellationException("Save cancelled.");
+                monitor.progress(i, total);
+            }
+            writeShape(out, shapes.get(i), palette, strings, written);
+        }
+        out.flush();
+        monitor.progress(total, total);
+    }
+
+    private static void collectTables(Shape s, Map<ColorData, Integer> palette, Map<String, Integer> strings) {
+        if (s instanceof GroupShape) {
+            for (Shape child : s.getChildren()) {
+                collectTables(child, palette, strings);
+            }
+            return;
+        }
+        palette.putIfAbsent(s.getStrokeColor(), palette.size());
+        if (hasFill(s)) {
+            palette.putIfAbsent(s.getFillColor(), palette.size());
+        }
+        if (s instanceof TextShape) {
+            strings.putIfAbsent(((TextShape) s).getFontName(), strings.size());
+        }
+    }
+
+    private static boolean hasFill(Shape s) {
+        return s instanceof RectangleShape || s instanceof EllipseShape || s instanceof PolygonShape;
+    }
+
+    private static void writeShape(DataOutputStream out, Shape s, Map<ColorData, Integer> palette,
+                                   Map<String, Integer> strings, Map<Shape, Integer> written) throws IOException {
+        Integer previous = written.get(s);
+        if (previous != null) {
+            out.writeByte(TAG_REFERENCE);
+            writeVarLong(out, previous);
+            return;
+        }
+        written.put(s, written.size()); // Indici assegnati in pre-ordine, come in lettura
+
+        if (s instanceof RectangleShape || s instanceof EllipseShape) {
+            out.writeByte(s instanceof RectangleShape ? TAG_RECTANGLE : TAG_ELLIPSE);
+            writeId(out, s.getId());
+            writeVarLong(out, palette.get(s.getStrokeColor()));
+            writeVarLong(out, palette.get(s.getFillColor()));
+            writeRect(out, s.getBounds());
+            writeDecimal(out, s.getRotation());
+        } else if (s instanceof LineSegment) {
+            LineSegment line = (LineSegment) s;
+            out.writeByte(TAG_LINE);
+            writeId(out, s.getId());
+            writeVarLong(out, palette.get(s.getStrokeColor()));
+            writePoint(out, line.getStartPoint());
+            writePoint(out, line.getEndPoint());
+            writeDecimal(out, s.getRotation());
+        } else if (s instanceof PolygonShape) {
+            List<Point2D> vertices = ((PolygonShape) s).getVertices();
+            out.writeByte(TAG_POLYGON);
+            writeId(out, s.getId());
+            writeVarLong(out, palette.get(s.getStrokeColor()));
+            writeVarLong(out, palette.get(s.getFillColor()));
+            writeVarLong(out, vertices.size());
+            for (Point2D v : vertices) {
+                writePoint(out, v);
+            }
+            writeDecimal(out, s.getRotation());
+        } else if (s instanceof TextShape) {
+            TextShape text = (TextShape) s;
+            out.writeByte(TAG_TEXT);
+            writeId(out, s.getId());
+            writeVarLong(out, palette.get(s.getStrokeColor()));
+            writeVarLong(out, strings.get(text.getFontName()));
+            writeString(out, text.getText());
+            writeDecimal(out, text.getBaseFontSize());
+            writeRect(out, text.getDrawingBounds());
+            writeDecimal(out, s.getRotation());
+            out.writeByte((text.isHorizontallyFlipped() ? FLAG_H_FLIP : 0) | (text.isVerticallyFlipped() ? FLAG_V_FLIP : 0));
+        } else if (s instanceof GroupShape) {
+            List<Shape> children = s.getChildren();
+            out.writeByte(TAG_GROUP);
+            writeId(out, s.getId());
+            writeDecimal(out, s.getRotation());
+            writeVarLong(out, children.size());
+            for (Shape child : children) {
+                writeShape(out, child, palette, strings, written);
+            }
+        } else {
+            throw new IOException("Unsupported shape type for binary format: " + s.getClass().getName());
+        }
+    }
+
+    // ----------------------- Lettura --------------------------------
+
+    /** Legge un disegno dallo stream (che non viene chiuso). */
+    public Drawing read(InputStream stream) throws IOException {
+        RecordReader reader = openReader(stream);
+        Drawing drawing = new Drawing();
+        while (reader.hasNext()) {
+            drawing.addShape(reader.next());
+        }
+        return drawing;
+    }
+
+    /**
+     * Legge intestazione e tabelle e restituisce un reader che decodifica le forme una alla volta,
+     * così il disegno può essere caricato progressivamente. Lo stream non viene chiuso.
+     */
+    public RecordReader openReader(InputStream stream) throws IOException {
+        Objects.requireNonNull(stream, "Input stream cannot be null.");
+        DataInputStream in = new DataInputStream(stream);
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Invalid file content: not a GeoDraw binary drawing.");
+            }
+        }
+        long version = readVarLong(in);
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported drawing format version: " + version);
+        }
+
+        ColorData[] palette = new ColorData[readCount(in)];
+        for (int i = 0; i < palette.length; i++) {
+            int r = in.readUnsignedByte();
+            int g = in.readUnsignedByte();
+            int b = in.readUnsignedByte();
+            palette[i] = new ColorData(r, g, b, readDecimal(in));
+        }
+        String[] strings = new String[readCount(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+        return new RecordReader(in, palette, strings, readCount(in));
+    }
+
+    /** Se il file inizia con l'intestazione del formato binario (e non è quindi un .ser). */
+    public static boolean isBinaryDrawing(String path) throws IOException {
+        Objects.requireNonNull(path, "File path cannot be null.");
+        try (InputStream in = new FileInputStream(path)) {
+            byte[] magic = new byte[MAGIC.length];
+            return in.readNBytes(magic, 0, magic.length) == magic.length && Arrays.equals(magic, MAGIC);
+        }
+    }
+
+    /** Decodifica i record delle forme di primo livello nell'ordine Z in cui sono stati scritti. */
+    public static final class RecordReader {
+        private final DataInputStream in;
+        private final ColorData[] palette;
+        private final String[] strings;
+        private final int shapeCount;
+        private final List<Shape> read = new ArrayList<>(); // Tutte le forme lette, per i riferimenti
+        private int position = 0;
+
+        private RecordReader(DataInputStream in, ColorData[] palette, String[] strings, int shapeCount) {
+            this.in = in;
+            this.palette = palette;
+            this.strings = strings;
+            this.shapeCount = shapeCount;
+        }
+
+        /** Numero di forme di primo livello nel file. */
+        public int getShapeCount() { return shapeCount; }
+
+        /** Forme di primo livello già lette. */
+        public int getPosition() { return position; }
+
+        public boolean hasNext() { return position < shapeCount; }
+
+        public Shape next() throws IOException {
+            if (!hasNext()) throw new NoSuchElementException("No more shape records.");
+            Shape shape = readShape(in, palette, strings, read);
+            position++;
+            return shape;
+        }
+    }
+
+    private static Shape readShape(DataInputStream in, ColorData[] palette, String[] strings, List<Shape> read) throws IOException {
+        int tag = in.readUnsignedByte();
+        if (tag == TAG_REFERENCE) {
+            return lookup(read, readVarLong(in), "shape reference");
+        }
+        if (tag < TAG_RECTANGLE || tag > TAG_GROUP) {
+            throw new IOException("Unknown shape record tag: " + tag);
+        }
+        int index = read.size();
+        read.add(null); // Posto riservato: i figli di un gruppo vengono letti prima del gruppo stesso
+        UUID id = readId(in);
+        Shape shape;
+        try {
+            switch (tag) {
+                case TAG_RECTANGLE:
+                case TAG_ELLIPSE: {
+                    ColorData stroke = lookup(palette, readVarLong(in));
+                    ColorData fill = lookup(palette, readVarLong(in));
+                    Rect bounds = readRect(in);
+                    double rotation = readDecimal(in);
+                    shape = (tag == TAG_RECTANGLE)
+                        ? RectangleShape.restore(id, bounds, stroke, fill, rotation)
+                        : EllipseShape.restore(id, bounds, stroke, fill, rotation);
+                    break;
+                }
+                case TAG_LINE: {
+                    ColorData stroke = lookup(palette, readVarLong(in));
+                    Point2D start = readPoint(in);
+                    Point2D end = readPoint(in);
+                    shape = LineSegment.restore(id, start, end, stroke, readDecimal(in));
+                    break;
+                }
+                case TAG_POLYGON: {
+                    ColorData stroke = lookup(palette, readVarLong(in));
+                    ColorData fill = lookup(palette, readVarLong(in));
+                    int n = readCount(in);
+                    List<Point2D> vertices = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        vertices.add(readPoint(in));
+                    }
+                    shape = PolygonShape.restore(id, vertices, stroke, fill, readDecimal(in));
+                    break;
+                }
+                case TAG_TEXT: {
+                    ColorData color = lookup(palette, readVarLong(in));
+                    String fontName = lookup(strings, readVarLong(in), "string");
+                    String text = readString(in);
+                    double baseFontSize = readDecimal(in);
+                    Rect bounds = readRect(in);
+                    double rotation = readDecimal(in);
+                    int flags = in.readUnsignedByte();
+                    shape = TextShape.restore(id, text, bounds, baseFontSize, fontName, color, rotation,
+                                              (flags & FLAG_H_FLIP) != 0, (flags & FLAG_V_FLIP) != 0);
+                    break;
+                }
+                case TAG_GROUP: {
+                    double rotation = readDecimal(in);
+                    int n = readCount(in);
+                    List<Shape> children = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        children.add(readShape(in, palette, strings, read));
+                    }
+                    shape = GroupShape.restore(id, children, rotation);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unhandled shape record tag: " + tag);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid shape record (tag " + tag + "): " + e.getMessage(), e);
+        }
+        read.set(index, shape);
+        return shape;
+    }
+
+    private static ColorData lookup(ColorData[] palette, long index) throws IOException {
+        if (index < 0 || index >= palette.length) {
+            throw new IOException("Invalid color palette index: " + index);
+        }
+        return palette[(int) index];
+    }
+
+    private static String lookup(String[] strings, long index, String what) throws IOException {
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Invalid " + what + " index: " + index);
+        }
+        return strings[(int) index];
+    }
+
+    private static Shape lookup(List<Shape> shapes, long index, String what) throws IOException {
+        if (index < 0 || index >= shapes.size() || shapes.get((int) index) == null) {
+            throw new IOException("Invalid " + what + " index: " + index);
+        }
+        return shapes.get((int) index);
+    }
+
+    // ----------------------- Codifica dei valori --------------------------------
+
+    private static void writeId(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readId(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writePoint(DataOutputStream out, Point2D p) throws IOException {
+        writeDecimal(out, p.getX());
+        writeDecimal(out, p.getY());
+    }
+
+    private static Point2D readPoint(DataInputStream in) throws IOException {
+        double x = readDecimal(in);
+        return new Point2D(x, readDecimal(in));
+    }
+
+    private static void writeRect(DataOutputStream out, Rect r) throws IOException {
+        writeDecimal(out, r.getX());
+        writeDecimal(out, r.getY());
+        writeDecimal(out, r.getWidth());
+        writeDecimal(out, r.getHeight());
+    }
+
+    private static Rect readRect(DataInputStream in) throws IOException {
+        double x = readDecimal(in);
+        double y = readDecimal(in);
+        double w = readDecimal(in);
+        return new Rect(x, y, w, readDecimal(in));
+    }
+
+    /**
+     * Numero come varint: bit 0 = 0 e zigzag dei centesimi se il valore si ricostruisce
+     * esattamente, altrimenti il valore 1 seguito dagli 8 byte del double.
+     */
+    static void writeDecimal(DataOutputStream out, double value) throws IOException {
+        double scaled = value * DECIMAL_SCALE;
+        if (Math.abs(scaled) < (1L << 52)) {
+            long q = Math.round(scaled);
+            boolean negativeZero = value == 0.0 && Double.doubleToRawLongBits(value) != 0L;
+            if (q / DECIMAL_SCALE == value && !negativeZero) {
+                writeVarLong(out, ((q << 1) ^ (q >> 63)) << 1);
+                return;
+            }
+        }
+        writeVarLong(out, 1);
+        out.writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    static double readDecimal(DataInputStream in) throws IOException {
+        long encoded = readVarLong(in);
+        if ((encoded & 1) == 0) {
+            long zigzag = encoded >>> 1;
+            long q = (zigzag >>> 1) ^ -(zigzag & 1);
+            return q / DECIMAL_SCALE;
+        }
+        if (encoded != 1) {
+            throw new IOException("Malformed decimal value.");
+        }
+        return Double.longBitsToDouble(in.readLong());
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        long count = readVarLong(in);
+        if (count < 0 || count > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid element count: " + count);
+        }
+        return (int) count;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,42 @@
+package sad.gruppo11.Persistence;
+
+import sad.gruppo11.Model.Drawing;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Converte i disegni salvati con la serializzazione Java (.ser) nel formato binario
+ * di BinaryDrawingSerializer. Utilizzabile anche da riga di comando:
+ * <pre>java sad.gruppo11.Persistence.DrawingFileConverter input.ser output.gdraw</pre>
+ */
+public final class DrawingFileConverter {
+
+    private DrawingFileConverter() {}
+
+    /**
+     * Carica il file .ser e lo riscrive nel formato binario.
+     * @return il disegno convertito.
+     */
+    public static Drawing convert(String serPath, String binaryPath) throws IOException, ClassNotFoundException {
+        Objects.requireNonNull(serPath, "Source path cannot be null for conversion.");
+        Objects.requireNonNull(binaryPath, "Destination path cannot be null for conversion.");
+        Drawing drawing = new DrawingSerializer().load(serPath);
+        new BinaryDrawingSerializer().save(drawing, binaryPath);
+        return drawing;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Uso: DrawingFileConverter <input.ser> <output.gdraw>");
+            System.exit(2);
+        }
+        try {
+            Drawing drawing = convert(args[0], args[1]);
+            System.out.println("Convertite " + drawing.getShapeCount() + " forme: " + args[0] + " -> " + args[1]);
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Conversione fallita: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -1,10 +1,21 @@
-
 package sad.gruppo11.Persistence;
 
 import sad.gruppo11.Model.Drawing;
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
 
 public interface IDrawingSerializer {
     void save(Drawing d, String path) throws IOException;
     Drawing load(String path) throws IOException, ClassNotFoundException;
+
+    /**
+     * Salva riportando l'avanzamento al monitor. L'implementazione di default può essere
+     * annullata solo prima di iniziare e segnala il completamento alla fine.
+     * @throws CancellationException se il monitor chiede l'annullamento.
+     */
+    default void save(Drawing d, String path, ProgressMonitor monitor) throws IOException {
+        if (monitor.isCancelled()) throw new CancellationException("Save cancelled.");
+        save(d, path);
+        monitor.progress(1, 1);
+    }
 }
@@ -0,0 +1,391 @@
+package sad.gruppo11.Persistence;
+
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.EllipseShape;
+import sad.gruppo11.Model.GroupShape;
+import sad.gruppo11.Model.LineSegment;
+import sad.gruppo11.Model.PolygonShape;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.TextShape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import static sad.gruppo11.Persistence.BinaryDrawingSerializer.*;
+
+/**
+ * Legge i file nel formato di BinaryDrawingSerializer mappandoli in memoria (FileChannel.map).
+ *
+ * All'apertura vengono letti solo intestazione e tabelle e viene costruito un indice con la
+ * posizione di ogni record, scorrendo i record senza creare le forme. Le forme vengono poi
+ * decodificate su richiesta direttamente dal buffer mappato (es. un solo gruppo), e restano in
+ * cache così che i riferimenti alla stessa forma restituiscano lo stesso oggetto.
+ * I file .ser della serializzazione Java non sono supportati.
+ */
+public class MappedDrawingReader implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ColorData[] palette;
+    private final String[] strings;
+    private final int[] topLevelRecords;  // Per ogni forma di primo livello, indice in pre-ordine del suo record (o del record riferito)
+    private int[] recordOffsets;          // Posizione di ogni record di forma (esclusi i riferimenti), in pre-ordine = ordine nel file
+    private int[] recordEnds;             // Posizione successiva a ogni record, figli compresi
+    private int recordCount = 0;
+    private final Shape[] decoded;        // Cache per indice in pre-ordine
+    private int pos;                      // Posizione di lettura corrente nel buffer
+
+    private MappedDrawingReader(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(0, magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Invalid file content: not a GeoDraw binary drawing.");
+            }
+            pos = MAGIC.length;
+            long version = varLong();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported drawing format version: " + version);
+            }
+            palette = new ColorData[count()];
+            for (int i = 0; i < palette.length; i++) {
+                int r = buffer.get(pos) & 0xFF, g = buffer.get(pos + 1) & 0xFF, b = buffer.get(pos + 2) & 0xFF;
+                pos += 3;
+                palette[i] = new ColorData(r, g, b, decimal());
+            }
+            strings = new String[count()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = string();
+            }
+            topLevelRecords = new int[count()];
+            recordOffsets = new int[Math.max(16, topLevelRecords.length)];
+            recordEnds = new int[recordOffsets.length];
+            for (int i = 0; i < topLevelRecords.length; i++) {
+                topLevelRecords[i] = indexRecord();
+            }
+            decoded = new Shape[recordCount];
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Truncated drawing file.", e);
+        }
+    }
+
+    /** Mappa il file in sola lettura e ne costruisce l'indice dei record. */
+    public static MappedDrawingReader open(String path) throws IOException {
+        Objects.requireNonNull(path, "File path cannot be null.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for open.");
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Drawing file too large to be mapped: " + size + " bytes.");
+            }
+            return new MappedDrawingReader(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Numero di forme di primo livello. */
+    public int getShapeCount() {
+        return topLevelRecords.length;
+    }
+
+    /** Numero di record di forma nel file, compresi i figli dei gruppi. */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /** Se la forma di primo livello è un gruppo, senza decodificarla. */
+    public boolean isGroup(int index) {
+        return (buffer.get(recordOffsets[topLevelRecords[checkIndex(index)]]) & 0xFF) == TAG_GROUP;
+    }
+
+    // Per i test: quanti record sono già stati decodificati (presenti in cache)
+    synchronized int getDecodedRecordCount() {
+        int count = 0;
+        for (Shape s : decoded) {
+            if (s != null) count++;
+        }
+        return count;
+    }
+
+    /** Decodifica (o restituisce dalla cache) la forma di primo livello indicata. */
+    public synchronized Shape getShape(int index) throws IOException {
+        return decodeRecord(topLevelRecords[checkIndex(index)]);
+    }
+
+    /** Decodifica tutte le forme di primo livello, nell'ordine Z. */
+    public synchronized List<Shape> getShapes() throws IOException {
+        List<Shape> shapes = new ArrayList<>(topLevelRecords.length);
+        for (int record : topLevelRecords) {
+            shapes.add(decodeRecord(record));
+        }
+        return shapes;
+    }
+
+    /** Crea un Drawing con tutte le forme, come BinaryDrawingSerializer.load(). */
+    public Drawing readDrawing() throws IOException {
+        Drawing drawing = new Drawing();
+        for (Shape s : getShapes()) {
+            drawing.addShape(s);
+        }
+        return drawing;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close(); // Il mapping viene rilasciato quando il buffer non è più raggiungibile
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= topLevelRecords.length) {
+            throw new IndexOutOfBoundsException("Shape index " + index + " out of bounds for " + topLevelRecords.length + " shapes.");
+        }
+        return index;
+    }
+
+    // ----------------------- Indice --------------------------------
+
+    // Registra il record alla posizione corrente (e i suoi figli) e lo salta; restituisce il suo indice in pre-ordine
+    private int indexRecord() throws IOException {
+        int start = pos;
+        int tag = buffer.get(pos++) & 0xFF;
+        if (tag == TAG_REFERENCE) {
+            long target = varLong();
+            if (target < 0 || target >= recordCount) throw new IOException("Invalid shape reference index: " + target);
+            return (int) target;
+        }
+        if (tag < TAG_RECTANGLE || tag > TAG_GROUP) {
+            throw new IOException("Unknown shape record tag: " + tag);
+        }
+        if (recordCount == recordOffsets.length) {
+            recordOffsets = Arrays.copyOf(recordOffsets, recordCount * 2);
+            recordEnds = Arrays.copyOf(recordEnds, recordCount * 2);
+        }
+        int index = recordCount++;
+        recordOffsets[index] = start;
+        pos += 16; // ID
+        switch (tag) {
+            case TAG_RECTANGLE:
+            case TAG_ELLIPSE:
+                varLong(); varLong(); skipDecimals(5);
+                break;
+            case TAG_LINE:
+                varLong(); skipDecimals(5);
+                break;
+            case TAG_POLYGON: {
+                varLong(); varLong();
+                skipDecimals(2 * count() + 1);
+                break;
+            }
+            case TAG_TEXT: {
+                varLong(); varLong();
+                int length = count();
+                pos += length;
+                skipDecimals(6);
+                pos++; // Flag di riflessione
+                break;
+            }
+            default: { // TAG_GROUP
+                skipDecimals(1);
+                int children = count();
+                for (int i = 0; i < children; i++) {
+                    indexRecord();
+                }
+            }
+        }
+        if (pos > buffer.limit()) throw new IOException("Truncated drawing file.");
+        recordEnds[index] = pos;
+        return index;
+    }
+
+    private void skipDecimals(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            if (varLong() == 1) pos += 8;
+        }
+    }
+
+    // ----------------------- Decodifica --------------------------------
+
+    private Shape decodeRecord(int record) throws IOException {
+        Shape cached = decoded[record];
+        if (cached != null) {
+            return cached;
+        }
+        int saved = pos;
+        pos = recordOffsets[record];
+        try {
+            return readShape(record);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Truncated drawing file.", e);
+        } finally {
+            pos = saved;
+        }
+    }
+
+    // Legge il record in posizione pos, di cui è noto l'indice in pre-ordine
+    private Shape readShape(int record) throws IOException {
+        int tag = buffer.get(pos++) & 0xFF;
+        UUID id = new UUID(buffer.getLong(pos), buffer.getLong(pos + 8));
+        pos += 16;
+        Shape shape;
+        try {
+            switch (tag) {
+                case TAG_RECTANGLE:
+                case TAG_ELLIPSE: {
+                    ColorData stroke = color();
+                    ColorData fill = color();
+                    Rect bounds = rect();
+                    double rotation = decimal();
+                    shape = (tag == TAG_RECTANGLE)
+                        ? RectangleShape.restore(id, bounds, stroke, fill, rotation)
+                        : EllipseShape.restore(id, bounds, stroke, fill, rotation);
+                    break;
+                }
+                case TAG_LINE: {
+                    ColorData stroke = color();
+                    Point2D start = point();
+                    Point2D end = point();
+                    shape = LineSegment.restore(id, start, end, stroke, decimal());
+                    break;
+                }
+                case TAG_POLYGON: {
+                    ColorData stroke = color();
+                    ColorData fill = color();
+                    int n = count();
+                    List<Point2D> vertices = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        vertices.add(point());
+                    }
+                    shape = PolygonShape.restore(id, vertices, stroke, fill, decimal());
+                    break;
+                }
+                case TAG_TEXT: {
+                    ColorData color = color();
+                    long fontIndex = varLong();
+                    if (fontIndex < 0 || fontIndex >= strings.length) throw new IOException("Invalid string index: " + fontIndex);
+                    String text = string();
+                    double baseFontSize = decimal();
+                    Rect bounds = rect();
+                    double rotation = decimal();
+                    int flags = buffer.get(pos++);
+                    shape = TextShape.restore(id, text, bounds, baseFontSize, strings[(int) fontIndex], color, rotation,
+                                              (flags & FLAG_H_FLIP) != 0, (flags & FLAG_V_FLIP) != 0);
+                    break;
+                }
+                case TAG_GROUP: {
+                    double rotation = decimal();
+                    int n = count();
+                    List<Shape> children = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        children.add(readChild());
+                    }
+                    shape = GroupShape.restore(id, children, rotation);
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown shape record tag: " + tag);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid shape record (tag " + tag + "): " + e.getMessage(), e);
+        }
+        decoded[record] = shape;
+        return shape;
+    }
+
+    // Figlio di un gruppo: riferimento, record già in cache (da saltare) oppure da decodificare
+    private Shape readChild() throws IOException {
+        if ((buffer.get(pos) & 0xFF) == TAG_REFERENCE) {
+            pos++;
+            long target = varLong();
+            if (target < 0 || target >= recordCount) throw new IOException("Invalid shape reference index: " + target);
+            return decodeRecord((int) target);
+        }
+        int record = Arrays.binarySearch(recordOffsets, 0, recordCount, pos);
+        if (record < 0) throw new IOException("Shape record not found in index at offset " + pos);
+        if (decoded[record] != null) {
+            pos = recordEnds[record];
+            return decoded[record];
+        }
+        return readShape(record);
+    }
+
+    private ColorData color() throws IOException {
+        long index = varLong();
+        if (index < 0 || index >= palette.length) throw new IOException("Invalid color palette index: " + index);
+        return palette[(int) index];
+    }
+
+    private Point2D point() throws IOException {
+        double x = decimal();
+        return new Point2D(x, decimal());
+    }
+
+    private Rect rect() throws IOException {
+        double x = decimal();
+        double y = decimal();
+        double w = decimal();
+        return new Rect(x, y, w, decimal());
+    }
+
+    // Stessa codifica di BinaryDrawingSerializer.readDecimal, letta dal buffer
+    private double decimal() throws IOException {
+        long encoded = varLong();
+        if ((encoded & 1) == 0) {
+            long zigzag = encoded >>> 1;
+            long q = (zigzag >>> 1) ^ -(zigzag & 1);
+            return q / DECIMAL_SCALE;
+        }
+        if (encoded != 1) {
+            throw new IOException("Malformed decimal value.");
+        }
+        double value = Double.longBitsToDouble(buffer.getLong(pos));
+        pos += 8;
+        return value;
+    }
+
+    private long varLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buffer.get(pos++) & 0xFF;
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    private int count() throws IOException {
+        long count = varLong();
+        if (count < 0 || count > buffer.limit()) { // Ogni elemento occupa almeno un byte
+            throw new IOException("Invalid element count: " + count);
+        }
+        return (int) count;
+    }
+
+    private String string() throws IOException {
+        int length = count();
+        String s = StandardCharsets.UTF_8.decode(buffer.slice(pos, length)).toString();
+        pos += length;
+        return s;
+    }
+}
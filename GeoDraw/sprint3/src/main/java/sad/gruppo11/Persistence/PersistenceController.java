@@ -10,6 +10,8 @@ import java.util.Objects;
 public class PersistenceController {
     private final IDrawingSerializer drawingSerializer;
     private final IReusableShapeLibrarySerializer librarySerializer; // Aggiunto per Sprint 3
+    private AsyncDrawingSaver asyncSaver; // Creato al primo salvataggio in background
+    private AsyncDrawingLoader asyncLoader; // Creato al primo caricamento progressivo
 
     // Costruttore aggiornato per accettare entrambi i serializer
     public PersistenceController(IDrawingSerializer drawingSerializer, IReusableShapeLibrarySerializer librarySerializer) {
@@ -33,12 +35,34 @@ public class PersistenceController {
         drawingSerializer.save(d, path);
     }
 
+    /**
+     * Salva in background una copia del disegno (vedi AsyncDrawingSaver).
+     * @param snapshot copia del disegno che non verrà più modificata.
+     */
+    public synchronized AsyncDrawingSaver.SaveTask saveDrawingAsync(Drawing snapshot, String path, AsyncDrawingSaver.Listener listener) {
+        Objects.requireNonNull(snapshot, "Drawing to save cannot be null.");
+        Objects.requireNonNull(path, "File path cannot be null for saving drawing.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for saving drawing.");
+        if (asyncSaver == null) asyncSaver = new AsyncDrawingSaver(drawingSerializer);
+        return asyncSaver.save(snapshot, path, listener);
+    }
+
     public Drawing loadDrawing(String path) throws IOException, ClassNotFoundException { // Modificato
         Objects.requireNonNull(path, "File path cannot be null for loading drawing.");
         if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for loading drawing.");
         return drawingSerializer.load(path);
     }
 
+    /**
+     * Carica il disegno in background consegnando le forme a blocchi (vedi AsyncDrawingLoader).
+     */
+    public synchronized AsyncDrawingLoader.LoadTask loadDrawingAsync(String path, AsyncDrawingLoader.Listener listener) {
+        Objects.requireNonNull(path, "File path cannot be null for loading drawing.");
+        if (path.isEmpty()) throw new IllegalArgumentException("File path cannot be empty for loading drawing.");
+        if (asyncLoader == null) asyncLoader = new AsyncDrawingLoader(drawingSerializer);
+        return asyncLoader.load(path, listener);
+    }
+
     // --- Nuovi metodi per la persistenza della libreria di forme riutilizzabili (Sprint 3) ---
 
     /**
@@ -0,0 +1,47 @@
+package sad.gruppo11.Persistence;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Operazione di salvataggio o caricamento eseguita in background su un file.
+ * L'annullamento è cooperativo: il lavoro controlla isCancelled() tra un passo e l'altro.
+ */
+public abstract class PersistenceTask {
+    private final String path;
+    private volatile boolean cancelled = false;
+    private volatile boolean done = false;
+    private volatile Future<?> future;
+
+    protected PersistenceTask(String path) {
+        this.path = path;
+    }
+
+    public String getPath() { return path; }
+
+    /** Chiede l'annullamento dell'operazione. */
+    public void cancel() { cancelled = true; }
+
+    public boolean isCancelled() { return cancelled; }
+
+    /** True quando l'operazione è terminata (completata, annullata o fallita). */
+    public boolean isDone() { return done; }
+
+    protected void markDone() { done = true; }
+
+    void setFuture(Future<?> future) { this.future = future; }
+
+    /** Attende la fine dell'operazione; false se il timeout scade prima. */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            future.get(timeout, unit);
+        } catch (ExecutionException e) {
+            // Gli errori sono già notificati al listener
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package sad.gruppo11.Persistence;
+
+/**
+ * Riceve l'avanzamento di un'operazione di persistenza e permette di interromperla.
+ * Le implementazioni vengono chiamate dal thread che esegue l'operazione.
+ */
+public interface ProgressMonitor {
+
+    /** Monitor che ignora l'avanzamento e non annulla mai. */
+    ProgressMonitor NONE = new ProgressMonitor() {
+        @Override
+        public void progress(long done, long total) {}
+
+        @Override
+        public boolean isCancelled() { return false; }
+    };
+
+    /**
+     * @param done  unità di lavoro completate (es. forme scritte).
+     * @param total unità di lavoro totali.
+     */
+    void progress(long done, long total);
+
+    /** Se true, l'operazione si interrompe con una CancellationException alla prima occasione. */
+    boolean isCancelled();
+}
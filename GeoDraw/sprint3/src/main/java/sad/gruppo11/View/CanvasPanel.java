@@ -1,12 +1,13 @@
 
 package sad.gruppo11.View;
 
+import sad.gruppo11.Model.Drawing;
 import sad.gruppo11.Model.GroupShape;
 import sad.gruppo11.Model.Shape;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
-// Rimuovi import Rect se non usato direttamente qui
-// import sad.gruppo11.Model.geometry.Rect; 
+import sad.gruppo11.Model.geometry.Rect;
+import sad.gruppo11.Model.geometry.Vector2D;
 
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -15,11 +16,25 @@ import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.transform.Affine;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.lang.Iterable;
 
 public class CanvasPanel {
+    // Margine (pixel schermo) attorno alla viewport: evita di scartare forme il cui tratto
+    // o contorno di selezione sborda appena nell'area visibile.
+    private static final double CULL_MARGIN_PX = 4.0;
+    // Margine (coordinate mondo) attorno alle aree sporche: copre tratto, giunzioni e contorno di selezione
+    private static final double DIRTY_MARGIN = 6.0;
+    // Oltre questi limiti il ridisegno parziale non conviene e si ridisegna tutto
+    private static final int MAX_DIRTY_REGIONS = 32;
+    private static final double MAX_DIRTY_AREA_RATIO = 0.5;
+
     private final Canvas canvas;
     private final GraphicsContext gc;
     private final JavaFXShapeRenderer renderer;
@@ -38,6 +53,18 @@ public class CanvasPanel {
     private Point2D temporaryRubberBandEnd = null;     
     private Shape temporaryGhostShape = null;          
 
+    // Anteprima del trascinamento: queste forme vengono disegnate traslate, sopra le altre,
+    // senza modificare il modello finché il comando di spostamento non viene eseguito
+    private Set<Shape> dragPreviewShapes = new LinkedHashSet<>();
+    private double dragPreviewDx = 0.0;
+    private double dragPreviewDy = 0.0;
+
+    // Forme di primo livello scartate perché fuori dalla viewport nell'ultimo frame
+    private int lastCulledShapeCount = 0;
+    // Forme ridisegnate nell'ultimo frame (completo o parziale) e tipo dell'ultimo frame
+    private int lastRepaintedShapeCount = 0;
+    private boolean lastRepaintPartial = false;
+
     public CanvasPanel(Canvas canvas) {
         Objects.requireNonNull(canvas, "Canvas cannot be null for CanvasPanel.");
         this.canvas = canvas;
@@ -68,10 +95,106 @@ public class CanvasPanel {
     
     public void drawShapes(Iterable<Shape> shapesToDraw, Shape selectedShapes) {
         Objects.requireNonNull(shapesToDraw, "Shapes iterable cannot be null.");
+        Rect viewport = getVisibleWorldRect();
+        List<Shape> visibleShapes = new ArrayList<>();
+        int culled = 0;
+        Rect previewViewport = dragPreviewViewport(viewport);
+        for (Shape shape : shapesToDraw) {
+            if (shape == null) continue;
+            if (isOutside(shape, dragPreviewShapes.contains(shape) ? previewViewport : viewport)) {
+                culled++;
+            } else {
+                visibleShapes.add(shape);
+            }
+        }
+        renderFrame(visibleShapes, selectedShapes, viewport, culled);
+    }
+
+    /**
+     * Disegna il modello chiedendo all'indice spaziale del Drawing le sole forme che
+     * cadono nella viewport, senza scorrere l'intero disegno.
+     */
+    public void drawShapes(Drawing drawing, Shape selectedShapes) {
+        Objects.requireNonNull(drawing, "Drawing cannot be null.");
+        Rect viewport = getVisibleWorldRect();
+        List<Shape> visibleShapes = withDragPreviewShapes(drawing, drawing.shapesInArea(viewport));
+        renderFrame(visibleShapes, selectedShapes, viewport, drawing.getShapeCount() - visibleShapes.size());
+    }
+
+    private void renderFrame(List<Shape> visibleShapes, Shape selectedShapes, Rect viewport, int culledCount) {
+        this.lastCulledShapeCount = culledCount;
+        this.lastRepaintPartial = false;
         clear(); // Pulisce il canvas
         
         gc.save(); // Salva lo stato del GC (trasformazioni, stili, ecc.)
         applyCurrentViewTransform(); // Applica zoom e pan
+        paintContent(visibleShapes, selectedShapes, viewport);
+        gc.restore(); // Ripristina lo stato del GC
+    }
+
+    /**
+     * Ridisegna solo le aree indicate (coordinate mondo), ad esempio posizione vecchia e nuova
+     * di una forma spostata: il contesto viene ritagliato sulle aree, che vengono pulite e
+     * ridipinte con le sole forme che le intersecano. Se le aree sono troppe o coprono
+     * buona parte della viewport esegue invece il ridisegno completo.
+     */
+    public void repaintRegions(Drawing drawing, Shape selectedShapes, List<Rect> dirtyWorldRegions) {
+        Objects.requireNonNull(drawing, "Drawing cannot be null.");
+        Objects.requireNonNull(dirtyWorldRegions, "Dirty regions cannot be null.");
+        Rect viewport = getVisibleWorldRect();
+        List<Rect> regions = new ArrayList<>();
+        double dirtyArea = 0;
+        for (Rect region : dirtyWorldRegions) {
+            if (region == null) continue;
+            Rect visiblePart = intersection(toDirtyArea(region), viewport);
+            if (visiblePart != null) {
+                regions.add(visiblePart);
+                dirtyArea += visiblePart.getWidth() * visiblePart.getHeight();
+            }
+        }
+        if (regions.size() > MAX_DIRTY_REGIONS ||
+            dirtyArea > MAX_DIRTY_AREA_RATIO * viewport.getWidth() * viewport.getHeight()) {
+            drawShapes(drawing, selectedShapes);
+            return;
+        }
+        this.lastRepaintPartial = true;
+        if (regions.isEmpty()) { // Modifiche tutte fuori dalla viewport
+            this.lastRepaintedShapeCount = 0;
+            return;
+        }
+
+        // Forme che intersecano almeno un'area (allargata del margine: il tratto di una forma
+        // vicina può sbordare nell'area), nell'ordine Z del disegno
+        List<Shape> shapesToRepaint;
+        if (regions.size() == 1) {
+            shapesToRepaint = drawing.shapesInArea(grow(regions.get(0), DIRTY_MARGIN));
+        } else {
+            Set<Shape> found = new HashSet<>();
+            for (Rect region : regions) {
+                found.addAll(drawing.shapesInArea(grow(region, DIRTY_MARGIN)));
+            }
+            shapesToRepaint = new ArrayList<>(found);
+            shapesToRepaint.sort(Comparator.comparingInt(drawing::getShapeIndex));
+        }
+        shapesToRepaint = withDragPreviewShapes(drawing, shapesToRepaint); // Il clip limita il disegno alle aree
+
+        gc.save();
+        applyCurrentViewTransform();
+        gc.beginPath();
+        for (Rect region : regions) {
+            gc.rect(region.getX(), region.getY(), region.getWidth(), region.getHeight());
+        }
+        gc.clip(); // Tutto ciò che segue resta confinato nelle aree sporche
+        for (Rect region : regions) {
+            gc.clearRect(region.getX(), region.getY(), region.getWidth(), region.getHeight());
+        }
+        paintContent(shapesToRepaint, selectedShapes, viewport);
+        gc.restore(); // Rimuove anche il clip
+    }
+
+    /** Griglia, selezione, forme e visuali temporanee; la trasformazione della vista è già applicata. */
+    private void paintContent(List<Shape> visibleShapes, Shape selectedShapes, Rect viewport) {
+        this.lastRepaintedShapeCount = visibleShapes.size();
 
         if (gridEnabled) {
             renderGridTransformed(); // Disegna la griglia (già trasformata)
@@ -84,7 +207,7 @@ public class CanvasPanel {
             GroupShape group = (GroupShape) selectedShapes;
             if (!group.getChildren().isEmpty()) {
                 for (Shape child : group.getChildren()) {
-                    if (child != null) {
+                    if (child != null && !dragPreviewShapes.contains(child) && !isOutside(child, viewport)) {
                         renderer.setSelectedShapeForRendering(child); // Imposta il child come selezionato
                         child.accept(this.renderer); // Disegna ogni forma del gruppo
                     }
@@ -92,15 +215,109 @@ public class CanvasPanel {
             }
         }
 
-        for (Shape shape : shapesToDraw) {
-            if (shape != null) {
+        Rect previewViewport = dragPreviewViewport(viewport);
+        for (Shape shape : visibleShapes) {
+            if (dragPreviewShapes.contains(shape)) { // Al suo posto nell'ordine Z, nella posizione di anteprima
+                drawDragPreviewShape(shape, previewViewport, selectedShapes);
+            } else {
                 shape.accept(this.renderer); // Il renderer gestisce il disegno di ogni forma
             }
         }
 
         drawCurrentTemporaryVisuals(); // Disegna feedback temporaneo (es. rubber banding)
+    }
 
-        gc.restore(); // Ripristina lo stato del GC
+    /** Area sporca allargata del margine e arrotondata ai pixel interi dello schermo (evita aloni di antialiasing). */
+    private Rect toDirtyArea(Rect region) {
+        Rect grown = grow(region, DIRTY_MARGIN);
+        double x0 = Math.floor(grown.getX() * zoomFactor + offsetX);
+        double y0 = Math.floor(grown.getY() * zoomFactor + offsetY);
+        double x1 = Math.ceil(grown.getRight() * zoomFactor + offsetX);
+        double y1 = Math.ceil(grown.getBottom() * zoomFactor + offsetY);
+        return new Rect((x0 - offsetX) / zoomFactor, (y0 - offsetY) / zoomFactor,
+                        (x1 - x0) / zoomFactor, (y1 - y0) / zoomFactor);
+    }
+
+    private static Rect grow(Rect r, double margin) {
+        return new Rect(r.getX() - margin, r.getY() - margin, r.getWidth() + 2 * margin, r.getHeight() + 2 * margin);
+    }
+
+    private static Rect intersection(Rect a, Rect b) {
+        double x0 = Math.max(a.getX(), b.getX());
+        double y0 = Math.max(a.getY(), b.getY());
+        double x1 = Math.min(a.getRight(), b.getRight());
+        double y1 = Math.min(a.getBottom(), b.getBottom());
+        if (x1 <= x0 || y1 <= y0) {
+            return null;
+        }
+        return new Rect(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * True se la forma cade certamente fuori dall'area. Nel dubbio (bounds assenti,
+     * gruppo ruotato i cui bounds non includono la rotazione) la forma viene disegnata.
+     */
+    private static boolean isOutside(Shape shape, Rect area) {
+        if (shape.isComposite() && shape.getRotation() != 0.0) {
+            return false;
+        }
+        Rect b = shape.getRotatedBounds();
+        if (b == null) {
+            return false;
+        }
+        return b.getRight() < area.getX() || b.getX() > area.getRight() ||
+               b.getBottom() < area.getY() || b.getY() > area.getBottom();
+    }
+
+    /**
+     * Rettangolo del mondo visibile attraverso la viewport, allargato di CULL_MARGIN_PX pixel.
+     */
+    public Rect getVisibleWorldRect() {
+        final double invZoom = 1.0 / zoomFactor;
+        final double margin = CULL_MARGIN_PX * invZoom;
+        final double worldX0Visible = -offsetX * invZoom;
+        final double worldY0Visible = -offsetY * invZoom;
+        return new Rect(worldX0Visible - margin, worldY0Visible - margin,
+                        canvas.getWidth() * invZoom + 2 * margin, canvas.getHeight() * invZoom + 2 * margin);
+    }
+
+    /** Numero di forme di primo livello non disegnate nell'ultimo ridisegno completo perché fuori viewport. */
+    public int getLastCulledShapeCount() {
+        return lastCulledShapeCount;
+    }
+
+    /** Numero di forme di primo livello disegnate nell'ultimo frame (completo o parziale). */
+    public int getLastRepaintedShapeCount() {
+        return lastRepaintedShapeCount;
+    }
+
+    /** True se l'ultimo frame ha ridisegnato solo delle aree sporche. */
+    public boolean isLastRepaintPartial() {
+        return lastRepaintPartial;
+    }
+
+    /**
+     * Imposta l'anteprima del trascinamento: le forme indicate vengono disegnate traslate di offset
+     * (coordinate mondo) al posto della loro posizione nel modello, con l'indicatore di selezione.
+     */
+    public void setDragPreview(Collection<Shape> shapes, Vector2D offset) {
+        Objects.requireNonNull(shapes, "Drag preview shapes cannot be null.");
+        Objects.requireNonNull(offset, "Drag preview offset cannot be null.");
+        if (shapes.size() != dragPreviewShapes.size() || !dragPreviewShapes.containsAll(shapes)) {
+            dragPreviewShapes = new LinkedHashSet<>(shapes); // Durante un drag cambia solo l'offset
+        }
+        dragPreviewDx = offset.getDx();
+        dragPreviewDy = offset.getDy();
+    }
+
+    public void clearDragPreview() {
+        dragPreviewShapes = new LinkedHashSet<>();
+        dragPreviewDx = 0.0;
+        dragPreviewDy = 0.0;
+    }
+
+    public boolean hasDragPreview() {
+        return !dragPreviewShapes.isEmpty();
     }
 
     public void setTemporaryPolygonGuide(List<Point2D> points, Point2D rubberBandEnd) {
@@ -121,6 +338,39 @@ public class CanvasPanel {
         this.temporaryGhostShape = null;
     }
 
+    // La traslazione è applicata solo al contesto grafico: le forme in anteprima si confrontano
+    // con la viewport spostata all'indietro
+    private Rect dragPreviewViewport(Rect viewport) {
+        if (dragPreviewShapes.isEmpty()) return viewport;
+        return new Rect(viewport.getX() - dragPreviewDx, viewport.getY() - dragPreviewDy,
+                        viewport.getWidth(), viewport.getHeight());
+    }
+
+    /**
+     * Aggiunge alle forme da disegnare quelle in anteprima che l'indice spaziale ha escluso
+     * perché la loro posizione nel modello è fuori dall'area, riordinando per ordine Z.
+     */
+    private List<Shape> withDragPreviewShapes(Drawing drawing, List<Shape> shapes) {
+        if (dragPreviewShapes.isEmpty() || shapes.containsAll(dragPreviewShapes)) return shapes;
+        Set<Shape> merged = new LinkedHashSet<>(shapes);
+        for (Shape shape : dragPreviewShapes) {
+            if (shape != null && drawing.containsShape(shape)) merged.add(shape);
+        }
+        List<Shape> result = new ArrayList<>(merged);
+        result.sort(Comparator.comparingInt(drawing::getShapeIndex));
+        return result;
+    }
+
+    private void drawDragPreviewShape(Shape shape, Rect previewViewport, Shape selectedShapes) {
+        if (isOutside(shape, previewViewport)) return;
+        gc.save();
+        gc.translate(dragPreviewDx, dragPreviewDy);
+        renderer.setSelectedShapeForRendering(shape);
+        shape.accept(this.renderer);
+        renderer.setSelectedShapeForRendering(selectedShapes);
+        gc.restore();
+    }
+
     private void drawCurrentTemporaryVisuals() {
         // Questo metodo viene chiamato dopo che la trasformazione principale (zoom/pan) è stata applicata.
         // Quindi, le coordinate dei punti/forme temporanee sono già in coordinate mondo.
@@ -7,8 +7,9 @@ import sad.gruppo11.Model.GroupShape;
 import sad.gruppo11.Model.Observable;
 import sad.gruppo11.Model.Shape;
 import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+import sad.gruppo11.Model.geometry.Vector2D;
 
-import javafx.application.Platform; // Per Platform.runLater
 import javafx.scene.canvas.Canvas; // Rimosso, CanvasPanel lo gestisce
 import javafx.scene.control.TextInputDialog;
 import javafx.stage.FileChooser;
@@ -16,6 +17,7 @@ import javafx.stage.Stage;
 import javafx.scene.control.Alert;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List; // Per drawTemporaryPolygonGuide
 import java.util.Objects;
 import java.util.Optional;
@@ -25,6 +27,13 @@ public class DrawingView implements Observer {
     private final CanvasPanel canvasPanel; // Il pannello su cui si disegna
     private Drawing currentDrawingModel; // Il modello del disegno corrente osservato
     private Stage primaryStage; // Per dialogs
+    private final RenderScheduler renderScheduler; // Al più un render per pulse JavaFX
+    private final InputCoalescer inputCoalescer; // Drag e scroll accorpati a uno per pulse
+    private volatile boolean transformDirty = false; // Zoom/pan/griglia da rileggere dal controller al prossimo render
+    // Aree del disegno da ridisegnare al prossimo frame; fullRepaintPending prevale sulle aree
+    private final Object dirtyLock = new Object();
+    private List<Rect> pendingDirtyRegions = new ArrayList<>();
+    private boolean fullRepaintPending = false;
 
     public DrawingView(GeoEngine controller, CanvasPanel canvasPanel, Stage primaryStage) {
         Objects.requireNonNull(controller, "Controller cannot be null for DrawingView.");
@@ -34,6 +43,9 @@ public class DrawingView implements Observer {
         this.controller = controller;
         this.canvasPanel = canvasPanel;
         this.primaryStage = primaryStage;
+        this.renderScheduler = new RenderScheduler(this::renderScheduledFrame);
+        this.inputCoalescer = new InputCoalescer(controller, canvasPanel::screenToWorld);
+        this.renderScheduler.setPreRenderAction(inputCoalescer::flush);
         
         // Ottieni il modello iniziale dal controller e registrati come observer
         this.currentDrawingModel = controller.getDrawing();
@@ -47,6 +59,7 @@ public class DrawingView implements Observer {
         setupMouseHandlers(); // Configura gli input del mouse sul canvas
         updateCanvasPanelFromController(); // Imposta trasformazioni iniziali
         render(); // Render iniziale
+        renderScheduler.start();
     }
     
     public CanvasPanel getCanvasPanel() {
@@ -56,39 +69,41 @@ public class DrawingView implements Observer {
 
     private void setupMouseHandlers() {
         javafx.scene.canvas.Canvas actualCanvas = canvasPanel.getCanvas();
+        // Press e release vengono inoltrati subito; drag e scroll vengono accorpati
+        // dall'InputCoalescer e consegnati una volta per pulse, prima del render.
         
         actualCanvas.setOnMousePressed(event -> {
             if (controller != null && event.isPrimaryButtonDown()) { // Gestisce solo il pulsante primario
-                Point2D worldPoint = canvasPanel.screenToWorld(new Point2D(event.getX(), event.getY()));
-                controller.onMousePressed(worldPoint);
+                inputCoalescer.mousePressed(new Point2D(event.getX(), event.getY()));
                 event.consume(); // Consuma l'evento per evitare propagazione
             }
         });
 
         actualCanvas.setOnMouseDragged(event -> {
             if (controller != null && event.isPrimaryButtonDown()) {
-                Point2D worldPoint = canvasPanel.screenToWorld(new Point2D(event.getX(), event.getY()));
-                controller.onMouseDragged(worldPoint);
+                inputCoalescer.mouseDragged(new Point2D(event.getX(), event.getY()));
                 event.consume();
             }
         });
 
         actualCanvas.setOnMouseReleased(event -> {
             if (controller != null && event.getButton() == javafx.scene.input.MouseButton.PRIMARY) {
-                Point2D worldPoint = canvasPanel.screenToWorld(new Point2D(event.getX(), event.getY()));
-                controller.onMouseReleased(worldPoint);
+                inputCoalescer.mouseReleased(new Point2D(event.getX(), event.getY()));
                 event.consume();
             }
         });
         
         actualCanvas.setOnScroll(event -> {
             if (controller != null) {
-                if (event.getDeltaY() > 0) controller.zoomIn(event.getX(), event.getY());
-                else if (event.getDeltaY() < 0) controller.zoomOut(event.getX(), event.getY());
+                inputCoalescer.scrolled(event.getX(), event.getY(), event.getDeltaY());
                 event.consume(); // L'evento scroll è gestito qui
             }
         });
     }
+
+    public InputCoalescer getInputCoalescer() {
+        return inputCoalescer;
+    }
     
     /**
      * Aggiorna i parametri di trasformazione e griglia del CanvasPanel
@@ -108,64 +123,104 @@ public class DrawingView implements Observer {
 
     @Override
     public void update(Observable source, Object arg) {
-        // Platform.runLater per assicurarsi che gli aggiornamenti UI avvengano sul thread JavaFX
-        Platform.runLater(() -> {
-            boolean needsRender = false;
-            boolean transformChanged = false;
-
-            if (source == currentDrawingModel) {
-                // Il modello del disegno è cambiato (aggiunta/rimozione/modifica forma, z-order, clear, load)
-                needsRender = true;
-            } else if (source == controller) {
-                // GeoEngine ha notificato un cambiamento
-                if (arg instanceof Drawing.DrawingChangeEvent) {
-                    Drawing.DrawingChangeEvent event = (Drawing.DrawingChangeEvent) arg;
-                    if (event.type == Drawing.DrawingChangeEvent.ChangeType.TRANSFORM ||
-                        event.type == Drawing.DrawingChangeEvent.ChangeType.GRID) {
-                        transformChanged = true;
-                        needsRender = true;
-                    }
-                } else if (arg instanceof Shape || arg == null) { 
-                    // Potrebbe essere una notifica di cambio selezione da GeoEngine
-                    needsRender = true;
-                } else if (arg instanceof String) {
-                    // Potrebbe essere un messaggio di cambio tool o altro feedback
-                    // showUserMessage((String) arg); // MainApp gestisce questo se è observer
+        // Le notifiche segnano solo la vista come da ridisegnare: il RenderScheduler esegue
+        // il render sul thread JavaFX, al più una volta per pulse, qualunque sia il numero di eventi.
+        if (source == currentDrawingModel) {
+            // Il modello del disegno è cambiato (aggiunta/rimozione/modifica forma, z-order, clear, load):
+            // se l'evento indica le aree coinvolte basta ridisegnare quelle
+            List<Rect> regions = (arg instanceof Drawing.DrawingChangeEvent)
+                ? ((Drawing.DrawingChangeEvent) arg).getDirtyRegions() : null;
+            invalidate(regions);
+        } else if (source == controller) {
+            // GeoEngine ha notificato un cambiamento
+            if (arg instanceof Drawing.DrawingChangeEvent) {
+                Drawing.DrawingChangeEvent event = (Drawing.DrawingChangeEvent) arg;
+                if (event.type == Drawing.DrawingChangeEvent.ChangeType.TRANSFORM ||
+                    event.type == Drawing.DrawingChangeEvent.ChangeType.GRID) {
+                    transformDirty = true;
+                    requestRender();
                 }
+            } else if (arg instanceof Shape || arg == null) { 
+                // Potrebbe essere una notifica di cambio selezione da GeoEngine
+                requestRender();
+            } else if (arg instanceof String) {
+                // Potrebbe essere un messaggio di cambio tool o altro feedback
+                // showUserMessage((String) arg); // MainApp gestisce questo se è observer
             }
+        }
+    }
 
-            if (transformChanged) {
-                updateCanvasPanelFromController(); // Aggiorna prima le trasformazioni
-            }
-            if (needsRender) {
-                render();
+    /**
+     * Richiede un ridisegno al prossimo pulse. Più richieste nello stesso frame
+     * producono un solo render.
+     */
+    public void requestRender() {
+        invalidate(null);
+    }
+
+    // regions == null: ridisegno completo
+    private void invalidate(List<Rect> regions) {
+        synchronized (dirtyLock) {
+            if (regions == null) {
+                fullRepaintPending = true;
+            } else if (!fullRepaintPending) {
+                pendingDirtyRegions.addAll(regions);
             }
-        });
+        }
+        renderScheduler.requestRender();
+    }
+
+    public RenderScheduler getRenderScheduler() {
+        return renderScheduler;
     }
 
+    // Eseguito dal RenderScheduler sul thread JavaFX
+    private void renderScheduledFrame() {
+        List<Rect> dirtyRegions;
+        synchronized (dirtyLock) {
+            dirtyRegions = fullRepaintPending ? null : pendingDirtyRegions;
+            fullRepaintPending = false;
+            pendingDirtyRegions = new ArrayList<>();
+        }
+        if (transformDirty) {
+            transformDirty = false;
+            updateCanvasPanelFromController(); // Aggiorna prima le trasformazioni
+            dirtyRegions = null; // Zoom, pan e griglia cambiano tutto il canvas
+        }
+        if (dirtyRegions == null || canvasPanel == null || currentDrawingModel == null) {
+            render();
+        } else if (!dirtyRegions.isEmpty()) {
+            canvasPanel.repaintRegions(currentDrawingModel, createSelectionGroup(), dirtyRegions);
+        }
+    }
+
+    /** Ridisegna subito (thread JavaFX). Per gli aggiornamenti ordinari usare requestRender(). */
     public void render() {
         if (canvasPanel == null) return;
         
-        List<Shape> selectedShapes = (controller != null) ? controller.getSelectedShapes() : null;
-        // Se la selezione è un gruppo, potremmo voler passare l'intero gruppo o i suoi figli
-        // a seconda di come vogliamo che la selezione sia gestita dal renderer.
-        // Per ora, passiamo la forma selezionata così com'è.
-
-        GroupShape groupSelectedShapes = new GroupShape(selectedShapes);
+        GroupShape groupSelectedShapes = createSelectionGroup();
         
         if (currentDrawingModel != null) {
             // Passa le forme e la forma selezionata al CanvasPanel
-            canvasPanel.drawShapes(currentDrawingModel.getShapesInZOrder(), groupSelectedShapes);
+            canvasPanel.drawShapes(currentDrawingModel, groupSelectedShapes); // Solo le forme nella viewport
         } else {
             canvasPanel.clear(); // Nessun modello, pulisci il canvas
         }
     }
 
+    private GroupShape createSelectionGroup() {
+        List<Shape> selectedShapes = (controller != null) ? controller.getSelectedShapes() : null;
+        // Se la selezione è un gruppo, potremmo voler passare l'intero gruppo o i suoi figli
+        // a seconda di come vogliamo che la selezione sia gestita dal renderer.
+        // Per ora, passiamo la forma selezionata così com'è.
+        return new GroupShape(selectedShapes);
+    }
+
     public String getUserInputForPath(boolean saveDialog, String dialogTitle, String initialFileName) {
         FileChooser fileChooser = new FileChooser();
         if (dialogTitle != null) fileChooser.setTitle(dialogTitle);
         if (initialFileName != null) fileChooser.setInitialFileName(initialFileName);
-        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("GeoDraw Files (*.ser)", "*.ser"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("GeoDraw Files (*.gdraw, *.ser)", "*.gdraw", "*.ser"));
         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("All Files (*.*)", "*.*"));
 
         File file = saveDialog ? fileChooser.showSaveDialog(primaryStage) : fileChooser.showOpenDialog(primaryStage);
@@ -174,7 +229,7 @@ public class DrawingView implements Observer {
     
     // Sovraccarico per compatibilità con chiamate precedenti
     public String getUserInputForPath(boolean saveDialog) {
-        return getUserInputForPath(saveDialog, saveDialog ? "Save Drawing" : "Open Drawing", "drawing.ser");
+        return getUserInputForPath(saveDialog, saveDialog ? "Save Drawing" : "Open Drawing", "drawing.gdraw");
     }
 
 
@@ -227,6 +282,23 @@ public class DrawingView implements Observer {
         }
     }
 
+    /**
+     * Mostra le forme traslate di offset senza modificare il modello (anteprima del trascinamento).
+     */
+    public void setDragPreview(List<Shape> shapes, Vector2D offset) {
+        if (canvasPanel != null) {
+            canvasPanel.setDragPreview(shapes, offset);
+            requestRender();
+        }
+    }
+
+    public void clearDragPreview() {
+        if (canvasPanel != null && canvasPanel.hasDragPreview()) {
+            canvasPanel.clearDragPreview();
+            requestRender();
+        }
+    }
+
     public void clearTemporaryVisuals() {
         if (canvasPanel != null) {
             canvasPanel.clearTemporaryVisuals();
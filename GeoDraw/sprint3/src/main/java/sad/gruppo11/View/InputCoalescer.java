@@ -0,0 +1,106 @@
+package sad.gruppo11.View;
+
+import sad.gruppo11.Controller.GeoEngine;
+import sad.gruppo11.Model.geometry.Point2D;
+
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Filtra gli eventi del mouse tra il canvas e il GeoEngine (thread JavaFX).
+ * I drag e gli scroll arrivati nello stesso frame vengono accorpati: del drag resta solo
+ * l'ultima posizione, degli scroll il numero netto di scatti di zoom. Vengono consegnati
+ * da flush(), una volta per pulse prima del render.
+ * Press e release sono consegnati subito, dopo aver consegnato quanto ancora in sospeso,
+ * così l'ordine press - drag - release resta quello reale.
+ */
+public class InputCoalescer {
+    private final GeoEngine engine;
+    private final UnaryOperator<Point2D> screenToWorld;
+
+    // Coordinate schermo: la conversione in coordinate mondo avviene alla consegna
+    private Point2D pendingDragScreen;
+    private int pendingZoomSteps; // Positivo: zoom in
+    private double pendingZoomX;
+    private double pendingZoomY;
+
+    private long receivedEvents;
+    private long deliveredEvents;
+
+    public InputCoalescer(GeoEngine engine, UnaryOperator<Point2D> screenToWorld) {
+        this.engine = Objects.requireNonNull(engine, "GeoEngine cannot be null for InputCoalescer.");
+        this.screenToWorld = Objects.requireNonNull(screenToWorld, "Screen to world conversion cannot be null.");
+    }
+
+    public void mousePressed(Point2D screenPoint) {
+        Objects.requireNonNull(screenPoint, "Screen point cannot be null.");
+        receivedEvents++;
+        flush();
+        deliveredEvents++;
+        engine.onMousePressed(screenToWorld.apply(screenPoint));
+    }
+
+    public void mouseDragged(Point2D screenPoint) {
+        Objects.requireNonNull(screenPoint, "Screen point cannot be null.");
+        receivedEvents++;
+        pendingDragScreen = screenPoint;
+    }
+
+    public void mouseReleased(Point2D screenPoint) {
+        Objects.requireNonNull(screenPoint, "Screen point cannot be null.");
+        receivedEvents++;
+        flush();
+        deliveredEvents++;
+        engine.onMouseReleased(screenToWorld.apply(screenPoint));
+    }
+
+    /**
+     * @param deltaY Verso della rotellina: positivo zoom in, negativo zoom out, zero ignorato.
+     */
+    public void scrolled(double screenX, double screenY, double deltaY) {
+        receivedEvents++;
+        if (deltaY == 0) return;
+        pendingZoomSteps += deltaY > 0 ? 1 : -1;
+        pendingZoomX = screenX; // Gli scatti accorpati usano l'ultima posizione del puntatore
+        pendingZoomY = screenY;
+    }
+
+    /**
+     * Consegna al GeoEngine lo zoom netto e l'ultimo drag in sospeso.
+     * @return true se è stato consegnato qualcosa.
+     */
+    public boolean flush() {
+        boolean delivered = false;
+        if (pendingZoomSteps != 0) {
+            int steps = pendingZoomSteps;
+            pendingZoomSteps = 0;
+            for (int i = 0; i < Math.abs(steps); i++) {
+                if (steps > 0) engine.zoomIn(pendingZoomX, pendingZoomY);
+                else engine.zoomOut(pendingZoomX, pendingZoomY);
+            }
+            deliveredEvents++;
+            delivered = true;
+        }
+        if (pendingDragScreen != null) {
+            Point2D screenPoint = pendingDragScreen;
+            pendingDragScreen = null;
+            deliveredEvents++;
+            engine.onMouseDragged(screenToWorld.apply(screenPoint));
+            delivered = true;
+        }
+        return delivered;
+    }
+
+    public boolean hasPendingEvents() {
+        return pendingDragScreen != null || pendingZoomSteps != 0;
+    }
+
+    public long getReceivedEventCount() {
+        return receivedEvents;
+    }
+
+    /** Eventi consegnati al GeoEngine; uno zoom di più scatti conta come un evento. */
+    public long getDeliveredEventCount() {
+        return deliveredEvents;
+    }
+}
@@ -7,6 +7,7 @@ import sad.gruppo11.Model.PolygonShape;
 import sad.gruppo11.Model.RectangleShape;
 import sad.gruppo11.Model.TextShape;
 import sad.gruppo11.Model.GroupShape; // Aggiunto
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
@@ -16,10 +17,7 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.shape.StrokeLineJoin;
 import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
-import javafx.scene.transform.Affine; // Per trasformazioni più complesse se necessario
-import javafx.scene.transform.Rotate;
 
 import java.util.List;
 import java.util.Objects;
@@ -28,10 +26,21 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
     private GraphicsContext gc;
     private double defaultLineWidth = 1.5;
     private sad.gruppo11.Model.Shape currentlySelectedShapeForRendering; // Può essere GroupShape
+    private final TextMetricsCache textMetricsCache; // Font e misure dei testi già disegnati
 
     public JavaFXShapeRenderer(GraphicsContext gc) {
+        this(gc, new TextMetricsCache());
+    }
+
+    public JavaFXShapeRenderer(GraphicsContext gc, TextMetricsCache textMetricsCache) {
         Objects.requireNonNull(gc, "GraphicsContext cannot be null for JavaFXShapeRenderer.");
+        Objects.requireNonNull(textMetricsCache, "TextMetricsCache cannot be null for JavaFXShapeRenderer.");
         this.gc = gc;
+        this.textMetricsCache = textMetricsCache;
+    }
+
+    public TextMetricsCache getTextMetricsCache() {
+        return textMetricsCache;
     }
 
     public double getDefaultLineWidth() {
@@ -51,13 +60,17 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         return Color.rgb(colorData.getR(), colorData.getG(), colorData.getB(), colorData.getA());
     }
 
-    private void drawSelectionIndicator(Rect bounds, double rotationAngle, Point2D rotationCenter) {
+    // Applica al GraphicsContext la trasformazione in cache della forma (i coefficienti vanno in ordine JavaFX)
+    private void applyTransform(Affine2D t) {
+        if (!t.isIdentity()) {
+            gc.transform(t.getMxx(), t.getMyx(), t.getMxy(), t.getMyy(), t.getTx(), t.getTy());
+        }
+    }
+
+    private void drawSelectionIndicator(Rect bounds, Affine2D transform) {
         if (bounds == null || bounds.getWidth() <=0 || bounds.getHeight() <= 0) return; // Non disegnare per bounds degeneri
         gc.save();
-        if (rotationAngle != 0 && rotationCenter != null) {
-            Rotate r = new Rotate(rotationAngle, rotationCenter.getX(), rotationCenter.getY());
-            gc.transform(r.getMxx(), r.getMyx(), r.getMxy(), r.getMyy(), r.getTx(), r.getTy());
-        }
+        applyTransform(transform);
         gc.setStroke(Color.CORNFLOWERBLUE); 
         gc.setLineWidth(1.0); // Linea di selezione sottile
         gc.setLineDashes(4, 4);
@@ -72,13 +85,10 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         gc.restore(); 
     }
     
-    private void drawSelectionIndicatorForLine(Point2D start, Point2D end, double rotationAngle, Point2D rotationCenter) {
+    private void drawSelectionIndicatorForLine(Point2D start, Point2D end, Affine2D transform) {
         if (start == null || end == null) return;
         gc.save();
-        if (rotationAngle != 0 && rotationCenter != null) {
-            Rotate r = new Rotate(rotationAngle, rotationCenter.getX(), rotationCenter.getY());
-            gc.transform(r.getMxx(), r.getMyx(), r.getMxy(), r.getMyy(), r.getTx(), r.getTy());
-        }
+        applyTransform(transform);
         gc.setStroke(Color.CORNFLOWERBLUE);
         gc.setLineWidth(1.0);
         gc.setLineDashes(4, 4);
@@ -99,14 +109,10 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         Rect bounds = rShape.getBounds(); // Bounds non ruotati
         Color strokeFx = convertModelToFxColor(rShape.getStrokeColor());
         Color fillFx = convertModelToFxColor(rShape.getFillColor());
-        double rotation = rShape.getRotation();
-        Point2D center = bounds.getCenter(); // Centro dei bounds non ruotati è il pivot
+        Affine2D transform = rShape.getTransform(); // Rotazione attorno al centro dei bounds non ruotati
         
         gc.save();
-        if (rotation != 0) {
-            Rotate rot = new Rotate(rotation, center.getX(), center.getY());
-            gc.transform(rot.getMxx(), rot.getMyx(), rot.getMxy(), rot.getMyy(), rot.getTx(), rot.getTy());
-        }
+        applyTransform(transform);
         
         if (fillFx.getOpacity() > 0.0) { 
             gc.setFill(fillFx);
@@ -122,7 +128,7 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         
         if (rShape.equals(currentlySelectedShapeForRendering)) {
             // L'indicatore di selezione usa i bounds NON ruotati e applica la stessa rotazione
-            drawSelectionIndicator(bounds, rotation, center);
+            drawSelectionIndicator(bounds, transform);
         }
     }
 
@@ -132,14 +138,10 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         Rect bounds = eShape.getBounds();
         Color strokeFx = convertModelToFxColor(eShape.getStrokeColor());
         Color fillFx = convertModelToFxColor(eShape.getFillColor());
-        double rotation = eShape.getRotation();
-        Point2D center = bounds.getCenter();
+        Affine2D transform = eShape.getTransform();
         
         gc.save();
-        if (rotation != 0) {
-            Rotate rot = new Rotate(rotation, center.getX(), center.getY());
-            gc.transform(rot.getMxx(), rot.getMyx(), rot.getMxy(), rot.getMyy(), rot.getTx(), rot.getTy());
-        }
+        applyTransform(transform);
         
         if (fillFx.getOpacity() > 0.0) {
             gc.setFill(fillFx);
@@ -152,7 +154,7 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         gc.restore();
         
         if (eShape.equals(currentlySelectedShapeForRendering)) {
-            drawSelectionIndicator(bounds, rotation, center);
+            drawSelectionIndicator(bounds, transform);
         }
     }
 
@@ -162,14 +164,10 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         Point2D start = lShape.getStartPoint();
         Point2D end = lShape.getEndPoint();
         Color strokeFx = convertModelToFxColor(lShape.getStrokeColor());
-        double rotation = lShape.getRotation();
-        Point2D center = lShape.getBounds().getCenter(); // Pivot di rotazione
+        Affine2D transform = lShape.getTransform(); // Pivot di rotazione: centro dei bounds
         
         gc.save();
-         if (rotation != 0) {
-            Rotate rot = new Rotate(rotation, center.getX(), center.getY());
-            gc.transform(rot.getMxx(), rot.getMyx(), rot.getMxy(), rot.getMyy(), rot.getTx(), rot.getTy());
-        }
+        applyTransform(transform);
         
         gc.setStroke(strokeFx);
         gc.setLineWidth(defaultLineWidth);
@@ -180,7 +178,7 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         
         if (lShape.equals(currentlySelectedShapeForRendering)) {
             // Per le linee, l'indicatore di selezione potrebbe essere il bounding box della linea
-            drawSelectionIndicatorForLine(start, end, rotation, center);
+            drawSelectionIndicatorForLine(start, end, transform);
         }
     }
 
@@ -196,14 +194,10 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         
         Color strokeFx = convertModelToFxColor(pShape.getStrokeColor());
         Color fillFx = convertModelToFxColor(pShape.getFillColor());
-        double rotation = pShape.getRotation();
-        Point2D center = pShape.getBounds().getCenter(); // Pivot basato sull'AABB dei vertici non ruotati
+        Affine2D transform = pShape.getTransform(); // Pivot basato sull'AABB dei vertici non ruotati
         
         gc.save();
-        if (rotation != 0) {
-            Rotate rot = new Rotate(rotation, center.getX(), center.getY());
-            gc.transform(rot.getMxx(), rot.getMyx(), rot.getMxy(), rot.getMyy(), rot.getTx(), rot.getTy());
-        }
+        applyTransform(transform);
         
         if (fillFx.getOpacity() > 0.0) {
             gc.setFill(fillFx);
@@ -217,7 +211,7 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         gc.restore();
         
         if (pShape.equals(currentlySelectedShapeForRendering)) {
-            drawSelectionIndicator(pShape.getBounds(), rotation, center);
+            drawSelectionIndicator(pShape.getBounds(), transform);
         }
     }
 
@@ -258,19 +252,18 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
 
             if (tShape.equals(currentlySelectedShapeForRendering)) {
                 // L'indicatore di selezione usa targetBounds (che potrebbero essere degeneri) e ruota attorno al loro centro.
-                drawSelectionIndicator(targetBounds, rotation, targetBounds.getCenter());
+                drawSelectionIndicator(targetBounds, tShape.getTransform());
             }
             return;
         }
 
         gc.save();
 
-        // 1. Calcola le dimensioni naturali del testo con baseFontSize per determinare la scala.
-        Text textNodeForMeasurement = new Text(textContent);
-        textNodeForMeasurement.setFont(Font.font(fontName, baseFontSize));
-        javafx.geometry.Bounds naturalLayoutBounds = textNodeForMeasurement.getLayoutBounds();
-        double naturalWidth = naturalLayoutBounds.getWidth();
-        double naturalHeight = naturalLayoutBounds.getHeight();
+        // 1. Calcola le dimensioni naturali del testo con baseFontSize per determinare la scala
+        //    (dalla cache: la misura con un nodo Text è costosa).
+        TextMetricsCache.TextMetrics naturalMetrics = textMetricsCache.get(textContent, fontName, baseFontSize);
+        double naturalWidth = naturalMetrics.width;
+        double naturalHeight = naturalMetrics.height;
         boolean hFlip = tShape.isHorizontallyFlipped();
         boolean vFlip = tShape.isVerticallyFlipped();
 
@@ -282,7 +275,7 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
             // Potresti voler disegnare testo non scalato come nel blocco di fallback sopra.
             // Per ora, usciamo per evitare divisioni per zero.
             if (tShape.equals(currentlySelectedShapeForRendering)) { // Disegna comunque l'indicatore se selezionato
-                drawSelectionIndicator(targetBounds, rotation, targetBounds.getCenter());
+                drawSelectionIndicator(targetBounds, tShape.getTransform());
             }
             return;
         }
@@ -315,7 +308,7 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         gc.scale(overallScaleX, overallScaleY);
 
         // 5. Prepara e disegna il testo.
-        gc.setFont(Font.font(fontName, baseFontSize)); // Usa il baseFontSize; la scala applicata al GC farà il resto.
+        gc.setFont(naturalMetrics.font); // Usa il baseFontSize; la scala applicata al GC farà il resto.
         gc.setFill(textColorFx);
         gc.setTextAlign(TextAlignment.LEFT); // L'allineamento è relativo al punto x,y di fillText.
         gc.setTextBaseline(VPos.TOP);    // Cruciale: Y in fillText si riferisce al top della cella del font.
@@ -327,11 +320,11 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
 
         // drawX: per centrare orizzontalmente il testo naturale, il suo punto di ancoraggio X
         //        (che è il suo minX del layout) deve essere a -naturalWidth / 2.
-        double drawX = -naturalWidth / 2.0 - naturalLayoutBounds.getMinX();
+        double drawX = -naturalWidth / 2.0 - naturalMetrics.minX;
 
         // drawY: per centrare verticalmente il testo naturale, il suo punto di ancoraggio Y
         //        (che con VPos.TOP è il suo minY del layout) deve essere a -naturalHeight / 2.
-        double drawY_forCentering = -naturalHeight / 2.0 - naturalLayoutBounds.getMinY();
+        double drawY_forCentering = -naturalHeight / 2.0 - naturalMetrics.minY;
         
         // Applica l'offset verticale personalizzato (ex "imbroglio")
         // Questo offset è definito in termini di baseFontSize, quindi è in coordinate "pre-scala".
@@ -351,7 +344,7 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         // viene applicata attorno al centro di targetBounds.
         // Questo dovrebbe allinearsi bene ora che il testo è anche trasformato attorno a quel centro.
         if (tShape.equals(currentlySelectedShapeForRendering)) {
-            drawSelectionIndicator(targetBounds, rotation, centerOfTargetBounds);
+            drawSelectionIndicator(targetBounds, tShape.getTransform());
         }
     }
 
@@ -367,12 +360,8 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         
         gc.save();
         
-        double groupRotation = gShape.getRotation();
-        if (groupRotation != 0) {
-            Point2D groupCenter = gShape.getBounds().getCenter(); // Centro dell'AABB del gruppo
-            Rotate rot = new Rotate(groupRotation, groupCenter.getX(), groupCenter.getY());
-            gc.transform(rot.getMxx(), rot.getMyx(), rot.getMxy(), rot.getMyy(), rot.getTx(), rot.getTy());
-        }
+        Affine2D groupTransform = gShape.getTransform(); // Rotazione attorno al centro dell'AABB del gruppo
+        applyTransform(groupTransform);
         
         // Renderizza ogni figlio. Il renderer applicherà la rotazione individuale di ogni figlio.
         for (sad.gruppo11.Model.Shape child : gShape.getChildren()) {
@@ -384,7 +373,7 @@ public class JavaFXShapeRenderer implements ShapeVisitor {
         // Se il gruppo è selezionato, disegna un indicatore attorno al suo AABB
         if (gShape.equals(currentlySelectedShapeForRendering)) {
             // L'indicatore di selezione per il gruppo usa i bounds del gruppo e la rotazione del gruppo.
-            drawSelectionIndicator(gShape.getBounds(), groupRotation, gShape.getBounds().getCenter());
+            drawSelectionIndicator(gShape.getBounds(), groupTransform);
         }
     }
 }
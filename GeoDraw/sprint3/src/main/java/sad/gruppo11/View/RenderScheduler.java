@@ -0,0 +1,92 @@
+package sad.gruppo11.View;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accorpa le richieste di ridisegno: requestRender() segna solo la vista come "sporca"
+ * (da qualunque thread) e un AnimationTimer esegue al più un render per pulse JavaFX.
+ * I contatori di richieste e render eseguiti permettono di verificare l'accorpamento.
+ */
+public class RenderScheduler {
+    private final Runnable renderAction;
+    private volatile Runnable preRenderAction; // Eseguita a ogni pulse prima del render (es. input accorpato)
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicLong requestedRenders = new AtomicLong();
+    private final AtomicLong performedRenders = new AtomicLong();
+    private AnimationTimer timer; // Creato in start(): richiede il toolkit JavaFX
+
+    public RenderScheduler(Runnable renderAction) {
+        this.renderAction = Objects.requireNonNull(renderAction, "Render action cannot be null for RenderScheduler.");
+    }
+
+    /** Avvia il timer sul thread JavaFX. */
+    public void start() {
+        if (timer == null) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    pulse();
+                }
+            };
+        }
+        timer.start();
+    }
+
+    public void stop() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Imposta un'azione eseguita a ogni pulse, prima dell'eventuale render; null la rimuove.
+     */
+    public void setPreRenderAction(Runnable action) {
+        this.preRenderAction = action;
+    }
+
+    /** Segna la vista da ridisegnare al prossimo pulse. Thread-safe ed economico. */
+    public void requestRender() {
+        requestedRenders.incrementAndGet();
+        dirty.set(true);
+    }
+
+    /**
+     * Esegue il render se richiesto dall'ultimo pulse. Chiamato dal timer sul thread JavaFX;
+     * package-private per i test.
+     * @return true se è stato eseguito un render.
+     */
+    boolean pulse() {
+        Runnable beforeRender = preRenderAction;
+        if (beforeRender != null) {
+            beforeRender.run(); // Può richiedere un render, servito in questo stesso pulse
+        }
+        if (!dirty.getAndSet(false)) {
+            return false;
+        }
+        performedRenders.incrementAndGet();
+        renderAction.run();
+        return true;
+    }
+
+    public boolean isRenderPending() {
+        return dirty.get();
+    }
+
+    public long getRequestedRenderCount() {
+        return requestedRenders.get();
+    }
+
+    public long getPerformedRenderCount() {
+        return performedRenders.get();
+    }
+
+    public void resetCounters() {
+        requestedRenders.set(0);
+        performedRenders.set(0);
+    }
+}
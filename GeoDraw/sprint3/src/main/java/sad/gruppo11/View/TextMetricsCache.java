@@ -0,0 +1,131 @@
+package sad.gruppo11.View;
+
+import javafx.geometry.Bounds;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache LRU limitata delle misure del testo usate dal renderer: per ogni combinazione
+ * (testo, font, dimensione base) conserva il Font e i bounds naturali del layout,
+ * evitando di creare un nodo Text e un Font a ogni frame per ogni TextShape.
+ * Usata dal thread JavaFX: non è thread-safe.
+ */
+public class TextMetricsCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Font e dimensioni naturali di un testo (bounds del layout con il font alla dimensione base). */
+    public static final class TextMetrics {
+        public final Font font;
+        public final double minX;
+        public final double minY;
+        public final double width;
+        public final double height;
+
+        public TextMetrics(Font font, double minX, double minY, double width, double height) {
+            this.font = font;
+            this.minX = minX;
+            this.minY = minY;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final class Key {
+        final String text;
+        final String fontName;
+        final double fontSize;
+
+        Key(String text, String fontName, double fontSize) {
+            this.text = text;
+            this.fontName = fontName;
+            this.fontSize = fontSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Double.compare(key.fontSize, fontSize) == 0 &&
+                   text.equals(key.text) &&
+                   Objects.equals(fontName, key.fontName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, fontName, fontSize);
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, TextMetrics> entries;
+    private long hits;
+    private long misses;
+
+    public TextMetricsCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TextMetricsCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        // accessOrder = true: l'iterazione parte dalla voce usata meno di recente
+        this.entries = new LinkedHashMap<Key, TextMetrics>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TextMetrics> eldest) {
+                return size() > TextMetricsCache.this.capacity;
+            }
+        };
+    }
+
+    /** Restituisce le misure del testo, calcolandole solo se non sono già in cache. */
+    public TextMetrics get(String text, String fontName, double baseFontSize) {
+        Objects.requireNonNull(text, "Text cannot be null for TextMetricsCache.");
+        Key key = new Key(text, fontName, baseFontSize);
+        TextMetrics metrics = entries.get(key);
+        if (metrics != null) {
+            hits++;
+            return metrics;
+        }
+        misses++;
+        metrics = measure(text, fontName, baseFontSize);
+        entries.put(key, metrics);
+        return metrics;
+    }
+
+    /** Misura effettiva con un nodo Text; package-private per poterla sostituire nei test. */
+    TextMetrics measure(String text, String fontName, double baseFontSize) {
+        Font font = Font.font(fontName, baseFontSize);
+        Text textNode = new Text(text);
+        textNode.setFont(font);
+        Bounds layout = textNode.getLayoutBounds();
+        return new TextMetrics(font, layout.getMinX(), layout.getMinY(), layout.getWidth(), layout.getHeight());
+    }
+
+    public long getHitCount() { return hits; }
+    public long getMissCount() { return misses; }
+
+    /** Frazione delle richieste servite dalla cache (0 se non ci sono state richieste). */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public int size() { return entries.size(); }
+    public int getCapacity() { return capacity; }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
@@ -137,7 +137,7 @@ class GeoEngineTest_Part1 {
     @Test
     void setState_validToolName_shouldChangeCurrentStateAndNotify() {
         // Ignora notifiche di setup
-        clearInvocations(mockObserver);
+        clearInvocations(mockObserver, mockCmdMgr);
 
         geoEngine.setState("LineTool");
 
@@ -163,6 +163,7 @@ class GeoEngineTest_Part1 {
         }
         assertTrue(selectionClearedNotified, "Observer should be notified of selection change (clear).");
         assertTrue(toolChangedNotified, "Observer should be notified of tool change.");
+        verify(mockCmdMgr).breakMerge();
     }
 
     @Test
@@ -173,12 +174,13 @@ class GeoEngineTest_Part1 {
     @Test
     void setState_toSameTool_shouldDoNothing() {
         String currentTool = geoEngine.getCurrentToolName(); // Should be "SelectTool"
-        clearInvocations(mockObserver); // Clear previous notifications
+        clearInvocations(mockObserver, mockCmdMgr); // Clear previous notifications
 
         geoEngine.setState(currentTool); // Set to the same tool
 
         assertEquals(currentTool, geoEngine.getCurrentToolName());
         verify(mockObserver, never()).update(any(), any()); // No notifications if state doesn't change
+        verify(mockCmdMgr, never()).breakMerge();
         // Also, activate/deactivate on the state should not be called again. Harder to verify without spies.
     }
 
@@ -212,7 +214,7 @@ class GeoEngineTest_Part1 {
             .anyMatch(e -> e.type == Drawing.DrawingChangeEvent.ChangeType.SELECTION);
         assertTrue(selectionEventFound, "Selection change event should be notified.");
         
-        verify(mockView, atLeastOnce()).render(); // Should trigger a render
+        verify(mockView, atLeastOnce()).requestRender(); // Should trigger a render
     }
     
     @Test
@@ -230,7 +232,7 @@ class GeoEngineTest_Part1 {
             .map(e -> (Drawing.DrawingChangeEvent)e)
             .anyMatch(e -> e.type == Drawing.DrawingChangeEvent.ChangeType.SELECTION);
         assertTrue(selectionEventFound);
-        verify(mockView, atLeastOnce()).render();
+        verify(mockView, atLeastOnce()).requestRender();
     }
 
     @Test
@@ -249,7 +251,7 @@ class GeoEngineTest_Part1 {
             .map(e -> (Drawing.DrawingChangeEvent)e)
             .anyMatch(e -> e.type == Drawing.DrawingChangeEvent.ChangeType.SELECTION);
         assertTrue(selectionEventFound);
-        verify(mockView, atLeastOnce()).render();
+        verify(mockView, atLeastOnce()).requestRender();
     }
 
     @Test
@@ -261,7 +263,7 @@ class GeoEngineTest_Part1 {
 
         assertTrue(geoEngine.getSelectedShapes().isEmpty());
         verify(mockObserver, never()).update(eq(geoEngine), any(Drawing.DrawingChangeEvent.class));
-        verify(mockView, never()).render();
+        verify(mockView, never()).requestRender();
     }
 
     @Test
@@ -280,7 +282,7 @@ class GeoEngineTest_Part1 {
             .map(e -> (Drawing.DrawingChangeEvent)e)
             .anyMatch(e -> e.type == Drawing.DrawingChangeEvent.ChangeType.SELECTION);
         assertTrue(selectionEventFound);
-        verify(mockView, atLeastOnce()).render();
+        verify(mockView, atLeastOnce()).requestRender();
     }
 
     @Test
@@ -292,7 +294,7 @@ class GeoEngineTest_Part1 {
 
         assertEquals(1, geoEngine.getSelectedShapes().size());
         verify(mockObserver, never()).update(eq(geoEngine), any(Drawing.DrawingChangeEvent.class));
-        verify(mockView, never()).render();
+        verify(mockView, never()).requestRender();
     }
     
     @Test
@@ -317,7 +319,7 @@ class GeoEngineTest_Part1 {
             .map(e -> (Drawing.DrawingChangeEvent)e)
             .anyMatch(e -> e.type == Drawing.DrawingChangeEvent.ChangeType.SELECTION);
         assertTrue(selectionEventFound);
-        verify(mockView, atLeastOnce()).render();
+        verify(mockView, atLeastOnce()).requestRender();
     }
 
     @Test
@@ -335,7 +337,7 @@ class GeoEngineTest_Part1 {
             .map(e -> (Drawing.DrawingChangeEvent)e)
             .anyMatch(e -> e.type == Drawing.DrawingChangeEvent.ChangeType.SELECTION);
         assertTrue(selectionEventFound);
-        verify(mockView, atLeastOnce()).render();
+        verify(mockView, atLeastOnce()).requestRender();
     }
 
     // Test mouse event delegation to current tool state
@@ -84,7 +84,7 @@ class GeoEngineTest_Part2 {
     }
 
     @Test
-    void removeSelectedShapesFromDrawing_withSelection_shouldExecuteDeleteShapeCommandsAndClearSelection() {
+    void removeSelectedShapesFromDrawing_withSelection_shouldExecuteDeleteShapesCommandAndClearSelection() {
         Shape mockShape2 = new LineSegment(new Point2D(10,10), new Point2D(11,11), ColorData.BLUE);
         List<Shape> selection = new ArrayList<>(Arrays.asList(mockShape1, mockShape2));
         geoEngine.setSelectedShapes(selection); // Imposta la selezione
@@ -92,13 +92,8 @@ class GeoEngineTest_Part2 {
 
         geoEngine.removeSelectedShapesFromDrawing();
 
-        ArgumentCaptor<Command> commandCaptor = ArgumentCaptor.forClass(Command.class);
-        verify(mockCmdMgr, times(2)).executeCommand(commandCaptor.capture());
-        List<Command> executedCommands = commandCaptor.getAllValues();
-        assertTrue(executedCommands.get(0) instanceof DeleteShapeCommand);
-        assertTrue(executedCommands.get(1) instanceof DeleteShapeCommand);
-        // Verificare che i comandi contengano le shape corrette sarebbe più robusto,
-        // ma richiederebbe che DeleteShapeCommand esponga la shape.
+        verify(mockCmdMgr, times(1)).executeCommand(any(DeleteShapesCommand.class)); // Un solo passo di undo
+        verify(mockCmdMgr, never()).executeCommand(any(DeleteShapeCommand.class));
 
         assertTrue(geoEngine.getSelectedShapes().isEmpty(), "Selection should be cleared after deleting shapes.");
         verify(mockObserver, atLeastOnce()).update(eq(geoEngine), any(Drawing.DrawingChangeEvent.class)); // Notifica per cambio selezione
@@ -138,13 +133,41 @@ class GeoEngineTest_Part2 {
 
         geoEngine.moveSelectedShapes(delta);
 
-        ArgumentCaptor<Command> commandCaptor = ArgumentCaptor.forClass(Command.class);
-        verify(mockCmdMgr, times(2)).executeCommand(commandCaptor.capture());
-        assertTrue(commandCaptor.getAllValues().get(0) instanceof MoveShapeCommand);
-        assertTrue(commandCaptor.getAllValues().get(1) instanceof MoveShapeCommand);
-        // Qui potremmo anche verificare che i MoveShapeCommand abbiano il delta corretto
+        ArgumentCaptor<CompositeCommand> commandCaptor = ArgumentCaptor.forClass(CompositeCommand.class);
+        verify(mockCmdMgr, times(1)).executeCommand(commandCaptor.capture());
+        List<Command> moves = commandCaptor.getValue().getCommands();
+        assertEquals(2, moves.size());
+        assertTrue(moves.get(0) instanceof MoveShapeCommand);
+        assertTrue(moves.get(1) instanceof MoveShapeCommand);
+    }
+
+    @Test
+    void moveSelectedShapes_singleSelection_shouldExecuteMoveCommandDirectly() {
+        geoEngine.setSingleSelectedShape(mockShape1);
+
+        geoEngine.moveSelectedShapes(new Vector2D(5,5));
+
+        // Senza CompositeCommand il comando resta unibile con gli spostamenti successivi
+        verify(mockCmdMgr, times(1)).executeCommand(any(MoveShapeCommand.class));
+        verify(mockCmdMgr, never()).executeCommand(any(CompositeCommand.class));
     }
     
+    @Test
+    void moveSelectedShapes_withSelection_shouldRunCommandsInsideOneDrawingBatch() {
+        Shape mockShape2 = new LineSegment(new Point2D(10,10), new Point2D(11,11), ColorData.BLUE);
+        geoEngine.setSelectedShapes(Arrays.asList(mockShape1, mockShape2));
+
+        geoEngine.moveSelectedShapes(new Vector2D(5,5));
+        ArgumentCaptor<CompositeCommand> commandCaptor = ArgumentCaptor.forClass(CompositeCommand.class);
+        verify(mockCmdMgr).executeCommand(commandCaptor.capture());
+        commandCaptor.getValue().execute(); // Il CommandManager è un mock: eseguiamo il macro comando a mano
+
+        org.mockito.InOrder inOrder = inOrder(mockDrawing);
+        inOrder.verify(mockDrawing).beginBatch();
+        inOrder.verify(mockDrawing, times(2)).moveShape(any(Shape.class), eq(new Vector2D(5,5)));
+        inOrder.verify(mockDrawing).commitBatch();
+    }
+
     @Test
     void moveSelectedShapes_withNullDelta_shouldDoNothing() {
         geoEngine.setSelectedShapes(Arrays.asList(mockShape1));
@@ -259,6 +282,19 @@ class GeoEngineTest_Part2 {
         ));
     }
 
+    @Test
+    void undoLastCommand_shouldDeselectOnlyShapesNoLongerInDrawing() {
+        Shape stillPresent = new LineSegment(new Point2D(5,5), new Point2D(6,6), ColorData.BLACK);
+        geoEngine.setSelectedShapes(Arrays.asList(mockShape1, stillPresent));
+        when(mockDrawing.containsShape(stillPresent)).thenReturn(true);
+
+        geoEngine.undoLastCommand();
+
+        assertEquals(Collections.singletonList(stillPresent), geoEngine.getSelectedShapes());
+        assertFalse(geoEngine.isSelected(mockShape1));
+        verify(mockDrawing, never()).getModifiableShapesList();
+    }
+
     @Test
     void redoLastCommand_shouldCallRedoOnCmdMgrAndNotify() {
         geoEngine.redoLastCommand();
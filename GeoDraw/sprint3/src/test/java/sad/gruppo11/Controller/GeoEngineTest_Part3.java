@@ -195,12 +195,12 @@ class GeoEngineTest_Part3 {
 
         geoEngine.reflectSelectedShapesHorizontal();
 
-        ArgumentCaptor<Command> commandCaptor = ArgumentCaptor.forClass(Command.class);
-        verify(mockCmdMgr, times(2)).executeCommand(commandCaptor.capture());
-        List<Command> executedCommands = commandCaptor.getAllValues();
+        ArgumentCaptor<CompositeCommand> commandCaptor = ArgumentCaptor.forClass(CompositeCommand.class);
+        verify(mockCmdMgr, times(1)).executeCommand(commandCaptor.capture());
+        List<Command> executedCommands = commandCaptor.getValue().getCommands();
+        assertEquals(2, executedCommands.size());
         assertTrue(executedCommands.get(0) instanceof ReflectHorizontalCommand);
         assertTrue(executedCommands.get(1) instanceof ReflectHorizontalCommand);
-        // Further checks could verify the correct shapes were in the commands.
     }
 
     @Test
@@ -217,9 +217,10 @@ class GeoEngineTest_Part3 {
 
         geoEngine.reflectSelectedShapesVertical();
 
-        ArgumentCaptor<Command> commandCaptor = ArgumentCaptor.forClass(Command.class);
-        verify(mockCmdMgr, times(2)).executeCommand(commandCaptor.capture());
-        List<Command> executedCommands = commandCaptor.getAllValues();
+        ArgumentCaptor<CompositeCommand> commandCaptor = ArgumentCaptor.forClass(CompositeCommand.class);
+        verify(mockCmdMgr, times(1)).executeCommand(commandCaptor.capture());
+        List<Command> executedCommands = commandCaptor.getValue().getCommands();
+        assertEquals(2, executedCommands.size());
         assertTrue(executedCommands.get(0) instanceof ReflectVerticalCommand);
         assertTrue(executedCommands.get(1) instanceof ReflectVerticalCommand);
     }
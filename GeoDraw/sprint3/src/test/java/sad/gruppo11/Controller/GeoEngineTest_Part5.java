@@ -22,10 +22,13 @@ import sad.gruppo11.Model.Shape;
 import sad.gruppo11.Model.LineSegment;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Persistence.AsyncDrawingLoader;
+import sad.gruppo11.Persistence.AsyncDrawingSaver;
 import sad.gruppo11.Persistence.PersistenceController;
 import sad.gruppo11.View.DrawingView;
 import sad.gruppo11.View.Observer;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -64,36 +67,25 @@ class GeoEngineTest_Part5 {
     // --- Persistence Tests ---
 
     @Test
+    @SuppressWarnings("unchecked")
     void loadDrawing_validPath_shouldUpdateDrawingAndResetStates() throws Exception {
         String path = "test_load.ser";
         Drawing loadedDrawing = new Drawing(); // Un nuovo Drawing che verrà "caricato"
         Shape shapeInLoadedDrawing = new LineSegment(new Point2D(5,5), new Point2D(6,6), ColorData.BLUE);
         loadedDrawing.addShape(shapeInLoadedDrawing); // Aggiungi una forma al disegno caricato
         
-        // Configura mockDrawing (quello dentro GeoEngine) per spiare le chiamate
-        // In realtà, GeoEngine ottiene le forme da loadedDrawing e le aggiunge al suo mockDrawing.
         when(mockPersistenceCtrl.loadDrawing(path)).thenReturn(loadedDrawing);
-        // Per cloneWithNewId
-        Shape clonedShape = new LineSegment(new Point2D(5,5), new Point2D(6,6), ColorData.BLUE);
-        // when(shapeInLoadedDrawing.cloneWithNewId()).thenReturn(clonedShape);
-
 
         geoEngine.loadDrawing(path);
 
         verify(mockPersistenceCtrl, times(1)).loadDrawing(path);
-        // Verifica che il disegno interno di GeoEngine sia stato pulito e le nuove forme aggiunte
-        verify(mockDrawing, times(1)).clear();
-        ArgumentCaptor<Shape> shapeCaptor = ArgumentCaptor.forClass(Shape.class);
-        verify(mockDrawing, times(1)).addShape(shapeCaptor.capture());
-        Shape addedShape = shapeCaptor.getValue();
-        // Verifica che le proprietà siano uguali tranne l'id
-        assertTrue(addedShape instanceof LineSegment);
-        LineSegment addedLine = (LineSegment) addedShape;
-        assertEquals(new Point2D(5,5), addedLine.getStartPoint());
-        assertEquals(new Point2D(6,6), addedLine.getEndPoint());
-        assertEquals(ColorData.BLUE, addedLine.getStrokeColor());
-        // L'id deve essere diverso (cloneWithNewId)
-        assertNotEquals(shapeInLoadedDrawing.getId(), addedLine.getId());
+        // Le forme caricate vengono passate al disegno di GeoEngine in blocco, senza essere copiate
+        ArgumentCaptor<List<Shape>> shapesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockDrawing, times(1)).replaceAll(shapesCaptor.capture());
+        assertEquals(1, shapesCaptor.getValue().size());
+        assertSame(shapeInLoadedDrawing, shapesCaptor.getValue().get(0));
+        verify(mockDrawing, never()).clear();
+        verify(mockDrawing, never()).addShape(any(Shape.class));
 
         verify(mockCmdMgr, times(1)).clearStacks();
         assertTrue(geoEngine.getSelectedShapes().isEmpty(), "Selection should be cleared after load.");
@@ -105,14 +97,6 @@ class GeoEngineTest_Part5 {
         boolean loadEventFoundForGeoEngine = eventCaptor.getAllValues().stream()
             .anyMatch(e -> e instanceof Drawing.DrawingChangeEvent && ((Drawing.DrawingChangeEvent)e).type == Drawing.DrawingChangeEvent.ChangeType.LOAD);
         assertTrue(loadEventFoundForGeoEngine, "GeoEngine observers should be notified of LOAD event.");
-
-        // Il Drawing originale (mockDrawing) dovrebbe anche notificare i suoi observer (se GeoEngine lo fa propagare)
-        // La notifica Drawing.notifyObservers è chiamata da Drawing.addShape/clear, quindi dovrebbe avvenire.
-        // GeoEngine.loadDrawing chiama this.getDrawing().notifyObservers(...)
-        verify(mockDrawing, times(1)).notifyObservers(argThat(arg -> 
-            arg instanceof Drawing.DrawingChangeEvent && 
-            ((Drawing.DrawingChangeEvent)arg).type == Drawing.DrawingChangeEvent.ChangeType.LOAD
-        ));
     }
     
     @Test
@@ -123,8 +107,204 @@ class GeoEngineTest_Part5 {
         geoEngine.loadDrawing(path);
         
         verify(mockDrawing, never()).clear();
-        verify(mockDrawing, never()).addShape(any(Shape.class));
+        verify(mockDrawing, never()).replaceAll(any());
+        verify(mockCmdMgr, never()).clearStacks();
+    }
+
+    @Test
+    void saveDrawing_shouldSaveSnapshotInBackgroundAndForwardEvents() throws Exception {
+        String path = "test_save.gdraw";
+        Drawing snapshot = new Drawing();
+        when(mockDrawing.snapshot()).thenReturn(snapshot);
+        clearInvocations(mockObserver);
+
+        geoEngine.saveDrawing(path);
+
+        ArgumentCaptor<AsyncDrawingSaver.Listener> listenerCaptor = ArgumentCaptor.forClass(AsyncDrawingSaver.Listener.class);
+        verify(mockPersistenceCtrl).saveDrawingAsync(same(snapshot), eq(path), listenerCaptor.capture());
+        verify(mockPersistenceCtrl, never()).saveDrawing(any(), any());
+
+        AsyncDrawingSaver.Listener listener = listenerCaptor.getValue();
+        listener.onProgress(path, 0.5);
+        listener.onCompleted(path);
+
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockObserver, times(3)).update(eq(geoEngine), eventCaptor.capture());
+        List<SaveProgressEvent.Status> statuses = new ArrayList<>();
+        for (Object e : eventCaptor.getAllValues()) statuses.add(((SaveProgressEvent) e).status);
+        assertEquals(Arrays.asList(SaveProgressEvent.Status.STARTED, SaveProgressEvent.Status.PROGRESS,
+                                   SaveProgressEvent.Status.COMPLETED), statuses);
+        assertEquals(0.5, ((SaveProgressEvent) eventCaptor.getAllValues().get(1)).progress);
+    }
+
+    @Test
+    void saveDrawing_shouldNotifyObserversOnUiExecutor() {
+        String path = "test_save.gdraw";
+        List<Runnable> uiQueue = new ArrayList<>();
+        geoEngine.setUiExecutor(uiQueue::add);
+        when(mockDrawing.snapshot()).thenReturn(new Drawing());
+
+        geoEngine.saveDrawing(path);
+        ArgumentCaptor<AsyncDrawingSaver.Listener> listenerCaptor = ArgumentCaptor.forClass(AsyncDrawingSaver.Listener.class);
+        verify(mockPersistenceCtrl).saveDrawingAsync(any(), eq(path), listenerCaptor.capture());
+        clearInvocations(mockObserver);
+
+        // Callback dal thread di salvataggio: nessuna notifica finché la UI non esegue la coda
+        listenerCaptor.getValue().onProgress(path, 0.5);
+        listenerCaptor.getValue().onFailed(path, new IOException("disk full"));
+        verifyNoInteractions(mockObserver);
+        assertEquals(2, uiQueue.size());
+
+        uiQueue.forEach(Runnable::run);
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockObserver, times(2)).update(eq(geoEngine), eventCaptor.capture());
+        assertEquals(SaveProgressEvent.Status.FAILED, ((SaveProgressEvent) eventCaptor.getAllValues().get(1)).status);
+    }
+
+    @Test
+    void saveDrawing_newSaveShouldCancelRunningOne() {
+        AsyncDrawingSaver.SaveTask running = mock(AsyncDrawingSaver.SaveTask.class);
+        when(mockDrawing.snapshot()).thenReturn(new Drawing());
+        when(mockPersistenceCtrl.saveDrawingAsync(any(), eq("a.gdraw"), any())).thenReturn(running);
+
+        geoEngine.saveDrawing("a.gdraw");
+        assertTrue(geoEngine.isSaving());
+        geoEngine.saveDrawing("b.gdraw");
+
+        verify(running).cancel();
+    }
+
+    @Test
+    void saveDrawing_invalidPath_shouldThrow() {
+        assertThrows(NullPointerException.class, () -> geoEngine.saveDrawing(null));
+        assertThrows(IllegalArgumentException.class, () -> geoEngine.saveDrawing(""));
+        verifyNoInteractions(mockPersistenceCtrl);
+    }
+
+    @Test
+    void loadDrawingAsync_shouldReplaceDrawingAndAddBatchesOnUiExecutor() {
+        String path = "big.gdraw";
+        List<Runnable> uiQueue = new ArrayList<>();
+        geoEngine.setUiExecutor(uiQueue::add);
+        clearInvocations(mockObserver);
+
+        geoEngine.loadDrawingAsync(path);
+
+        ArgumentCaptor<AsyncDrawingLoader.Listener> listenerCaptor = ArgumentCaptor.forClass(AsyncDrawingLoader.Listener.class);
+        verify(mockPersistenceCtrl).loadDrawingAsync(eq(path), listenerCaptor.capture());
+        AsyncDrawingLoader.Listener listener = listenerCaptor.getValue();
+
+        List<Shape> first = Arrays.asList(mockShape1);
+        List<Shape> second = Arrays.asList(new LineSegment(new Point2D(2, 2), new Point2D(3, 3), ColorData.BLACK));
+        listener.onShapes(path, first, 0.5);
+        listener.onShapes(path, second, 1.0);
+        listener.onCompleted(path, 2);
+        verify(mockDrawing, never()).replaceAll(any()); // Non ancora eseguito sul thread della UI
         verify(mockCmdMgr, never()).clearStacks();
+
+        uiQueue.forEach(Runnable::run);
+
+        verify(mockCmdMgr).clearStacks();
+        verify(mockDrawing).replaceAll(first);
+        verify(mockDrawing).addShapes(second);
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockObserver, atLeastOnce()).update(eq(geoEngine), eventCaptor.capture());
+        List<Object> events = eventCaptor.getAllValues();
+        LoadProgressEvent last = (LoadProgressEvent) events.get(events.size() - 1);
+        assertEquals(LoadProgressEvent.Status.COMPLETED, last.status);
+        assertEquals(2, last.loadedShapes);
+        assertTrue(events.stream().anyMatch(e -> e instanceof LoadProgressEvent
+            && ((LoadProgressEvent) e).status == LoadProgressEvent.Status.PROGRESS && ((LoadProgressEvent) e).progress == 0.5));
+        assertTrue(events.stream().anyMatch(e -> e instanceof Drawing.DrawingChangeEvent
+            && ((Drawing.DrawingChangeEvent) e).type == Drawing.DrawingChangeEvent.ChangeType.LOAD));
+    }
+
+    @Test
+    void loadDrawingAsync_failureBeforeFirstBatch_shouldKeepCurrentDrawing() {
+        String path = "corrupt.gdraw";
+        geoEngine.setSelectedShapes(Arrays.asList(mockShape1));
+        clearInvocations(mockDrawing, mockCmdMgr, mockObserver);
+
+        geoEngine.loadDrawingAsync(path);
+        ArgumentCaptor<AsyncDrawingLoader.Listener> listenerCaptor = ArgumentCaptor.forClass(AsyncDrawingLoader.Listener.class);
+        verify(mockPersistenceCtrl).loadDrawingAsync(eq(path), listenerCaptor.capture());
+        listenerCaptor.getValue().onFailed(path, new IOException("Not a GeoDraw file"));
+
+        verify(mockDrawing, never()).replaceAll(any());
+        verify(mockDrawing, never()).clear();
+        verify(mockCmdMgr, never()).clearStacks();
+        assertEquals(Arrays.asList(mockShape1), geoEngine.getSelectedShapes());
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockObserver, atLeastOnce()).update(eq(geoEngine), eventCaptor.capture());
+        List<Object> events = eventCaptor.getAllValues();
+        assertEquals(LoadProgressEvent.Status.FAILED, ((LoadProgressEvent) events.get(events.size() - 1)).status);
+    }
+
+    @Test
+    void loadDrawingAsync_emptyFile_shouldClearDrawingOnCompletion() {
+        geoEngine.loadDrawingAsync("empty.gdraw");
+        ArgumentCaptor<AsyncDrawingLoader.Listener> listenerCaptor = ArgumentCaptor.forClass(AsyncDrawingLoader.Listener.class);
+        verify(mockPersistenceCtrl).loadDrawingAsync(eq("empty.gdraw"), listenerCaptor.capture());
+        verify(mockDrawing, never()).replaceAll(any());
+
+        listenerCaptor.getValue().onCompleted("empty.gdraw", 0);
+
+        verify(mockCmdMgr).clearStacks();
+        verify(mockDrawing).replaceAll(argThat(List::isEmpty));
+    }
+
+    @Test
+    void loadDrawingAsync_batchesAfterCancelShouldBeIgnored() {
+        AsyncDrawingLoader.LoadTask task = mock(AsyncDrawingLoader.LoadTask.class);
+        when(mockPersistenceCtrl.loadDrawingAsync(eq("a.gdraw"), any())).thenReturn(task);
+        geoEngine.loadDrawingAsync("a.gdraw");
+        ArgumentCaptor<AsyncDrawingLoader.Listener> listenerCaptor = ArgumentCaptor.forClass(AsyncDrawingLoader.Listener.class);
+        verify(mockPersistenceCtrl).loadDrawingAsync(eq("a.gdraw"), listenerCaptor.capture());
+        assertTrue(geoEngine.isLoading());
+
+        geoEngine.cancelLoad();
+        verify(task).cancel();
+        when(task.isCancelled()).thenReturn(true);
+        listenerCaptor.getValue().onShapes("a.gdraw", Arrays.asList(mockShape1), 0.2);
+
+        verify(mockDrawing, never()).addShapes(any());
+    }
+
+    @Test
+    void createNewDrawing_duringAsyncLoad_shouldCancelLoadAndIgnoreLateBatches() {
+        AsyncDrawingLoader.LoadTask task = mock(AsyncDrawingLoader.LoadTask.class);
+        when(mockPersistenceCtrl.loadDrawingAsync(eq("old.gdraw"), any())).thenReturn(task);
+        doAnswer(inv -> { when(task.isCancelled()).thenReturn(true); return null; }).when(task).cancel();
+        geoEngine.loadDrawingAsync("old.gdraw");
+        ArgumentCaptor<AsyncDrawingLoader.Listener> listenerCaptor = ArgumentCaptor.forClass(AsyncDrawingLoader.Listener.class);
+        verify(mockPersistenceCtrl).loadDrawingAsync(eq("old.gdraw"), listenerCaptor.capture());
+
+        geoEngine.createNewDrawing();
+        verify(task).cancel();
+        clearInvocations(mockDrawing, mockCmdMgr, mockObserver);
+
+        // Blocchi e completamento già in coda dal thread di caricamento
+        listenerCaptor.getValue().onShapes("old.gdraw", Arrays.asList(mockShape1), 1.0);
+        listenerCaptor.getValue().onCompleted("old.gdraw", 1);
+
+        verify(mockDrawing, never()).addShapes(any());
+        verify(mockDrawing, never()).replaceAll(any());
+        verify(mockCmdMgr, never()).clearStacks();
+        // Niente LOAD/COMPLETED (che rinominerebbero la finestra col vecchio file): solo l'annullamento
+        ArgumentCaptor<Object> eventCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(mockObserver).update(eq(geoEngine), eventCaptor.capture());
+        assertEquals(LoadProgressEvent.Status.CANCELLED, ((LoadProgressEvent) eventCaptor.getValue()).status);
+    }
+
+    @Test
+    void loadDrawing_duringAsyncLoad_shouldCancelIt() throws Exception {
+        AsyncDrawingLoader.LoadTask task = mock(AsyncDrawingLoader.LoadTask.class);
+        when(mockPersistenceCtrl.loadDrawingAsync(eq("big.gdraw"), any())).thenReturn(task);
+        geoEngine.loadDrawingAsync("big.gdraw");
+
+        geoEngine.loadDrawing("small.ser");
+
+        verify(task).cancel();
     }
 
     @Test
@@ -358,7 +538,7 @@ class GeoEngineTest_Part5 {
         ArgumentCaptor<Drawing.DrawingChangeEvent> eventCaptor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
         verify(mockObserver, times(1)).update(eq(geoEngine), eventCaptor.capture());
         assertEquals(Drawing.DrawingChangeEvent.ChangeType.TRANSFORM, eventCaptor.getValue().type);
-        verify(mockView, times(1)).render();
+        verify(mockView, times(1)).requestRender();
     }
     
     @Test
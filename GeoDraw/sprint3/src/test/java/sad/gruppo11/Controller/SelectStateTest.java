@@ -82,6 +82,32 @@ class SelectStateTest {
 
         List<Shape> shapesInZOrder = new ArrayList<>(Arrays.asList(mockShape1, mockShape2, mockGroup));
         when(mockDrawing.getShapesInZOrder()).thenReturn(shapesInZOrder);
+        // Le query spaziali del Drawing vengono simulate con una scansione lineare della lista corrente
+        when(mockDrawing.shapesAt(any(Point2D.class))).thenAnswer(inv -> {
+            Point2D p = inv.getArgument(0);
+            List<Shape> hits = new ArrayList<>();
+            for (Shape s : mockDrawing.getShapesInZOrder()) {
+                if (s.contains(p)) hits.add(s);
+            }
+            return hits;
+        });
+        when(mockDrawing.getTopLevelShape(any(Shape.class))).thenAnswer(inv -> {
+            Shape shape = inv.getArgument(0);
+            for (Shape top : mockDrawing.getShapesInZOrder()) {
+                if (top == shape || (top.isComposite() && top.getChildren().contains(shape))) return top;
+            }
+            return shape;
+        });
+        when(mockDrawing.shapesIntersecting(any(Rect.class))).thenAnswer(inv -> {
+            Rect area = inv.getArgument(0);
+            List<Shape> hits = new ArrayList<>();
+            for (Shape s : mockDrawing.getShapesInZOrder()) {
+                Rect b = s.getBounds();
+                if (b.getX() < area.getRight() && b.getRight() > area.getX() &&
+                    b.getY() < area.getBottom() && b.getBottom() > area.getY()) hits.add(s);
+            }
+            return hits;
+        });
 
         // Ora lo stubbing su spy dovrebbe funzionare
         when(mockShape1.contains(p_onShape1)).thenReturn(true);
@@ -267,25 +293,23 @@ class SelectStateTest {
 
 
     @Test
-    void onMouseDragged_inDragSelectionMode_movesShapesInView() {
+    void onMouseDragged_inDragSelectionMode_showsPreviewWithoutMovingShapes() {
         // Setup: shape1 is selected and pressed on
         when(mockGeoEngine.getSelectedShapes()).thenReturn(Arrays.asList(mockShape1));
         selectState.onMousePressed(mockGeoEngine, p_onShape1); // Sets mode to DRAG_SELECTION, prepares shapesBeingDragged
-        clearInvocations(mockGeoEngine, mockShape1); // Clear press interactions
+        clearInvocations(mockGeoEngine, mockShape1, mockDrawingView); // Clear press interactions
 
-        Vector2D dragDelta = new Vector2D(p_dragEnd.getX() - p_onShape1.getX(), p_dragEnd.getY() - p_onShape1.getY());
-        // selectState.onMouseDragged will use (currentWorldPoint - lastDragPosWorld)
-        // First drag: lastDragPosWorld is pressPosWorld (p_onShape1)
-        
+        Point2D p_further = new Point2D(p_dragEnd.getX() + 5, p_dragEnd.getY() + 5);
         selectState.onMouseDragged(mockGeoEngine, p_dragEnd);
-
-        // Verify shape.move() was called on the shape being dragged for visual feedback
-        // The actual delta passed to shape.move would be (p_dragEnd - p_onShape1)
-        ArgumentCaptor<Vector2D> moveCaptor = ArgumentCaptor.forClass(Vector2D.class);
-        verify(mockDrawing, times(1)).moveShape(eq(mockShape1), moveCaptor.capture());
-        assertEquals(p_dragEnd.getX() - p_onShape1.getX(), moveCaptor.getValue().getDx(), 0.001);
-        assertEquals(p_dragEnd.getY() - p_onShape1.getY(), moveCaptor.getValue().getDy(), 0.001);
-        
+        selectState.onMouseDragged(mockGeoEngine, p_further);
+
+        // L'anteprima riceve lo spostamento totale dal press; il modello non viene toccato
+        ArgumentCaptor<Vector2D> offsetCaptor = ArgumentCaptor.forClass(Vector2D.class);
+        verify(mockDrawingView, times(2)).setDragPreview(eq(Arrays.asList(mockShape1)), offsetCaptor.capture());
+        assertEquals(p_further.getX() - p_onShape1.getX(), offsetCaptor.getValue().getDx(), 0.001);
+        assertEquals(p_further.getY() - p_onShape1.getY(), offsetCaptor.getValue().getDy(), 0.001);
+        verify(mockDrawing, never()).moveShape(any(Shape.class), any(Vector2D.class));
+        verify(mockShape1, never()).move(any(Vector2D.class));
     }
 
     @Test
@@ -330,23 +354,22 @@ class SelectStateTest {
         selectState.onMouseDragged(mockGeoEngine, p_dragEnd); // Visual drag
         clearInvocations(mockGeoEngine, mockShape1, mockCommandManager); // Clear drag interactions
 
-        // Before releasing, shape1 has been visually moved to p_dragEnd's relative position
-        // We need to account for the visual move being undone before command
         Vector2D totalDragVector = new Vector2D(p_dragEnd.getX() - p_onShape1.getX(), p_dragEnd.getY() - p_onShape1.getY());
 
         selectState.onMouseReleased(mockGeoEngine, p_dragEnd);
         
-        // 1. Verify visual move is undone
-        ArgumentCaptor<Vector2D> undoVisualMoveCaptor = ArgumentCaptor.forClass(Vector2D.class);
-        verify(mockShape1, times(1)).move(undoVisualMoveCaptor.capture());
-        assertEquals(-totalDragVector.getDx(), undoVisualMoveCaptor.getValue().getDx(), 0.001);
-        assertEquals(-totalDragVector.getDy(), undoVisualMoveCaptor.getValue().getDy(), 0.001);
-
-        // 2. Verify MoveShapeCommand is executed
-        ArgumentCaptor<Command> commandCaptor = ArgumentCaptor.forClass(Command.class);
-        verify(mockCommandManager, times(1)).executeCommand(commandCaptor.capture());
-        assertTrue(commandCaptor.getValue() instanceof MoveShapeCommand);
-        // Further checks on the MoveShapeCommand content could be done if needed
+        // 1. L'anteprima viene rimossa senza mai spostare le forme nel modello
+        verify(mockDrawingView, times(1)).clearDragPreview();
+        verify(mockDrawing, never()).moveShape(any(Shape.class), any(Vector2D.class));
+        verify(mockShape1, never()).move(any(Vector2D.class));
+
+        // 2. Lo spostamento viene applicato una sola volta tramite GeoEngine (un comando)
+        ArgumentCaptor<Vector2D> moveCaptor = ArgumentCaptor.forClass(Vector2D.class);
+        verify(mockGeoEngine, times(1)).moveSelectedShapes(moveCaptor.capture());
+        assertEquals(totalDragVector.getDx(), moveCaptor.getValue().getDx(), 0.001);
+        assertEquals(totalDragVector.getDy(), moveCaptor.getValue().getDy(), 0.001);
+        // 3. Il trascinamento successivo non si unisce a questo nella history
+        verify(mockCommandManager).breakMerge();
     }
     
     @Test
@@ -0,0 +1,151 @@
+package sad.gruppo11.Controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import sad.gruppo11.Model.Shape;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class SelectionModelTest {
+
+    private SelectionModel selection;
+    private SelectionModel.Listener listener;
+    private Shape shape1;
+    private Shape shape2;
+    private Shape shape3;
+
+    @BeforeEach
+    void setUp() {
+        selection = new SelectionModel();
+        listener = mock(SelectionModel.Listener.class);
+        selection.addListener(listener);
+        shape1 = mock(Shape.class);
+        shape2 = mock(Shape.class);
+        shape3 = mock(Shape.class);
+    }
+
+    @Test
+    void add_shouldKeepInsertionOrderAndIgnoreDuplicates() {
+        assertTrue(selection.add(shape2));
+        assertTrue(selection.add(shape1));
+        assertFalse(selection.add(shape2));
+
+        assertEquals(Arrays.asList(shape2, shape1), selection.getShapes());
+        assertSame(shape2, selection.getPrimary());
+        assertTrue(selection.contains(shape1));
+        assertFalse(selection.contains(shape3));
+        verify(listener).selectionChanged(selection, Collections.singletonList(shape2), Collections.emptyList());
+        verify(listener).selectionChanged(selection, Collections.singletonList(shape1), Collections.emptyList());
+        verifyNoMoreInteractions(listener);
+        assertThrows(NullPointerException.class, () -> selection.add(null));
+    }
+
+    @Test
+    void getShapes_shouldBeReadOnlyLiveViewWithoutCopies() {
+        List<Shape> view = selection.getShapes();
+        selection.add(shape1);
+
+        assertSame(view, selection.getShapes());
+        assertEquals(1, view.size());
+        assertSame(shape1, view.get(0));
+        assertThrows(UnsupportedOperationException.class, () -> view.add(shape2));
+        assertThrows(UnsupportedOperationException.class, () -> view.iterator().remove());
+        assertThrows(UnsupportedOperationException.class, () -> selection.asSet().clear());
+
+        selection.remove(shape1);
+        assertTrue(view.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(0));
+    }
+
+    @Test
+    void set_shouldNotifyOnlyTheDifference() {
+        selection.set(Arrays.asList(shape1, shape2));
+        clearInvocations(listener);
+
+        assertTrue(selection.set(Arrays.asList(shape2, shape3)));
+
+        assertEquals(Arrays.asList(shape2, shape3), selection.getShapes());
+        verify(listener).selectionChanged(selection, Collections.singletonList(shape3), Collections.singletonList(shape1));
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    void set_sameShapesInNewOrder_shouldChangePrimaryWithoutEvent() {
+        selection.set(Arrays.asList(shape1, shape2));
+        clearInvocations(listener);
+
+        assertTrue(selection.set(Arrays.asList(shape2, shape1)));
+        assertFalse(selection.set(Arrays.asList(shape2, shape1, shape2)));
+
+        assertSame(shape2, selection.getPrimary());
+        assertSame(shape1, selection.getShapes().get(1));
+        verifyNoInteractions(listener);
+    }
+
+    @Test
+    void set_nullOrNullElement_shouldClearOrThrow() {
+        selection.add(shape1);
+
+        assertTrue(selection.set(null));
+        assertTrue(selection.isEmpty());
+        assertThrows(NullPointerException.class, () -> selection.set(Arrays.asList(shape1, null)));
+    }
+
+    @Test
+    void clear_shouldReportRemovedShapesOnlyWhenNotEmpty() {
+        assertFalse(selection.clear());
+        verifyNoInteractions(listener);
+
+        selection.set(Arrays.asList(shape1, shape2));
+        clearInvocations(listener);
+        assertTrue(selection.clear());
+
+        verify(listener).selectionChanged(selection, Collections.emptyList(), Arrays.asList(shape1, shape2));
+    }
+
+    @Test
+    void removeAll_shouldDeselectOnlySelectedShapesWithOneEvent() {
+        selection.set(Arrays.asList(shape1, shape2));
+        clearInvocations(listener);
+
+        assertTrue(selection.removeAll(Arrays.asList(shape2, shape3)));
+        assertFalse(selection.removeAll(Collections.singletonList(shape3)));
+
+        assertEquals(Collections.singletonList(shape1), selection.getShapes());
+        verify(listener).selectionChanged(selection, Collections.emptyList(), Collections.singletonList(shape2));
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    void retainIf_shouldTestOnlySelectedShapes() {
+        selection.set(Arrays.asList(shape1, shape2, shape3));
+        clearInvocations(listener);
+        Set<Shape> present = new HashSet<>(Arrays.asList(shape1, shape3));
+        Set<Shape> tested = new HashSet<>();
+
+        assertTrue(selection.retainIf(s -> tested.add(s) && present.contains(s)));
+
+        assertEquals(3, tested.size());
+        assertEquals(Arrays.asList(shape1, shape3), selection.getShapes());
+        verify(listener).selectionChanged(selection, Collections.emptyList(), Collections.singletonList(shape2));
+        assertFalse(selection.retainIf(present::contains));
+    }
+
+    @Test
+    void removedListener_shouldNotBeNotified() {
+        selection.removeListener(listener);
+
+        selection.add(shape1);
+
+        verifyNoInteractions(listener);
+        assertThrows(NullPointerException.class, () -> selection.addListener(null));
+    }
+}
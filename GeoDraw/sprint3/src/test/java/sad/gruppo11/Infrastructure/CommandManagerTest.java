@@ -8,6 +8,16 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.GroupShape;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.TextShape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+import sad.gruppo11.Model.geometry.Vector2D;
+
+import java.util.Arrays;
 
 class CommandManagerTest {
 
@@ -177,5 +187,186 @@ class CommandManagerTest {
         // For now, just confirm no exception.
         assertDoesNotThrow(() -> cm.setDrawingModel(newMockDrawing));
     }
+
+    private Command sizedCommand(long bytes) {
+        Command cmd = mock(Command.class);
+        when(cmd.estimateSizeBytes()).thenReturn(bytes);
+        return cmd;
+    }
+
+    @Test
+    void history_shouldEvictOldestEntriesBeyondMaxEntries() {
+        CommandManager cm = new CommandManager(mockDrawing, 2, Long.MAX_VALUE);
+        Command c1 = sizedCommand(10);
+        Command c2 = sizedCommand(20);
+        Command c3 = sizedCommand(30);
+
+        cm.executeCommand(c1);
+        cm.executeCommand(c2);
+        cm.executeCommand(c3);
+
+        assertEquals(2, cm.getHistorySize());
+        assertEquals(50, cm.getHistoryBytes());
+        cm.undo();
+        cm.undo();
+        cm.undo(); // c1 è stato eliminato: non c'è più nulla da annullare
+        verify(c3).undo();
+        verify(c2).undo();
+        verify(c1, never()).undo();
+        assertFalse(cm.canUndo());
+        assertEquals(2, cm.getHistorySize(), "Undone commands stay available for redo.");
+    }
+
+    @Test
+    void history_shouldEvictOldestEntriesBeyondByteBudget() {
+        CommandManager cm = new CommandManager(mockDrawing, 100, 100);
+        Command c1 = sizedCommand(40);
+        Command c2 = sizedCommand(40);
+        Command c3 = sizedCommand(40);
+
+        cm.executeCommand(c1);
+        cm.executeCommand(c2);
+        assertEquals(80, cm.getHistoryBytes());
+        cm.executeCommand(c3);
+
+        assertEquals(2, cm.getHistorySize());
+        assertEquals(80, cm.getHistoryBytes());
+
+        Command huge = sizedCommand(1000);
+        cm.executeCommand(huge);
+        assertEquals(1, cm.getHistorySize(), "The latest command is kept even if it exceeds the budget alone.");
+        assertEquals(1000, cm.getHistoryBytes());
+        cm.undo();
+        verify(huge).undo();
+    }
+
+    @Test
+    void history_shouldTrackBytesThroughUndoRedoAndClear() {
+        Command c1 = sizedCommand(100);
+        Command c2 = sizedCommand(50);
+        commandManager.executeCommand(c1);
+        commandManager.executeCommand(c2);
+        commandManager.undo();
+        assertEquals(2, commandManager.getHistorySize());
+        assertEquals(150, commandManager.getHistoryBytes());
+
+        commandManager.executeCommand(sizedCommand(30)); // Scarta c2 dal redo
+        assertEquals(130, commandManager.getHistoryBytes());
+
+        commandManager.clearStacks();
+        assertEquals(0, commandManager.getHistorySize());
+        assertEquals(0, commandManager.getHistoryBytes());
+    }
+
+    @Test
+    void setLimits_shouldTrimImmediatelyAndValidate() {
+        commandManager.executeCommand(sizedCommand(10));
+        commandManager.executeCommand(sizedCommand(10));
+        commandManager.executeCommand(sizedCommand(10));
+
+        commandManager.setMaxEntries(2);
+        assertEquals(2, commandManager.getHistorySize());
+        commandManager.setMaxBytes(15);
+        assertEquals(1, commandManager.getHistorySize());
+
+        assertThrows(IllegalArgumentException.class, () -> commandManager.setMaxEntries(0));
+        assertThrows(IllegalArgumentException.class, () -> commandManager.setMaxBytes(0));
+        assertThrows(IllegalArgumentException.class, () -> new CommandManager(mockDrawing, 0, 10));
+        assertEquals(CommandManager.DEFAULT_MAX_ENTRIES, new CommandManager().getMaxEntries());
+    }
+
+    @Test
+    void estimateSizeBytes_shouldAccountForRetainedShapes() {
+        Drawing drawing = new Drawing();
+        Shape rect = new RectangleShape(new Rect(0, 0, 10, 10), ColorData.BLACK, ColorData.RED);
+        Shape text = new TextShape("Testo", new Point2D(0, 0), 12, "Arial", ColorData.BLACK);
+        GroupShape group = new GroupShape(Arrays.asList(rect, text));
+        drawing.addShape(group);
+
+        long rectBytes = Command.estimateShapeBytes(rect);
+        assertEquals(Command.SHAPE_SIZE_BYTES, rectBytes);
+        assertTrue(Command.estimateShapeBytes(text) > rectBytes);
+        assertEquals(Command.SHAPE_SIZE_BYTES + rectBytes + Command.estimateShapeBytes(text),
+                     Command.estimateShapeBytes(group));
+        assertEquals(Command.BASE_SIZE_BYTES + Command.estimateShapeBytes(group),
+                     new DeleteShapeCommand(drawing, group).estimateSizeBytes());
+        assertEquals(Command.BASE_SIZE_BYTES, new MoveShapeCommand(drawing, rect, new Vector2D(1, 1)).estimateSizeBytes());
+    }
+
+    @Test
+    void executeCommand_compatibleCommandsWithinWindow_shouldMergeIntoOneEntry() {
+        long[] now = {1000};
+        commandManager.setClock(() -> now[0]);
+        Command first = mock(Command.class);
+        when(first.mergeWith(any())).thenReturn(true);
+
+        commandManager.executeCommand(first);
+        now[0] += 500;
+        commandManager.executeCommand(mockCommand1);
+        now[0] += 900; // La finestra decorre dall'ultimo comando unito
+        commandManager.executeCommand(mockCommand2);
+
+        verify(first).mergeWith(mockCommand1);
+        verify(first).mergeWith(mockCommand2);
+        assertEquals(1, commandManager.getHistorySize());
+        commandManager.undo();
+        verify(first).undo();
+        verify(mockCommand1, never()).undo();
+        assertFalse(commandManager.canUndo());
+    }
+
+    @Test
+    void executeCommand_shouldNotMergeAfterWindowUndoOrBreak() {
+        long[] now = {0};
+        commandManager.setClock(() -> now[0]);
+        Command first = mock(Command.class);
+        when(first.mergeWith(any())).thenReturn(true);
+        commandManager.executeCommand(first);
+
+        now[0] += CommandManager.DEFAULT_MERGE_WINDOW_MILLIS + 1;
+        commandManager.executeCommand(mockCommand1); // Finestra scaduta
+        verify(first, never()).mergeWith(any());
+
+        Command second = mock(Command.class);
+        when(second.mergeWith(any())).thenReturn(true);
+        commandManager.executeCommand(second);
+        commandManager.breakMerge();
+        commandManager.executeCommand(mockCommand2);
+        verify(second, never()).mergeWith(any());
+
+        commandManager.undo();
+        commandManager.redo();
+        Command third = mock(Command.class);
+        commandManager.executeCommand(third);
+        verify(mockCommand2, never()).mergeWith(any());
+        assertEquals(5, commandManager.getHistorySize());
+
+        commandManager.setMergeWindowMillis(0);
+        Command fourth = mock(Command.class);
+        commandManager.executeCommand(fourth);
+        verify(third, never()).mergeWith(any());
+        assertThrows(IllegalArgumentException.class, () -> commandManager.setMergeWindowMillis(-1));
+    }
+
+    @Test
+    void executeCommand_realMoves_shouldCollapseNudgesOnSameShape() {
+        Drawing drawing = new Drawing();
+        Shape rect = new RectangleShape(new Rect(0, 0, 10, 10), ColorData.BLACK, ColorData.RED);
+        Shape other = new RectangleShape(new Rect(50, 50, 10, 10), ColorData.BLACK, ColorData.RED);
+        drawing.addShape(rect);
+        drawing.addShape(other);
+        CommandManager cm = new CommandManager(drawing);
+
+        for (int i = 0; i < 100; i++) {
+            cm.executeCommand(new MoveShapeCommand(drawing, rect, new Vector2D(1, 0)));
+        }
+        cm.executeCommand(new MoveShapeCommand(drawing, other, new Vector2D(0, 1)));
+
+        assertEquals(2, cm.getHistorySize());
+        assertEquals(100, rect.getBounds().getX(), 1e-9);
+        cm.undo();
+        cm.undo();
+        assertEquals(0, rect.getBounds().getX(), 1e-9);
+        assertEquals(50, other.getBounds().getY(), 1e-9);
+    }
 }
-            
\ No newline at end of file
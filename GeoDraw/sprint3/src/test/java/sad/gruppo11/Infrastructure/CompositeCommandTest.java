@@ -0,0 +1,171 @@
+package sad.gruppo11.Infrastructure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Rect;
+import sad.gruppo11.Model.geometry.Vector2D;
+import sad.gruppo11.View.Observer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class CompositeCommandTest {
+
+    private Drawing mockDrawing;
+    private Command mockCommand1;
+    private Command mockCommand2;
+
+    @BeforeEach
+    void setUp() {
+        mockDrawing = mock(Drawing.class);
+        mockCommand1 = mock(Command.class);
+        mockCommand2 = mock(Command.class);
+    }
+
+    @Test
+    void constructor_nullArguments_shouldThrowNullPointerException() {
+        assertThrows(NullPointerException.class, () -> new CompositeCommand(null, Collections.emptyList()));
+        assertThrows(NullPointerException.class, () -> new CompositeCommand(mockDrawing, null));
+        assertThrows(NullPointerException.class, () -> new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1, null)));
+    }
+
+    @Test
+    void execute_shouldRunCommandsInOrderInsideOneBatch() {
+        CompositeCommand composite = new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1, mockCommand2));
+
+        composite.execute();
+
+        InOrder inOrder = inOrder(mockDrawing, mockCommand1, mockCommand2);
+        inOrder.verify(mockDrawing).beginBatch();
+        inOrder.verify(mockCommand1).execute();
+        inOrder.verify(mockCommand2).execute();
+        inOrder.verify(mockDrawing).commitBatch();
+    }
+
+    @Test
+    void undo_shouldUndoCommandsInReverseOrderInsideOneBatch() {
+        CompositeCommand composite = new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1, mockCommand2));
+
+        composite.undo();
+
+        InOrder inOrder = inOrder(mockDrawing, mockCommand1, mockCommand2);
+        inOrder.verify(mockDrawing).beginBatch();
+        inOrder.verify(mockCommand2).undo();
+        inOrder.verify(mockCommand1).undo();
+        inOrder.verify(mockDrawing).commitBatch();
+    }
+
+    @Test
+    void execute_failingCommand_shouldRollBackExecutedCommandsAndCloseBatch() {
+        doThrow(new IllegalStateException("boom")).when(mockCommand2).execute();
+        Command notReached = mock(Command.class);
+        CompositeCommand composite = new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1, mockCommand2, notReached));
+
+        assertThrows(IllegalStateException.class, composite::execute);
+
+        verify(mockCommand1).undo();
+        verify(mockCommand2, never()).undo();
+        verify(notReached, never()).execute();
+        verify(mockDrawing).commitBatch();
+    }
+
+    @Test
+    void executeThroughManager_shouldProduceOneUndoStepAndOneNotification() {
+        Drawing drawing = new Drawing();
+        Shape rect1 = new RectangleShape(new Rect(0, 0, 10, 10), ColorData.BLACK, ColorData.RED);
+        Shape rect2 = new RectangleShape(new Rect(20, 20, 10, 10), ColorData.BLACK, ColorData.RED);
+        drawing.addShape(rect1);
+        drawing.addShape(rect2);
+        Observer observer = mock(Observer.class);
+        drawing.attach(observer);
+        CommandManager cm = new CommandManager(drawing);
+        List<Command> moves = Arrays.asList(new MoveShapeCommand(drawing, rect1, new Vector2D(5, 0)),
+                                            new MoveShapeCommand(drawing, rect2, new Vector2D(5, 0)));
+
+        cm.executeCommand(new CompositeCommand(drawing, moves));
+
+        verify(observer, times(1)).update(eq(drawing), any());
+        assertEquals(1, cm.getHistorySize());
+        assertEquals(5, rect1.getBounds().getX(), 1e-9);
+        assertEquals(25, rect2.getBounds().getX(), 1e-9);
+
+        cm.undo();
+        assertEquals(0, rect1.getBounds().getX(), 1e-9);
+        assertEquals(20, rect2.getBounds().getX(), 1e-9);
+        assertFalse(cm.canUndo());
+    }
+
+    @Test
+    void repeatedMovesOfSameShapesThroughManager_shouldMergeIntoOneUndoStep() {
+        Drawing drawing = new Drawing();
+        Shape rect1 = new RectangleShape(new Rect(0, 0, 10, 10), ColorData.BLACK, ColorData.RED);
+        Shape rect2 = new RectangleShape(new Rect(20, 20, 10, 10), ColorData.BLACK, ColorData.RED);
+        drawing.addShape(rect1);
+        drawing.addShape(rect2);
+        CommandManager cm = new CommandManager(drawing);
+
+        // Come tenere premuta una freccia con due forme selezionate
+        for (int i = 0; i < 3; i++) {
+            cm.executeCommand(new CompositeCommand(drawing, Arrays.asList(
+                new MoveShapeCommand(drawing, rect1, new Vector2D(1, 0)),
+                new MoveShapeCommand(drawing, rect2, new Vector2D(1, 0)))));
+        }
+
+        assertEquals(1, cm.getHistorySize());
+        assertEquals(3, rect1.getBounds().getX(), 1e-9);
+        cm.undo();
+        assertEquals(0, rect1.getBounds().getX(), 1e-9);
+        assertEquals(20, rect2.getBounds().getX(), 1e-9);
+        assertFalse(cm.canUndo());
+    }
+
+    @Test
+    void mergeWith_shouldMergeChildrenPairwise() {
+        when(mockCommand1.canMergeWith(mockCommand2)).thenReturn(true);
+        when(mockCommand2.canMergeWith(mockCommand1)).thenReturn(true);
+        CompositeCommand first = new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1, mockCommand2));
+        CompositeCommand next = new CompositeCommand(mockDrawing, Arrays.asList(mockCommand2, mockCommand1));
+
+        assertTrue(first.mergeWith(next));
+
+        verify(mockCommand1).mergeWith(mockCommand2);
+        verify(mockCommand2).mergeWith(mockCommand1);
+    }
+
+    @Test
+    void mergeWith_anyIncompatiblePair_shouldMergeNothing() {
+        when(mockCommand1.canMergeWith(mockCommand1)).thenReturn(true);
+        when(mockCommand2.canMergeWith(mockCommand2)).thenReturn(false);
+        CompositeCommand first = new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1, mockCommand2));
+
+        assertFalse(first.mergeWith(new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1, mockCommand2))));
+        assertFalse(first.mergeWith(new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1))));
+        assertFalse(first.mergeWith(new CompositeCommand(mock(Drawing.class), Arrays.asList(mockCommand1, mockCommand2))));
+        assertFalse(first.mergeWith(mockCommand1));
+
+        verify(mockCommand1, never()).mergeWith(any());
+        verify(mockCommand2, never()).mergeWith(any());
+    }
+
+    @Test
+    void estimateSizeBytes_shouldSumChildren() {
+        when(mockCommand1.estimateSizeBytes()).thenReturn(100L);
+        when(mockCommand2.estimateSizeBytes()).thenReturn(50L);
+
+        CompositeCommand composite = new CompositeCommand(mockDrawing, Arrays.asList(mockCommand1, mockCommand2));
+
+        assertEquals(Command.BASE_SIZE_BYTES + 150, composite.estimateSizeBytes());
+        assertEquals(2, composite.getCommands().size());
+        assertThrows(UnsupportedOperationException.class, () -> composite.getCommands().clear());
+    }
+}
@@ -0,0 +1,80 @@
+package sad.gruppo11.Infrastructure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class DeleteShapesCommandTest {
+
+    private Drawing drawing;
+    private List<Shape> shapes;
+
+    @BeforeEach
+    void setUp() {
+        drawing = new Drawing();
+        shapes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Shape s = new RectangleShape(new Rect(i * 10, 0, 5, 5), ColorData.BLACK, ColorData.RED);
+            shapes.add(s);
+            drawing.addShape(s);
+        }
+    }
+
+    @Test
+    void constructor_nullArguments_shouldThrowNullPointerException() {
+        assertThrows(NullPointerException.class, () -> new DeleteShapesCommand(null, shapes));
+        assertThrows(NullPointerException.class, () -> new DeleteShapesCommand(drawing, null));
+    }
+
+    @Test
+    void executeAndUndo_shouldRemoveInOnePassAndRestoreExactZOrder() {
+        List<Shape> before = drawing.getShapesInZOrder();
+        List<Shape> toDelete = List.of(shapes.get(7), shapes.get(0), shapes.get(3));
+        DeleteShapesCommand command = new DeleteShapesCommand(drawing, toDelete);
+
+        command.execute();
+        assertEquals(7, drawing.getShapesInZOrder().size());
+        assertFalse(drawing.getShapesInZOrder().contains(shapes.get(3)));
+
+        command.undo();
+        assertEquals(before, drawing.getShapesInZOrder());
+
+        command.execute(); // Redo
+        assertEquals(7, drawing.getShapesInZOrder().size());
+    }
+
+    @Test
+    void execute_shouldUseBulkDrawingOperations() {
+        Drawing mockDrawing = mock(Drawing.class);
+        int[] indices = {4, 2};
+        when(mockDrawing.removeShapes(anyList())).thenReturn(indices);
+        DeleteShapesCommand command = new DeleteShapesCommand(mockDrawing, shapes.subList(0, 2));
+
+        command.undo(); // Senza execute non fa nulla
+        verify(mockDrawing, never()).restoreShapes(anyList(), any(int[].class));
+
+        command.execute();
+        command.undo();
+        verify(mockDrawing).removeShapes(shapes.subList(0, 2));
+        verify(mockDrawing).restoreShapes(shapes.subList(0, 2), indices);
+        verify(mockDrawing, never()).removeShape(any(Shape.class));
+    }
+
+    @Test
+    void estimateSizeBytes_shouldIncludeRemovedShapes() {
+        DeleteShapesCommand command = new DeleteShapesCommand(drawing, shapes);
+        assertEquals(Command.BASE_SIZE_BYTES + 10 * Command.SHAPE_SIZE_BYTES, command.estimateSizeBytes());
+        assertTrue(command.toString().contains("10"));
+    }
+}
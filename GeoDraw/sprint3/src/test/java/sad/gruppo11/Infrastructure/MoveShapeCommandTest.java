@@ -114,5 +114,23 @@ class MoveShapeCommandTest {
         assertTrue(commandString.contains(mockShape.getId().toString()), "toString should contain the shape ID.");
         assertTrue(commandString.contains(moveVector.toString()), "toString should contain the move vector details.");
     }
+
+    @Test
+    void mergeWith_sameShape_shouldSumVectorsAndUndoTogether() {
+        MoveShapeCommand next = new MoveShapeCommand(mockDrawing, mockShape, new Vector2D(1, 2));
+
+        assertTrue(moveShapeCommand.mergeWith(next));
+        moveShapeCommand.undo();
+
+        verify(mockDrawing).moveShape(mockShape, new Vector2D(-6, 3));
+    }
+
+    @Test
+    void mergeWith_otherShapeOrCommand_shouldRefuse() {
+        Shape other = new LineSegment(new Point2D(0, 0), new Point2D(1, 1), ColorData.BLACK);
+
+        assertFalse(moveShapeCommand.mergeWith(new MoveShapeCommand(mockDrawing, other, moveVector)));
+        assertFalse(moveShapeCommand.mergeWith(new MoveShapeCommand(mock(Drawing.class), mockShape, moveVector)));
+        assertFalse(moveShapeCommand.mergeWith(new RotateShapeCommand(mockDrawing, mockShape, 10)));
+    }
 }
-            
\ No newline at end of file
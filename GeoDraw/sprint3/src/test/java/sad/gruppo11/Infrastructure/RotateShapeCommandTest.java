@@ -106,5 +106,18 @@ class RotateShapeCommandTest {
         assertTrue(str.contains(mockShape.getId().toString()));
         assertTrue(str.contains(String.valueOf(targetAngle)));
     }
+
+    @Test
+    void mergeWith_sameShape_shouldKeepFirstOldAngleAndLastTarget() {
+        command.execute();
+        RotateShapeCommand next = new RotateShapeCommand(mockDrawing, mockShape, 120.0);
+        next.execute();
+
+        assertTrue(command.mergeWith(next));
+        command.undo();
+        verify(mockDrawing).setShapeRotation(mockShape, oldAngle);
+
+        command.execute(); // Redo
+        verify(mockDrawing, times(2)).setShapeRotation(mockShape, 120.0);
+    }
 }
-            
\ No newline at end of file
@@ -73,9 +73,9 @@ class UngroupShapeCommandTest {
         inOrder.verify(mockDrawing).getShapeIndex(mockGroupShape);
         // Verify group is removed
         inOrder.verify(mockDrawing).removeShape(mockGroupShape);
-        // Verify children are added
-        inOrder.verify(mockDrawing).addShape(mockChild1);
-        inOrder.verify(mockDrawing).addShape(mockChild2);
+        // Verify children take the group's place in the Z order
+        inOrder.verify(mockDrawing).restoreShapes(children, new int[] {MOCK_GROUP_INDEX, MOCK_GROUP_INDEX + 1});
+        verify(mockDrawing, never()).addShape(any(Shape.class));
     }
     
     @Test
@@ -87,6 +87,7 @@ class UngroupShapeCommandTest {
         verify(mockDrawing, times(1)).removeShape(mockGroupShape);
         verify(mockDrawing, never()).addShape(mockChild1);
         verify(mockDrawing, never()).addShape(mockChild2);
+        verify(mockDrawing, never()).restoreShapes(anyList(), any(int[].class));
     }
 
     @Test
@@ -97,9 +98,8 @@ class UngroupShapeCommandTest {
         command.undo();
 
         InOrder inOrder = inOrder(mockDrawing);
-        // Verify children are removed first
-        inOrder.verify(mockDrawing).removeShape(mockChild1);
-        inOrder.verify(mockDrawing).removeShape(mockChild2);
+        // Verify children are removed first, in one bulk operation
+        inOrder.verify(mockDrawing).removeShapes(children);
         // Verify group is added back at original index
         ArgumentCaptor<Shape> shapeCaptor = ArgumentCaptor.forClass(Shape.class);
         ArgumentCaptor<Integer> indexCaptor = ArgumentCaptor.forClass(Integer.class);
@@ -113,7 +113,7 @@ class UngroupShapeCommandTest {
     void undo_withoutExecute_shouldHandleGracefully() {
         // If execute not called, originalChildren is null.
         command.undo();
-        verify(mockDrawing, never()).removeShape(any(Shape.class)); // Children not removed
+        verify(mockDrawing, never()).removeShapes(anyList()); // Children not removed
         verify(mockDrawing, never()).addShapeAtIndex(any(Shape.class), anyInt()); // Group not added back
         verify(mockDrawing, never()).addShape(any(Shape.class));
     }
@@ -125,5 +125,22 @@ class UngroupShapeCommandTest {
         assertTrue(str.contains("UngroupShapeCommand"));
         assertTrue(str.contains(mockGroupShape.getId().toString()));
     }
+
+    @Test
+    void executeAndUndo_onRealDrawing_shouldKeepZOrder() {
+        Drawing drawing = new Drawing();
+        Shape bottom = new RectangleShape(new Rect(0,0,1,1), ColorData.BLACK, ColorData.RED);
+        Shape top = new RectangleShape(new Rect(5,5,1,1), ColorData.BLACK, ColorData.RED);
+        GroupShape group = new GroupShape(children);
+        drawing.addShape(bottom);
+        drawing.addShape(group);
+        drawing.addShape(top);
+        UngroupShapeCommand realCommand = new UngroupShapeCommand(drawing, group);
+
+        realCommand.execute();
+        assertEquals(Arrays.asList(bottom, mockChild1, mockChild2, top), drawing.getShapesInZOrder());
+
+        realCommand.undo();
+        assertEquals(Arrays.asList(bottom, group, top), drawing.getShapesInZOrder());
+    }
 }
-            
\ No newline at end of file
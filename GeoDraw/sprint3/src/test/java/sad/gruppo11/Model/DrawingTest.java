@@ -139,6 +139,63 @@ public class DrawingTest {
         assertThat(drawing.findShapeById(shape1.getId())).isEqualTo(shape1); // Find child
     }
 
+    @Test
+    void parentLinksShouldResolveTopLevelGroup() {
+        GroupShape inner = new GroupShape(List.of(shape1));
+        GroupShape outer = new GroupShape(List.of(inner, shape2));
+        drawing.addShape(outer);
+
+        assertThat(drawing.getParentGroup(shape1)).isEqualTo(inner);
+        assertThat(drawing.getParentGroup(inner)).isEqualTo(outer);
+        assertThat(drawing.getParentGroup(outer)).isNull();
+        assertThat(drawing.getTopLevelShape(shape1)).isEqualTo(outer);
+        assertThat(drawing.getTopLevelShape(shape2)).isEqualTo(outer);
+        assertThat(drawing.getTopLevelShape(outer)).isEqualTo(outer);
+
+        Shape notInDrawing = new RectangleShape(new Rect(0,0,1,1), ColorData.RED, ColorData.BLUE);
+        assertThat(drawing.getTopLevelShape(notInDrawing)).isEqualTo(notInDrawing);
+    }
+
+    @Test
+    void idIndexShouldFollowGroupAndUngroupSequences() {
+        drawing.addShape(shape1);
+        drawing.addShape(shape2);
+
+        // Group: le forme escono dal primo livello ed entrano nel gruppo
+        drawing.removeShape(shape1);
+        drawing.removeShape(shape2);
+        GroupShape group = new GroupShape(List.of(shape1, shape2));
+        drawing.addShape(group);
+        assertThat(drawing.getTopLevelShape(shape1)).isEqualTo(group);
+
+        // Ungroup: il gruppo viene rimosso e i figli tornano al primo livello
+        drawing.removeShape(group);
+        assertThat(drawing.findShapeById(shape1.getId())).isNull();
+        drawing.addShape(shape1);
+        drawing.addShape(shape2);
+        assertThat(drawing.findShapeById(group.getId())).isNull();
+        assertThat(drawing.findShapeById(shape1.getId())).isEqualTo(shape1);
+        assertThat(drawing.getParentGroup(shape1)).isNull();
+        assertThat(drawing.getTopLevelShape(shape2)).isEqualTo(shape2);
+
+        drawing.clear();
+        assertThat(drawing.findShapeById(shape1.getId())).isNull();
+    }
+
+    @Test
+    void removeShapeByIdShouldIgnoreGroupChildren() {
+        GroupShape group = new GroupShape(List.of(shape1));
+        drawing.addShape(group);
+        reset(mockObserver);
+
+        assertThat(drawing.removeShapeById(shape1.getId())).isNull();
+        assertThat(drawing.getShapesInZOrder()).containsExactly(group);
+        verifyNoInteractions(mockObserver);
+
+        assertThat(drawing.removeShapeById(group.getId())).isEqualTo(group);
+        assertThat(drawing.findShapeById(shape1.getId())).isNull();
+    }
+
 
     @Test
     void getShapeIndexShouldReturnCorrectIndex() {
@@ -149,6 +206,19 @@ public class DrawingTest {
         assertThat(drawing.getShapeIndex(new RectangleShape(new Rect(0,0,1,1),ColorData.BLACK,ColorData.BLACK))).isEqualTo(-1);
     }
 
+    @Test
+    void containsShapeShouldOnlyMatchTopLevelShapes() {
+        GroupShape group = new GroupShape(List.of(shape1));
+        drawing.addShape(group);
+        drawing.addShape(shape2);
+        assertThat(drawing.containsShape(group)).isTrue();
+        assertThat(drawing.containsShape(shape2)).isTrue();
+        assertThat(drawing.containsShape(shape1)).isFalse();
+        assertThat(drawing.containsShape(null)).isFalse();
+        drawing.removeShape(shape2);
+        assertThat(drawing.containsShape(shape2)).isFalse();
+    }
+
     private void commonShapeModifierTest(Runnable action, Shape modifiedShape, Drawing.DrawingChangeEvent.ChangeType expectedType) {
         drawing.addShape(modifiedShape);
         reset(mockObserver);
@@ -334,7 +404,419 @@ public class DrawingTest {
         deserializedDrawing.addShape(shape2); // Trigger notification
         verify(newObserver, times(1)).update(eq(deserializedDrawing), any(Drawing.DrawingChangeEvent.class));
     }
-    
+
+    @Test
+    void batchShouldEmitSingleAggregateEvent() {
+        drawing.addShape(shape1);
+        reset(mockObserver);
+
+        drawing.batch(() -> {
+            drawing.moveShape(shape1, new Vector2D(1, 1));
+            drawing.addShape(shape2);
+            drawing.moveShape(shape2, new Vector2D(1, 1));
+            verifyNoInteractions(mockObserver); // Nessuna notifica durante la transazione
+        });
+
+        ArgumentCaptor<Drawing.DrawingChangeEvent> captor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
+        verify(mockObserver, times(1)).update(eq(drawing), captor.capture());
+        assertThat(captor.getValue().type).isEqualTo(Drawing.DrawingChangeEvent.ChangeType.BATCH);
+        assertThat(captor.getValue().allShapes).containsExactly(shape1, shape2);
+    }
+
+    @Test
+    void batchWithSingleChangeShouldForwardOriginalEvent() {
+        drawing.batch(() -> drawing.addShape(shape1));
+
+        ArgumentCaptor<Drawing.DrawingChangeEvent> captor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
+        verify(mockObserver, times(1)).update(eq(drawing), captor.capture());
+        assertThat(captor.getValue().type).isEqualTo(Drawing.DrawingChangeEvent.ChangeType.ADD);
+        assertThat(captor.getValue().changedShape).isEqualTo(shape1);
+
+        reset(mockObserver);
+        drawing.batch(() -> { });
+        verifyNoInteractions(mockObserver);
+    }
+
+    private static void assertRectCloseTo(Rect actual, double x, double y, double w, double h) {
+        assertThat(actual).isNotNull();
+        assertThat(actual.getX()).isCloseTo(x, within(1e-3));
+        assertThat(actual.getY()).isCloseTo(y, within(1e-3));
+        assertThat(actual.getWidth()).isCloseTo(w, within(1e-3));
+        assertThat(actual.getHeight()).isCloseTo(h, within(1e-3));
+    }
+
+    @Test
+    void shapeEventsShouldCarryOldAndNewBounds() {
+        drawing.addShape(shape1);
+        drawing.moveShape(shape1, new Vector2D(100, 0));
+        drawing.setShapeFillColor(shape1, ColorData.GREEN);
+        drawing.removeShape(shape1);
+
+        ArgumentCaptor<Drawing.DrawingChangeEvent> captor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
+        verify(mockObserver, times(4)).update(eq(drawing), captor.capture());
+        List<Drawing.DrawingChangeEvent> events = captor.getAllValues();
+
+        assertThat(events.get(0).oldBounds).isNull();
+        assertRectCloseTo(events.get(0).newBounds, 0, 0, 10, 10);
+
+        assertRectCloseTo(events.get(1).oldBounds, 0, 0, 10, 10);
+        assertRectCloseTo(events.get(1).newBounds, 100, 0, 10, 10);
+        assertThat(events.get(1).getDirtyRegions()).hasSize(2);
+
+        assertThat(events.get(2).getDirtyRegions()).hasSize(1); // Stessa area prima e dopo
+
+        assertRectCloseTo(events.get(3).oldBounds, 100, 0, 10, 10);
+        assertThat(events.get(3).newBounds).isNull();
+    }
+
+    @Test
+    void eventsWithoutKnownAreaShouldRequireFullRepaint() {
+        drawing.addShape(shape1);
+        drawing.clear();
+
+        ArgumentCaptor<Drawing.DrawingChangeEvent> captor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
+        verify(mockObserver, times(2)).update(eq(drawing), captor.capture());
+        assertThat(captor.getAllValues().get(1).getDirtyRegions()).isNull();
+        assertThat(new Drawing.DrawingChangeEvent(shape1, Drawing.DrawingChangeEvent.ChangeType.MODIFY).getDirtyRegions()).isNull();
+        assertThat(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.TRANSFORM).getDirtyRegions()).isNull();
+    }
+
+    @Test
+    void batchEventShouldCollectDirtyRegionsOfAllChanges() {
+        drawing.addShape(shape1);
+        drawing.addShape(shape2);
+        reset(mockObserver);
+
+        drawing.batch(() -> {
+            drawing.moveShape(shape1, new Vector2D(5, 0));
+            drawing.moveShape(shape2, new Vector2D(5, 0));
+        });
+        ArgumentCaptor<Drawing.DrawingChangeEvent> captor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
+        verify(mockObserver).update(eq(drawing), captor.capture());
+        assertThat(captor.getValue().getDirtyRegions()).hasSize(4);
+
+        reset(mockObserver);
+        drawing.batch(() -> {
+            drawing.moveShape(shape1, new Vector2D(5, 0));
+            drawing.notifyObservers(new Drawing.DrawingChangeEvent(Drawing.DrawingChangeEvent.ChangeType.MODIFY));
+        });
+        verify(mockObserver).update(eq(drawing), captor.capture());
+        assertThat(captor.getValue().getDirtyRegions()).isNull(); // Un evento senza area rende il batch "completo"
+    }
+
+    @Test
+    void nestedBatchesShouldNotifyOnlyOnOutermostCommit() {
+        drawing.beginBatch();
+        drawing.addShape(shape1);
+        drawing.beginBatch();
+        drawing.addShape(shape2);
+        drawing.commitBatch();
+        assertThat(drawing.isInBatch()).isTrue();
+        verifyNoInteractions(mockObserver);
+
+        drawing.commitBatch();
+        assertThat(drawing.isInBatch()).isFalse();
+        verify(mockObserver, times(1)).update(eq(drawing), any(Drawing.DrawingChangeEvent.class));
+    }
+
+    @Test
+    void batchShouldNotifyEvenWhenWorkThrows() {
+        assertThatThrownBy(() -> drawing.batch(() -> {
+            drawing.addShape(shape1);
+            drawing.moveShape(shape2, new Vector2D(1, 1)); // shape2 non è nel disegno
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(drawing.isInBatch()).isFalse();
+        verify(mockObserver, times(1)).update(eq(drawing), any(Drawing.DrawingChangeEvent.class));
+    }
+
+    @Test
+    void commitWithoutBeginShouldThrow() {
+        assertThatThrownBy(() -> drawing.commitBatch()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shapesAtShouldReturnHitShapesInZOrder() {
+        Shape overlapping = new RectangleShape(new Rect(5,5,10,10), ColorData.BLACK, ColorData.WHITE);
+        drawing.addShape(overlapping);
+        drawing.addShape(shape2);
+        drawing.addShapeAtIndex(shape1, 0);
+
+        assertThat(drawing.shapesAt(new Point2D(7,7))).containsExactly(shape1, overlapping);
+        assertThat(drawing.shapesAt(new Point2D(22,22))).containsExactly(shape2);
+        assertThat(drawing.shapesAt(new Point2D(100,100))).isEmpty();
+    }
+
+    @Test
+    void shapesAtShouldFollowGeometryChanges() {
+        drawing.addShape(shape1);
+        drawing.moveShape(shape1, new Vector2D(100, 0));
+        assertThat(drawing.shapesAt(new Point2D(5,5))).isEmpty();
+        assertThat(drawing.shapesAt(new Point2D(105,5))).containsExactly(shape1);
+
+        drawing.resizeShape(shape1, new Rect(200,200,50,50));
+        assertThat(drawing.shapesAt(new Point2D(105,5))).isEmpty();
+        assertThat(drawing.shapesAt(new Point2D(240,240))).containsExactly(shape1);
+
+        drawing.removeShape(shape1);
+        assertThat(drawing.shapesAt(new Point2D(240,240))).isEmpty();
+    }
+
+    @Test
+    void shapesAtShouldUseLineToleranceAndRotation() {
+        Shape line = new LineSegment(new Point2D(0,50), new Point2D(100,50), ColorData.BLACK);
+        drawing.addShape(line);
+        assertThat(drawing.shapesAt(new Point2D(50,52))).containsExactly(line);
+
+        drawing.setShapeRotation(line, 90);
+        assertThat(drawing.shapesAt(new Point2D(50,52))).containsExactly(line);
+        assertThat(drawing.shapesAt(new Point2D(50,5))).containsExactly(line);
+        assertThat(drawing.shapesAt(new Point2D(5,50))).isEmpty();
+    }
+
+    @Test
+    void shapesIntersectingShouldUseUnrotatedBounds() {
+        drawing.addShape(shape1);
+        drawing.addShape(shape2);
+
+        assertThat(drawing.shapesIntersecting(new Rect(-5,-5,100,100))).containsExactly(shape1, shape2);
+        assertThat(drawing.shapesIntersecting(new Rect(8,8,14,14))).containsExactly(shape1, shape2);
+        assertThat(drawing.shapesIntersecting(new Rect(10,10,5,5))).isEmpty(); // Solo contatto sui bordi
+    }
+
+    @Test
+    void shapesInAreaShouldIncludeRotatedBoundsInZOrder() {
+        drawing.addShape(shape2);
+        drawing.addShape(shape1);
+        drawing.setShapeRotation(shape1, 45); // I bounds ruotati sporgono oltre (0,0)-(10,10)
+
+        assertThat(drawing.shapesInArea(new Rect(-100, -100, 1000, 1000))).containsExactly(shape2, shape1);
+        assertThat(drawing.shapesInArea(new Rect(10.5, 4, 1, 1))).containsExactly(shape1);
+        assertThat(drawing.shapesInArea(new Rect(500, 500, 10, 10))).isEmpty();
+        assertThat(drawing.getShapeCount()).isEqualTo(2);
+    }
+
+    @Test
+    void snapshotShouldBeIndependentCopyWithSameIds() {
+        drawing.addShape(shape1);
+        drawing.addShape(shape2);
+
+        Drawing copy = drawing.snapshot();
+        drawing.moveShape(shape1, new Vector2D(100, 0));
+        drawing.removeShape(shape2);
+
+        assertThat(copy.getShapesInZOrder()).containsExactly(shape1, shape2); // equals basato sull'ID
+        assertThat(copy.getShapesInZOrder().get(0)).isNotSameAs(shape1);
+        assertThat(copy.getShapesInZOrder().get(0).getBounds()).isNotEqualTo(shape1.getBounds());
+        assertThat(copy.findShapeById(shape1.getId())).isSameAs(copy.getShapesInZOrder().get(0));
+    }
+
+    @Test
+    void snapshotShouldAnswerSpatialQueriesOnItsOwnShapes() {
+        drawing.addShape(shape1);
+        drawing.addShape(shape2);
+
+        Drawing copy = drawing.snapshot();
+        drawing.moveShape(shape1, new Vector2D(100, 0));
+
+        // L'indice della copia viene costruito alla prima query, dalle forme clonate
+        assertThat(copy.shapesAt(new Point2D(5, 5))).containsExactly(shape1);
+        assertThat(copy.shapesInArea(new Rect(0, 0, 30, 30))).containsExactly(shape1, shape2);
+        copy.removeShape(copy.getShapesInZOrder().get(0));
+        assertThat(copy.shapesAt(new Point2D(5, 5))).isEmpty();
+    }
+
+    @Test
+    void replaceAllShouldAdoptShapesAndNotifySingleLoad() {
+        drawing.addShape(shape1);
+        reset(mockObserver);
+        GroupShape group = new GroupShape(List.of(new RectangleShape(new Rect(50, 50, 5, 5), ColorData.RED, ColorData.BLUE)));
+
+        List<Shape> adopted = drawing.replaceAll(List.of(shape2, group));
+
+        assertThat(adopted).containsExactly(shape2, group);
+        assertThat(drawing.getShapesInZOrder().get(0)).isSameAs(shape2); // Nessuna copia
+        assertThat(drawing.getShapesInZOrder().get(1)).isSameAs(group);
+        assertThat(drawing.findShapeById(shape1.getId())).isNull();
+        assertThat(drawing.getTopLevelShape(group.getChildren().get(0))).isSameAs(group);
+        assertThat(drawing.shapesInArea(new Rect(49, 49, 2, 2))).containsExactly(group);
+
+        ArgumentCaptor<Drawing.DrawingChangeEvent> captor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
+        verify(mockObserver, times(1)).update(eq(drawing), captor.capture());
+        assertThat(captor.getValue().type).isEqualTo(Drawing.DrawingChangeEvent.ChangeType.LOAD);
+        assertThat(captor.getValue().allShapes).containsExactly(shape2, group);
+    }
+
+    @Test
+    void addShapesShouldAppendWithSingleEventAndAvoidIdConflicts() {
+        drawing.addShape(shape1);
+        reset(mockObserver);
+        Shape sameIdAsShape1 = shape1.clone();
+
+        List<Shape> adopted = drawing.addShapes(List.of(shape2, sameIdAsShape1));
+
+        assertThat(adopted.get(0)).isSameAs(shape2);
+        assertThat(adopted.get(1).getId()).isNotEqualTo(shape1.getId());
+        assertThat(drawing.getShapesInZOrder()).containsExactly(shape1, shape2, adopted.get(1));
+        assertThat(drawing.findShapeById(shape1.getId())).isSameAs(shape1);
+
+        ArgumentCaptor<Drawing.DrawingChangeEvent> captor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
+        verify(mockObserver, times(1)).update(eq(drawing), captor.capture());
+        assertThat(captor.getValue().type).isEqualTo(Drawing.DrawingChangeEvent.ChangeType.BATCH);
+        assertThat(captor.getValue().getDirtyRegions()).hasSize(2);
+    }
+
+    @Test
+    void replaceAllShouldRegenerateIdsOnlyOnConflict() {
+        Shape sameIdAsShape1 = shape1.clone(); // Oggetto diverso con lo stesso ID
+        GroupShape groupWithShape2 = new GroupShape(List.of(shape2));
+
+        List<Shape> adopted = drawing.replaceAll(List.of(shape1, sameIdAsShape1, shape1, groupWithShape2, shape2));
+
+        assertThat(adopted).hasSize(5);
+        assertThat(adopted.get(0)).isSameAs(shape1);
+        assertThat(adopted.get(1).getId()).isNotEqualTo(shape1.getId());
+        assertThat(adopted.get(2)).isNotSameAs(shape1);
+        assertThat(adopted.get(2).getId()).isNotEqualTo(shape1.getId());
+        assertThat(adopted.get(3)).isSameAs(groupWithShape2);
+        assertThat(adopted.get(4).getId()).isNotEqualTo(shape2.getId()); // Già usato dal figlio del gruppo
+        assertThat(drawing.getShapeCount()).isEqualTo(5);
+        for (Shape s : adopted) {
+            assertThat(drawing.findShapeById(s.getId())).isSameAs(s);
+        }
+    }
+
+    @Test
+    void spatialQueriesShouldMatchLinearScanOnManyShapes() {
+        java.util.Random random = new java.util.Random(42);
+        List<Shape> all = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            Shape s = (i % 3 == 0)
+                ? new LineSegment(new Point2D(x, y), new Point2D(x + random.nextDouble() * 80, y + random.nextDouble() * 80), ColorData.BLACK)
+                : new RectangleShape(new Rect(x, y, 1 + random.nextDouble() * 60, 1 + random.nextDouble() * 60), ColorData.BLACK, ColorData.WHITE);
+            if (i % 5 == 0) s.setRotation(random.nextDouble() * 360);
+            drawing.addShape(s);
+            all.add(s);
+        }
+        for (int i = 0; i < 100; i++) {
+            drawing.moveShape(all.get(i), new Vector2D(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100));
+        }
+        for (int i = 100; i < 150; i++) {
+            drawing.removeShape(all.get(i));
+        }
+
+        for (int q = 0; q < 200; q++) {
+            Point2D p = new Point2D(random.nextDouble() * 1100 - 50, random.nextDouble() * 1100 - 50);
+            List<Shape> expected = new ArrayList<>();
+            for (Shape s : drawing.getShapesInZOrder()) {
+                if (s.contains(p)) expected.add(s);
+            }
+            assertThat(drawing.shapesAt(p)).containsExactlyElementsOf(expected);
+
+            Rect area = new Rect(p, random.nextDouble() * 150, random.nextDouble() * 150);
+            List<Shape> expectedInArea = new ArrayList<>();
+            for (Shape s : drawing.getShapesInZOrder()) {
+                Rect b = s.getBounds();
+                if (b.getX() < area.getRight() && b.getRight() > area.getX() &&
+                    b.getY() < area.getBottom() && b.getBottom() > area.getY()) expectedInArea.add(s);
+            }
+            assertThat(drawing.shapesIntersecting(area)).containsExactlyElementsOf(expectedInArea);
+        }
+    }
+
+    @Test
+    void indexesShouldBeRebuiltAfterDeserialization() throws IOException, ClassNotFoundException {
+        drawing.addShape(shape1);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(drawing);
+        }
+        Drawing deserializedDrawing;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            deserializedDrawing = (Drawing) ois.readObject();
+        }
+        List<Shape> hits = deserializedDrawing.shapesAt(new Point2D(5,5));
+        assertThat(hits).hasSize(1);
+        assertThat(hits.get(0).getId()).isEqualTo(shape1.getId());
+        assertThat(deserializedDrawing.findShapeById(shape1.getId())).isSameAs(hits.get(0));
+    }
+
+    @Test
+    void removeShapesAndRestoreShapesShouldPreserveExactZOrder() {
+        Shape shape3 = new RectangleShape(new Rect(40, 40, 5, 5), ColorData.BLACK, ColorData.WHITE);
+        Shape shape4 = new RectangleShape(new Rect(60, 60, 5, 5), ColorData.BLACK, ColorData.WHITE);
+        drawing.addShape(shape1);
+        drawing.addShape(shape2);
+        drawing.addShape(shape3);
+        drawing.addShape(shape4);
+        List<Shape> before = drawing.getShapesInZOrder();
+        reset(mockObserver);
+        Shape absent = new RectangleShape(new Rect(0, 0, 1, 1), ColorData.BLACK, ColorData.WHITE);
+
+        int[] indices = drawing.removeShapes(List.of(shape4, absent, shape2, shape4));
+
+        assertThat(indices).containsExactly(3, -1, 1, -1); // Assenti e ripetute valgono -1
+        assertThat(drawing.getShapesInZOrder()).containsExactly(shape1, shape3);
+        assertThat(drawing.findShapeById(shape2.getId())).isNull();
+        assertThat(drawing.shapesInArea(new Rect(59, 59, 2, 2))).isEmpty();
+        ArgumentCaptor<Drawing.DrawingChangeEvent> captor = ArgumentCaptor.forClass(Drawing.DrawingChangeEvent.class);
+        verify(mockObserver, times(1)).update(eq(drawing), captor.capture());
+        assertThat(captor.getValue().type).isEqualTo(Drawing.DrawingChangeEvent.ChangeType.BATCH);
+        assertThat(captor.getValue().allShapes).containsExactlyInAnyOrder(shape2, shape4);
+
+        reset(mockObserver);
+        drawing.restoreShapes(List.of(shape4, absent, shape2, shape4), indices);
+
+        assertThat(drawing.getShapesInZOrder()).containsExactlyElementsOf(before);
+        assertThat(drawing.findShapeById(shape2.getId())).isSameAs(shape2);
+        assertThat(drawing.shapesInArea(new Rect(59, 59, 2, 2))).containsExactly(shape4);
+        verify(mockObserver, times(1)).update(eq(drawing), any());
+    }
+
+    @Test
+    void restoreShapesShouldValidateArguments() {
+        drawing.addShape(shape1);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> drawing.restoreShapes(List.of(shape2), new int[] {0, 1}));
+        assertThatThrownBy(() -> drawing.restoreShapes(List.of(shape2), new int[] {5}))
+            .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThat(drawing.removeShapes(List.of())).isEmpty();
+        assertThat(drawing.getShapesInZOrder()).containsExactly(shape1);
+    }
+
+    @Test
+    void getModifiableShapesListShouldRejectChangesThatBypassTheIndexes() {
+        drawing.addShape(shape1);
+        List<Shape> live = drawing.getModifiableShapesList();
+
+        assertThatThrownBy(() -> live.remove(shape1)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> live.add(shape2)).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(drawing.findShapeById(shape1.getId())).isSameAs(shape1);
+
+        drawing.addShape(shape2);
+        assertThat(live).containsExactly(shape1, shape2); // Vista, non copia
+    }
+
+    @Test
+    void getShapesInZOrderShouldReuseSnapshotUntilNextMutation() {
+        drawing.addShape(shape1);
+        List<Shape> first = drawing.getShapesInZOrder();
+
+        assertThat(drawing.getShapesInZOrder()).isSameAs(first);
+        drawing.moveShape(shape1, new Vector2D(1, 1)); // Non cambia l'ordine Z
+        assertThat(drawing.getShapesInZOrder()).isSameAs(first);
+
+        drawing.addShape(shape2);
+        List<Shape> second = drawing.getShapesInZOrder();
+        assertThat(second).isNotSameAs(first).containsExactly(shape1, shape2);
+        assertThat(first).containsExactly(shape1); // La vista precedente resta coerente
+
+        drawing.removeShape(shape2); // Anche la rimozione invalida la vista
+        assertThat(drawing.getShapesInZOrder()).containsExactly(shape1);
+        assertThatThrownBy(() -> second.add(shape1)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
 }
 
 // To test deserialization of observers list, Drawing needs a way to expose its observers for test
@@ -352,6 +834,7 @@ class DrawingHelper extends Drawing { // Helper to expose observers for testing
     }
 }
 
+
 // If 'observers' is private in Drawing, the test will need a getter like the one in DrawingHelper
 // For now, the provided test uses getObserversForTest() directly.
 // The file Drawing.java has 'private transient List<Observer> observers;'
@@ -147,4 +147,23 @@ public class EllipseShapeTest {
         assertThat(clonedEllipse.getRotation()).isEqualTo(ellipseShape.getRotation());
         assertThat(clonedEllipse.getId()).isEqualTo(ellipseShape.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void primitiveContainsShouldUseRotatedGeometry() {
+        ellipseShape.setRotation(90); // Diventa verticale: semiasse 10 lungo x e 20 lungo y, centro (30, 30)
+        assertThat(ellipseShape.contains(30, 12)).isTrue();  // Fuori dall'ellisse non ruotata
+        assertThat(ellipseShape.contains(48, 30)).isFalse(); // Dentro quella non ruotata, fuori da quella ruotata
+        assertThat(ellipseShape.contains(30, 10)).isTrue();  // Estremo dell'asse maggiore
+        assertThat(ellipseShape.contains(40, 30)).isTrue();  // Estremo dell'asse minore
+        assertThat(ellipseShape.contains(30, 9.9)).isFalse();
+        assertThat(ellipseShape.contains(39, 48)).isFalse(); // Nel bounding box ma fuori dall'ellisse
+    }
+
+    @Test
+    void intersectsShouldUseRotatedBoundingBox() {
+        ellipseShape.setRotation(90); // Bounding box ruotato [20, 40] x [10, 50]
+        assertThat(ellipseShape.intersects(0, 0, 20, 10)).isTrue();   // Tocca il vertice del box
+        assertThat(ellipseShape.intersects(41, 25, 60, 35)).isFalse(); // Interseca solo l'ellisse non ruotata
+        assertThat(ellipseShape.intersects(0, 0, 19.9, 100)).isFalse();
+    }
+}
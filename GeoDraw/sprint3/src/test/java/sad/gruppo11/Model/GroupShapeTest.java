@@ -3,6 +3,7 @@ package sad.gruppo11.Model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
@@ -199,4 +200,148 @@ public class GroupShapeTest {
         
         assertThatThrownBy(() -> group.getChild(5)).isInstanceOf(IndexOutOfBoundsException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    void boundsShouldBeCachedUntilAChildChanges() {
+        RectangleShape spyChild = spy(new RectangleShape(new Rect(0, 0, 10, 10), ColorData.RED, ColorData.RED));
+        GroupShape cached = new GroupShape(new ArrayList<>(List.of(spyChild)));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cached.getBounds()).isEqualTo(new Rect(0, 0, 10, 10));
+            cached.getRotatedBounds();
+        }
+        verify(spyChild, times(2)).getRotatedBounds(); // Una volta per getBounds, una per getRotatedBounds
+
+        spyChild.move(new Vector2D(5, 0)); // Modifica diretta del figlio, non tramite il gruppo
+        assertThat(cached.getBounds()).isEqualTo(new Rect(5, 0, 10, 10));
+        verify(spyChild, times(3)).getRotatedBounds();
+    }
+
+    @Test
+    void childChangesShouldInvalidateNestedGroups() {
+        GroupShape outer = new GroupShape(new ArrayList<>(List.of(group)));
+        assertThat(outer.getBounds()).isEqualTo(new Rect(0, 0, 30, 10));
+
+        child2.resize(new Rect(20, 0, 40, 20));
+        assertThat(group.getBounds()).isEqualTo(new Rect(0, 0, 60, 20));
+        assertThat(outer.getBounds()).isEqualTo(new Rect(0, 0, 60, 20));
+
+        group.setRotation(90);
+        assertThat(outer.getBounds()).isEqualTo(group.getRotatedBounds());
+    }
+
+    @Test
+    void returnedBoundsShouldBeDefensiveCopies() {
+        Rect bounds = group.getBounds();
+        bounds.translate(100, 100);
+        assertThat(group.getBounds()).isEqualTo(new Rect(0, 0, 30, 10));
+    }
+
+    @Test
+    void addAndRemoveShouldInvalidateAndUnlinkChildren() {
+        assertThat(group.getBounds()).isEqualTo(new Rect(0, 0, 30, 10));
+        RectangleShape child3 = new RectangleShape(new Rect(50, 50, 10, 10), ColorData.RED, ColorData.RED);
+        group.add(child3);
+        assertThat(group.getBounds()).isEqualTo(new Rect(0, 0, 60, 60));
+
+        group.remove(child3);
+        assertThat(group.getBounds()).isEqualTo(new Rect(0, 0, 30, 10));
+        child3.move(new Vector2D(1000, 0)); // Non più figlio: non deve influire sul gruppo
+        assertThat(group.getBounds()).isEqualTo(new Rect(0, 0, 30, 10));
+    }
+
+    @Test
+    void clonedGroupShouldTrackItsOwnChildren() {
+        GroupShape groupClone = (GroupShape) group.clone();
+        assertThat(groupClone.getBounds()).isEqualTo(group.getBounds());
+
+        groupClone.getChildren().get(0).move(new Vector2D(-10, 0));
+        assertThat(groupClone.getBounds()).isEqualTo(new Rect(-10, 0, 40, 10));
+        assertThat(group.getBounds()).isEqualTo(new Rect(0, 0, 30, 10));
+    }
+
+    @Test
+    void deserializedGroupShouldRelinkChildren() throws Exception {
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
+        try (java.io.ObjectOutputStream oos = new java.io.ObjectOutputStream(baos)) {
+            oos.writeObject(group);
+        }
+        GroupShape copy;
+        try (java.io.ObjectInputStream ois = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(baos.toByteArray()))) {
+            copy = (GroupShape) ois.readObject();
+        }
+        assertThat(copy.getBounds()).isEqualTo(new Rect(0, 0, 30, 10));
+        copy.getChildren().get(1).move(new Vector2D(0, 40));
+        assertThat(copy.getBounds()).isEqualTo(new Rect(0, 0, 30, 50));
+    }
+
+    @Test
+    void getTransformShouldBeRecomputedWhenChildMoves() {
+        group.setRotation(90);
+        Affine2D before = group.getTransform();
+        assertThat(group.getTransform()).isSameAs(before);
+
+        child2.move(new Vector2D(10, 0)); // Bounds del gruppo: (0,0,40,10), centro (20,5)
+
+        Affine2D after = group.getTransform();
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.transformX(20, 5)).isCloseTo(20, within(1e-9));
+        assertThat(after.transformY(20, 5)).isCloseTo(5, within(1e-9));
+    }
+
+    @Test
+    void setRotationShouldDiscardInverseTransformCachedAtZeroDegrees() {
+        GroupShape bar = new GroupShape(List.of(new RectangleShape(new Rect(0, 0, 100, 10), ColorData.RED, ColorData.RED)));
+        assertThat(bar.contains(90, 5)).isTrue(); // Mette in cache l'inversa identità, senza calcolare i bounds
+
+        bar.setRotation(90); // Attorno a (50, 5): ora occupa [45, 55] x [-45, 55]
+
+        GroupShape fresh = new GroupShape(List.of(new RectangleShape(new Rect(0, 0, 100, 10), ColorData.RED, ColorData.RED)));
+        fresh.setRotation(90);
+        assertThat(fresh.contains(90, 5)).isFalse();
+        assertThat(bar.contains(90, 5)).isFalse();
+        assertThat(bar.contains(50, -40)).isTrue();
+    }
+
+    @Test
+    void primitiveContainsShouldUseRotatedGeometry() {
+        // Attorno a (15, 5): child1 occupa [10, 20] x [-10, 0], il cerchio child2 ha centro (15, 15)
+        group.setRotation(90);
+        assertThat(group.contains(15, -5)).isTrue();  // child1 ruotato
+        assertThat(group.contains(5, 5)).isFalse();   // child1 non ruotato
+        assertThat(group.contains(15, 15)).isTrue();  // child2 ruotato
+        assertThat(group.contains(15, 5)).isFalse();  // Tra i due figli
+        assertThat(group.contains(10, 0)).isTrue();   // Vertici di child1
+        assertThat(group.contains(20, -10)).isTrue();
+        assertThat(group.contains(20.1, -5)).isFalse();
+    }
+
+    @Test
+    void intersectsShouldUseRotatedBoundingBox() {
+        group.setRotation(90); // Bounding box ruotato [10, 20] x [-10, 20]
+        assertThat(group.intersects(20, 20, 30, 30)).isTrue();  // Tocca il vertice (20, 20)
+        assertThat(group.intersects(25, 0, 30, 10)).isFalse();  // Interseca solo il gruppo non ruotato
+        assertThat(group.intersects(20.1, -10, 30, 20)).isFalse();
+    }
+
+    @Test
+    void primitiveContainsAndIntersectsShouldComposeNestedRotations() {
+        // Gruppo interno ruotato di 90 gradi attorno a (50, 5): occupa [45, 55] x [-45, 55]
+        GroupShape inner = new GroupShape(List.of(new RectangleShape(new Rect(0, 0, 100, 10), ColorData.RED, ColorData.RED)));
+        inner.setRotation(90);
+        Shape square = new RectangleShape(new Rect(200, 0, 10, 10), ColorData.BLUE, ColorData.BLUE);
+        // Bounds esterni [45, 210] x [-45, 55]: la rotazione di 180 gradi attorno a (127.5, 5) manda (x, y) in (255 - x, 10 - y)
+        GroupShape outer = new GroupShape(List.of(inner, square));
+        outer.setRotation(180);
+
+        assertThat(outer.contains(205, 50)).isTrue();   // Gruppo interno, dopo entrambe le rotazioni
+        assertThat(outer.contains(210, 55)).isTrue();   // Suo vertice
+        assertThat(outer.contains(50, -40)).isFalse();  // Dove stava il gruppo interno prima della rotazione esterna
+        assertThat(outer.contains(50, 5)).isTrue();     // Il quadrato
+        assertThat(outer.contains(205, 5)).isTrue();
+        assertThat(outer.contains(210.1, 0)).isFalse();
+
+        assertThat(outer.intersects(210, 55, 300, 300)).isTrue();
+        assertThat(outer.intersects(0, -100, 44.9, 100)).isFalse();
+    }
+}
@@ -235,4 +235,23 @@ public class LineSegmentTest {
         Rect rotatedBounds = line.getRotatedBounds();
         assertThat(rotatedBounds).isEqualTo(bounds);
     }
-}
\ No newline at end of file
+
+    @Test
+    void primitiveContainsShouldUseRotatedGeometry() {
+        line.setRotation(90); // Attorno a (25, 40): la linea ruotata va da (45, 25) a (5, 55)
+        assertThat(line.contains(25, 40)).isTrue();
+        assertThat(line.contains(45, 25)).isTrue();  // Estremi
+        assertThat(line.contains(5, 55)).isTrue();
+        assertThat(line.contains(10, 20)).isFalse(); // Estremo della linea non ruotata
+        assertThat(line.contains(37, 56)).isFalse(); // 20 px a lato della linea
+        assertThat(line.contains(47.4, 23.2)).isFalse(); // Prolungamento oltre l'estremo, fuori tolleranza
+    }
+
+    @Test
+    void intersectsShouldUseRotatedBoundingBox() {
+        line.setRotation(90); // Bounding box ruotato [5, 45] x [25, 55]
+        assertThat(line.intersects(45, 0, 100, 25)).isTrue();     // Tocca l'estremo (45, 25)
+        assertThat(line.intersects(0, 0, 100, 24.9)).isFalse();   // Interseca solo la linea non ruotata
+        assertThat(line.intersects(45.1, 0, 100, 100)).isFalse();
+    }
+}
@@ -135,4 +135,22 @@ public class PolygonShapeTest {
         assertThat(clonedPoly.getRotation()).isEqualTo(polygon.getRotation());
         assertThat(clonedPoly.getId()).isEqualTo(polygon.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void primitiveContainsShouldUseRotatedGeometry() {
+        polygon.setRotation(90); // Attorno a (15, 10): vertici ruotati (25, -5), (25, 25), (5, 10)
+        assertThat(polygon.contains(20, 10)).isTrue();
+        assertThat(polygon.contains(24, -3)).isTrue(); // Fuori dal triangolo non ruotato
+        assertThat(polygon.contains(5, 2)).isFalse();  // Dentro quello non ruotato, fuori da quello ruotato
+        assertThat(polygon.contains(24.9, 10)).isTrue(); // Vicino al lato verticale x = 25
+        assertThat(polygon.contains(25.1, 10)).isFalse();
+    }
+
+    @Test
+    void intersectsShouldUseRotatedBoundingBox() {
+        polygon.setRotation(90); // Bounding box ruotato [5, 25] x [-5, 25]
+        assertThat(polygon.intersects(25, 25, 40, 40)).isTrue();    // Tocca il vertice (25, 25)
+        assertThat(polygon.intersects(25.1, 0, 40, 20)).isFalse();  // Interseca solo il triangolo non ruotato
+        assertThat(polygon.intersects(0, -10, 4.9, 30)).isFalse();
+    }
+}
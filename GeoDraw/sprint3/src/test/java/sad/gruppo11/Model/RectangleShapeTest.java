@@ -3,6 +3,7 @@ package sad.gruppo11.Model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
@@ -190,4 +191,40 @@ public class RectangleShapeTest {
         assertThat(rotatedBounds.getCenter().getX()).isEqualTo(5, within(1e-6));
         assertThat(rotatedBounds.getCenter().getY()).isEqualTo(5, within(1e-6));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTransformShouldBeCachedUntilGeometryChanges() {
+        assertThat(rectShape.getTransform().isIdentity()).isTrue();
+
+        rectShape.setRotation(90);
+        Affine2D rotated = rectShape.getTransform();
+        assertThat(rectShape.getTransform()).isSameAs(rotated);
+        // Il pivot è il centro dei bounds (25, 40)
+        assertThat(rotated.transformX(25, 40)).isCloseTo(25, within(1e-9));
+        assertThat(rotated.transformY(25, 40)).isCloseTo(40, within(1e-9));
+
+        rectShape.move(new Vector2D(10, 0));
+        Affine2D moved = rectShape.getTransform();
+        assertThat(moved).isNotSameAs(rotated);
+        assertThat(moved.transformX(35, 40)).isCloseTo(35, within(1e-9));
+    }
+
+    @Test
+    void primitiveContainsShouldUseRotatedGeometry() {
+        rectShape.setRotation(90); // Centro (25, 40): il rettangolo ruotato occupa [5, 45] x [25, 55]
+        assertThat(rectShape.contains(6, 40)).isTrue();   // Fuori dal rettangolo non ruotato
+        assertThat(rectShape.contains(25, 22)).isFalse(); // Dentro quello non ruotato, fuori da quello ruotato
+        assertThat(rectShape.contains(5, 40)).isTrue();   // Sul bordo
+        assertThat(rectShape.contains(45, 55)).isTrue();  // Sul vertice
+        assertThat(rectShape.contains(4.9, 40)).isFalse();
+    }
+
+    @Test
+    void intersectsShouldUseRotatedBoundingBox() {
+        rectShape.setRotation(90);
+        assertThat(rectShape.intersects(0, 0, 5, 25)).isTrue();     // Tocca il vertice (5, 25)
+        assertThat(rectShape.intersects(20, 0, 30, 24.9)).isFalse(); // Interseca solo il rettangolo non ruotato
+        assertThat(rectShape.intersects(0, 0, 4.9, 100)).isFalse();
+        assertThat(rectShape.intersects(30, 30, 31, 31)).isTrue();   // Box interno
+    }
+}
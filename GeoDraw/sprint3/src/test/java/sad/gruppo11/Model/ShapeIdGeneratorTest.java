@@ -0,0 +1,83 @@
+package sad.gruppo11.Model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ShapeIdGeneratorTest {
+
+    private final ShapeIdGenerator original = ShapeIdGenerator.getGenerator();
+
+    @AfterEach
+    void restoreGenerator() {
+        ShapeIdGenerator.setGenerator(original);
+    }
+
+    @Test
+    void sessionGeneratorShouldProduceValidDistinctUuids() {
+        SessionShapeIdGenerator generator = new SessionShapeIdGenerator(0x1234_5678_9ABC_DEF0L);
+
+        UUID first = generator.nextId();
+        UUID second = generator.nextId();
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(first.version()).isEqualTo(4);
+        assertThat(first.variant()).isEqualTo(2);
+        assertThat(first.getMostSignificantBits()).isEqualTo(second.getMostSignificantBits());
+        assertThat(UUID.fromString(first.toString())).isEqualTo(first);
+        assertThat(new SessionShapeIdGenerator().nextId().getMostSignificantBits())
+            .isNotEqualTo(new SessionShapeIdGenerator().nextId().getMostSignificantBits()); // Prefissi casuali per sessione
+    }
+
+    @Test
+    void sessionGeneratorShouldBeUniqueAcrossThreads() throws Exception {
+        SessionShapeIdGenerator generator = new SessionShapeIdGenerator();
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = IntStream.range(0, 4)
+                .mapToObj(t -> pool.submit(() -> {
+                    for (int i = 0; i < 25_000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }))
+                .collect(Collectors.toList());
+            for (Future<?> f : futures) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(ids).hasSize(100_000);
+    }
+
+    @Test
+    void shapesShouldUseConfiguredGenerator() {
+        UUID fixed = UUID.fromString("00000000-0000-4000-8000-000000000042");
+        ShapeIdGenerator.setGenerator(() -> fixed);
+
+        RectangleShape rect = new RectangleShape(new Rect(0, 0, 1, 1), ColorData.BLACK, ColorData.WHITE);
+        GroupShape group = new GroupShape(List.of(rect));
+
+        assertThat(rect.getId()).isEqualTo(fixed);
+        assertThat(group.getId()).isEqualTo(fixed);
+        ShapeIdGenerator.setGenerator(original);
+        assertThat(rect.cloneWithNewId().getId()).isNotEqualTo(fixed);
+        assertThat(rect.clone().getId()).isEqualTo(fixed); // clone() mantiene l'ID
+        assertThatNullPointerException().isThrownBy(() -> ShapeIdGenerator.setGenerator(null));
+    }
+}
@@ -0,0 +1,107 @@
+package sad.gruppo11.Model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+import sad.gruppo11.Model.geometry.Vector2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ShapeSpatialIndexTest {
+    private ShapeSpatialIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ShapeSpatialIndex();
+    }
+
+    private Shape rectAt(double x, double y) {
+        return new RectangleShape(new Rect(x, y, 10, 10), ColorData.BLACK, ColorData.WHITE);
+    }
+
+    @Test
+    void insertAndQueryShouldReturnCandidates() {
+        Shape a = rectAt(0, 0);
+        Shape b = rectAt(100, 100);
+        index.insert(a);
+        index.insert(b);
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.candidatesAt(new Point2D(5, 5))).containsExactly(a);
+        assertThat(index.candidatesIntersecting(new Rect(-10, -10, 200, 200))).containsExactlyInAnyOrder(a, b);
+        assertThat(index.candidatesAt(new Point2D(50, 50))).isEmpty();
+    }
+
+    @Test
+    void insertTwiceShouldNotDuplicate() {
+        Shape a = rectAt(0, 0);
+        index.insert(a);
+        index.insert(a);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.candidatesAt(new Point2D(5, 5))).containsExactly(a);
+    }
+
+    @Test
+    void updateShouldReflectNewGeometry() {
+        Shape a = rectAt(0, 0);
+        index.insert(a);
+        a.move(new Vector2D(500, 0));
+        index.update(a);
+
+        assertThat(index.candidatesAt(new Point2D(5, 5))).isEmpty();
+        assertThat(index.candidatesAt(new Point2D(505, 5))).containsExactly(a);
+    }
+
+    @Test
+    void updateOfUnknownShapeShouldBeIgnored() {
+        index.update(rectAt(0, 0));
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void splitsAndRemovalsShouldKeepAllShapesReachable() {
+        List<Shape> shapes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 40; j++) {
+                Shape s = rectAt(i * 20, j * 20);
+                shapes.add(s);
+                index.insert(s);
+            }
+        }
+        for (int k = 0; k < shapes.size(); k += 2) {
+            index.remove(shapes.get(k));
+        }
+
+        assertThat(index.size()).isEqualTo(shapes.size() / 2);
+        for (int k = 0; k < shapes.size(); k++) {
+            Rect b = shapes.get(k).getBounds();
+            List<Shape> found = index.candidatesAt(b.getCenter());
+            if (k % 2 == 0) {
+                assertThat(found).doesNotContain(shapes.get(k));
+            } else {
+                assertThat(found).containsExactly(shapes.get(k));
+            }
+        }
+    }
+
+    @Test
+    void groupShouldBeIndexedByChildrenBounds() {
+        Shape group = new GroupShape(new ArrayList<>(Arrays.asList(rectAt(0, 0), rectAt(20, 20))));
+        index.insert(group);
+        assertThat(index.candidatesAt(new Point2D(15, 15))).containsExactly(group);
+    }
+
+    @Test
+    void clearShouldEmptyTheIndex() {
+        index.insert(rectAt(0, 0));
+        index.clear();
+        assertThat(index.size()).isZero();
+        assertThat(index.candidatesAt(new Point2D(5, 5))).isEmpty();
+    }
+}
@@ -0,0 +1,195 @@
+package sad.gruppo11.Model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ShapeZOrderListTest {
+    private ShapeZOrderList list;
+
+    @BeforeEach
+    void setUp() {
+        list = new ShapeZOrderList();
+    }
+
+    private Shape newShape() {
+        return new RectangleShape(new Rect(0, 0, 1, 1), ColorData.BLACK, ColorData.WHITE);
+    }
+
+    @Test
+    void addAllShouldAppendInOrder() {
+        Shape first = newShape();
+        list.add(first);
+        List<Shape> many = new ArrayList<>();
+        for (int i = 0; i < 200; i++) many.add(newShape()); // Abbastanza da passare alla ricostruzione in blocco
+
+        assertThat(list.addAll(many)).isTrue();
+
+        assertThat(list).hasSize(201);
+        assertThat(list.get(0)).isSameAs(first);
+        assertThat(list.subList(1, 201)).containsExactlyElementsOf(many);
+        assertThat(list.indexOf(many.get(150))).isEqualTo(151);
+        assertThat(list.addAll(List.of())).isFalse();
+    }
+
+    @Test
+    void addAndPositionalInsertShouldKeepOrder() {
+        Shape a = newShape(), b = newShape(), c = newShape();
+        list.add(a);
+        list.add(c);
+        list.add(1, b);
+
+        assertThat(list).containsExactly(a, b, c);
+        assertThat(list.get(1)).isEqualTo(b);
+        assertThat(list.indexOf(c)).isEqualTo(2);
+        assertThat(list.contains(a)).isTrue();
+        assertThat(list.contains(newShape())).isFalse();
+        assertThat(list.indexOf(null)).isEqualTo(-1);
+    }
+
+    @Test
+    void removeShouldShiftFollowingShapes() {
+        Shape a = newShape(), b = newShape(), c = newShape();
+        list.add(a);
+        list.add(b);
+        list.add(c);
+
+        assertThat(list.remove(b)).isTrue();
+        assertThat(list.remove(b)).isFalse();
+        assertThat(list).containsExactly(a, c);
+        assertThat(list.indexOf(c)).isEqualTo(1);
+
+        assertThat(list.remove(0)).isEqualTo(a);
+        assertThat(list).containsExactly(c);
+    }
+
+    @Test
+    void outOfBoundsAccessShouldThrow() {
+        list.add(newShape());
+        assertThatThrownBy(() -> list.get(1)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> list.add(3, newShape())).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> list.remove(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> list.add(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void duplicatesShouldBehaveLikeArrayList() {
+        Shape a = newShape(), b = newShape();
+        list.add(a);
+        list.add(b);
+        list.add(a);
+
+        assertThat(list.indexOf(a)).isEqualTo(0);
+        list.remove(a); // Rimuove la prima occorrenza
+        assertThat(list).containsExactly(b, a);
+        assertThat(list.indexOf(a)).isEqualTo(1);
+        list.remove(a);
+        assertThat(list.contains(a)).isFalse();
+    }
+
+    @Test
+    void iteratorShouldFailFastOnModification() {
+        list.add(newShape());
+        list.add(newShape());
+        Iterator<Shape> it = list.iterator();
+        it.next();
+        list.add(newShape());
+        assertThatThrownBy(it::next).isInstanceOf(ConcurrentModificationException.class);
+    }
+
+    @Test
+    void randomOperationsShouldMatchArrayList() {
+        Random random = new Random(7);
+        List<Shape> expected = new ArrayList<>();
+        List<Shape> pool = new ArrayList<>();
+        for (int i = 0; i < 200; i++) pool.add(newShape());
+
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(6);
+            if (op <= 1 || expected.isEmpty()) {
+                Shape s = pool.get(random.nextInt(pool.size()));
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, s);
+                list.add(index, s);
+            } else if (op == 2) {
+                int index = random.nextInt(expected.size());
+                assertThat(list.remove(index)).isSameAs(expected.remove(index));
+            } else if (op == 3) {
+                Shape s = pool.get(random.nextInt(pool.size()));
+                assertThat(list.remove(s)).isEqualTo(expected.remove(s));
+            } else if (op == 4) { // bringToFront
+                Shape s = expected.get(random.nextInt(expected.size()));
+                expected.remove(s);
+                expected.add(s);
+                list.remove(s);
+                list.add(s);
+            } else { // sendToBack
+                Shape s = expected.get(random.nextInt(expected.size()));
+                expected.remove(s);
+                expected.add(0, s);
+                list.remove(s);
+                list.add(0, s);
+            }
+            Shape probe = pool.get(random.nextInt(pool.size()));
+            assertThat(list.indexOf(probe)).isEqualTo(expected.indexOf(probe));
+            assertThat(list.contains(probe)).isEqualTo(expected.contains(probe));
+        }
+        assertThat(list).containsExactlyElementsOf(expected);
+        assertThat(list.size()).isEqualTo(expected.size());
+
+        list.clear();
+        assertThat(list).isEmpty();
+        assertThat(list.contains(pool.get(0))).isFalse();
+    }
+
+    @Test
+    void bulkRemoveAndInsertShouldMatchArrayListOnBothStrategies() {
+        Random random = new Random(11);
+        for (int k : new int[] {2, 300}) { // Pochi indici: operazioni singole; molti: ricostruzione
+            list.clear();
+            List<Shape> expected = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                Shape s = newShape();
+                expected.add(s);
+                list.add(s);
+            }
+            int[] indices = random.ints(0, 1000).distinct().limit(k).sorted().toArray();
+            List<Shape> removed = new ArrayList<>();
+            for (int index : indices) removed.add(expected.get(index));
+
+            list.removeAt(indices);
+            List<Shape> remaining = new ArrayList<>(expected);
+            remaining.removeAll(removed);
+            assertThat(list).containsExactlyElementsOf(remaining);
+            assertThat(list.contains(removed.get(0))).isFalse();
+            assertThat(list.indexOf(remaining.get(remaining.size() - 1))).isEqualTo(remaining.size() - 1);
+
+            list.insertAt(indices, removed);
+            assertThat(list).containsExactlyElementsOf(expected);
+            assertThat(list.indexOf(removed.get(k - 1))).isEqualTo(indices[k - 1]);
+            assertThat(list.get(indices[0])).isSameAs(removed.get(0));
+        }
+    }
+
+    @Test
+    void bulkOperationsShouldRejectInvalidIndices() {
+        Shape a = newShape();
+        list.add(a);
+        list.add(newShape());
+
+        assertThatIllegalArgumentException().isThrownBy(() -> list.removeAt(new int[] {1, 0}));
+        assertThatIllegalArgumentException().isThrownBy(() -> list.removeAt(new int[] {2}));
+        assertThatIllegalArgumentException().isThrownBy(() -> list.insertAt(new int[] {4}, List.of(a)));
+        assertThatIllegalArgumentException().isThrownBy(() -> list.insertAt(new int[] {0, 1}, List.of(a)));
+        assertThat(list).hasSize(2);
+    }
+}
@@ -134,4 +134,24 @@ public class TextShapeTest {
     private ColorData getTextColorForTest(TextShape ts) {
         return ts.getStrokeColor(); // As per current implementation
     }
+
+    @Test
+    void primitiveContainsShouldUseRotatedGeometry() {
+        textShape.resize(new Rect(10, 20, 60, 20));
+        textShape.setRotation(90); // Centro (40, 30): il riquadro ruotato occupa [30, 50] x [0, 60]
+        assertThat(textShape.contains(40, 5)).isTrue();   // Fuori dal riquadro non ruotato
+        assertThat(textShape.contains(15, 30)).isFalse(); // Dentro quello non ruotato, fuori da quello ruotato
+        assertThat(textShape.contains(30, 0)).isTrue();   // Vertici
+        assertThat(textShape.contains(50, 60)).isTrue();
+        assertThat(textShape.contains(29.9, 30)).isFalse();
+    }
+
+    @Test
+    void intersectsShouldUseRotatedBoundingBox() {
+        textShape.resize(new Rect(10, 20, 60, 20));
+        textShape.setRotation(90);
+        assertThat(textShape.intersects(50, 60, 70, 70)).isTrue();   // Tocca il vertice (50, 60)
+        assertThat(textShape.intersects(0, 25, 29.9, 35)).isFalse(); // Interseca solo il riquadro non ruotato
+        assertThat(textShape.intersects(35, -10, 45, -0.1)).isFalse();
+    }
 }
@@ -0,0 +1,84 @@
+package sad.gruppo11.Model.geometry;
+
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.*;
+
+public class Affine2DTest {
+
+    @Test
+    void rotationByZeroShouldReturnIdentity() {
+        Affine2D t = Affine2D.rotation(0, 10, 20);
+        assertThat(t).isSameAs(Affine2D.IDENTITY);
+        assertThat(t.isIdentity()).isTrue();
+        assertThat(t.transformX(3, 4)).isEqualTo(3);
+        assertThat(t.transformY(3, 4)).isEqualTo(4);
+    }
+
+    @Test
+    void rotationShouldRotateAroundPivot() {
+        Affine2D t = Affine2D.rotation(90, 10, 10);
+        // (20,10) è a (+10, 0) dal pivot: ruotato di 90 gradi diventa (0, +10)
+        Point2D p = t.transform(new Point2D(20, 10));
+        assertThat(p.getX()).isCloseTo(10, within(1e-9));
+        assertThat(p.getY()).isCloseTo(20, within(1e-9));
+        // Il pivot resta fermo
+        assertThat(t.transformX(10, 10)).isCloseTo(10, within(1e-9));
+        assertThat(t.transformY(10, 10)).isCloseTo(10, within(1e-9));
+        assertThat(t.isIdentity()).isFalse();
+    }
+
+    @Test
+    void quarterTurnsShouldHaveExactCoefficients() {
+        Affine2D t90 = Affine2D.rotation(90, 5, 5);
+        assertThat(t90.getMxx()).isEqualTo(0.0);
+        assertThat(t90.getMyx()).isEqualTo(1.0);
+        assertThat(t90.transformY(0, 0)).isEqualTo(0.0); // Esatto, senza residui di cos(90°)
+        Affine2D t180 = Affine2D.rotation(180, 5, 5);
+        assertThat(t180.getMyx()).isEqualTo(0.0);
+        assertThat(t180.transformX(0, 0)).isEqualTo(10.0);
+    }
+
+    @Test
+    void rotationShouldMatchJavaFxRotateCoefficients() {
+        double angle = 30, cos = Math.cos(Math.toRadians(angle)), sin = Math.sin(Math.toRadians(angle));
+        Affine2D t = Affine2D.rotation(angle, 5, -2);
+        assertThat(t.getMxx()).isEqualTo(cos);
+        assertThat(t.getMxy()).isEqualTo(-sin);
+        assertThat(t.getMyx()).isEqualTo(sin);
+        assertThat(t.getMyy()).isEqualTo(cos);
+        assertThat(t.getTx()).isCloseTo(5 - 5 * cos - 2 * sin, within(1e-12));
+        assertThat(t.getTy()).isCloseTo(-2 - 5 * sin + 2 * cos, within(1e-12));
+    }
+
+    @Test
+    void createInverseShouldUndoTransform() {
+        Affine2D t = new Affine2D(2, 1, 5, -1, 3, -4);
+        Affine2D inverse = t.createInverse();
+        double x = t.transformX(7, -3), y = t.transformY(7, -3);
+        assertThat(inverse.transformX(x, y)).isCloseTo(7, within(1e-9));
+        assertThat(inverse.transformY(x, y)).isCloseTo(-3, within(1e-9));
+        assertThat(Affine2D.IDENTITY.createInverse()).isSameAs(Affine2D.IDENTITY);
+    }
+
+    @Test
+    void createInverseShouldThrowForSingularTransform() {
+        Affine2D singular = new Affine2D(1, 2, 0, 2, 4, 0);
+        assertThatIllegalStateException().isThrownBy(singular::createInverse)
+            .withMessageContaining("not invertible");
+    }
+
+    @Test
+    void transformShouldThrowForNullPoint() {
+        assertThatNullPointerException().isThrownBy(() -> Affine2D.IDENTITY.transform(null));
+    }
+
+    @Test
+    void equalsAndHashCodeShouldCompareCoefficients() {
+        Affine2D a = Affine2D.rotation(45, 1, 2);
+        Affine2D b = Affine2D.rotation(45, 1, 2);
+        assertThat(a).isEqualTo(b);
+        assertThat(a.hashCode()).isEqualTo(b.hashCode());
+        assertThat(a).isNotEqualTo(Affine2D.rotation(45, 1, 3));
+        assertThat(new Affine2D(1, 0, 0, 0, 1, 0)).isEqualTo(Affine2D.IDENTITY);
+    }
+}
@@ -0,0 +1,130 @@
+package sad.gruppo11.Persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AsyncDrawingLoaderTest {
+
+    @TempDir Path tempDir;
+    private Drawing drawing;
+    private List<Shape> received;
+    private List<String> events;
+    private AsyncDrawingLoader.Listener listener;
+    private AsyncDrawingLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        drawing = new Drawing();
+        for (int i = 0; i < 1200; i++) {
+            drawing.addShape(new RectangleShape(new Rect(i, i, 10, 10), ColorData.BLACK, ColorData.RED));
+        }
+        received = new CopyOnWriteArrayList<>();
+        events = new CopyOnWriteArrayList<>();
+        listener = new AsyncDrawingLoader.Listener() {
+            @Override
+            public void onShapes(String path, List<Shape> batch, double fraction) {
+                received.addAll(batch);
+                events.add("batch " + batch.size() + " " + fraction);
+            }
+            @Override public void onCompleted(String path, int shapeCount) { events.add("completed " + shapeCount); }
+            @Override public void onCancelled(String path) { events.add("cancelled"); }
+            @Override public void onFailed(String path, Exception error) { events.add("failed"); }
+        };
+        loader = new AsyncDrawingLoader(new BinaryDrawingSerializer(), Executors.newSingleThreadExecutor(), 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdown();
+    }
+
+    @Test
+    void binaryFileShouldBeDeliveredInBatches() throws Exception {
+        Path file = tempDir.resolve("drawing.gdraw");
+        new BinaryDrawingSerializer().save(drawing, file.toString());
+
+        AsyncDrawingLoader.LoadTask task = loader.load(file.toString(), listener);
+
+        assertThat(task.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(task.isDone()).isTrue();
+        assertThat(events).containsExactly("batch 500 " + (500 / 1200.0), "batch 500 " + (1000 / 1200.0),
+                                           "batch 200 1.0", "completed 1200");
+        assertThat(received).containsExactlyElementsOf(drawing.getShapesInZOrder());
+    }
+
+    @Test
+    void legacySerFileShouldBeDeliveredInBatches() throws Exception {
+        Path file = tempDir.resolve("drawing.ser");
+        new DrawingSerializer().save(drawing, file.toString());
+
+        AsyncDrawingLoader.LoadTask task = loader.load(file.toString(), listener);
+
+        assertThat(task.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).hasSize(4).endsWith("completed 1200");
+        assertThat(received).containsExactlyElementsOf(drawing.getShapesInZOrder());
+    }
+
+    @Test
+    void cancelShouldStopDeliveringBatches() throws Exception {
+        Path file = tempDir.resolve("drawing.gdraw");
+        new BinaryDrawingSerializer().save(drawing, file.toString());
+        CountDownLatch taskAssigned = new CountDownLatch(1);
+        AtomicReference<AsyncDrawingLoader.LoadTask> taskRef = new AtomicReference<>();
+        AsyncDrawingLoader.Listener cancelling = new AsyncDrawingLoader.Listener() {
+            @Override
+            public void onShapes(String path, List<Shape> batch, double fraction) {
+                listener.onShapes(path, batch, fraction);
+                try {
+                    taskAssigned.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                taskRef.get().cancel(); // Annulla dopo il primo blocco
+            }
+            @Override public void onCompleted(String path, int shapeCount) { listener.onCompleted(path, shapeCount); }
+            @Override public void onCancelled(String path) { listener.onCancelled(path); }
+            @Override public void onFailed(String path, Exception error) { listener.onFailed(path, error); }
+        };
+
+        AsyncDrawingLoader.LoadTask task = loader.load(file.toString(), cancelling);
+        taskRef.set(task);
+        taskAssigned.countDown();
+
+        assertThat(task.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(task.isCancelled()).isTrue();
+        assertThat(events).containsExactly("batch 500 " + (500 / 1200.0), "cancelled");
+        assertThat(received).hasSize(500);
+    }
+
+    @Test
+    void missingFileShouldBeReportedAsFailure() throws Exception {
+        AsyncDrawingLoader.LoadTask task = loader.load(tempDir.resolve("missing.gdraw").toString(), listener);
+
+        assertThat(task.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).containsExactly("failed");
+    }
+
+    @Test
+    void constructorAndLoadShouldValidateArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new AsyncDrawingLoader(new BinaryDrawingSerializer(), Executors.newSingleThreadExecutor(), 0));
+        assertThatNullPointerException().isThrownBy(() -> loader.load(null, listener));
+        assertThatIllegalArgumentException().isThrownBy(() -> loader.load("", listener));
+    }
+}
@@ -0,0 +1,134 @@
+package sad.gruppo11.Persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AsyncDrawingSaverTest {
+
+    @TempDir Path tempDir;
+    private Path target;
+    private Drawing drawing;
+    private List<String> events;
+    private AsyncDrawingSaver.Listener listener;
+    private AsyncDrawingSaver saver;
+
+    @BeforeEach
+    void setUp() {
+        target = tempDir.resolve("drawing.gdraw");
+        drawing = new Drawing();
+        for (int i = 0; i < 600; i++) {
+            drawing.addShape(new RectangleShape(new Rect(i, i, 10, 10), ColorData.BLACK, ColorData.RED));
+        }
+        events = new CopyOnWriteArrayList<>();
+        listener = new AsyncDrawingSaver.Listener() {
+            @Override public void onProgress(String path, double fraction) { events.add("progress " + fraction); }
+            @Override public void onCompleted(String path) { events.add("completed"); }
+            @Override public void onCancelled(String path) { events.add("cancelled"); }
+            @Override public void onFailed(String path, Exception error) { events.add("failed " + error.getMessage()); }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (saver != null) saver.shutdown();
+    }
+
+    private List<Path> filesInTempDir() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void saveShouldWriteInBackgroundAndReplaceTarget() throws Exception {
+        Files.write(target, "vecchio contenuto".getBytes());
+        saver = new AsyncDrawingSaver(new BinaryDrawingSerializer());
+
+        AsyncDrawingSaver.SaveTask task = saver.save(drawing, target.toString(), listener);
+
+        assertThat(task.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(task.isDone()).isTrue();
+        assertThat(events).startsWith("progress 0.0").endsWith("progress 1.0", "completed");
+        assertThat(filesInTempDir()).containsExactly(target); // Nessun file temporaneo rimasto
+        assertThat(new BinaryDrawingSerializer().load(target.toString()).getShapesInZOrder())
+            .containsExactlyElementsOf(drawing.getShapesInZOrder());
+    }
+
+    @Test
+    void cancelDuringWriteShouldKeepExistingFile() throws Exception {
+        Files.write(target, "vecchio contenuto".getBytes());
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        IDrawingSerializer slowSerializer = new IDrawingSerializer() {
+            @Override public void save(Drawing d, String path) {}
+            @Override public Drawing load(String path) { return null; }
+            @Override
+            public void save(Drawing d, String path, ProgressMonitor monitor) throws IOException {
+                Files.write(Path.of(path), "parziale".getBytes());
+                writing.countDown();
+                try {
+                    resume.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (monitor.isCancelled()) throw new CancellationException();
+            }
+        };
+        saver = new AsyncDrawingSaver(slowSerializer);
+
+        AsyncDrawingSaver.SaveTask task = saver.save(drawing, target.toString(), listener);
+        assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+        task.cancel();
+        resume.countDown();
+
+        assertThat(task.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).containsExactly("cancelled");
+        assertThat(filesInTempDir()).containsExactly(target);
+        assertThat(Files.readAllBytes(target)).isEqualTo("vecchio contenuto".getBytes());
+    }
+
+    @Test
+    void failureShouldBeReportedAndKeepExistingFile() throws Exception {
+        Files.write(target, "vecchio contenuto".getBytes());
+        IDrawingSerializer failing = new IDrawingSerializer() {
+            @Override public void save(Drawing d, String path) throws IOException { throw new IOException("disco pieno"); }
+            @Override public Drawing load(String path) { return null; }
+        };
+        saver = new AsyncDrawingSaver(failing);
+
+        AsyncDrawingSaver.SaveTask task = saver.save(drawing, target.toString(), listener);
+
+        assertThat(task.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).containsExactly("failed disco pieno");
+        assertThat(filesInTempDir()).containsExactly(target);
+        assertThat(Files.readAllBytes(target)).isEqualTo("vecchio contenuto".getBytes());
+    }
+
+    @Test
+    void saveShouldValidateArguments() {
+        saver = new AsyncDrawingSaver(new BinaryDrawingSerializer());
+        assertThatNullPointerException().isThrownBy(() -> saver.save(null, target.toString(), listener))
+            .withMessageContaining("Drawing to save cannot be null");
+        assertThatNullPointerException().isThrownBy(() -> saver.save(drawing, target.toString(), null));
+        assertThatIllegalArgumentException().isThrownBy(() -> saver.save(drawing, "", listener));
+    }
+}
@@ -0,0 +1,194 @@
+package sad.gruppo11.Persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.EllipseShape;
+import sad.gruppo11.Model.GroupShape;
+import sad.gruppo11.Model.LineSegment;
+import sad.gruppo11.Model.PolygonShape;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.TextShape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class BinaryDrawingSerializerTest {
+
+    private BinaryDrawingSerializer serializer;
+    private Drawing drawing;
+    private Path tempFile;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws IOException {
+        serializer = new BinaryDrawingSerializer();
+        drawing = new Drawing();
+        tempFile = tempDir.resolve("drawing.gdraw");
+    }
+
+    private Drawing roundTrip(Drawing d) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(d, out);
+        return serializer.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    void allShapeTypesShouldSurviveRoundTripWithIds() throws IOException {
+        RectangleShape rect = new RectangleShape(new Rect(10, 10, 20, 30), ColorData.RED, ColorData.BLUE);
+        rect.setRotation(30);
+        EllipseShape ellipse = new EllipseShape(new Rect(0.1 + 0.2, -5, 7.25, 3), new ColorData(1, 2, 3, 0.7), ColorData.TRANSPARENT);
+        LineSegment line = new LineSegment(new Point2D(-1.5, 2), new Point2D(1e12, Math.PI), ColorData.GREEN);
+        PolygonShape polygon = new PolygonShape(Arrays.asList(new Point2D(0, 0), new Point2D(10, 0), new Point2D(5, 8.66)),
+                                                ColorData.BLACK, ColorData.YELLOW);
+        TextShape text = new TextShape("Ciao è ✓", new Point2D(3, 4), 14, "Arial", ColorData.BLUE);
+        text.reflectHorizontal();
+        text.setRotation(-45);
+        drawing.addShape(rect);
+        drawing.addShape(ellipse);
+        drawing.addShape(line);
+        drawing.addShape(polygon);
+        drawing.addShape(text);
+
+        List<Shape> loaded = roundTrip(drawing).getShapesInZOrder();
+
+        assertThat(loaded).hasSize(5);
+        assertThat(loaded).containsExactlyElementsOf(drawing.getShapesInZOrder()); // equals basato sull'ID
+        assertThat(loaded.get(0).getBounds()).isEqualTo(rect.getBounds());
+        assertThat(loaded.get(0).getRotation()).isEqualTo(30.0);
+        assertThat(loaded.get(1).getBounds()).isEqualTo(ellipse.getBounds()); // 0.30000000000000004 senza perdita
+        assertThat(loaded.get(1).getStrokeColor()).isEqualTo(new ColorData(1, 2, 3, 0.7));
+        assertThat(((LineSegment) loaded.get(2)).getEndPoint()).isEqualTo(new Point2D(1e12, Math.PI));
+        assertThat(((PolygonShape) loaded.get(3)).getVertices()).isEqualTo(polygon.getVertices());
+        TextShape loadedText = (TextShape) loaded.get(4);
+        assertThat(loadedText.getText()).isEqualTo("Ciao è ✓");
+        assertThat(loadedText.getFontName()).isEqualTo("Arial");
+        assertThat(loadedText.getBaseFontSize()).isEqualTo(14.0);
+        assertThat(loadedText.getDrawingBounds()).isEqualTo(text.getDrawingBounds());
+        assertThat(loadedText.isHorizontallyFlipped()).isEqualTo(text.isHorizontallyFlipped());
+        assertThat(loadedText.getRotation()).isEqualTo(text.getRotation());
+    }
+
+    @Test
+    void groupsAndRepeatedShapesShouldBePreserved() throws IOException {
+        Shape a = new RectangleShape(new Rect(0, 0, 1, 1), ColorData.RED, ColorData.BLUE);
+        Shape b = new EllipseShape(new Rect(5, 5, 1, 1), ColorData.RED, ColorData.BLUE);
+        GroupShape inner = new GroupShape(Arrays.asList(b));
+        GroupShape group = new GroupShape(Arrays.asList(a, inner));
+        group.setRotation(90);
+        drawing.addShape(group);
+        drawing.addShape(a); // Stesso oggetto anche al primo livello
+
+        List<Shape> loaded = roundTrip(drawing).getShapesInZOrder();
+
+        GroupShape loadedGroup = (GroupShape) loaded.get(0);
+        assertThat(loadedGroup.getId()).isEqualTo(group.getId());
+        assertThat(loadedGroup.getRotation()).isEqualTo(90.0);
+        assertThat(loadedGroup.getChildren()).containsExactly(a, inner);
+        assertThat(((GroupShape) loadedGroup.getChildren().get(1)).getChildren()).containsExactly(b);
+        assertThat(loaded.get(1)).isSameAs(loadedGroup.getChildren().get(0));
+        assertThat(loadedGroup.getBounds()).isEqualTo(group.getBounds());
+    }
+
+    @Test
+    void saveAndLoadShouldUseFiles() throws IOException, ClassNotFoundException {
+        drawing.addShape(new RectangleShape(new Rect(1, 2, 3, 4), ColorData.RED, ColorData.BLUE));
+        serializer.save(drawing, tempFile.toString());
+
+        byte[] bytes = Files.readAllBytes(tempFile);
+        assertThat(new String(bytes, 0, 4, "US-ASCII")).isEqualTo("GDRW");
+        assertThat(serializer.load(tempFile.toString()).getShapesInZOrder()).containsExactlyElementsOf(drawing.getShapesInZOrder());
+    }
+
+    @Test
+    void recordReaderShouldDecodeShapesOneAtATime() throws IOException {
+        Shape a = new RectangleShape(new Rect(0, 0, 1, 1), ColorData.RED, ColorData.BLUE);
+        GroupShape group = new GroupShape(Arrays.asList(a));
+        drawing.addShape(group);
+        drawing.addShape(a);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(drawing, out);
+
+        BinaryDrawingSerializer.RecordReader reader = serializer.openReader(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(reader.getShapeCount()).isEqualTo(2);
+        Shape first = reader.next();
+        assertThat(reader.getPosition()).isEqualTo(1);
+        assertThat(first).isEqualTo(group);
+        assertThat(reader.next()).isSameAs(first.getChildren().get(0)); // Riferimento risolto tra record
+        assertThat(reader.hasNext()).isFalse();
+        assertThatThrownBy(reader::next).isInstanceOf(java.util.NoSuchElementException.class);
+    }
+
+    @Test
+    void isBinaryDrawingShouldRecognizeFormat() throws IOException {
+        serializer.save(drawing, tempFile.toString());
+        assertThat(BinaryDrawingSerializer.isBinaryDrawing(tempFile.toString())).isTrue();
+        new DrawingSerializer().save(drawing, tempFile.toString());
+        assertThat(BinaryDrawingSerializer.isBinaryDrawing(tempFile.toString())).isFalse();
+    }
+
+    @Test
+    void loadShouldReadLegacyJavaSerializedFiles() throws IOException, ClassNotFoundException {
+        Shape rect = new RectangleShape(new Rect(1, 2, 3, 4), ColorData.RED, ColorData.BLUE);
+        drawing.addShape(rect);
+        new DrawingSerializer().save(drawing, tempFile.toString());
+
+        assertThat(serializer.load(tempFile.toString()).getShapesInZOrder()).containsExactly(rect);
+    }
+
+    @Test
+    void readShouldRejectInvalidContent() {
+        assertThatThrownBy(() -> serializer.read(new ByteArrayInputStream("XXXX".getBytes())))
+            .isInstanceOf(IOException.class).hasMessageContaining("not a GeoDraw binary drawing");
+        assertThatThrownBy(() -> serializer.read(new ByteArrayInputStream(new byte[] {'G', 'D', 'R', 'W', 99})))
+            .isInstanceOf(IOException.class).hasMessageContaining("Unsupported drawing format version");
+        assertThatThrownBy(() -> serializer.read(new ByteArrayInputStream(new byte[] {'G', 'D', 'R', 'W', 1, 0, 0, 1, 42})))
+            .isInstanceOf(IOException.class).hasMessageContaining("Unknown shape record tag");
+        assertThatThrownBy(() -> serializer.read(new ByteArrayInputStream(new byte[] {'G', 'D', 'R'})))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void saveShouldValidateArguments() {
+        assertThatNullPointerException().isThrownBy(() -> serializer.save(null, tempFile.toString()))
+            .withMessageContaining("Drawing to save cannot be null");
+        assertThatIllegalArgumentException().isThrownBy(() -> serializer.save(drawing, ""));
+        assertThatNullPointerException().isThrownBy(() -> serializer.load(null));
+    }
+
+    @Test
+    void binaryFormatShouldBeMuchSmallerThanJavaSerialization() throws Exception {
+        // Solo il confronto delle dimensioni; i tempi sono misurati da PersistenceBenchmark
+        Random random = new Random(11);
+        ColorData[] colors = {ColorData.BLACK, ColorData.RED, ColorData.BLUE, ColorData.GREEN, ColorData.WHITE};
+        for (int i = 0; i < 2000; i++) {
+            double x = Math.round(random.nextDouble() * 200000) / 100.0, y = Math.round(random.nextDouble() * 200000) / 100.0;
+            ColorData stroke = colors[random.nextInt(colors.length)], fill = colors[random.nextInt(colors.length)];
+            switch (i % 4) {
+                case 0: drawing.addShape(new RectangleShape(new Rect(x, y, 40, 25), stroke, fill)); break;
+                case 1: drawing.addShape(new EllipseShape(new Rect(x, y, 12.5, 30), stroke, fill)); break;
+                case 2: drawing.addShape(new LineSegment(new Point2D(x, y), new Point2D(x + 50, y + 10), stroke)); break;
+                default: drawing.addShape(new TextShape("Label " + i, new Point2D(x, y), 12, "Arial", stroke));
+            }
+        }
+        Path javaFile = tempFile.resolveSibling("drawing.ser");
+        new DrawingSerializer().save(drawing, javaFile.toString());
+        serializer.save(drawing, tempFile.toString());
+
+        assertThat(serializer.load(tempFile.toString()).getShapeCount()).isEqualTo(drawing.getShapeCount());
+        assertThat(Files.size(tempFile) * 3).isLessThan(Files.size(javaFile));
+    }
+}
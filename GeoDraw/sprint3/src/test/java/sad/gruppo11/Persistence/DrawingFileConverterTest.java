@@ -0,0 +1,44 @@
+package sad.gruppo11.Persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.LineSegment;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class DrawingFileConverterTest {
+
+    @Test
+    void convertShouldRewriteSerFileInBinaryFormat(@TempDir Path tempDir) throws Exception {
+        Drawing drawing = new Drawing();
+        Shape rect = new RectangleShape(new Rect(1, 2, 3, 4), ColorData.RED, ColorData.BLUE);
+        Shape line = new LineSegment(new Point2D(0, 0), new Point2D(5, 5), ColorData.BLACK);
+        drawing.addShape(rect);
+        drawing.addShape(line);
+        Path ser = tempDir.resolve("old.ser");
+        Path bin = tempDir.resolve("new.gdraw");
+        new DrawingSerializer().save(drawing, ser.toString());
+
+        Drawing converted = DrawingFileConverter.convert(ser.toString(), bin.toString());
+
+        assertThat(converted.getShapesInZOrder()).containsExactly(rect, line);
+        assertThat(Files.size(bin)).isLessThan(Files.size(ser));
+        assertThat(new BinaryDrawingSerializer().read(Files.newInputStream(bin)).getShapesInZOrder())
+            .containsExactly(rect, line);
+    }
+
+    @Test
+    void convertShouldRejectNullPaths() {
+        assertThatNullPointerException().isThrownBy(() -> DrawingFileConverter.convert(null, "x"));
+        assertThatNullPointerException().isThrownBy(() -> DrawingFileConverter.convert("x", null));
+    }
+}
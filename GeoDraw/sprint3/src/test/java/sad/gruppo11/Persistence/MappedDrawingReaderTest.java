@@ -0,0 +1,150 @@
+package sad.gruppo11.Persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.EllipseShape;
+import sad.gruppo11.Model.GroupShape;
+import sad.gruppo11.Model.LineSegment;
+import sad.gruppo11.Model.PolygonShape;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.Shape;
+import sad.gruppo11.Model.TextShape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MappedDrawingReaderTest {
+
+    private Path file;
+    private Drawing drawing;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) {
+        file = tempDir.resolve("drawing.gdraw");
+        drawing = new Drawing();
+    }
+
+    private MappedDrawingReader save() throws IOException {
+        new BinaryDrawingSerializer().save(drawing, file.toString());
+        return MappedDrawingReader.open(file.toString());
+    }
+
+    @Test
+    void allShapeTypesShouldMatchStreamingReader() throws Exception {
+        RectangleShape rect = new RectangleShape(new Rect(10, 10, 20, 30), ColorData.RED, ColorData.BLUE);
+        rect.setRotation(30);
+        drawing.addShape(rect);
+        drawing.addShape(new EllipseShape(new Rect(0.1 + 0.2, -5, 7.25, 3), new ColorData(1, 2, 3, 0.7), ColorData.TRANSPARENT));
+        drawing.addShape(new LineSegment(new Point2D(-1.5, 2), new Point2D(1e12, Math.PI), ColorData.GREEN));
+        drawing.addShape(new PolygonShape(Arrays.asList(new Point2D(0, 0), new Point2D(10, 0), new Point2D(5, 8.66)),
+                                          ColorData.BLACK, ColorData.YELLOW));
+        TextShape text = new TextShape("Ciao è ✓", new Point2D(3, 4), 14, "Arial", ColorData.BLUE);
+        text.reflectHorizontal();
+        drawing.addShape(text);
+
+        try (MappedDrawingReader reader = save()) {
+            List<Shape> mapped = reader.getShapes();
+            List<Shape> streamed = new BinaryDrawingSerializer().load(file.toString()).getShapesInZOrder();
+
+            assertThat(mapped).containsExactlyElementsOf(streamed);
+            for (int i = 0; i < mapped.size(); i++) {
+                assertThat(mapped.get(i).getBounds()).isEqualTo(streamed.get(i).getBounds());
+                assertThat(mapped.get(i).getRotation()).isEqualTo(streamed.get(i).getRotation());
+                assertThat(mapped.get(i).getStrokeColor()).isEqualTo(streamed.get(i).getStrokeColor());
+            }
+            TextShape mappedText = (TextShape) mapped.get(4);
+            assertThat(mappedText.getText()).isEqualTo("Ciao è ✓");
+            assertThat(mappedText.isHorizontallyFlipped()).isTrue();
+            assertThat(((LineSegment) mapped.get(2)).getEndPoint()).isEqualTo(new Point2D(1e12, Math.PI));
+        }
+    }
+
+    @Test
+    void groupsShouldBeDecodedOnDemandWithSharedReferences() throws IOException {
+        Shape a = new RectangleShape(new Rect(0, 0, 1, 1), ColorData.RED, ColorData.BLUE);
+        Shape b = new EllipseShape(new Rect(5, 5, 1, 1), ColorData.RED, ColorData.BLUE);
+        GroupShape inner = new GroupShape(Arrays.asList(b));
+        GroupShape group = new GroupShape(Arrays.asList(a, inner));
+        drawing.addShape(new LineSegment(new Point2D(0, 0), new Point2D(1, 1), ColorData.BLACK));
+        drawing.addShape(group);
+        drawing.addShape(a); // Riferimento al figlio del gruppo
+
+        try (MappedDrawingReader reader = save()) {
+            assertThat(reader.getShapeCount()).isEqualTo(3);
+            assertThat(reader.getRecordCount()).isEqualTo(5);
+            assertThat(reader.isGroup(1)).isTrue();
+            assertThat(reader.isGroup(0)).isFalse();
+
+            // Il riferimento viene risolto prima del gruppo che contiene la forma
+            Shape shared = reader.getShape(2);
+            GroupShape loadedGroup = (GroupShape) reader.getShape(1);
+            assertThat(shared).isEqualTo(a);
+            assertThat(loadedGroup.getChildren().get(0)).isSameAs(shared);
+            assertThat(((GroupShape) loadedGroup.getChildren().get(1)).getChildren()).containsExactly(b);
+            assertThat(reader.getShape(1)).isSameAs(loadedGroup); // Dalla cache
+            assertThat(reader.readDrawing().getShapesInZOrder()).containsExactlyElementsOf(drawing.getShapesInZOrder());
+        }
+    }
+
+    @Test
+    void openShouldRejectInvalidFiles() throws IOException {
+        Files.write(file, "XXXXXXXX".getBytes());
+        assertThatThrownBy(() -> MappedDrawingReader.open(file.toString()))
+            .isInstanceOf(IOException.class).hasMessageContaining("not a GeoDraw binary drawing");
+
+        drawing.addShape(new RectangleShape(new Rect(0, 0, 1, 1), ColorData.RED, ColorData.BLUE));
+        new BinaryDrawingSerializer().save(drawing, file.toString());
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThatThrownBy(() -> MappedDrawingReader.open(file.toString()))
+            .isInstanceOf(IOException.class).hasMessageContaining("Truncated");
+
+        new DrawingSerializer().save(drawing, file.toString());
+        assertThatThrownBy(() -> MappedDrawingReader.open(file.toString())).isInstanceOf(IOException.class);
+        assertThatNullPointerException().isThrownBy(() -> MappedDrawingReader.open(null));
+    }
+
+    @Test
+    void indexOutOfRangeShouldThrow() throws IOException {
+        try (MappedDrawingReader reader = save()) {
+            assertThat(reader.getShapeCount()).isZero();
+            assertThatThrownBy(() -> reader.getShape(0)).isInstanceOf(IndexOutOfBoundsException.class);
+        }
+    }
+
+    @Test
+    void openShouldNotDecodeAndGetShapeShouldDecodeOnlyTheRequestedShape() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            drawing.addShape(new RectangleShape(new Rect(i % 100, i / 100, 40, 25), ColorData.BLACK, ColorData.WHITE));
+        }
+        GroupShape group = new GroupShape(Arrays.asList(
+            new EllipseShape(new Rect(0, 0, 5, 5), ColorData.RED, ColorData.BLUE),
+            new GroupShape(Arrays.asList(new LineSegment(new Point2D(0, 0), new Point2D(1, 1), ColorData.BLACK)))));
+        drawing.addShape(group);
+        drawing.addShape(new EllipseShape(new Rect(9, 9, 1, 1), ColorData.RED, ColorData.BLUE));
+
+        try (MappedDrawingReader reader = save()) {
+            assertThat(reader.getRecordCount()).isEqualTo(1005);
+            assertThat(reader.getDecodedRecordCount()).isZero(); // open costruisce solo l'indice
+            assertThat(reader.isGroup(1000)).isTrue();
+            assertThat(reader.getDecodedRecordCount()).isZero();
+
+            assertThat(reader.getShape(999)).isEqualTo(drawing.getShapesInZOrder().get(999));
+            assertThat(reader.getDecodedRecordCount()).isEqualTo(1);
+
+            // Il gruppo decodifica i propri record (gruppo, ellisse, gruppo interno, linea) e nient'altro
+            assertThat(reader.getShape(1000)).isEqualTo(group);
+            assertThat(reader.getDecodedRecordCount()).isEqualTo(5);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package sad.gruppo11.Persistence;
+
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.EllipseShape;
+import sad.gruppo11.Model.LineSegment;
+import sad.gruppo11.Model.RectangleShape;
+import sad.gruppo11.Model.TextShape;
+import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Point2D;
+import sad.gruppo11.Model.geometry.Rect;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Confronto di dimensioni e tempi tra serializzazione Java e formato binario, e tempo di apertura
+ * di MappedDrawingReader rispetto alla deserializzazione Java.
+ * Non è un test: surefire non lo esegue (il nome non termina in Test) e i tempi
+ * dipendono dalla macchina. Si lancia a mano dopo mvn test-compile:
+ * java -cp target/classes:target/test-classes:&lt;classpath di test&gt; sad.gruppo11.Persistence.PersistenceBenchmark [numeroForme]
+ */
+public class PersistenceBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int shapeCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Drawing drawing = createDrawing(shapeCount);
+        Path dir = Files.createTempDirectory("geodraw-bench");
+        Path javaFile = dir.resolve("drawing.ser");
+        Path binaryFile = dir.resolve("drawing.gdraw");
+        DrawingSerializer javaSerializer = new DrawingSerializer();
+        BinaryDrawingSerializer binarySerializer = new BinaryDrawingSerializer();
+        try {
+            long t0 = System.nanoTime();
+            javaSerializer.save(drawing, javaFile.toString());
+            long t1 = System.nanoTime();
+            binarySerializer.save(drawing, binaryFile.toString());
+            long t2 = System.nanoTime();
+            javaSerializer.load(javaFile.toString());
+            long t3 = System.nanoTime();
+            binarySerializer.load(binaryFile.toString());
+            long t4 = System.nanoTime();
+
+            System.out.printf("Serialization of %d shapes: java %d bytes (save %d ms, load %d ms), binary %d bytes (save %d ms, load %d ms)%n",
+                              shapeCount, Files.size(javaFile), (t1 - t0) / 1_000_000, (t3 - t2) / 1_000_000,
+                              Files.size(binaryFile), (t2 - t1) / 1_000_000, (t4 - t3) / 1_000_000);
+
+            try (MappedDrawingReader reader = MappedDrawingReader.open(binaryFile.toString())) {
+                long t5 = System.nanoTime();
+                reader.getShape(reader.getShapeCount() - 1);
+                long t6 = System.nanoTime();
+                System.out.printf("Open of %d shapes: java deserialization %d ms, mapped index %d ms, first decode %d us%n",
+                                  shapeCount, (t3 - t2) / 1_000_000, (t5 - t4) / 1_000_000, (t6 - t5) / 1_000);
+            }
+        } finally {
+            Files.deleteIfExists(javaFile);
+            Files.deleteIfExists(binaryFile);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    static Drawing createDrawing(int shapeCount) {
+        Drawing drawing = new Drawing();
+        Random random = new Random(11);
+        ColorData[] colors = {ColorData.BLACK, ColorData.RED, ColorData.BLUE, ColorData.GREEN, ColorData.WHITE};
+        for (int i = 0; i < shapeCount; i++) {
+            double x = Math.round(random.nextDouble() * 200000) / 100.0, y = Math.round(random.nextDouble() * 200000) / 100.0;
+            ColorData stroke = colors[random.nextInt(colors.length)], fill = colors[random.nextInt(colors.length)];
+            switch (i % 4) {
+                case 0: drawing.addShape(new RectangleShape(new Rect(x, y, 40, 25), stroke, fill)); break;
+                case 1: drawing.addShape(new EllipseShape(new Rect(x, y, 12.5, 30), stroke, fill)); break;
+                case 2: drawing.addShape(new LineSegment(new Point2D(x, y), new Point2D(x + 50, y + 10), stroke)); break;
+                default: drawing.addShape(new TextShape("Label " + i, new Point2D(x, y), 12, "Arial", stroke));
+            }
+        }
+        return drawing;
+    }
+}
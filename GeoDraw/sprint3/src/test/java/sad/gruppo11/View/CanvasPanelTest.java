@@ -21,11 +21,15 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.transform.Affine;
 
+import sad.gruppo11.Model.Drawing;
+import sad.gruppo11.Model.RectangleShape;
 import sad.gruppo11.Model.Shape;
 import sad.gruppo11.Model.LineSegment;
 import sad.gruppo11.Model.GroupShape;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.ColorData;
+import sad.gruppo11.Model.geometry.Rect;
+import sad.gruppo11.Model.geometry.Vector2D;
 
 
 import java.util.ArrayList;
@@ -161,6 +165,10 @@ class CanvasPanelTest {
     void drawShapes_withSelectedGroup_rendererIsConfiguredForEachChild() {
         Shape mockChild1 = mock(Shape.class);
         Shape mockChild2 = mock(Shape.class);
+        when(mockChild1.getBounds()).thenReturn(new Rect(0, 0, 10, 10));
+        when(mockChild1.getRotatedBounds()).thenReturn(new Rect(0, 0, 10, 10));
+        when(mockChild2.getBounds()).thenReturn(new Rect(20, 20, 10, 10));
+        when(mockChild2.getRotatedBounds()).thenReturn(new Rect(20, 20, 10, 10));
         GroupShape selectedGroup = new GroupShape(Arrays.asList(mockChild1, mockChild2));
         // Spy on the selectedGroup to verify getChildren is called if necessary,
         // though the real GroupShape will work.
@@ -287,6 +295,163 @@ class CanvasPanelTest {
         verify(mockGc, atMost(1)).strokeLine(anyDouble(), anyDouble(), anyDouble(), anyDouble());
         verify(mockGc, atMost(1)).setStroke(Color.LIGHTGRAY); // Should not draw if too dense
     }
-}
 
-            
\ No newline at end of file
+    @Test
+    void getVisibleWorldRect_shouldFollowZoomAndPanWithMargin() {
+        canvasPanel.setTransform(2.0, 100, 50);
+        Rect visible = canvasPanel.getVisibleWorldRect();
+        // Mondo visibile: x in [-50, 350], y in [-25, 275], più 4px / zoom di margine
+        assertEquals(-52, visible.getX(), 0.001);
+        assertEquals(-27, visible.getY(), 0.001);
+        assertEquals(352, visible.getRight(), 0.001);
+        assertEquals(277, visible.getBottom(), 0.001);
+    }
+
+    @Test
+    void drawShapes_shouldSkipShapesOutsideViewportAndCountThem() {
+        Shape inside = mock(Shape.class);
+        when(inside.getRotatedBounds()).thenReturn(new Rect(10, 10, 50, 50));
+        Shape partiallyInside = mock(Shape.class);
+        when(partiallyInside.getRotatedBounds()).thenReturn(new Rect(780, 580, 100, 100));
+        Shape outside = mock(Shape.class);
+        when(outside.getRotatedBounds()).thenReturn(new Rect(2000, 2000, 10, 10));
+        Shape noBounds = mock(Shape.class); // Bounds sconosciuti: va disegnata
+
+        canvasPanel.drawShapes(Arrays.asList(inside, partiallyInside, outside, noBounds), null);
+
+        verify(inside).accept(any(JavaFXShapeRenderer.class));
+        verify(partiallyInside).accept(any(JavaFXShapeRenderer.class));
+        verify(noBounds).accept(any(JavaFXShapeRenderer.class));
+        verify(outside, never()).accept(any(JavaFXShapeRenderer.class));
+        assertEquals(1, canvasPanel.getLastCulledShapeCount());
+
+        canvasPanel.setTransform(1.0, -1900, -1900); // Pan verso la forma lontana
+        canvasPanel.drawShapes(Arrays.asList(inside, partiallyInside, outside, noBounds), null);
+        verify(outside).accept(any(JavaFXShapeRenderer.class));
+        assertEquals(2, canvasPanel.getLastCulledShapeCount());
+    }
+
+    @Test
+    void drawShapes_rotatedGroupShouldNeverBeCulled() {
+        Shape rotatedGroup = mock(Shape.class);
+        when(rotatedGroup.isComposite()).thenReturn(true);
+        when(rotatedGroup.getRotation()).thenReturn(45.0);
+        when(rotatedGroup.getRotatedBounds()).thenReturn(new Rect(-500, -500, 10, 10));
+
+        canvasPanel.drawShapes(Arrays.asList(rotatedGroup), null);
+
+        verify(rotatedGroup).accept(any(JavaFXShapeRenderer.class));
+        assertEquals(0, canvasPanel.getLastCulledShapeCount());
+    }
+
+    @Test
+    void drawShapes_withDragPreview_shouldDrawDraggedShapesTranslatedInTheirZOrderSlot() {
+        Drawing drawing = new Drawing();
+        RectangleShape dragged = new RectangleShape(new Rect(100, 100, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        RectangleShape other = new RectangleShape(new Rect(150, 150, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        drawing.addShape(dragged);
+        drawing.addShape(other); // Sopra la forma trascinata
+
+        canvasPanel.setDragPreview(Arrays.asList(dragged), new Vector2D(30, -20));
+        canvasPanel.drawShapes(drawing, null);
+
+        assertTrue(canvasPanel.hasDragPreview());
+        InOrder inOrder = inOrder(mockGc);
+        inOrder.verify(mockGc).translate(30, -20);
+        inOrder.verify(mockGc).fillRect(100, 100, 10, 10); // Coordinate del modello, invariate
+        inOrder.verify(mockGc).fillRect(150, 150, 10, 10); // Resta sotto l'altra forma durante il drag
+        verify(mockGc, times(1)).fillRect(100, 100, 10, 10); // Non anche nella posizione originale
+        assertEquals(new Rect(100, 100, 10, 10), dragged.getBounds());
+
+        canvasPanel.clearDragPreview();
+        assertFalse(canvasPanel.hasDragPreview());
+        assertThrows(NullPointerException.class, () -> canvasPanel.setDragPreview(null, new Vector2D(0, 0)));
+    }
+
+    @Test
+    void drawShapes_withDragPreview_shouldDrawShapeDraggedIntoViewFromOutside() {
+        Drawing drawing = new Drawing();
+        RectangleShape below = new RectangleShape(new Rect(100, 100, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        RectangleShape dragged = new RectangleShape(new Rect(-5000, 100, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        RectangleShape above = new RectangleShape(new Rect(150, 150, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        drawing.addShape(below);
+        drawing.addShape(dragged);
+        drawing.addShape(above);
+
+        // Nel modello è fuori dalla viewport, in anteprima ci rientra
+        canvasPanel.setDragPreview(Arrays.asList(dragged), new Vector2D(5200, 0));
+        canvasPanel.drawShapes(drawing, null);
+
+        InOrder inOrder = inOrder(mockGc);
+        inOrder.verify(mockGc).fillRect(100, 100, 10, 10);
+        inOrder.verify(mockGc).translate(5200, 0);
+        inOrder.verify(mockGc).fillRect(-5000, 100, 10, 10);
+        inOrder.verify(mockGc).fillRect(150, 150, 10, 10);
+    }
+
+    @Test
+    void drawShapesFromDrawing_shouldDrawOnlyShapesInViewportInZOrder() {
+        Drawing drawing = new Drawing();
+        RectangleShape far = new RectangleShape(new Rect(5000, 5000, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        RectangleShape near = new RectangleShape(new Rect(100, 100, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        RectangleShape top = new RectangleShape(new Rect(105, 105, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        drawing.addShape(far);
+        drawing.addShape(near);
+        drawing.addShape(top);
+
+        canvasPanel.drawShapes(drawing, null);
+
+        assertEquals(1, canvasPanel.getLastCulledShapeCount());
+        InOrder inOrder = inOrder(mockGc);
+        inOrder.verify(mockGc).fillRect(100, 100, 10, 10);
+        inOrder.verify(mockGc).fillRect(105, 105, 10, 10);
+        verify(mockGc, never()).fillRect(5000, 5000, 10, 10);
+    }
+
+    @Test
+    void repaintRegions_shouldClipAndRepaintOnlyShapesInDirtyArea() {
+        Drawing drawing = new Drawing();
+        RectangleShape moved = new RectangleShape(new Rect(100, 100, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        RectangleShape neighbour = new RectangleShape(new Rect(112, 100, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        RectangleShape far = new RectangleShape(new Rect(500, 400, 10, 10), ColorData.BLACK, ColorData.WHITE);
+        drawing.addShape(moved);
+        drawing.addShape(neighbour);
+        drawing.addShape(far);
+
+        canvasPanel.repaintRegions(drawing, null, Arrays.asList(new Rect(100, 100, 10, 10)));
+
+        assertTrue(canvasPanel.isLastRepaintPartial());
+        assertEquals(2, canvasPanel.getLastRepaintedShapeCount()); // La forma vicina viene ridipinta nell'area
+        verify(mockGc).clip();
+        verify(mockGc, never()).clearRect(0, 0, 800.0, 600.0); // Nessuna pulizia completa
+        verify(mockGc).clearRect(94, 94, 22, 22); // Area allargata di DIRTY_MARGIN
+        verify(mockGc).fillRect(100, 100, 10, 10);
+        verify(mockGc).fillRect(112, 100, 10, 10);
+        verify(mockGc, never()).fillRect(500, 400, 10, 10);
+    }
+
+    @Test
+    void repaintRegions_outsideViewport_shouldPaintNothing() {
+        Drawing drawing = new Drawing();
+        drawing.addShape(new RectangleShape(new Rect(5000, 5000, 10, 10), ColorData.BLACK, ColorData.WHITE));
+
+        canvasPanel.repaintRegions(drawing, null, Arrays.asList(new Rect(5000, 5000, 10, 10)));
+
+        assertTrue(canvasPanel.isLastRepaintPartial());
+        assertEquals(0, canvasPanel.getLastRepaintedShapeCount());
+        verify(mockGc, never()).clip();
+        verify(mockGc, never()).clearRect(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void repaintRegions_largeDirtyArea_shouldFallBackToFullRepaint() {
+        Drawing drawing = new Drawing();
+        drawing.addShape(new RectangleShape(new Rect(0, 0, 700, 500), ColorData.BLACK, ColorData.WHITE));
+
+        canvasPanel.repaintRegions(drawing, null, Arrays.asList(new Rect(0, 0, 700, 500)));
+
+        assertFalse(canvasPanel.isLastRepaintPartial());
+        verify(mockGc).clearRect(0, 0, 800.0, 600.0);
+        verify(mockGc, never()).clip();
+    }
+}
@@ -120,7 +120,7 @@ class DrawingViewTest {
         
         // Verifica che le trasformazioni iniziali siano state impostate e sia avvenuto un render
         verify(mockCanvasPanel).setTransform(anyDouble(), anyDouble(), anyDouble());
-        verify(mockCanvasPanel).drawShapes(anyList(), any()); // Render iniziale
+        verify(mockCanvasPanel).drawShapes(any(Drawing.class), any()); // Render iniziale
     }
     
     @Test
@@ -213,6 +213,8 @@ class DrawingViewTest {
         when(mockDragEvent.getY()).thenReturn(80.0);
 
         handler.handle(mockDragEvent);
+        verify(mockGeoEngine, never()).onMouseDragged(any(Point2D.class)); // Accorpato fino al prossimo pulse
+        drawingView.getInputCoalescer().flush();
         // screenToWorld: (70-10, 80-20) = (60,60)
         ArgumentCaptor<Point2D> pointCaptor = ArgumentCaptor.forClass(Point2D.class);
         verify(mockGeoEngine).onMouseDragged(pointCaptor.capture());
@@ -249,6 +251,7 @@ class DrawingViewTest {
         when(mockScrollEvent.getY()).thenReturn(120.0); // Screen Y for zoom center
 
         handler.handle(mockScrollEvent);
+        drawingView.getInputCoalescer().flush();
         verify(mockGeoEngine).zoomIn(100.0, 120.0);
         verify(mockScrollEvent).consume();
     }
@@ -263,6 +266,7 @@ class DrawingViewTest {
         when(mockScrollEvent.getY()).thenReturn(160.0);
 
         handler.handle(mockScrollEvent);
+        drawingView.getInputCoalescer().flush();
         verify(mockGeoEngine).zoomOut(150.0, 160.0);
         verify(mockScrollEvent).consume();
     }
@@ -275,6 +279,7 @@ class DrawingViewTest {
         when(mockScrollEvent.getDeltaY()).thenReturn(0.0);
 
         handler.handle(mockScrollEvent);
+        drawingView.getInputCoalescer().flush();
         verify(mockGeoEngine, never()).zoomIn(anyDouble(), anyDouble());
         verify(mockGeoEngine, never()).zoomOut(anyDouble(), anyDouble());
         verify(mockScrollEvent).consume(); // Event is still consumed
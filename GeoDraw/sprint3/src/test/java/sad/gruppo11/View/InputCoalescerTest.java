@@ -0,0 +1,104 @@
+package sad.gruppo11.View;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import sad.gruppo11.Controller.GeoEngine;
+import sad.gruppo11.Model.geometry.Point2D;
+
+class InputCoalescerTest {
+
+    private GeoEngine mockEngine;
+    private InputCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        mockEngine = mock(GeoEngine.class);
+        // Vista con pan (10, 20) e zoom 2
+        coalescer = new InputCoalescer(mockEngine, p -> new Point2D((p.getX() - 10) / 2, (p.getY() - 20) / 2));
+    }
+
+    @Test
+    void constructor_nullArguments_shouldThrowNullPointerException() {
+        assertThrows(NullPointerException.class, () -> new InputCoalescer(null, p -> p));
+        assertThrows(NullPointerException.class, () -> new InputCoalescer(mockEngine, null));
+    }
+
+    @Test
+    void manyDragsInOneFrame_shouldDeliverOnlyLatestPositionOnFlush() {
+        for (int i = 0; i < 50; i++) {
+            coalescer.mouseDragged(new Point2D(10 + i, 20 + i));
+        }
+        verify(mockEngine, never()).onMouseDragged(any(Point2D.class));
+        assertTrue(coalescer.hasPendingEvents());
+
+        assertTrue(coalescer.flush());
+        assertFalse(coalescer.flush()); // Nulla di nuovo
+
+        verify(mockEngine, times(1)).onMouseDragged(new Point2D(24.5, 24.5));
+        assertEquals(50, coalescer.getReceivedEventCount());
+        assertEquals(1, coalescer.getDeliveredEventCount());
+        assertFalse(coalescer.hasPendingEvents());
+    }
+
+    @Test
+    void pressAndRelease_shouldBeDeliveredImmediatelyAfterPendingDrag() {
+        coalescer.mousePressed(new Point2D(10, 20));
+        coalescer.mouseDragged(new Point2D(30, 40));
+        coalescer.mouseDragged(new Point2D(50, 60));
+        coalescer.mouseReleased(new Point2D(52, 62));
+        coalescer.mousePressed(new Point2D(12, 22));
+
+        InOrder inOrder = inOrder(mockEngine);
+        inOrder.verify(mockEngine).onMousePressed(new Point2D(0, 0));
+        inOrder.verify(mockEngine).onMouseDragged(new Point2D(20, 20));
+        inOrder.verify(mockEngine).onMouseReleased(new Point2D(21, 21));
+        inOrder.verify(mockEngine).onMousePressed(new Point2D(1, 1));
+        verify(mockEngine, times(1)).onMouseDragged(any(Point2D.class));
+        assertFalse(coalescer.flush());
+    }
+
+    @Test
+    void scrolls_shouldBeReducedToNetZoomStepsAtLatestPosition() {
+        coalescer.scrolled(100, 100, 40);
+        coalescer.scrolled(110, 105, 40);
+        coalescer.scrolled(120, 110, 40);
+        coalescer.scrolled(130, 115, -40);
+        coalescer.scrolled(140, 120, 0); // Ignorato
+
+        coalescer.flush();
+
+        verify(mockEngine, times(2)).zoomIn(130, 115);
+        verify(mockEngine, never()).zoomOut(anyDouble(), anyDouble());
+
+        coalescer.scrolled(0, 0, 40);
+        coalescer.scrolled(0, 0, -40); // Si annullano
+        assertFalse(coalescer.flush());
+    }
+
+    @Test
+    void flush_shouldApplyZoomBeforeDrag() {
+        coalescer.mouseDragged(new Point2D(30, 40));
+        coalescer.scrolled(5, 5, -1);
+
+        coalescer.flush();
+
+        InOrder inOrder = inOrder(mockEngine);
+        inOrder.verify(mockEngine).zoomOut(5, 5);
+        ArgumentCaptor<Point2D> captor = ArgumentCaptor.forClass(Point2D.class);
+        inOrder.verify(mockEngine).onMouseDragged(captor.capture());
+        assertEquals(new Point2D(10, 10), captor.getValue());
+    }
+
+    @Test
+    void nullPoints_shouldThrowNullPointerException() {
+        assertThrows(NullPointerException.class, () -> coalescer.mousePressed(null));
+        assertThrows(NullPointerException.class, () -> coalescer.mouseDragged(null));
+        assertThrows(NullPointerException.class, () -> coalescer.mouseReleased(null));
+    }
+}
@@ -27,6 +27,7 @@ import javafx.geometry.VPos;
 
 
 import sad.gruppo11.Model.*;
+import sad.gruppo11.Model.geometry.Affine2D;
 import sad.gruppo11.Model.geometry.ColorData;
 import sad.gruppo11.Model.geometry.Point2D;
 import sad.gruppo11.Model.geometry.Rect;
@@ -129,6 +130,26 @@ class JavaFXShapeRendererTest {
         inOrder.verify(mockGc).restore();
     }
     
+    @Test
+    void visit_rotatedShape_shouldApplyCachedTransformMatchingJavaFxRotate() {
+        Rect bounds = new Rect(10, 20, 30, 40);
+        RectangleShape rectShape = new RectangleShape(bounds, ColorData.BLACK, ColorData.RED);
+        rectShape.setRotation(30);
+        Affine2D t = rectShape.getTransform();
+
+        rectShape.accept(renderer);
+
+        verify(mockGc).transform(t.getMxx(), t.getMyx(), t.getMxy(), t.getMyy(), t.getTx(), t.getTy());
+        Point2D center = bounds.getCenter();
+        Rotate expected = new Rotate(30, center.getX(), center.getY());
+        assertEquals(expected.getMxx(), t.getMxx(), 1e-12);
+        assertEquals(expected.getMxy(), t.getMxy(), 1e-12);
+        assertEquals(expected.getMyx(), t.getMyx(), 1e-12);
+        assertEquals(expected.getMyy(), t.getMyy(), 1e-12);
+        assertEquals(expected.getTx(), t.getTx(), 1e-9);
+        assertEquals(expected.getTy(), t.getTy(), 1e-9);
+    }
+
     @Test
     void visit_rectangleShape_transparentFill_shouldNotCallFillRect() {
         Rect bounds = new Rect(10, 20, 30, 40);
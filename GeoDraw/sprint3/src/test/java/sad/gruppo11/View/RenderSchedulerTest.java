@@ -0,0 +1,89 @@
+package sad.gruppo11.View;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderSchedulerTest {
+
+    private int renderCount;
+    private RenderScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        renderCount = 0;
+        // Il timer non viene avviato: i pulse sono simulati chiamando pulse()
+        scheduler = new RenderScheduler(() -> renderCount++);
+    }
+
+    @Test
+    void constructor_nullAction_shouldThrowNullPointerException() {
+        assertThrows(NullPointerException.class, () -> new RenderScheduler(null));
+    }
+
+    @Test
+    void pulse_withoutRequests_shouldNotRender() {
+        assertFalse(scheduler.pulse());
+        assertEquals(0, renderCount);
+        assertEquals(0, scheduler.getPerformedRenderCount());
+    }
+
+    @Test
+    void manyRequestsInOneFrame_shouldRenderOnce() {
+        for (int i = 0; i < 10; i++) {
+            scheduler.requestRender();
+        }
+        assertTrue(scheduler.isRenderPending());
+
+        assertTrue(scheduler.pulse());
+        assertFalse(scheduler.pulse()); // Nessuna nuova richiesta
+
+        assertEquals(1, renderCount);
+        assertEquals(10, scheduler.getRequestedRenderCount());
+        assertEquals(1, scheduler.getPerformedRenderCount());
+        assertFalse(scheduler.isRenderPending());
+    }
+
+    @Test
+    void requestDuringRender_shouldBeServedOnNextPulse() {
+        RenderScheduler[] holder = new RenderScheduler[1];
+        holder[0] = new RenderScheduler(() -> {
+            renderCount++;
+            if (renderCount == 1) holder[0].requestRender(); // Richiesta arrivata mentre si disegna
+        });
+        holder[0].requestRender();
+
+        assertTrue(holder[0].pulse());
+        assertTrue(holder[0].pulse());
+        assertFalse(holder[0].pulse());
+        assertEquals(2, renderCount);
+    }
+
+    @Test
+    void preRenderAction_shouldRunEveryPulseAndItsRequestServedInSamePulse() {
+        int[] runs = new int[1];
+        scheduler.setPreRenderAction(() -> {
+            runs[0]++;
+            if (runs[0] == 2) scheduler.requestRender(); // Es. input consegnato che modifica la vista
+        });
+
+        assertFalse(scheduler.pulse());
+        assertTrue(scheduler.pulse());
+        assertEquals(2, runs[0]);
+        assertEquals(1, renderCount);
+
+        scheduler.setPreRenderAction(null);
+        scheduler.pulse();
+        assertEquals(2, runs[0]);
+    }
+
+    @Test
+    void resetCounters_shouldZeroStatistics() {
+        scheduler.requestRender();
+        scheduler.pulse();
+        scheduler.resetCounters();
+        assertEquals(0, scheduler.getRequestedRenderCount());
+        assertEquals(0, scheduler.getPerformedRenderCount());
+    }
+}
@@ -0,0 +1,89 @@
+package sad.gruppo11.View;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextMetricsCacheTest {
+
+    private List<String> measured;
+    private TextMetricsCache cache;
+
+    // La misura reale richiede il toolkit JavaFX: nei test viene sostituita da una finta
+    private TextMetricsCache newCache(int capacity) {
+        return new TextMetricsCache(capacity) {
+            @Override
+            TextMetrics measure(String text, String fontName, double baseFontSize) {
+                measured.add(text + "/" + fontName + "/" + baseFontSize);
+                return new TextMetrics(null, 0, -baseFontSize, text.length() * baseFontSize / 2, baseFontSize);
+            }
+        };
+    }
+
+    @BeforeEach
+    void setUp() {
+        measured = new ArrayList<>();
+        cache = newCache(2);
+    }
+
+    @Test
+    void constructor_invalidCapacity_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new TextMetricsCache(0));
+    }
+
+    @Test
+    void get_sameKey_shouldMeasureOnceAndCountHits() {
+        TextMetricsCache.TextMetrics first = cache.get("Ciao", "Arial", 12);
+        TextMetricsCache.TextMetrics second = cache.get("Ciao", "Arial", 12);
+
+        assertSame(first, second);
+        assertEquals(24.0, first.width, 0.001);
+        assertEquals(1, measured.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0.001);
+    }
+
+    @Test
+    void get_differentFontOrSize_shouldBeDistinctEntries() {
+        cache.get("Ciao", "Arial", 12);
+        cache.get("Ciao", "Arial", 14);
+        cache.get("Ciao", "Verdana", 12);
+
+        assertEquals(3, measured.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void get_overCapacity_shouldEvictLeastRecentlyUsed() {
+        cache.get("a", "Arial", 12);
+        cache.get("b", "Arial", 12);
+        cache.get("a", "Arial", 12); // "a" diventa la più recente
+        cache.get("c", "Arial", 12); // Espelle "b"
+
+        assertEquals(2, cache.size());
+        measured.clear();
+        cache.get("a", "Arial", 12);
+        assertTrue(measured.isEmpty());
+        cache.get("b", "Arial", 12);
+        assertEquals(1, measured.size());
+    }
+
+    @Test
+    void resetStatisticsAndClear_shouldEmptyCounters() {
+        cache.get("a", null, 12);
+        cache.get("a", null, 12);
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(0.0, cache.getHitRate(), 0.001);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getCapacity());
+    }
+}